@@ -13,58 +13,104 @@ import java.util.Iterator;
 import java.util.List;
 
 import static com.athaydes.easyjetty.Filter.FilterAdapter.filterAsHandler;
-import static com.athaydes.easyjetty.PathHelper.handlerPath;
 
 class AggregateHandler extends AbstractHandlerContainer {
 
     private final EasyJetty easyJetty;
     private final PathTree<EasyJettyHandler> handlers = new PathTree<>();
+    private final PathTree.ValuesCompiler<EasyJettyHandler, HandlerChain> compiler;
+    // handlers may only be modified while holding this handler's lock,
+    // but requests are served from the immutable, volatile routes without any locking
+    private volatile RouteTable<HandlerChain> routes;
+    private boolean frozen = false;
+    private int batchDepth = 0;
 
     public AggregateHandler(EasyJetty easyJetty) {
         this.easyJetty = easyJetty;
+        this.compiler = HandlerChain.compiler(easyJetty.getContentNegotiationCache());
+        this.routes = handlers.compile(compiler);
     }
 
     @Override
     public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
             throws IOException, ServletException {
-        List<EasyJettyHandler> availableHandlers = handlers.get(handlerPath(target));
-        if (!availableHandlers.isEmpty()) {
-            for (EasyJettyHandler handler : availableHandlers) {
-                if (handler.getMethodArbiter().accepts(baseRequest.getMethod())) {
-                    try {
-                        handler.handle(target, baseRequest, request, response);
-                    } catch (Exception e) {
-                        // necessary to set the context so that the ErrorHandler can handle this request
-                        baseRequest.setContext(easyJetty.getServletContext());
-                        throw e;
-                    }
-                    if (baseRequest.isHandled()) {
-                        break;
-                    }
-                }
+        HandlerChain chain = routes.get(target);
+        if (!chain.isEmpty()) {
+            try {
+                chain.select(baseRequest.getMethod()).handle(target, baseRequest, request, response);
+            } catch (Exception e) {
+                // necessary to set the context so that the ErrorHandler can handle this request
+                baseRequest.setContext(easyJetty.getServletContext());
+                throw e;
             }
         }
     }
 
+    /**
+     * @param target request target
+     * @return true if any handler or filter is registered for the given target.
+     */
+    boolean hasRoute(String target) {
+        return !routes.get(target).isEmpty();
+    }
+
     @Override
-    public Handler[] getHandlers() {
+    public synchronized Handler[] getHandlers() {
         return handlers.values().toArray(new Handler[handlers.size()]);
     }
 
-    public void add(HandlerPath handlerPath, UserHandler handler) {
+    /**
+     * Compile all handlers into an immutable route table, which will be used to serve requests.
+     * <p/>
+     * Any later changes to the handlers cause a new table to be compiled and published atomically,
+     * so requests being served concurrently always see either the old or the new routes.
+     */
+    public synchronized void freeze() {
+        frozen = true;
+        routes = handlers.compile(compiler);
+    }
+
+    /**
+     * Run the given changes to the handlers, publishing a new route table only once all of them
+     * have been applied.
+     * <p/>
+     * If the changes throw an Exception, whatever changes have already been applied are still published.
+     *
+     * @param changes to apply
+     */
+    public synchronized void batch(Runnable changes) {
+        batchDepth++;
+        try {
+            changes.run();
+        } finally {
+            batchDepth--;
+            routesChanged();
+        }
+    }
+
+    private void routesChanged() {
+        if (frozen && batchDepth == 0) {
+            routes = handlers.compile(compiler);
+        }
+    }
+
+    public synchronized void add(HandlerPath handlerPath, UserHandler handler) {
         handlers.put(handlerPath, handler);
+        routesChanged();
     }
 
-    public void addFilter(HandlerPath handlerPath, Filter filter, ObjectSupport objectSupport) {
+    public synchronized void addFilter(HandlerPath handlerPath, Filter filter, ObjectSupport objectSupport) {
         handlers.putFirst(handlerPath, filterAsHandler(filter,
                 handlerPath.getParametersByIndex(), objectSupport));
+        routesChanged();
     }
 
-    public void clear() {
+    public synchronized void clear() {
         handlers.clear();
+        routesChanged();
     }
 
-    public boolean remove(MethodArbiter methodArbiter, HandlerPath handlerPath) {
+    public synchronized boolean remove(MethodArbiter methodArbiter, HandlerPath handlerPath) {
         List<EasyJettyHandler> userHandlers = handlers.get(handlerPath);
         boolean result = false;
         for (Iterator<EasyJettyHandler> iter = userHandlers.iterator(); iter.hasNext(); ) {
@@ -74,6 +120,9 @@ class AggregateHandler extends AbstractHandlerContainer {
                 result = true;
             }
         }
+        if (result) {
+            routesChanged();
+        }
         return result;
     }
 }
@@ -0,0 +1,222 @@
+package com.athaydes.easyjetty;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Accumulates the request content as it arrives, without blocking, then maps it and hands it to a
+ * {@link ReceiveCallback} from a server Thread.
+ *
+ * @see Responder.Exchange#receiveAsync(Class, ReceiveCallback)
+ */
+final class AsyncReceiver<T> implements ReadListener {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private final Responder.Exchange exchange;
+    private final Class<T> type;
+    private final ReceiveCallback<? super T> callback;
+    private final int maxSize;
+    private final AtomicBoolean done = new AtomicBoolean(false);
+
+    // accessed only by the Thread reading the content
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private ByteArrayOutputStream content;
+    private ServletInputStream in;
+
+    AsyncReceiver(Responder.Exchange exchange, Class<T> type, ReceiveCallback<? super T> callback) {
+        this.exchange = exchange;
+        this.type = type;
+        this.callback = callback;
+        this.maxSize = exchange.getObjectSupport().getMaxAsyncContentSize();
+    }
+
+    void start() {
+        int contentLength = exchange.request.getContentLength();
+        if (contentLength > maxSize) {
+            fail(new PayloadTooBigException());
+            return;
+        }
+        // the Content-Length header is not trusted to size the buffer, it grows as the content actually arrives
+        content = new ByteArrayOutputStream(BUFFER_SIZE);
+        try {
+            in = exchange.request.getInputStream();
+            in.setReadListener(this);
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void onDataAvailable() throws IOException {
+        int count;
+        while (!done.get() && in.isReady() && (count = in.read(buffer)) >= 0) {
+            if ((long) content.size() + count > maxSize) {
+                fail(new PayloadTooBigException());
+                return;
+            }
+            content.write(buffer, 0, count);
+        }
+    }
+
+    @Override
+    public void onAllDataRead() {
+        if (done.compareAndSet(false, true)) {
+            // mapping the content may take a while, so it is not done by the container's I/O Thread.
+            // AsyncContext.start is not used as it requires a ContextHandler, which the server may not have
+            Executor executor = exchange.getObjectSupport().getHandlerExecutor();
+            if (executor == null) {
+                executor = exchange.baseRequest.getHttpChannel().getServer().getThreadPool();
+            }
+            Runnable job = QueueMonitor.continuation(new Runnable() {
+                @Override
+                public void run() {
+                    deliver();
+                }
+            });
+            try {
+                executor.execute(job);
+            } catch (RejectedExecutionException e) {
+                job.run();
+            }
+        }
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        fail(error);
+    }
+
+    private void deliver() {
+        T object;
+        try {
+            object = exchange.getObjectSupport().receive(
+                    new ReceivedRequest(exchange.request, content.toByteArray()), type);
+        } catch (Throwable e) {
+            onFailure(e);
+            return;
+        }
+        // the exchange must always be ended, otherwise the request would only be released by the idle timeout
+        Throwable callbackError = null;
+        try {
+            callback.onReceived(object);
+        } catch (Throwable e) {
+            callbackError = e;
+        }
+        exchange.endReceiving(callbackError);
+    }
+
+    private void fail(Throwable error) {
+        if (done.compareAndSet(false, true)) {
+            onFailure(error);
+        }
+    }
+
+    private void onFailure(Throwable error) {
+        if (!exchange.response.isCommitted()) {
+            exchange.response.setStatus(statusCodeFor(error));
+        }
+        Throwable callbackError = null;
+        try {
+            callback.onError(error);
+        } catch (Throwable e) {
+            callbackError = e;
+        }
+        exchange.endReceiving(callbackError);
+    }
+
+    private static int statusCodeFor(Throwable error) {
+        if (error instanceof PayloadTooBigException) {
+            return HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE;
+        }
+        if (error instanceof IOException || error instanceof Error) {
+            return HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        }
+        return HttpServletResponse.SC_BAD_REQUEST;
+    }
+
+    /**
+     * The request content is larger than the maximum size allowed.
+     */
+    private static final class PayloadTooBigException extends IllegalArgumentException {
+
+        private static final long serialVersionUID = 1L;
+
+        PayloadTooBigException() {
+            super("Request payload is too big");
+        }
+    }
+
+    /**
+     * The request, with its content replaced by the content already received.
+     */
+    private static class ReceivedRequest extends HttpServletRequestWrapper {
+
+        private final byte[] content;
+
+        ReceivedRequest(HttpServletRequest request, byte[] content) {
+            super(request);
+            this.content = content;
+        }
+
+        @Override
+        public int getContentLength() {
+            return content.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return content.length;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            final ByteArrayInputStream in = new ByteArrayInputStream(content);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new IllegalStateException("Request content has already been received");
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) {
+                    return in.read(bytes, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String charset = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    charset == null ? "ISO-8859-1" : charset));
+        }
+    }
+
+}
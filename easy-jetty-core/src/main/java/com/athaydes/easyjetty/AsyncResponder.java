@@ -0,0 +1,193 @@
+package com.athaydes.easyjetty;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An user-provided Responder to a Request which may complete the response asynchronously.
+ * <p/>
+ * Unlike a {@link Responder}, an AsyncResponder does not hold a server Thread while it waits for
+ * the response to be ready (eg. while waiting for a downstream service). The exchange ends only when
+ * {@link AsyncExchange#complete()} or {@link AsyncExchange#fail(Throwable)} is called, or when it times out.
+ *
+ * @see EasyJetty#onAsync(com.athaydes.easyjetty.http.MethodArbiter, String, String, AsyncResponder)
+ */
+public interface AsyncResponder {
+
+    /**
+     * An exchange which remains open after the AsyncResponder returns, until it is completed.
+     * <p/>
+     * The methods of an AsyncExchange may be called from any Thread, but only the first call to
+     * <code>complete</code> or <code>fail</code> has any effect. If the exchange times out first,
+     * a 503 (Service Unavailable) error is sent, and any later calls are ignored.
+     * <p/>
+     * Errors are sent with <code>HttpServletResponse.sendError</code>, so they are handled by the server's
+     * error handler, including any error pages configured with
+     * {@link EasyJetty#errorPage(int, String)}.
+     * <p/>
+     * If the response body is streamed with {@link #stream(ChunkProducer, FlushPolicy)}, the exchange is
+     * completed when the stream ends. Request content received with {@link #receiveAsync(Class, ReceiveCallback)}
+     * is handed to the callback, which must complete the exchange. The timeout of the exchange still applies
+     * while the request content is received and the response body is streamed.
+     */
+    class AsyncExchange extends Responder.Exchange {
+
+        private final AsyncContext asyncContext;
+        private final AtomicBoolean done = new AtomicBoolean(false);
+
+        AsyncExchange(Responder.Exchange exchange, long timeout) {
+            super(exchange.out, exchange.request, exchange.response, exchange.baseRequest,
+                    exchange.params, exchange.getObjectSupport(), exchange.acceptedContentType);
+            this.asyncContext = ExecutorDispatchHandler.startAsync(exchange.request);
+            asyncContext.setTimeout(timeout);
+            asyncContext.addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    // the container may complete the exchange itself (eg. when the server stops)
+                    if (done.compareAndSet(false, true)) {
+                        release();
+                    }
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                    end(HttpServletResponse.SC_SERVICE_UNAVAILABLE, null);
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                    end(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, event.getThrowable());
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        }
+
+        /**
+         * Completes the exchange, committing the response as it is.
+         */
+        public void complete() {
+            if (done.compareAndSet(false, true)) {
+                try {
+                    asyncContext.complete();
+                } finally {
+                    release();
+                }
+            }
+        }
+
+        /**
+         * Completes the exchange with a 500 (Internal Server Error) response, unless the response
+         * has already been committed.
+         *
+         * @param error the cause of the failure
+         */
+        public void fail(Throwable error) {
+            end(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, error);
+        }
+
+        @Override
+        boolean isAsync() {
+            return true;
+        }
+
+        @Override
+        AsyncContext startAsync() {
+            return asyncContext;
+        }
+
+        @Override
+        void endReceiving(Throwable error) {
+            // the responder completes the exchange itself, unless the callback fails
+            if (error != null) {
+                fail(error);
+            }
+        }
+
+        @Override
+        void endAsync(Throwable error) {
+            if (error == null) {
+                complete();
+            } else {
+                fail(error);
+            }
+        }
+
+        /**
+         * @return true if the exchange has been completed, has failed or has timed out.
+         */
+        public boolean isDone() {
+            return done.get();
+        }
+
+        private void end(int statusCode, Throwable error) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                if (!response.isCommitted()) {
+                    if (error != null) {
+                        request.setAttribute(RequestDispatcher.ERROR_EXCEPTION, error);
+                    }
+                    response.sendError(statusCode);
+                }
+            } catch (IOException | RuntimeException e) {
+                // the client is most likely gone, there is nothing else to do
+            } finally {
+                try {
+                    asyncContext.complete();
+                } finally {
+                    release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Implement this method to respond to a request.
+     * <p/>
+     * The exchange must eventually be completed by calling {@link AsyncExchange#complete()} or
+     * {@link AsyncExchange#fail(Throwable)}. If this method throws an Exception, the exchange fails.
+     *
+     * @param exchange useful resources for an exchange (request/response)
+     * @throws IOException in case the stream is closed or there's a problem accessing some resource
+     */
+    void respond(AsyncExchange exchange) throws IOException;
+
+    class AsyncAdapter {
+
+        private static class AsyncResponderAdapter implements Responder {
+
+            private final AsyncResponder responder;
+            private final EasyJetty easyJetty;
+
+            AsyncResponderAdapter(AsyncResponder responder, EasyJetty easyJetty) {
+                this.responder = responder;
+                this.easyJetty = easyJetty;
+            }
+
+            @Override
+            public void respond(Exchange exchange) {
+                AsyncExchange asyncExchange = new AsyncExchange(exchange, easyJetty.getAsyncTimeout());
+                try {
+                    responder.respond(asyncExchange);
+                } catch (IOException | RuntimeException e) {
+                    asyncExchange.fail(e);
+                }
+            }
+        }
+
+        static Responder asResponder(AsyncResponder responder, EasyJetty easyJetty) {
+            return new AsyncResponderAdapter(responder, easyJetty);
+        }
+
+    }
+
+}
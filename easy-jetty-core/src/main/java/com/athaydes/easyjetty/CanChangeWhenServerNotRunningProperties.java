@@ -3,6 +3,8 @@ package com.athaydes.easyjetty;
 import org.eclipse.jetty.server.RequestLog;
 import org.eclipse.jetty.server.Server;
 
+import java.util.concurrent.Executor;
+
 /**
  * Group of properties that can only change when the server is not running.
  */
@@ -15,6 +17,8 @@ class CanChangeWhenServerNotRunningProperties {
     private String resourcesLocation;
     private String[] virtualHosts;
     private SSLConfig sslConfig;
+    private ThreadPoolConfig threadPoolConfig;
+    private Executor handlerExecutor;
 
     private static void errorIfServerStarted(Server server) {
         if (server != null && server.isStarted()) {
@@ -85,4 +89,22 @@ class CanChangeWhenServerNotRunningProperties {
         this.sslConfig = sslConfig;
     }
 
+    public ThreadPoolConfig getThreadPoolConfig() {
+        return threadPoolConfig;
+    }
+
+    public void setThreadPoolConfig(ThreadPoolConfig threadPoolConfig, Server server) {
+        errorIfServerStarted(server);
+        this.threadPoolConfig = threadPoolConfig;
+    }
+
+    public Executor getHandlerExecutor() {
+        return handlerExecutor;
+    }
+
+    public void setHandlerExecutor(Executor handlerExecutor, Server server) {
+        errorIfServerStarted(server);
+        this.handlerExecutor = handlerExecutor;
+    }
+
 }
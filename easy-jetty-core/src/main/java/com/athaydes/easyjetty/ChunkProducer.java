@@ -0,0 +1,25 @@
+package com.athaydes.easyjetty;
+
+import java.io.IOException;
+
+/**
+ * An user-provided producer of the chunks of a streaming response body.
+ *
+ * @see Responder.Exchange#stream(ChunkProducer, FlushPolicy)
+ */
+public interface ChunkProducer {
+
+    /**
+     * Called whenever the connection can accept another chunk.
+     * <p/>
+     * Implementations should either write one chunk into the stream, end the stream, or return
+     * without doing anything if no chunk is ready yet. In the latter case, this method is not called
+     * again until {@link ResponseStream#resume()} is called, so a producer waiting for data
+     * does not hold any Thread.
+     *
+     * @param stream to write the chunk into
+     * @throws IOException if a problem occurs while producing the chunk
+     */
+    void onDemand(ResponseStream stream) throws IOException;
+
+}
@@ -3,10 +3,12 @@ package com.athaydes.easyjetty;
 import com.athaydes.easyjetty.extension.EasyJettyEvent;
 import com.athaydes.easyjetty.extension.EasyJettyExtension;
 import com.athaydes.easyjetty.extension.event.*;
+import com.athaydes.easyjetty.http.ContentNegotiationCache;
 import com.athaydes.easyjetty.http.MethodArbiter;
 import com.athaydes.easyjetty.mapper.ObjectMapperGroup;
 import org.eclipse.jetty.server.RequestLog;
 import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.server.handler.ContextHandler;
 import org.eclipse.jetty.server.handler.DefaultHandler;
 import org.eclipse.jetty.server.handler.HandlerCollection;
@@ -15,12 +17,15 @@ import org.eclipse.jetty.servlet.DefaultServlet;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
 
+import javax.servlet.MultipartConfigElement;
 import javax.servlet.Servlet;
 import java.net.BindException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
 
 import static com.athaydes.easyjetty.PathHelper.handlerPath;
 import static com.athaydes.easyjetty.PathHelper.sanitize;
@@ -31,10 +36,19 @@ import static com.athaydes.easyjetty.mapper.ObjectMapper.ACCEPT_EVERYTHING;
  */
 public class EasyJetty {
 
+    private static final int DEFAULT_MAX_FORM_KEYS = 1000;
+    private static final int DEFAULT_MULTIPART_FILE_SIZE_THRESHOLD = 64 * 1024;
+    private static final long DEFAULT_MULTIPART_MAX_FILE_SIZE = 10 * 1024 * 1024;
+    private static final long DEFAULT_MULTIPART_MAX_REQUEST_SIZE = 50 * 1024 * 1024;
+    private static final int DEFAULT_MAX_ASYNC_CONTENT_SIZE = 10 * 1024 * 1024;
+    private static final long DEFAULT_ASYNC_TIMEOUT = 30_000L;
+
     private final CanChangeWhenServerNotRunningProperties notRunningProperties = new CanChangeWhenServerNotRunningProperties();
 
     private final Map<String, Object> servlets = new HashMap<>(5);
     private final Map<HandlerPath, Filter> filters = new HashMap<>(2);
+    private final ContentNegotiationCache negotiationCache = new ContentNegotiationCache();
+    private final ThreadPoolStats threadPoolStats = new ThreadPoolStats();
     private final AggregateHandler aggregateHandler = new AggregateHandler(this);
     private final ObjectSupport objectSupport = new ObjectSupport(this);
     private final List<EasyJettyExtension> extensions = new ArrayList<>(2);
@@ -47,6 +61,9 @@ public class EasyJetty {
     private volatile ServletContextHandler servletHandler;
     private volatile boolean sslOnly;
     private volatile int maxFormSize;
+    private volatile int maxFormKeys;
+    private volatile MultipartConfigElement multipartConfig;
+    private volatile long asyncTimeout;
 
     /**
      * Build an EasyJetty instance using the default values for all settings.
@@ -80,12 +97,18 @@ public class EasyJetty {
         notRunningProperties.setRequestLog(null, server);
         notRunningProperties.setResourcesLocation(null, server);
         notRunningProperties.setVirtualHosts(server);
+        notRunningProperties.setThreadPoolConfig(new ThreadPoolConfig(), server);
+        notRunningProperties.setHandlerExecutor(null, server);
         allHandler = new HandlerCollection();
         initializeServletHandler();
         defaultContentType = null;
         defaultAccept = null;
         errorHandler = null;
         maxFormSize = -1;
+        maxFormKeys = -1;
+        multipartConfig = new MultipartConfigElement("", DEFAULT_MULTIPART_MAX_FILE_SIZE,
+                DEFAULT_MULTIPART_MAX_REQUEST_SIZE, DEFAULT_MULTIPART_FILE_SIZE_THRESHOLD);
+        asyncTimeout = DEFAULT_ASYNC_TIMEOUT;
     }
 
     /**
@@ -210,7 +233,8 @@ public class EasyJetty {
                 responder,
                 handlerPath.getParametersByIndex(),
                 defaultContentType,
-                objectSupport));
+                objectSupport,
+                negotiationCache));
         return this;
     }
 
@@ -226,6 +250,37 @@ public class EasyJetty {
         return on(methodArbiter, path, defaultAccept != null ? defaultAccept : ACCEPT_EVERYTHING, responder);
     }
 
+    /**
+     * Add an asynchronous handler for requests to the given path that accepts the given contentType.
+     * <p/>
+     * The request is put in asynchronous mode before the responder is called, so the responder may
+     * return immediately and complete the exchange later, from any Thread, without holding a server Thread
+     * while it waits.
+     *
+     * @param methodArbiter arbiter for which methods should be accepted
+     * @param path          request path
+     * @param contentType   accepted content type
+     * @param responder     the response that may be computed asynchronously for each request to this path
+     * @return this
+     * @see #asyncTimeout(long)
+     */
+    public EasyJetty onAsync(MethodArbiter methodArbiter, String path, String contentType, AsyncResponder responder) {
+        return on(methodArbiter, path, contentType, AsyncResponder.AsyncAdapter.asResponder(responder, this));
+    }
+
+    /**
+     * Add an asynchronous handler for requests to the given path.
+     *
+     * @param methodArbiter arbiter for which methods should be accepted
+     * @param path          request path
+     * @param responder     the response that may be computed asynchronously for each request to this path
+     * @return this
+     * @see #onAsync(MethodArbiter, String, String, AsyncResponder)
+     */
+    public EasyJetty onAsync(MethodArbiter methodArbiter, String path, AsyncResponder responder) {
+        return onAsync(methodArbiter, path, defaultAccept != null ? defaultAccept : ACCEPT_EVERYTHING, responder);
+    }
+
     /**
      * Remove a handler that accepts the given methodArbiter for the given path.
      * <p/>
@@ -242,6 +297,33 @@ public class EasyJetty {
         return aggregateHandler.remove(methodArbiter, handlerPath);
     }
 
+    /**
+     * Apply many changes to the handlers at once.
+     * <p/>
+     * Handlers may be added or removed at any time, even while the server is running, but each change
+     * made while the server is running causes the routes used to serve requests to be re-built.
+     * When the given changes are run, the routes are only re-built once, after all changes have been applied,
+     * so that requests see either none or all of them.
+     * <p/>
+     * Example:
+     * <p/>
+     * <code>
+     * easy.batch(new Runnable() {<br>
+     * &nbsp;&nbsp;public void run() {<br>
+     * &nbsp;&nbsp;&nbsp;&nbsp;easy.remove(GET, "/old");<br>
+     * &nbsp;&nbsp;&nbsp;&nbsp;easy.on(GET, "/new", responder);<br>
+     * &nbsp;&nbsp;}<br>
+     * });
+     * </code>
+     *
+     * @param changes calls to {@code on(...)} and {@code remove(...)} to apply together
+     * @return this
+     */
+    public EasyJetty batch(Runnable changes) {
+        aggregateHandler.batch(changes);
+        return this;
+    }
+
     /**
      * Set the requestLog
      *
@@ -357,6 +439,9 @@ public class EasyJetty {
      * Maximum form size allowable. This uses the same mechanism as Jetty does for Servlets,
      * but for user-provided Responders, you should use the {@link com.athaydes.easyjetty.Responder.Exchange#receiveAs}
      * method to read Objects from a request in order for this setting to have effect.
+     * <p/>
+     * Request bodies received without blocking, with {@link com.athaydes.easyjetty.Responder.Exchange#receiveAsync},
+     * are held in memory until they have been fully received, so unless this is set, they are limited to 10MB.
      *
      * @param maxBytes maximum amount of bytes a form, or request body, may have
      * @return this
@@ -369,14 +454,148 @@ public class EasyJetty {
         return this;
     }
 
+    /**
+     * Maximum number of keys a form may have. This uses the same mechanism as Jetty does for Servlets,
+     * but for user-provided Responders, you should use the {@link com.athaydes.easyjetty.Responder.Exchange#receiveAs}
+     * method to read forms from a request in order for this setting to have effect.
+     * <p/>
+     * The default is 1000 keys.
+     *
+     * @param maxKeys maximum number of keys a form may have
+     * @return this
+     */
+    public EasyJetty maxFormKeys(int maxKeys) {
+        if (maxKeys < 0) {
+            throw new IllegalArgumentException("MaxKeys must be 0 or larger");
+        }
+        this.maxFormKeys = maxKeys;
+        return this;
+    }
+
+    /**
+     * Configuration of multipart/form-data requests read with the
+     * {@link com.athaydes.easyjetty.Responder.Exchange#receiveParts} method.
+     * <p/>
+     * Parts larger than the file-size threshold are written to temporary files in the configured location
+     * (or the system's temporary directory if the location is empty) as the request is parsed, so that large
+     * uploads do not need to fit in memory. The maximum part (file) and request sizes are enforced during parsing.
+     * <p/>
+     * By default, parts of up to 64KB are kept in memory, parts may have up to 10MB and whole requests up to 50MB.
+     * Notice that a configuration without size limits allows any client to fill the temporary directory.
+     *
+     * @param config multipart configuration
+     * @return this
+     */
+    public EasyJetty multipartConfig(MultipartConfigElement config) {
+        Objects.requireNonNull(config);
+        this.multipartConfig = config;
+        return this;
+    }
+
+    /**
+     * Maximum time an asynchronous exchange may take to complete. If an exchange does not complete in time,
+     * a 503 (Service Unavailable) error is sent.
+     * <p/>
+     * The default is 30 seconds.
+     *
+     * @param timeoutMillis timeout in milliseconds, or 0 for no timeout
+     * @return this
+     * @see #onAsync(MethodArbiter, String, String, AsyncResponder)
+     */
+    public EasyJetty asyncTimeout(long timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("Timeout must be 0 or larger");
+        }
+        this.asyncTimeout = timeoutMillis;
+        return this;
+    }
+
+    /**
+     * Configure the Thread pool used by the server.
+     * <p/>
+     * By default, Jetty's <code>QueuedThreadPool</code> is used with its default settings and an unbounded queue.
+     *
+     * @param config Thread pool configuration
+     * @return this
+     * @see #getThreadPoolStats()
+     */
+    public EasyJetty threadPool(ThreadPoolConfig config) {
+        Objects.requireNonNull(config);
+        notRunningProperties.setThreadPoolConfig(config, server);
+        return this;
+    }
+
+    /**
+     * Run the handlers and filters of requests routed to them in the given Executor, rather than in the server
+     * Thread which parsed the request.
+     * <p/>
+     * The server's Thread pool then only runs the connectors and the handling of requests which are not routed
+     * to any handler (eg. servlets and static resources), so the number of requests being handled concurrently is
+     * limited by the Executor rather than by the size of the pool. This is mostly useful with an Executor
+     * which starts a new virtual Thread for each job, so that handlers may block (eg. on JDBC or file I/O) without
+     * holding a server Thread.
+     * <p/>
+     * The Executor is not shut down when the server stops. If it rejects a request, the request is handled in the
+     * server Thread. The callbacks of {@link Responder.Exchange#receiveAsync(Class, ReceiveCallback)} are also
+     * called from the Executor.
+     * <p/>
+     * Notice that the buffers EasyJetty and its mappers keep for each Thread, so that they are not allocated for
+     * every request, are only reused by Threads which handle many requests. With an Executor which starts a new
+     * Thread for each job, every request allocates the buffers it uses (a few KB for each kind of buffer) and
+     * leaves them to be garbage collected, which is the price of not holding any Thread while handlers block.
+     *
+     * @param executor to run handlers with, or null to run them in server Threads
+     * @return this
+     */
+    public EasyJetty handlerExecutor(Executor executor) {
+        notRunningProperties.setHandlerExecutor(executor, server);
+        return this;
+    }
+
     public ObjectMapperGroup getObjectMapperGroup() {
         return objectSupport.getObjectMapperGroup();
     }
 
+    /**
+     * @return the cache of the content negotiation results between the content types accepted by
+     * handlers and the Accept header of requests, which also keeps hit/miss statistics.
+     */
+    public ContentNegotiationCache getContentNegotiationCache() {
+        return negotiationCache;
+    }
+
+    /**
+     * @return statistics of the time requests wait in the Thread pool queue before being handled,
+     * and of the requests rejected because the queue was full.
+     */
+    public ThreadPoolStats getThreadPoolStats() {
+        return threadPoolStats;
+    }
+
+    Executor getHandlerExecutor() {
+        return notRunningProperties.getHandlerExecutor();
+    }
+
     int getMaxFormSize() {
         return maxFormSize < 0 ? Integer.MAX_VALUE : maxFormSize;
     }
 
+    int getMaxAsyncContentSize() {
+        return maxFormSize < 0 ? DEFAULT_MAX_ASYNC_CONTENT_SIZE : maxFormSize;
+    }
+
+    MultipartConfigElement getMultipartConfig() {
+        return multipartConfig;
+    }
+
+    long getAsyncTimeout() {
+        return asyncTimeout;
+    }
+
+    int getMaxFormKeys() {
+        return maxFormKeys < 0 ? DEFAULT_MAX_FORM_KEYS : maxFormKeys;
+    }
+
     public boolean isRunning() {
         final Server current = server;
         return current != null && current.isRunning();
@@ -447,6 +666,8 @@ public class EasyJetty {
                     servlets.clear();
                     aggregateHandler.clear();
                     objectSupport.clear();
+                    negotiationCache.clear();
+                    threadPoolStats.reset();
                     restoreDefaults();
                 }
             } catch (Exception e) {
@@ -505,8 +726,21 @@ public class EasyJetty {
         initializeFilters();
         configHandlers();
 
-        server = new Server(notRunningProperties.getPort());
-        server.setHandler(allHandler);
+        server = new Server(notRunningProperties.getThreadPoolConfig().createThreadPool(threadPoolStats));
+        ServerConnector connector = new ServerConnector(server);
+        connector.setPort(notRunningProperties.getPort());
+        server.addConnector(connector);
+
+        QueueHandler queueHandler = new QueueHandler(threadPoolStats);
+        Executor handlerExecutor = notRunningProperties.getHandlerExecutor();
+        if (handlerExecutor == null) {
+            queueHandler.setHandler(allHandler);
+        } else {
+            ExecutorDispatchHandler dispatchHandler = new ExecutorDispatchHandler(handlerExecutor, aggregateHandler);
+            dispatchHandler.setHandler(allHandler);
+            queueHandler.setHandler(dispatchHandler);
+        }
+        server.setHandler(queueHandler);
 
         initializeRequestLogHandler();
         initializeErrorHandler();
@@ -515,6 +749,7 @@ public class EasyJetty {
     }
 
     private void configHandlers() {
+        aggregateHandler.freeze();
         allHandler.addHandler(aggregateHandler);
         allHandler.addHandler(servletHandler);
         allHandler.addHandler(new DefaultHandler());
@@ -583,5 +818,9 @@ public class EasyJetty {
             getServletHandler().setMaxFormContentSize(maxFormSize);
             server.setAttribute("org.eclipse.jetty.server.Request.maxFormContentSize", maxFormSize);
         }
+        if (maxFormKeys >= 0) {
+            getServletHandler().setMaxFormKeys(maxFormKeys);
+            server.setAttribute("org.eclipse.jetty.server.Request.maxFormKeys", maxFormKeys);
+        }
     }
 }
@@ -0,0 +1,168 @@
+package com.athaydes.easyjetty;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writer which encodes characters into an OutputStream using a CharsetEncoder and buffers that are
+ * reused by all writes made by the same Thread.
+ * <p/>
+ * Characters in the ASCII range are written directly as bytes if the charset is ASCII-compatible, so the
+ * CharsetEncoder is only used for other characters.
+ * <p/>
+ * Each Thread has a single instance, obtained with {@link #open(OutputStream, String)}, which must be
+ * released after use by calling {@link #close()}. If the instance is still in use when <code>open</code>
+ * is called (ie. by a nested write), a new instance is returned.
+ */
+final class EncodingWriter extends Writer {
+
+    static final int BUFFER_SIZE = 8192;
+
+    private static final ThreadLocal<EncodingWriter> WRITER = new ThreadLocal<EncodingWriter>() {
+        @Override
+        protected EncodingWriter initialValue() {
+            return new EncodingWriter();
+        }
+    };
+
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(1024);
+
+    private String charsetName;
+    private CharsetEncoder encoder;
+    private boolean asciiCompatible;
+
+    private OutputStream out;
+
+    private EncodingWriter() {
+    }
+
+    /**
+     * @param out         to write the encoded characters into
+     * @param charsetName name of the charset to use
+     * @return this Thread's EncodingWriter, ready to write into out
+     */
+    static EncodingWriter open(OutputStream out, String charsetName) {
+        EncodingWriter writer = WRITER.get();
+        if (writer.out != null) {
+            writer = new EncodingWriter();
+        }
+        writer.use(out, charsetName);
+        return writer;
+    }
+
+    private void use(OutputStream out, String charsetName) {
+        if (!charsetName.equals(this.charsetName)) {
+            Charset charset = Charset.forName(charsetName);
+            this.encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.asciiCompatible = charset.equals(StandardCharsets.UTF_8) ||
+                    charset.equals(StandardCharsets.ISO_8859_1) ||
+                    charset.equals(StandardCharsets.US_ASCII);
+            this.charsetName = charsetName;
+        }
+        this.out = out;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        put((char) c);
+        encodePendingChars(false);
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            put(buffer[i]);
+        }
+        encodePendingChars(false);
+    }
+
+    @Override
+    public void write(String s, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            put(s.charAt(i));
+        }
+        encodePendingChars(false);
+    }
+
+    private void put(char c) throws IOException {
+        if (c < 0x80 && asciiCompatible && chars.position() == 0) {
+            if (!bytes.hasRemaining()) {
+                drainBytes();
+            }
+            bytes.put((byte) c);
+        } else {
+            chars.put(c);
+            if (!chars.hasRemaining()) {
+                encodePendingChars(false);
+            }
+        }
+    }
+
+    private void encodePendingChars(boolean endOfInput) throws IOException {
+        if (chars.position() == 0 && !endOfInput) {
+            return;
+        }
+        chars.flip();
+        while (encoder.encode(chars, bytes, endOfInput).isOverflow()) {
+            drainBytes();
+        }
+        // an unpaired high surrogate may remain until the next write
+        chars.compact();
+    }
+
+    private void drainBytes() throws IOException {
+        out.write(bytes.array(), 0, bytes.position());
+        bytes.clear();
+    }
+
+    /**
+     * Writes all encoded bytes into the OutputStream, without flushing it.
+     */
+    @Override
+    public void flush() throws IOException {
+        drainBytes();
+    }
+
+    /**
+     * Completes the encoding, writing all remaining bytes into the OutputStream (which is not closed),
+     * then releases this Writer.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            encodePendingChars(true);
+            CoderResult result;
+            while ((result = encoder.flush(bytes)).isOverflow()) {
+                drainBytes();
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+            drainBytes();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Releases this Writer without writing any remaining bytes.
+     */
+    void release() {
+        bytes.clear();
+        chars.clear();
+        encoder.reset();
+        out = null;
+    }
+
+}
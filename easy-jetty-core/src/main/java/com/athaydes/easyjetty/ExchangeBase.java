@@ -1,10 +1,17 @@
 package com.athaydes.easyjetty;
 
+import org.eclipse.jetty.util.MultiException;
+import org.eclipse.jetty.util.MultiPartInputStreamParser;
+
+import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.Part;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -18,6 +25,7 @@ public abstract class ExchangeBase {
     public final HttpServletResponse response;
     public final Map<String, String> params;
     private final ObjectSupport objectSupport;
+    private MultiPartInputStreamParser multiPartParser;
 
     ExchangeBase(ServletOutputStream out, HttpServletRequest request,
                  HttpServletResponse response,
@@ -30,10 +38,55 @@ public abstract class ExchangeBase {
         this.objectSupport = objectSupport;
     }
 
+    /**
+     * Returns the value of a path parameter parsed as a long.
+     * <p/>
+     * For parameters of the request path, the value is parsed directly from the path,
+     * without creating any intermediate Strings.
+     *
+     * @param name of the parameter, eg. "id" for a handler path such as "/users/:id"
+     * @return the value of the parameter
+     * @throws java.lang.IllegalArgumentException if there is no parameter with the given name.
+     * @throws java.lang.NumberFormatException    if the value of the parameter is not a valid long.
+     */
+    public long paramAsLong(String name) {
+        if (params instanceof PathParams) {
+            return ((PathParams) params).getLong(name);
+        }
+        String value = params.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("No such parameter: " + name);
+        }
+        return Long.parseLong(value);
+    }
+
+    /**
+     * Returns the value of a path parameter parsed as an int.
+     *
+     * @param name of the parameter, eg. "id" for a handler path such as "/users/:id"
+     * @return the value of the parameter
+     * @throws java.lang.IllegalArgumentException if there is no parameter with the given name.
+     * @throws java.lang.NumberFormatException    if the value of the parameter is not a valid int.
+     * @see #paramAsLong(String)
+     */
+    public int paramAsInt(String name) {
+        long value = paramAsLong(name);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Value out of range for int: " + value);
+        }
+        return (int) value;
+    }
+
     /**
      * Sends the given object as the response content.
      * <p/>
      * If object is null, a 404 response is sent instead.
+     * <p/>
+     * If the response content-type selects a {@link com.athaydes.easyjetty.mapper.BinaryObjectMapper}
+     * for the object, its bytes are written as-is.
+     * <p/>
+     * Collections, Iterators and other Iterables are written one item at a time, so an Iterator or a lazy
+     * Iterable can be used to send any number of items without holding all of them in memory.
      *
      * @param object to send back, or null if 404 (Not found)
      * @throws java.lang.RuntimeException if no ObjectMapper can be found for the given object.
@@ -48,6 +101,9 @@ public abstract class ExchangeBase {
 
     /**
      * Receives the request content and map it to an instance of the given type.
+     * <p/>
+     * If the request content-type selects a {@link com.athaydes.easyjetty.mapper.BinaryObjectMapper}
+     * for the type, the raw request bytes are read by it.
      *
      * @param type to map the request content to.
      * @param <T>  type
@@ -82,5 +138,67 @@ public abstract class ExchangeBase {
         }
     }
 
+    /**
+     * Receives the request content lazily, mapping each item to an instance of the given type only
+     * when it is requested from the returned Iterator.
+     *
+     * @param type to map each item of the request content to.
+     * @param <T>  type
+     * @return Iterator over the items of the request content
+     * @throws java.lang.IllegalArgumentException if the request's content length is too big.
+     * @throws java.lang.RuntimeException         if an IOException occurs while reading the request data
+     *                                            or no CollectionMapper can be found for the request.
+     */
+    public <T> Iterator<T> receiveEach(Class<T> type) {
+        try {
+            return objectSupport.receiveEach(request, type);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Receives the parts of a multipart/form-data request.
+     * <p/>
+     * Small parts are kept in memory, but parts larger than the file-size threshold of the
+     * {@link com.athaydes.easyjetty.EasyJetty#multipartConfig multipart configuration} are written to temporary
+     * files while the request is parsed. The temporary files are deleted once the exchange is complete.
+     * <p/>
+     * The size of each part, and of the whole request, is limited by the multipart configuration
+     * (by default, to 10MB and 50MB, respectively).
+     *
+     * @return the parts of the request
+     * @throws java.lang.IllegalArgumentException if the request is not a multipart/form-data request.
+     * @throws java.lang.IllegalStateException    if a part, or the whole request, is larger than allowed.
+     * @throws java.lang.RuntimeException         if an Exception occurs while reading the request data.
+     */
+    public Collection<Part> receiveParts() {
+        try {
+            if (multiPartParser == null) {
+                multiPartParser = objectSupport.multiPartParser(request);
+            }
+            return multiPartParser.getParts();
+        } catch (IOException | ServletException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    ObjectSupport getObjectSupport() {
+        return objectSupport;
+    }
+
+    /**
+     * Releases any resources held by this exchange, such as temporary files created for multipart requests.
+     */
+    void release() {
+        if (multiPartParser != null) {
+            try {
+                multiPartParser.deleteParts();
+            } catch (MultiException e) {
+                // a temporary file which cannot be deleted must not fail the exchange
+            }
+        }
+    }
+
 
 }
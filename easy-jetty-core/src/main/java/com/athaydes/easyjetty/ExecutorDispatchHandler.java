@@ -0,0 +1,118 @@
+package com.athaydes.easyjetty;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Handles requests routed to EasyJetty handlers or filters in a user-provided Executor, rather than in the
+ * server Thread which parsed them.
+ * <p/>
+ * The request is put in asynchronous mode, so the server Thread is released immediately, and it is completed
+ * once all handlers have run, unless an exchange takes it over (eg. to stream the response body).
+ * Requests which are not routed to any EasyJetty handler (eg. servlets and static resources) are handled
+ * by the server Thread as usual.
+ *
+ * @see EasyJetty#handlerExecutor(Executor)
+ */
+class ExecutorDispatchHandler extends HandlerWrapper {
+
+    private static final String DISPATCH_ATTRIBUTE = ExecutorDispatchHandler.class.getName() + ".dispatch";
+
+    private final Executor executor;
+    private final AggregateHandler aggregateHandler;
+
+    ExecutorDispatchHandler(Executor executor, AggregateHandler aggregateHandler) {
+        this.executor = executor;
+        this.aggregateHandler = aggregateHandler;
+    }
+
+    /**
+     * Start asynchronous mode for the given request, or take over the asynchronous mode started to
+     * dispatch the request to the Executor, so that the exchange becomes responsible for completing it.
+     *
+     * @param request to start asynchronous mode for
+     * @return the request's AsyncContext
+     */
+    static AsyncContext startAsync(HttpServletRequest request) {
+        Object dispatch = request.getAttribute(DISPATCH_ATTRIBUTE);
+        if (dispatch instanceof Dispatch && ((Dispatch) dispatch).takeOver()) {
+            return ((Dispatch) dispatch).asyncContext;
+        }
+        return request.startAsync();
+    }
+
+    @Override
+    public void handle(final String target, final Request baseRequest,
+                       final HttpServletRequest request, final HttpServletResponse response)
+            throws IOException, ServletException {
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !aggregateHandler.hasRoute(target)) {
+            super.handle(target, baseRequest, request, response);
+            return;
+        }
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(0L);
+        final Dispatch dispatch = new Dispatch(asyncContext);
+        request.setAttribute(DISPATCH_ATTRIBUTE, dispatch);
+        Runnable job = new Runnable() {
+            @Override
+            public void run() {
+                dispatch(dispatch, target, baseRequest, request, response);
+            }
+        };
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            job.run();
+        }
+    }
+
+    private void dispatch(Dispatch dispatch, String target, Request baseRequest,
+                          HttpServletRequest request, HttpServletResponse response) {
+        try {
+            super.handle(target, baseRequest, request, response);
+        } catch (Throwable e) {
+            if (!response.isCommitted()) {
+                request.setAttribute(RequestDispatcher.ERROR_EXCEPTION, e);
+                try {
+                    response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                } catch (IOException | RuntimeException ignore) {
+                    // the client is most likely gone, there is nothing else to do
+                }
+            }
+            // the context may have been set so that the error could be handled, but the request
+            // cannot be completed (and recycled) while it still has a context
+            baseRequest.setContext(null);
+        } finally {
+            request.removeAttribute(DISPATCH_ATTRIBUTE);
+            if (dispatch.takeOver()) {
+                dispatch.asyncContext.complete();
+            }
+        }
+    }
+
+    private static final class Dispatch {
+
+        private final AsyncContext asyncContext;
+        private final AtomicBoolean takenOver = new AtomicBoolean(false);
+
+        Dispatch(AsyncContext asyncContext) {
+            this.asyncContext = asyncContext;
+        }
+
+        boolean takeOver() {
+            return takenOver.compareAndSet(false, true);
+        }
+    }
+
+}
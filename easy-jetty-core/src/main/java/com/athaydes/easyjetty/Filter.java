@@ -46,14 +46,14 @@ public interface Filter {
             private static MethodArbiter arbiter = null;
 
             private final Filter filter;
-            private final Map<Integer, String> parametersByIndex;
+            private final PathParams.Layout paramsLayout;
             private final ObjectSupport objectSupport;
 
             public FilterHandler(Filter filter,
                                  Map<Integer, String> parametersByIndex,
                                  ObjectSupport objectSupport) {
                 this.filter = filter;
-                this.parametersByIndex = parametersByIndex;
+                this.paramsLayout = new PathParams.Layout(parametersByIndex);
                 this.objectSupport = objectSupport;
             }
 
@@ -72,11 +72,15 @@ public interface Filter {
             public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
                     throws IOException, ServletException {
                 try {
-                    Map<String, String> params = PathHelper.matchParams(
-                            parametersByIndex, baseRequest.getPathInfo());
-                    boolean allow = filter.allowFurther(
-                            new FilterExchange(response.getOutputStream(), request,
-                                    response, params, objectSupport));
+                    Map<String, String> params = paramsLayout.paramsOf(baseRequest.getPathInfo());
+                    FilterExchange exchange = new FilterExchange(response.getOutputStream(), request,
+                            response, params, objectSupport);
+                    boolean allow;
+                    try {
+                        allow = filter.allowFurther(exchange);
+                    } finally {
+                        exchange.release();
+                    }
                     if (!allow) {
                         baseRequest.setHandled(true);
                     }
@@ -0,0 +1,60 @@
+package com.athaydes.easyjetty;
+
+/**
+ * Policy deciding when the chunks written into a {@link ResponseStream} are flushed to the client.
+ * <p/>
+ * Chunks which are not flushed stay in the response buffer, so that small chunks can be sent together.
+ * Regardless of the policy, any buffered chunks are flushed whenever the {@link ChunkProducer} has no
+ * chunk ready to be written.
+ */
+public final class FlushPolicy {
+
+    private static final FlushPolicy EACH_CHUNK = new FlushPolicy(0, 0L);
+
+    private final int minBytes;
+    private final long maxDelayMillis;
+
+    private FlushPolicy(int minBytes, long maxDelayMillis) {
+        this.minBytes = minBytes;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * @return policy which flushes every chunk as soon as it is written.
+     */
+    public static FlushPolicy eachChunk() {
+        return EACH_CHUNK;
+    }
+
+    /**
+     * @param minBytes minimum number of bytes to buffer before flushing
+     * @return policy which flushes chunks once at least the given number of bytes have been written.
+     */
+    public static FlushPolicy bySize(int minBytes) {
+        if (minBytes < 1) {
+            throw new IllegalArgumentException("minBytes must be positive");
+        }
+        return new FlushPolicy(minBytes, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param maxDelayMillis maximum time to buffer chunks for
+     * @return policy which flushes chunks once the given time has elapsed since the last flush.
+     */
+    public static FlushPolicy byTime(long maxDelayMillis) {
+        if (maxDelayMillis < 1) {
+            throw new IllegalArgumentException("maxDelayMillis must be positive");
+        }
+        return new FlushPolicy(Integer.MAX_VALUE, maxDelayMillis);
+    }
+
+    /**
+     * @param unflushedBytes    number of bytes written since the last flush
+     * @param millisSinceFlush time elapsed since the last flush
+     * @return true if the written bytes should be flushed now.
+     */
+    boolean shouldFlush(int unflushedBytes, long millisSinceFlush) {
+        return unflushedBytes >= minBytes || millisSinceFlush >= maxDelayMillis;
+    }
+
+}
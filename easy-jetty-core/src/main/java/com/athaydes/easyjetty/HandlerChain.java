@@ -0,0 +1,121 @@
+package com.athaydes.easyjetty;
+
+import com.athaydes.easyjetty.http.ContentNegotiationCache;
+import com.athaydes.easyjetty.http.MethodArbiter.Method;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.athaydes.easyjetty.http.MethodArbiterFactory.UNKNOWN_METHOD_MASK;
+import static com.athaydes.easyjetty.http.MethodArbiterFactory.methodMask;
+
+/**
+ * The handlers registered under a route, compiled for dispatching requests by HTTP method.
+ * <p/>
+ * The {@link HandlerDispatch} for each {@link Method} is created in advance, so that dispatching a request
+ * is just an array index. Handlers whose method masks are not known have their
+ * {@link com.athaydes.easyjetty.http.MethodArbiter} asked whether they accept each {@link Method} at that time.
+ * <p/>
+ * For requests whose method is not one of the {@link Method}s, each handler's MethodArbiter must be asked
+ * whether it accepts the method, but the result is cached for up to {@link #MAX_OTHER_METHODS} methods.
+ */
+final class HandlerChain {
+
+    static PathTree.ValuesCompiler<EasyJettyHandler, HandlerChain> compiler(
+            final ContentNegotiationCache negotiationCache) {
+        return new PathTree.ValuesCompiler<EasyJettyHandler, HandlerChain>() {
+            @Override
+            public HandlerChain compile(List<EasyJettyHandler> values) {
+                return values.isEmpty() ? EMPTY : new HandlerChain(values, negotiationCache);
+            }
+        };
+    }
+
+    static final HandlerChain EMPTY = new HandlerChain(new ArrayList<EasyJettyHandler>(0), null);
+
+    /**
+     * Maximum number of non-standard methods whose dispatch is cached (the method is sent by the client,
+     * so the number of distinct methods must be bounded).
+     */
+    static final int MAX_OTHER_METHODS = 16;
+
+    private final EasyJettyHandler[] all;
+    private final HandlerDispatch[] byMethod;
+    private final ConcurrentMap<String, HandlerDispatch> byOtherMethod = new ConcurrentHashMap<>();
+    private final ContentNegotiationCache negotiationCache;
+
+    private HandlerChain(List<EasyJettyHandler> handlers, ContentNegotiationCache negotiationCache) {
+        this.all = handlers.toArray(new EasyJettyHandler[handlers.size()]);
+        this.negotiationCache = negotiationCache;
+        this.byMethod = selectByMethod(all, negotiationCache);
+    }
+
+    private static HandlerDispatch[] selectByMethod(EasyJettyHandler[] handlers,
+                                                    ContentNegotiationCache negotiationCache) {
+        int[] masks = new int[handlers.length];
+        for (int i = 0; i < handlers.length; i++) {
+            masks[i] = methodMask(handlers[i].getMethodArbiter());
+        }
+        Method[] methods = Method.values();
+        HandlerDispatch[] result = new HandlerDispatch[methods.length];
+        for (Method method : methods) {
+            List<EasyJettyHandler> accepting = new ArrayList<>(handlers.length);
+            for (int i = 0; i < handlers.length; i++) {
+                boolean accepts = masks[i] == UNKNOWN_METHOD_MASK ?
+                        handlers[i].getMethodArbiter().accepts(method.name()) :
+                        (masks[i] & method.mask()) != 0;
+                if (accepts) {
+                    accepting.add(handlers[i]);
+                }
+            }
+            result[method.ordinal()] = dispatchFor(accepting, negotiationCache);
+        }
+        return result;
+    }
+
+    private static HandlerDispatch dispatchFor(List<EasyJettyHandler> handlers,
+                                               ContentNegotiationCache negotiationCache) {
+        return handlers.isEmpty() ?
+                HandlerDispatch.EMPTY :
+                new HandlerDispatch(handlers.toArray(new EasyJettyHandler[handlers.size()]), negotiationCache);
+    }
+
+    boolean isEmpty() {
+        return all.length == 0;
+    }
+
+    /**
+     * @return all handlers in this chain, in the order they should be tried.
+     */
+    EasyJettyHandler[] all() {
+        return all;
+    }
+
+    /**
+     * @param method HTTP method
+     * @return the dispatch for the handlers accepting the given HTTP method.
+     */
+    HandlerDispatch select(String method) {
+        Method knownMethod = Method.fromString(method);
+        if (knownMethod != null) {
+            return byMethod[knownMethod.ordinal()];
+        }
+        HandlerDispatch dispatch = byOtherMethod.get(method);
+        if (dispatch == null) {
+            List<EasyJettyHandler> accepting = new ArrayList<>(all.length);
+            for (EasyJettyHandler handler : all) {
+                if (handler.getMethodArbiter().accepts(method)) {
+                    accepting.add(handler);
+                }
+            }
+            dispatch = dispatchFor(accepting, negotiationCache);
+            if (byOtherMethod.size() < MAX_OTHER_METHODS) {
+                byOtherMethod.putIfAbsent(method, dispatch);
+            }
+        }
+        return dispatch;
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.athaydes.easyjetty;
+
+import com.athaydes.easyjetty.http.ContentNegotiationCache;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.Request;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.athaydes.easyjetty.mapper.ObjectMapper.ACCEPT_EVERYTHING;
+
+/**
+ * Dispatches a request to one of the handlers selected for it.
+ * <p/>
+ * Filters (and any other handlers which are not {@link UserHandler}s) are run first, in order.
+ * Then, the Accept header of the request is negotiated only once against the content types of all
+ * {@link UserHandler}s, and the request is dispatched directly to the winner.
+ * <p/>
+ * If more than one handler is equally acceptable, the one registered first wins. A handler which accepts
+ * everything only wins if none of the handlers registered before it can provide an acceptable content type,
+ * so any handlers registered after it can never be reached.
+ */
+final class HandlerDispatch {
+
+    static final HandlerDispatch EMPTY = new HandlerDispatch(new EasyJettyHandler[0], null);
+
+    private final EasyJettyHandler[] handlers;
+    private final EasyJettyHandler[] filters;
+
+    // handler which responds to requests without an Accept header
+    private final UserHandler first;
+
+    // the first handler which accepts everything
+    private final UserHandler acceptsEverything;
+
+    // the content types of all handlers before the first one which accepts everything,
+    // with the handlers in reverse order so that ties are won by the handler registered first
+    private final ContentNegotiationCache.Negotiator negotiator;
+    private final UserHandler[] ownerByIndex;
+
+    HandlerDispatch(EasyJettyHandler[] handlers, ContentNegotiationCache negotiationCache) {
+        this.handlers = handlers;
+        List<EasyJettyHandler> filters = new ArrayList<>(handlers.length);
+        List<UserHandler> candidates = new ArrayList<>(handlers.length);
+        UserHandler acceptsEverything = null;
+        for (EasyJettyHandler handler : handlers) {
+            if (handler instanceof UserHandler) {
+                UserHandler userHandler = (UserHandler) handler;
+                if (acceptsEverything == null) {
+                    candidates.add(userHandler);
+                    if (userHandler.acceptsEverything()) {
+                        acceptsEverything = userHandler;
+                    }
+                }
+            } else {
+                filters.add(handler);
+            }
+        }
+
+        List<String> contentTypes = new ArrayList<>();
+        List<UserHandler> owners = new ArrayList<>();
+        for (int i = candidates.size() - 1; i >= 0; i--) {
+            UserHandler candidate = candidates.get(i);
+            for (String contentType : candidate.getContentTypes()) {
+                contentTypes.add(contentType);
+                owners.add(candidate);
+            }
+        }
+
+        this.filters = filters.toArray(new EasyJettyHandler[filters.size()]);
+        this.first = candidates.isEmpty() ? null : candidates.get(0);
+        this.acceptsEverything = acceptsEverything;
+        this.negotiator = contentTypes.isEmpty() ? null : negotiationCache.negotiatorFor(contentTypes);
+        this.ownerByIndex = owners.toArray(new UserHandler[owners.size()]);
+    }
+
+    /**
+     * @return all handlers, in the order they were registered.
+     */
+    EasyJettyHandler[] handlers() {
+        return handlers;
+    }
+
+    void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        for (EasyJettyHandler filter : filters) {
+            filter.handle(target, baseRequest, request, response);
+            if (baseRequest.isHandled()) {
+                return;
+            }
+        }
+        if (first == null || response.isCommitted()) {
+            return;
+        }
+
+        String acceptHeader = request.getHeader(HttpHeader.ACCEPT.asString());
+        if (acceptHeader == null) {
+            first.respond(ACCEPT_EVERYTHING, baseRequest, request, response);
+            return;
+        }
+        if (negotiator != null) {
+            int index = negotiator.bestMatchIndex(acceptHeader);
+            if (index >= 0) {
+                ownerByIndex[index].respond(negotiator.getSupported().get(index), baseRequest, request, response);
+                return;
+            }
+        }
+        if (acceptsEverything != null) {
+            acceptsEverything.respond(ACCEPT_EVERYTHING, baseRequest, request, response);
+        }
+    }
+
+}
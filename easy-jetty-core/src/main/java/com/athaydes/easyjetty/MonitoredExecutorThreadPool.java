@@ -0,0 +1,82 @@
+package com.athaydes.easyjetty;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A Jetty ThreadPool running its jobs with a user-provided Executor, monitored by a {@link QueueMonitor}.
+ * <p/>
+ * The Executor's lifecycle is managed by the user, so it is not shut down when this pool stops.
+ * As the size of the Executor is unknown, this pool never reports being low on Threads.
+ */
+final class MonitoredExecutorThreadPool extends AbstractLifeCycle implements ThreadPool {
+
+    private final Executor executor;
+    private final QueueMonitor monitor;
+
+    MonitoredExecutorThreadPool(Executor executor, QueueMonitor monitor) {
+        this.executor = executor;
+        this.monitor = monitor;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        monitor.start();
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        try {
+            super.doStop();
+        } finally {
+            monitor.stop();
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public void execute(Runnable job) {
+        try {
+            executor.execute(monitor.monitor(job));
+        } catch (RejectedExecutionException e) {
+            // the pool has no Thread of its own to run continuations on, so they are shed as well
+            if (!monitor.shed(job)) {
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void join() throws InterruptedException {
+        while (isRunning()) {
+            wait();
+        }
+    }
+
+    @Override
+    public int getThreads() {
+        return 0;
+    }
+
+    @Override
+    public int getIdleThreads() {
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "MonitoredExecutorThreadPool{" + executor + "}";
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.athaydes.easyjetty;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * Jetty's QueuedThreadPool, monitored by a {@link QueueMonitor} and with an optionally bounded queue.
+ * <p/>
+ * When the queue is full, jobs which may parse new requests are shed rather than rejected, so requests can
+ * still be answered with a 503 response instead of having their connections closed. Jobs which continue
+ * exchanges that are already in progress are always queued, so that these exchanges can complete.
+ */
+final class MonitoredQueuedThreadPool extends QueuedThreadPool {
+
+    private final QueueMonitor monitor;
+    private final int queueCapacity;
+
+    MonitoredQueuedThreadPool(ThreadPoolConfig config, QueueMonitor monitor) {
+        super(config.maxThreads, config.minThreads, config.idleTimeout);
+        if (config.name != null) {
+            setName(config.name);
+        }
+        this.monitor = monitor;
+        this.queueCapacity = config.queueCapacity;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        monitor.start();
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        try {
+            super.doStop();
+        } finally {
+            monitor.stop();
+        }
+    }
+
+    @Override
+    public void execute(Runnable job) {
+        // if the shedder cannot take the job either, it is queued beyond the capacity rather than rejected,
+        // as Jetty would then just close the connection
+        if (isSaturated() && !QueueMonitor.isContinuation(job) && monitor.shed(job)) {
+            return;
+        }
+        super.execute(monitor.monitor(job));
+    }
+
+    /**
+     * The capacity is checked here, rather than by the queue, because the queue also holds jobs which are
+     * about to be taken by idle or new Threads, and it would reject jobs with a warning for each one.
+     *
+     * @return true if the number of queued jobs which neither an idle Thread nor a Thread the pool may
+     * still start can take has reached the queue capacity.
+     */
+    private boolean isSaturated() {
+        if (queueCapacity < 0 || !isRunning()) {
+            return false;
+        }
+        int availableThreads = getIdleThreads() + getMaxThreads() - getThreads();
+        return getQueueSize() - availableThreads >= queueCapacity;
+    }
+
+}
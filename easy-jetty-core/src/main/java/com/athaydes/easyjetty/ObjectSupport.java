@@ -1,18 +1,32 @@
 package com.athaydes.easyjetty;
 
 
+import com.athaydes.easyjetty.http.MediaRanges;
+import com.athaydes.easyjetty.mapper.BinaryObjectMapper;
 import com.athaydes.easyjetty.mapper.ObjectMapperGroup;
+import com.athaydes.easyjetty.mapper.SerializationCache;
 import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.util.MultiPartInputStreamParser;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
 
 import static com.athaydes.easyjetty.mapper.ObjectMapper.ACCEPT_EVERYTHING;
 
 class ObjectSupport {
 
+    private static final String CRLF = "\r\n";
+    private static final String MULTIPART_FORM_DATA = "multipart/form-data";
+    private static final File TEMP_DIR = new File(System.getProperty("java.io.tmpdir"));
+
     private static final ObjectMapperGroup DEFAULT_MAPPER_GROUP = new ObjectMapperGroup(false, true);
 
     private volatile ObjectMapperGroup mapperGroup = DEFAULT_MAPPER_GROUP;
@@ -28,19 +42,91 @@ class ObjectSupport {
     }
 
     void send(Object object, HttpServletResponse response) throws IOException {
+        // the cache must be obtained before the mappers are resolved, so that it never holds bytes written by
+        // mappers newer than itself
+        ObjectMapperGroup mapperGroup = this.mapperGroup;
+        SerializationCache cache = mapperGroup.getSerializationCache();
         String contentType = response.getHeader(HttpHeader.CONTENT_TYPE.asString());
-        String data = mapperGroup.map(object, contentType != null ? contentType : ACCEPT_EVERYTHING);
-        response.getOutputStream().println(data);
+        BinaryObjectMapper<?> binaryMapper = object == null ? null :
+                mapperGroup.findBinaryMapper(contentType, object.getClass());
+        if (binaryMapper != null && contentType == null) {
+            response.setContentType(firstContentType(binaryMapper.getContentType()));
+        }
+        String charset = binaryMapper == null ? response.getCharacterEncoding() : null;
+        if (cache != null && cache.isCacheable(object)) {
+            byte[] bytes = cache.get(object, contentType, charset);
+            if (bytes == null) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                write(mapperGroup, object, contentType, binaryMapper, charset, buffer);
+                bytes = buffer.toByteArray();
+                cache.put(object, contentType, charset, bytes);
+            }
+            response.getOutputStream().write(bytes);
+        } else {
+            write(mapperGroup, object, contentType, binaryMapper, charset, response.getOutputStream());
+        }
+    }
+
+    private static void write(ObjectMapperGroup mapperGroup, Object object, String contentType,
+                              BinaryObjectMapper<?> binaryMapper, String charset, OutputStream out) throws IOException {
+        if (binaryMapper != null) {
+            write(binaryMapper, object, new UnflushedOutputStream(out));
+            return;
+        }
+        // encode the data as ServletOutputStream.println(String) would, but without building a String first.
+        // The response is never flushed, so if the whole body fits in the response buffer, Jetty can set
+        // its exact Content-Length when the handler returns
+        EncodingWriter writer = EncodingWriter.open(out, charset);
+        try {
+            mapperGroup.write(object, contentType != null ? contentType : ACCEPT_EVERYTHING, writer);
+            writer.write(CRLF);
+            writer.close();
+        } finally {
+            writer.release();
+        }
+    }
+
+    private static <T> void write(BinaryObjectMapper<T> binaryMapper, Object object, OutputStream out)
+            throws IOException {
+        // the mapper was found for the Object's type, so the Object is an instance of the mapped type
+        binaryMapper.write(binaryMapper.getMappedType().cast(object), out);
     }
 
     <T> T receive(HttpServletRequest request, Class<T> type) throws IOException {
-        return mapperGroup.unmap(request, type, easyJetty.getMaxFormSize());
+        return mapperGroup.unmap(request, type, easyJetty.getMaxFormSize(), easyJetty.getMaxFormKeys());
     }
 
     <T> Collection<T> receiveAll(HttpServletRequest request, Class<T> type) throws IOException {
         return mapperGroup.unmapAll(request, type, easyJetty.getMaxFormSize());
     }
 
+    private static String firstContentType(String contentTypes) {
+        int index = contentTypes.indexOf(',');
+        return index < 0 ? contentTypes : contentTypes.substring(0, index).trim();
+    }
+
+    <T> Iterator<T> receiveEach(HttpServletRequest request, Class<T> type) throws IOException {
+        return mapperGroup.unmapEach(request, type, easyJetty.getMaxFormSize());
+    }
+
+    MultiPartInputStreamParser multiPartParser(HttpServletRequest request) throws IOException {
+        String contentType = request.getContentType();
+        if (contentType == null || !MediaRanges.isAccepted(MULTIPART_FORM_DATA, contentType)) {
+            throw new IllegalArgumentException("Not a " + MULTIPART_FORM_DATA + " request: " + contentType);
+        }
+        // parts are written to the system temp dir unless the config has a location
+        return new MultiPartInputStreamParser(request.getInputStream(), contentType,
+                easyJetty.getMultipartConfig(), TEMP_DIR);
+    }
+
+    int getMaxAsyncContentSize() {
+        return easyJetty.getMaxAsyncContentSize();
+    }
+
+    Executor getHandlerExecutor() {
+        return easyJetty.getHandlerExecutor();
+    }
+
     void clear() {
         this.mapperGroup = DEFAULT_MAPPER_GROUP;
     }
@@ -49,4 +135,28 @@ class ObjectSupport {
         return mapperGroup;
     }
 
+    /**
+     * Passes all data through to the response without flushing it, so that the response is not committed
+     * before the handler returns (and its headers, including Content-Length, can still be set).
+     */
+    private static class UnflushedOutputStream extends FilterOutputStream {
+
+        UnflushedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
 }
@@ -32,6 +32,57 @@ public class PathHelper {
         return path.startsWith(":");
     }
 
+    /**
+     * @return the index of the first character of the given path that is not whitespace.
+     */
+    static int pathStart(String path) {
+        int start = 0;
+        while (start < path.length() && path.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * @return the index after the last character of the given path that is neither whitespace nor a
+     * trailing '/', so that the region between {@code start} and this index has the same path components
+     * as {@code sanitize(path).split("/")}.
+     */
+    static int pathEnd(String path, int start) {
+        int end = path.length();
+        while (end > start && path.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        while (end > start && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * @return the end index of the path component that starts at the given index.
+     */
+    static int segmentEnd(String path, int index, int end) {
+        int segmentEnd = index > end ? end : path.indexOf('/', index);
+        return segmentEnd < 0 || segmentEnd > end ? end : segmentEnd;
+    }
+
+    /**
+     * Same as {@code key.compareTo(path.substring(start, end))}, but without creating a new String.
+     */
+    static int compareRegion(String key, String path, int start, int end) {
+        int regionLength = end - start;
+        int limit = Math.min(key.length(), regionLength);
+        for (int i = 0; i < limit; i++) {
+            char c1 = key.charAt(i);
+            char c2 = path.charAt(start + i);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return key.length() - regionLength;
+    }
+
     public static Map<String, String> matchParams(Map<Integer, String> paramsByIndex, String requestPath) {
         if (paramsByIndex.isEmpty()) {
             return Collections.emptyMap();
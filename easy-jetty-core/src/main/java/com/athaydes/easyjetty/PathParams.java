@@ -0,0 +1,223 @@
+package com.athaydes.easyjetty;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The parameters of a request path, as a read-only Map view over the path.
+ * <p/>
+ * The offsets of the parameters within the path are only found (in a single scan of the path) when a
+ * parameter is first read, and each value is only turned into a String when it is read.
+ * Numeric values can also be parsed directly from the path, without creating any Strings,
+ * by calling {@link #getLong(String)}.
+ */
+final class PathParams extends AbstractMap<String, String> {
+
+    /**
+     * The names and positions of the parameters of a path, as declared by the path of a handler.
+     */
+    static final class Layout {
+
+        static final Layout EMPTY = new Layout(Collections.<Integer, String>emptyMap());
+
+        private final String[] names;
+        private final int[] segments;
+
+        /**
+         * @param paramsByIndex parameter names (including the ':' prefix) by the index of the path
+         *                      component where they appear.
+         */
+        Layout(Map<Integer, String> paramsByIndex) {
+            Map<Integer, String> sortedParams = new TreeMap<>(paramsByIndex);
+            this.names = new String[sortedParams.size()];
+            this.segments = new int[sortedParams.size()];
+            int i = 0;
+            for (Map.Entry<Integer, String> entry : sortedParams.entrySet()) {
+                segments[i] = entry.getKey();
+                names[i] = entry.getValue().substring(1);
+                i++;
+            }
+        }
+
+        /**
+         * @param path request path
+         * @return the parameters of the given path
+         */
+        Map<String, String> paramsOf(String path) {
+            if (names.length == 0) {
+                return Collections.emptyMap();
+            }
+            return new PathParams(this, path);
+        }
+    }
+
+    private final Layout layout;
+    private final String path;
+
+    // start and end offset of each parameter, or -1 if the path does not contain the parameter
+    private int[] offsets;
+    private String[] values;
+
+    private PathParams(Layout layout, String path) {
+        this.layout = layout;
+        this.path = path;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < layout.names.length; i++) {
+            if (start(i) >= 0) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int index = indexOf(key);
+        return index >= 0 && start(index) >= 0;
+    }
+
+    @Override
+    public String get(Object key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        if (values == null) {
+            values = new String[layout.names.length];
+        }
+        String value = values[index];
+        if (value == null && start(index) >= 0) {
+            value = path.substring(start(index), end(index));
+            values[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Parse the value of the given parameter as a long, without creating any intermediate Strings.
+     *
+     * @param name of the parameter
+     * @return the value of the parameter
+     * @throws IllegalArgumentException if there is no such parameter
+     * @throws NumberFormatException    if the value of the parameter is not a valid long
+     */
+    long getLong(String name) {
+        int index = indexOf(name);
+        if (index < 0 || start(index) < 0) {
+            throw new IllegalArgumentException("No such parameter: " + name);
+        }
+        return parseLong(index);
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        Map<String, String> entries = new LinkedHashMap<>(layout.names.length * 2);
+        for (int i = 0; i < layout.names.length; i++) {
+            String value = get(layout.names[i]);
+            if (value != null) {
+                entries.put(layout.names[i], value);
+            }
+        }
+        return Collections.unmodifiableMap(entries).entrySet();
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < layout.names.length; i++) {
+            if (layout.names[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int start(int index) {
+        if (offsets == null) {
+            offsets = findOffsets();
+        }
+        return offsets[index * 2];
+    }
+
+    private int end(int index) {
+        return offsets[index * 2 + 1];
+    }
+
+    private int[] findOffsets() {
+        int[] segments = layout.segments;
+        int[] result = new int[segments.length * 2];
+        int segment = 0;
+        int segmentStart = 0;
+        int param = 0;
+        while (param < segments.length) {
+            int segmentEnd = path.indexOf('/', segmentStart);
+            if (segmentEnd < 0) {
+                segmentEnd = path.length();
+            }
+            if (segment == segments[param]) {
+                result[param * 2] = segmentStart;
+                result[param * 2 + 1] = segmentEnd;
+                param++;
+            }
+            if (segmentEnd == path.length()) {
+                break;
+            }
+            segmentStart = segmentEnd + 1;
+            segment++;
+        }
+        // parameters beyond the end of the path are missing
+        for (; param < segments.length; param++) {
+            result[param * 2] = -1;
+            result[param * 2 + 1] = -1;
+        }
+        return result;
+    }
+
+    private long parseLong(int index) {
+        int start = start(index);
+        int end = end(index);
+        if (start == end) {
+            throw numberFormatException(index);
+        }
+        boolean negative = false;
+        long limit = -Long.MAX_VALUE;
+        int i = start;
+        char first = path.charAt(i);
+        if (first == '-' || first == '+') {
+            if (end - start == 1) {
+                throw numberFormatException(index);
+            }
+            if (first == '-') {
+                negative = true;
+                limit = Long.MIN_VALUE;
+            }
+            i++;
+        }
+        // accumulate negatively to be able to represent Long.MIN_VALUE, as Long.parseLong does
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = path.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < multiplyLimit) {
+                throw numberFormatException(index);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw numberFormatException(index);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    private NumberFormatException numberFormatException(int index) {
+        return new NumberFormatException("For input string: \"" + get(layout.names[index]) + "\"");
+    }
+
+}
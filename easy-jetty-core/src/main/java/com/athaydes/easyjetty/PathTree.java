@@ -7,6 +7,11 @@ import java.util.*;
  */
 class PathTree<V> {
 
+    /**
+     * Maximum number of states a deterministic {@link RouteTable} may have for each node of the tree.
+     */
+    static final int MAX_STATES_PER_NODE = 4;
+
     private int size = 0;
     private final Node root = new Node("");
 
@@ -113,6 +118,192 @@ class PathTree<V> {
         return child;
     }
 
+    /**
+     * Compiles the values stored under a path into the value a {@link RouteTable} returns for that path.
+     *
+     * @param <V> type of values stored in the tree
+     * @param <L> type of the compiled values
+     */
+    interface ValuesCompiler<V, L> {
+        L compile(List<V> values);
+    }
+
+    /**
+     * Compile this tree into an immutable {@link RouteTable} whose values are immutable Lists.
+     *
+     * @return compiled table
+     * @see #compile(ValuesCompiler)
+     */
+    RouteTable<List<V>> compile() {
+        return compile(new ValuesCompiler<V, List<V>>() {
+            @Override
+            public List<V> compile(List<V> values) {
+                return values.isEmpty() ?
+                        Collections.<V>emptyList() :
+                        Collections.unmodifiableList(new ArrayList<>(values));
+            }
+        });
+    }
+
+    /**
+     * Compile this tree into an immutable {@link RouteTable}.
+     * <p/>
+     * Each state of the table stands for all nodes of this tree a path may have reached so far,
+     * in the same order {@link #get(HandlerPath)} would try them, so the table gives the same results
+     * as this tree without ever having to backtrack.
+     * <p/>
+     * As mixing parameters and literal path components at many depths may make the number of states grow
+     * combinatorially, if it exceeds {@link #MAX_STATES_PER_NODE} times the number of nodes of this tree,
+     * each state stands for a single node instead, and the table backtracks just like this tree.
+     * <p/>
+     * Changes made to this tree after it has been compiled are not visible in the table.
+     *
+     * @param valuesCompiler compiles the values stored under each path (including paths with no values)
+     * @param <L>            type of the compiled values
+     * @return compiled table
+     */
+    @SuppressWarnings("unchecked")
+    <L> RouteTable<L> compile(ValuesCompiler<V, L> valuesCompiler) {
+        List<List<Node>> states = new ArrayList<>();
+        Map<List<Node>, Integer> stateIds = new HashMap<>();
+        List<String> edgeKeys = new ArrayList<>();
+        List<Integer> edgeTargets = new ArrayList<>();
+        List<Integer> edgeStart = new ArrayList<>();
+        List<Integer> otherTargets = new ArrayList<>();
+
+        stateId(Collections.singletonList(root), states, stateIds);
+        int maxStates = MAX_STATES_PER_NODE * countNodes(root);
+
+        for (int state = 0; state < states.size(); state++) {
+            if (states.size() > maxStates) {
+                return compileBacktracking(valuesCompiler);
+            }
+            List<Node> nodes = states.get(state);
+            SortedSet<String> keys = new TreeSet<>();
+            List<Node> others = new ArrayList<>(nodes.size());
+            for (Node node : nodes) {
+                keys.addAll(Arrays.asList(node.childrenKeys));
+                if (node.param != null) {
+                    others.add(node.param);
+                }
+            }
+
+            edgeStart.add(edgeKeys.size());
+            for (String key : keys) {
+                List<Node> targets = new ArrayList<>(nodes.size() * 2);
+                for (Node node : nodes) {
+                    Node exact = node.getExact(key);
+                    if (exact != null) {
+                        targets.add(exact);
+                    }
+                    if (node.param != null) {
+                        targets.add(node.param);
+                    }
+                }
+                edgeKeys.add(key);
+                edgeTargets.add(stateId(targets, states, stateIds));
+            }
+            otherTargets.add(stateId(others, states, stateIds));
+        }
+        edgeStart.add(edgeKeys.size());
+
+        L noValues = valuesCompiler.compile(Collections.<V>emptyList());
+        Map<Node, L> valuesByNode = new IdentityHashMap<>();
+        Object[] values = new Object[states.size()];
+        for (int state = 0; state < values.length; state++) {
+            values[state] = noValues;
+            for (Node node : states.get(state)) {
+                if (!node.values.isEmpty()) {
+                    L nodeValues = valuesByNode.get(node);
+                    if (nodeValues == null) {
+                        nodeValues = valuesCompiler.compile((List<V>) node.values);
+                        valuesByNode.put(node, nodeValues);
+                    }
+                    values[state] = nodeValues;
+                    break;
+                }
+            }
+        }
+
+        return new RouteTable<>(true, toIntArray(edgeStart), edgeKeys.toArray(new String[edgeKeys.size()]),
+                toIntArray(edgeTargets), toIntArray(otherTargets), (L[]) values, noValues);
+    }
+
+    /**
+     * Compile this tree into a {@link RouteTable} with one state for each node.
+     */
+    @SuppressWarnings("unchecked")
+    private <L> RouteTable<L> compileBacktracking(ValuesCompiler<V, L> valuesCompiler) {
+        List<Node> nodes = new ArrayList<>();
+        Map<Node, Integer> nodeIds = new IdentityHashMap<>();
+        nodes.add(root);
+        nodeIds.put(root, 0);
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            for (Node child : node.children) {
+                nodeIds.put(child, nodes.size());
+                nodes.add(child);
+            }
+            if (node.param != null) {
+                nodeIds.put(node.param, nodes.size());
+                nodes.add(node.param);
+            }
+        }
+
+        L noValues = valuesCompiler.compile(Collections.<V>emptyList());
+        int[] edgeStart = new int[nodes.size() + 1];
+        List<String> edgeKeys = new ArrayList<>();
+        List<Integer> edgeTargets = new ArrayList<>();
+        int[] otherTargets = new int[nodes.size()];
+        Object[] values = new Object[nodes.size()];
+        for (int state = 0; state < nodes.size(); state++) {
+            Node node = nodes.get(state);
+            edgeStart[state] = edgeKeys.size();
+            for (int i = 0; i < node.children.length; i++) {
+                edgeKeys.add(node.childrenKeys[i]);
+                edgeTargets.add(nodeIds.get(node.children[i]));
+            }
+            otherTargets[state] = node.param == null ? RouteTable.NO_STATE : nodeIds.get(node.param);
+            values[state] = node.values.isEmpty() ? noValues : valuesCompiler.compile((List<V>) node.values);
+        }
+        edgeStart[nodes.size()] = edgeKeys.size();
+
+        return new RouteTable<>(false, edgeStart, edgeKeys.toArray(new String[edgeKeys.size()]),
+                toIntArray(edgeTargets), otherTargets, (L[]) values, noValues);
+    }
+
+    private static int countNodes(Node node) {
+        int count = 1;
+        for (Node child : node.children) {
+            count += countNodes(child);
+        }
+        if (node.param != null) {
+            count += countNodes(node.param);
+        }
+        return count;
+    }
+
+    private static int stateId(List<Node> nodes, List<List<Node>> states, Map<List<Node>, Integer> stateIds) {
+        if (nodes.isEmpty()) {
+            return RouteTable.NO_STATE;
+        }
+        Integer id = stateIds.get(nodes);
+        if (id == null) {
+            id = states.size();
+            states.add(nodes);
+            stateIds.put(nodes, id);
+        }
+        return id;
+    }
+
+    private static int[] toIntArray(List<Integer> list) {
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = list.get(i);
+        }
+        return result;
+    }
+
     public void clear() {
         root.clear();
         size = 0;
@@ -134,8 +325,14 @@ class PathTree<V> {
 
     private static class Node implements Comparable<Node> {
 
+        private static final String[] NO_KEYS = new String[0];
+        private static final Node[] NO_NODES = new Node[0];
+
         private final String key;
-        private Map<String, Node> children;
+
+        // exact children, sorted by key so they can be binary-searched without allocating
+        private String[] childrenKeys;
+        private Node[] children;
         private Node param;
         List values;
         int depth;
@@ -146,7 +343,8 @@ class PathTree<V> {
         }
 
         void clear() {
-            this.children = new HashMap<>(3);
+            this.childrenKeys = NO_KEYS;
+            this.children = NO_NODES;
             this.param = null;
             this.values = new LinkedList();
             this.depth = -1;
@@ -158,13 +356,21 @@ class PathTree<V> {
                     param = child;
                 }
             } else {
-                children.put(child.key, child);
+                int index = indexOf(child.key, 0, child.key.length());
+                if (index >= 0) {
+                    children[index] = child;
+                } else {
+                    int insertionPoint = -(index + 1);
+                    childrenKeys = insert(childrenKeys, new String[childrenKeys.length + 1], insertionPoint, child.key);
+                    children = insert(children, new Node[children.length + 1], insertionPoint, child);
+                }
             }
             child.depth = this.depth + 1;
         }
 
         public Node getExact(String key) {
-            return children.get(key);
+            int index = indexOf(key, 0, key.length());
+            return index < 0 ? null : children[index];
         }
 
         public Node getParam() {
@@ -172,7 +378,10 @@ class PathTree<V> {
         }
 
         public Map<String, Node> getChildren() {
-            Map<String, Node> result = new HashMap<>(children);
+            Map<String, Node> result = new HashMap<>(children.length + 1);
+            for (int i = 0; i < children.length; i++) {
+                result.put(childrenKeys[i], children[i]);
+            }
             if (param != null) {
                 result.put(":", param);
             }
@@ -183,6 +392,30 @@ class PathTree<V> {
             return getChildren().values();
         }
 
+        private int indexOf(String path, int start, int end) {
+            int low = 0;
+            int high = childrenKeys.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int comparison = PathHelper.compareRegion(childrenKeys[middle], path, start, end);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private static <T> T[] insert(T[] source, T[] target, int index, T item) {
+            System.arraycopy(source, 0, target, 0, index);
+            target[index] = item;
+            System.arraycopy(source, index, target, index + 1, source.length - index);
+            return target;
+        }
+
         @Override
         public int compareTo(Node o) {
             return this.key.compareTo(o.key);
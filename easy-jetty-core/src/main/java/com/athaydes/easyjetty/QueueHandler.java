@@ -0,0 +1,47 @@
+package com.athaydes.easyjetty;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpHeaderValue;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Outermost handler of the server, which records how long each request waited in the Thread pool queue
+ * and answers requests which were shed by the pool with a 503 response, without calling any other handler.
+ */
+class QueueHandler extends HandlerWrapper {
+
+    private final ThreadPoolStats stats;
+
+    QueueHandler(ThreadPoolStats stats) {
+        this.stats = stats;
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        if (request.getDispatcherType() == DispatcherType.REQUEST) {
+            QueueMonitor.MonitoredJob job = QueueMonitor.takeCurrentJob();
+            if (job != null) {
+                if (job.isRejected()) {
+                    stats.rejected();
+                    baseRequest.setHandled(true);
+                    response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                    response.setHeader(HttpHeader.CONNECTION.asString(), HttpHeaderValue.CLOSE.asString());
+                    return;
+                }
+                long queueWait = job.getQueueWaitNanos();
+                stats.record(queueWait);
+                request.setAttribute(ThreadPoolStats.QUEUE_WAIT_ATTRIBUTE, queueWait);
+            }
+        }
+        super.handle(target, baseRequest, request, response);
+    }
+
+}
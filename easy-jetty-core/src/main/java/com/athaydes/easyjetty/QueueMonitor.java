@@ -0,0 +1,179 @@
+package com.athaydes.easyjetty;
+
+import org.eclipse.jetty.server.HttpChannel;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the jobs run by the server's Thread pool, so that the time requests wait in the queue can be
+ * measured, and sheds the jobs the pool rejects.
+ * <p/>
+ * Rejected jobs are run by a single, dedicated Thread, which is expected to only parse requests and answer them
+ * with a 503 response (see {@link QueueHandler}), so it does not need to hold any Thread from the pool.
+ * For this reason, {@link #isContinuation(Runnable) continuations} of exchanges which are already in progress
+ * are never shed.
+ */
+final class QueueMonitor {
+
+    private static final int SHEDDER_QUEUE_CAPACITY = 1024;
+
+    private static final ThreadLocal<MonitoredJob> currentJob = new ThreadLocal<>();
+
+    private final ThreadPoolStats stats;
+    private final String shedderName;
+    private volatile ThreadPoolExecutor shedder;
+
+    QueueMonitor(ThreadPoolStats stats, String shedderName) {
+        this.stats = stats;
+        this.shedderName = shedderName;
+    }
+
+    ThreadPoolStats getStats() {
+        return stats;
+    }
+
+    synchronized void start() {
+        shedder = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(SHEDDER_QUEUE_CAPACITY), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, shedderName);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    synchronized void stop() {
+        if (shedder != null) {
+            shedder.shutdownNow();
+            shedder = null;
+        }
+    }
+
+    /**
+     * @param job to monitor
+     * @return a job which records when it was queued and when it started running
+     */
+    Runnable monitor(Runnable job) {
+        return new MonitoredJob(job, false);
+    }
+
+    /**
+     * Run a job which the pool rejected in the shedder Thread.
+     *
+     * @param job rejected job
+     * @return true if the job was accepted by the shedder, false if the shedder is not running or its queue is full.
+     */
+    boolean shed(Runnable job) {
+        ThreadPoolExecutor currentShedder = shedder;
+        if (currentShedder == null) {
+            return false;
+        }
+        try {
+            currentShedder.execute(new MonitoredJob(job, true));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Marks a job which continues an exchange that is already in progress.
+     *
+     * @param job to mark
+     * @return a job which is never shed
+     */
+    static Runnable continuation(Runnable job) {
+        return new Continuation(job);
+    }
+
+    /**
+     * Jobs which continue an exchange that is already in progress must not be shed: they may run user code
+     * (eg. a {@link ChunkProducer}) which would hold the shedder Thread, and if the shedder could not accept them
+     * either, their exchanges could never complete. Jetty runs these jobs, such as asynchronous dispatches, timeouts and
+     * the callbacks of Read and Write listeners, through the request's {@link HttpChannel}.
+     *
+     * @param job to check
+     * @return true if the job continues an exchange that is already in progress.
+     */
+    static boolean isContinuation(Runnable job) {
+        return job instanceof HttpChannel || job instanceof Continuation;
+    }
+
+    /**
+     * Takes the job currently running in this Thread, so that only the first request handled by it
+     * is considered to have waited in the queue.
+     *
+     * @return the job currently running in this Thread, or null if there is none or it was already taken.
+     */
+    static MonitoredJob takeCurrentJob() {
+        MonitoredJob job = currentJob.get();
+        if (job != null) {
+            currentJob.set(null);
+        }
+        return job;
+    }
+
+    private static final class Continuation implements Runnable {
+
+        private final Runnable job;
+
+        private Continuation(Runnable job) {
+            this.job = job;
+        }
+
+        @Override
+        public void run() {
+            job.run();
+        }
+
+        @Override
+        public String toString() {
+            return job.toString();
+        }
+    }
+
+    static final class MonitoredJob implements Runnable {
+
+        private final Runnable job;
+        private final boolean rejected;
+        private final long queuedAt = System.nanoTime();
+        private long startedAt;
+
+        private MonitoredJob(Runnable job, boolean rejected) {
+            this.job = job;
+            this.rejected = rejected;
+        }
+
+        @Override
+        public void run() {
+            startedAt = System.nanoTime();
+            MonitoredJob previous = currentJob.get();
+            currentJob.set(this);
+            try {
+                job.run();
+            } finally {
+                currentJob.set(previous);
+            }
+        }
+
+        boolean isRejected() {
+            return rejected;
+        }
+
+        long getQueueWaitNanos() {
+            return startedAt - queuedAt;
+        }
+
+        @Override
+        public String toString() {
+            return job.toString();
+        }
+    }
+
+}
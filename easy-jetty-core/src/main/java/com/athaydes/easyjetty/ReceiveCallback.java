@@ -0,0 +1,28 @@
+package com.athaydes.easyjetty;
+
+import java.io.IOException;
+
+/**
+ * An user-provided callback for the request content received asynchronously.
+ *
+ * @param <T> type the request content is mapped to
+ * @see Responder.Exchange#receiveAsync(Class, ReceiveCallback)
+ */
+public interface ReceiveCallback<T> {
+
+    /**
+     * Called once the whole request content has been received and mapped.
+     *
+     * @param object mapped from the request content
+     * @throws IOException in case there's a problem accessing some resource
+     */
+    void onReceived(T object) throws IOException;
+
+    /**
+     * Called if the request content could not be received or mapped.
+     *
+     * @param error the cause of the failure
+     */
+    void onError(Throwable error);
+
+}
@@ -2,6 +2,8 @@ package com.athaydes.easyjetty;
 
 import org.eclipse.jetty.server.Request;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -17,6 +19,11 @@ public interface Responder {
         public final Request baseRequest;
         public final String acceptedContentType;
 
+        private volatile boolean streaming;
+
+        // guarded by this, only set once the request is put in asynchronous mode
+        private AsyncContext asyncContext;
+
         Exchange(ServletOutputStream out, HttpServletRequest request, HttpServletResponse response,
                  Request baseRequest, Map<String, String> parameters, ObjectSupport objectSupport, String acceptedContentType) {
             super(out, request, response,  parameters, objectSupport);
@@ -24,6 +31,102 @@ public interface Responder {
             this.acceptedContentType = acceptedContentType;
         }
 
+        /**
+         * Streams the response body without blocking, flushing each chunk as soon as it is written.
+         *
+         * @param producer of the chunks of the response body
+         * @see #stream(ChunkProducer, FlushPolicy)
+         */
+        public void stream(ChunkProducer producer) {
+            stream(producer, FlushPolicy.eachChunk());
+        }
+
+        /**
+         * Streams the response body without blocking.
+         * <p/>
+         * The request is put in asynchronous mode and the chunks of the body are requested from the producer
+         * only when the connection can accept them. The response is completed when the producer ends the
+         * {@link ResponseStream}, so the responder may return as soon as this method is called.
+         * <p/>
+         * Nothing else should be written to the response after this method is called.
+         *
+         * @param producer    of the chunks of the response body
+         * @param flushPolicy deciding when the chunks are flushed
+         */
+        public void stream(ChunkProducer producer, FlushPolicy flushPolicy) {
+            streaming = true;
+            startAsync();
+            new ResponseStream(this, producer, flushPolicy).start();
+        }
+
+        /**
+         * Receives the request content without blocking, then maps it to an instance of the given type.
+         * <p/>
+         * The request is put in asynchronous mode and the content is accumulated as it arrives, so a slow
+         * client does not hold any Thread. Once the whole content has arrived, it is mapped as with
+         * {@link #receiveAs(Class)}, and the callback is called by a server Thread, so the responder may
+         * return as soon as this method is called.
+         * <p/>
+         * If the content is larger than the {@link EasyJetty#maxFormSize(int) maximum form size} (10MB by default,
+         * as the content is held in memory until it has been fully received), or cannot be mapped, the response status is set to 413 (Payload Too Large) or 400 (Bad Request), respectively,
+         * before the callback's <code>onError</code> method is called.
+         * <p/>
+         * Unless the callback starts {@link #stream(ChunkProducer, FlushPolicy) streaming} the response body,
+         * the exchange is completed when the callback returns.
+         *
+         * @param type     to map the request content to
+         * @param callback to call once the content has been received
+         * @param <T>      type
+         */
+        public <T> void receiveAsync(Class<T> type, ReceiveCallback<? super T> callback) {
+            startAsync();
+            new AsyncReceiver<>(this, type, callback).start();
+        }
+
+        /**
+         * @return true if the exchange ends asynchronously, after the responder returns.
+         */
+        synchronized boolean isAsync() {
+            return asyncContext != null;
+        }
+
+        synchronized AsyncContext startAsync() {
+            if (asyncContext == null) {
+                asyncContext = ExecutorDispatchHandler.startAsync(request);
+                // a slow client may take any time, only the connection idle timeout applies
+                asyncContext.setTimeout(0L);
+            }
+            return asyncContext;
+        }
+
+        /**
+         * Called when the request content has been received, and the callback has been called.
+         *
+         * @param error thrown by the callback, if any
+         */
+        void endReceiving(Throwable error) {
+            if (!streaming) {
+                endAsync(error);
+            }
+        }
+
+        void endAsync(Throwable error) {
+            try {
+                if (error != null && !response.isCommitted()) {
+                    request.setAttribute(RequestDispatcher.ERROR_EXCEPTION, error);
+                    response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                }
+            } catch (IOException | RuntimeException e) {
+                // the client is most likely gone, there is nothing else to do
+            } finally {
+                try {
+                    startAsync().complete();
+                } finally {
+                    release();
+                }
+            }
+        }
+
     }
 
     /**
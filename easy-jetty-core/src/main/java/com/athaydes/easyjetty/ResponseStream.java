@@ -0,0 +1,214 @@
+package com.athaydes.easyjetty;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A response body written without blocking, one chunk at a time.
+ * <p/>
+ * Chunks are only requested from the {@link ChunkProducer} when the connection can accept them, as signalled
+ * by the Servlet container to the stream's <code>WriteListener</code>, so a slow client never holds a Thread
+ * while its connection drains.
+ * <p/>
+ * The producer is never called concurrently, but it may be called from different Threads.
+ *
+ * @see Responder.Exchange#stream(ChunkProducer, FlushPolicy)
+ */
+public final class ResponseStream {
+
+    private final Responder.Exchange exchange;
+    private final ServletOutputStream out;
+    private final ChunkProducer producer;
+    private final FlushPolicy flushPolicy;
+    private final AtomicBoolean done = new AtomicBoolean(false);
+
+    private volatile boolean ended;
+
+    // guarded by this: true while a Thread is producing chunks, and whether it should keep doing so
+    // after it runs out of chunks or the connection stops being ready
+    private boolean running;
+    private boolean signalled;
+
+    // accessed only by the Thread producing chunks
+    private boolean producing;
+    private boolean wroteChunk;
+    private boolean flushNeeded;
+    private int unflushedBytes;
+    private long lastFlushTime = System.nanoTime();
+
+    ResponseStream(Responder.Exchange exchange, ChunkProducer producer, FlushPolicy flushPolicy) {
+        this.exchange = exchange;
+        this.out = exchange.out;
+        this.producer = producer;
+        this.flushPolicy = flushPolicy;
+    }
+
+    void start() {
+        out.setWriteListener(new WriteListener() {
+            @Override
+            public void onWritePossible() {
+                signal();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                finish(error);
+            }
+        });
+    }
+
+    /**
+     * Writes a chunk. May only be called from {@link ChunkProducer#onDemand(ResponseStream)}, at most
+     * once per call.
+     *
+     * @param chunk to write
+     * @throws IOException if a problem occurs while writing the chunk
+     */
+    public void write(byte[] chunk) throws IOException {
+        write(chunk, 0, chunk.length);
+    }
+
+    /**
+     * Writes a chunk. May only be called from {@link ChunkProducer#onDemand(ResponseStream)}, at most
+     * once per call.
+     *
+     * @param chunk  to write
+     * @param offset of the chunk within the array
+     * @param length of the chunk
+     * @throws IOException if a problem occurs while writing the chunk
+     */
+    public void write(byte[] chunk, int offset, int length) throws IOException {
+        if (!producing) {
+            throw new IllegalStateException("Chunks can only be written by the ChunkProducer on demand");
+        }
+        if (wroteChunk) {
+            throw new IllegalStateException("Only one chunk can be written on each demand");
+        }
+        wroteChunk = true;
+        out.write(chunk, offset, length);
+        unflushedBytes += length;
+    }
+
+    /**
+     * Writes a chunk of text, encoded with the response's charset.
+     *
+     * @param chunk to write
+     * @throws IOException if a problem occurs while writing the chunk
+     * @see #write(byte[])
+     */
+    public void write(String chunk) throws IOException {
+        write(chunk.getBytes(exchange.response.getCharacterEncoding()));
+    }
+
+    /**
+     * Ends the stream, completing the response once all chunks have been written.
+     * <p/>
+     * This method may be called from any Thread.
+     */
+    public void end() {
+        ended = true;
+        signal();
+    }
+
+    /**
+     * Signals that the producer has a chunk ready, so that it is called again as soon as the connection
+     * can accept it.
+     * <p/>
+     * This method may be called from any Thread.
+     */
+    public void resume() {
+        if (!done.get()) {
+            signal();
+        }
+    }
+
+    /**
+     * @return true if the stream has ended, either normally or due to an error.
+     */
+    public boolean isDone() {
+        return done.get();
+    }
+
+    private void signal() {
+        synchronized (this) {
+            if (running) {
+                signalled = true;
+                return;
+            }
+            running = true;
+        }
+        run();
+    }
+
+    /**
+     * @return true if this Thread should stop producing chunks, false if it was signalled in the meantime.
+     */
+    private boolean stop() {
+        synchronized (this) {
+            if (signalled) {
+                signalled = false;
+                return false;
+            }
+            running = false;
+            return true;
+        }
+    }
+
+    private void run() {
+        try {
+            while (!done.get()) {
+                // each write or flush must wait until the connection is ready again, which the container
+                // signals by calling onWritePossible
+                if (!out.isReady()) {
+                    if (stop()) {
+                        return;
+                    }
+                    continue;
+                }
+                if (flushNeeded) {
+                    flush();
+                    continue;
+                }
+                if (ended) {
+                    finish(null);
+                    return;
+                }
+                wroteChunk = false;
+                producing = true;
+                try {
+                    producer.onDemand(this);
+                } finally {
+                    producing = false;
+                }
+                if (wroteChunk) {
+                    long millisSinceFlush = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastFlushTime);
+                    flushNeeded = flushPolicy.shouldFlush(unflushedBytes, millisSinceFlush);
+                } else if (unflushedBytes > 0) {
+                    // no chunk is ready, so there's nothing to wait for before flushing
+                    flushNeeded = true;
+                } else if (!ended && stop()) {
+                    return;
+                }
+            }
+        } catch (Throwable e) {
+            finish(e);
+        }
+    }
+
+    private void flush() throws IOException {
+        flushNeeded = false;
+        out.flush();
+        unflushedBytes = 0;
+        lastFlushTime = System.nanoTime();
+    }
+
+    private void finish(Throwable error) {
+        if (done.compareAndSet(false, true)) {
+            exchange.endAsync(error);
+        }
+    }
+
+}
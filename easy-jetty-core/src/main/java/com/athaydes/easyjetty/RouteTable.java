@@ -0,0 +1,129 @@
+package com.athaydes.easyjetty;
+
+/**
+ * An immutable, compiled form of a {@link PathTree}.
+ * <p/>
+ * All states are stored in flat arrays: the exact path components leaving each state are
+ * kept sorted (so they can be binary-searched in place, without allocating), and every state
+ * has at most one transition for any other path component (ie. to parameters).
+ * Because each state already combines all the tree nodes a path could have reached, a match
+ * never backtracks and takes time linear in the length of the path.
+ * <p/>
+ * A table which is not deterministic has one state for each tree node instead, and a match backtracks
+ * exactly as {@link PathTree#get(HandlerPath)} does.
+ *
+ * @see PathTree#compile(PathTree.ValuesCompiler)
+ */
+final class RouteTable<L> {
+
+    static final int NO_STATE = -1;
+
+    private final boolean deterministic;
+    private final int[] edgeStart;
+    private final String[] edgeKeys;
+    private final int[] edgeTargets;
+    private final int[] otherTargets;
+    private final L[] values;
+    private final L noValues;
+
+    RouteTable(boolean deterministic, int[] edgeStart, String[] edgeKeys, int[] edgeTargets, int[] otherTargets,
+               L[] values, L noValues) {
+        this.deterministic = deterministic;
+        this.edgeStart = edgeStart;
+        this.edgeKeys = edgeKeys;
+        this.edgeTargets = edgeTargets;
+        this.otherTargets = otherTargets;
+        this.values = values;
+        this.noValues = noValues;
+    }
+
+    /**
+     * Find the values stored under the given raw request path.
+     * <p/>
+     * The result is the compiled form of what {@link PathTree#get(HandlerPath)} returns, for the tree this
+     * table was compiled from, given the {@link HandlerPath} of the request path.
+     *
+     * @param path request path, eg. "/hello/world"
+     * @return the compiled values stored under the path
+     */
+    L get(String path) {
+        int start = PathHelper.pathStart(path);
+        int end = PathHelper.pathEnd(path, start);
+        int state = 0;
+
+        if (start < end) {
+            // the first path component is always the empty String before the leading '/'
+            // (which is implied if the path does not start with '/')
+            int index = path.charAt(start) == '/' ? start : start - 1;
+            if (!deterministic) {
+                state = backtrack(state, path, index, index, end);
+                return state == NO_STATE ? noValues : values[state];
+            }
+            int segmentEnd = index;
+            while (index <= end) {
+                state = next(state, path, index, segmentEnd);
+                if (state == NO_STATE) {
+                    return noValues;
+                }
+                index = segmentEnd + 1;
+                segmentEnd = PathHelper.segmentEnd(path, index, end);
+            }
+        }
+
+        return values[state];
+    }
+
+    /**
+     * @return true if a match never backtracks, false if this table has one state for each tree node.
+     */
+    boolean isDeterministic() {
+        return deterministic;
+    }
+
+    /**
+     * @return the number of states in this table.
+     */
+    int stateCount() {
+        return otherTargets.length;
+    }
+
+    private int next(int state, String path, int start, int end) {
+        int exact = exactTarget(state, path, start, end);
+        return exact == NO_STATE ? otherTargets[state] : exact;
+    }
+
+    /**
+     * Match the path from the given state, trying the exact path component first, then the parameter,
+     * if the former does not lead to any values.
+     */
+    private int backtrack(int state, String path, int index, int segmentEnd, int end) {
+        if (state == NO_STATE || index > end) {
+            return state;
+        }
+        int nextIndex = segmentEnd + 1;
+        int nextSegmentEnd = PathHelper.segmentEnd(path, nextIndex, end);
+        int result = backtrack(exactTarget(state, path, index, segmentEnd), path, nextIndex, nextSegmentEnd, end);
+        if (result == NO_STATE || values[result] == noValues) {
+            result = backtrack(otherTargets[state], path, nextIndex, nextSegmentEnd, end);
+        }
+        return result;
+    }
+
+    private int exactTarget(int state, String path, int start, int end) {
+        int low = edgeStart[state];
+        int high = edgeStart[state + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = PathHelper.compareRegion(edgeKeys[middle], path, start, end);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return edgeTargets[middle];
+            }
+        }
+        return NO_STATE;
+    }
+
+}
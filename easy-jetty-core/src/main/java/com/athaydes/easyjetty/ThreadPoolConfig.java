@@ -0,0 +1,122 @@
+package com.athaydes.easyjetty;
+
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Configuration of the Thread pool which runs the server's connectors and handlers.
+ * <p/>
+ * By default, the server uses Jetty's <code>QueuedThreadPool</code> with an unbounded queue.
+ * <p/>
+ * If a queue capacity is set, jobs submitted while the queue is full are not queued. Instead, requests
+ * arriving while the server is saturated are answered immediately with a 503 (Service Unavailable) response
+ * by a single, dedicated Thread, so that bursts of requests do not cause unbounded queueing delays.
+ *
+ * @see EasyJetty#threadPool(ThreadPoolConfig)
+ * @see ThreadPoolStats
+ */
+public final class ThreadPoolConfig {
+
+    int minThreads = 8;
+    int maxThreads = 200;
+    int idleTimeout = 60_000;
+    int queueCapacity = -1;
+    String name;
+    Executor executor;
+
+    /**
+     * Sets the minimum number of Threads kept in the pool.
+     *
+     * @param minThreads minimum number of Threads
+     * @return this
+     */
+    public ThreadPoolConfig minThreads(int minThreads) {
+        if (minThreads < 0) {
+            throw new IllegalArgumentException("minThreads must be 0 or larger");
+        }
+        this.minThreads = minThreads;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of Threads in the pool.
+     * <p/>
+     * Notice that the acceptors and selectors of the server's connectors each hold a Thread while the server
+     * is running, so the pool must be large enough to also run the request handlers.
+     *
+     * @param maxThreads maximum number of Threads
+     * @return this
+     */
+    public ThreadPoolConfig maxThreads(int maxThreads) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("maxThreads must be positive");
+        }
+        this.maxThreads = maxThreads;
+        return this;
+    }
+
+    /**
+     * Sets how long Threads above the minimum may be idle before they are stopped.
+     *
+     * @param idleTimeout timeout in milliseconds
+     * @return this
+     */
+    public ThreadPoolConfig idleTimeout(int idleTimeout) {
+        if (idleTimeout < 0) {
+            throw new IllegalArgumentException("idleTimeout must be 0 or larger");
+        }
+        this.idleTimeout = idleTimeout;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of jobs which may wait for a Thread once all Threads the pool may start are busy.
+     * By default, the queue is unbounded.
+     *
+     * @param queueCapacity maximum number of queued jobs
+     * @return this
+     */
+    public ThreadPoolConfig queueCapacity(int queueCapacity) {
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("queueCapacity must be 0 or larger");
+        }
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * Sets the name of the pool, which is used as the prefix of the names of its Threads.
+     *
+     * @param name of the pool
+     * @return this
+     */
+    public ThreadPoolConfig name(String name) {
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * Use the given Executor to run all jobs instead of a pool managed by the server.
+     * <p/>
+     * The Executor is not shut down when the server stops, as it may be shared with other components.
+     * All other settings of this configuration, except the name, are ignored, but if the Executor rejects
+     * a job, the request is answered with a 503 response just as if the queue were full.
+     *
+     * @param executor to run jobs with
+     * @return this
+     */
+    public ThreadPoolConfig executor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    ThreadPool createThreadPool(ThreadPoolStats stats) {
+        QueueMonitor monitor = new QueueMonitor(stats, (name == null ? "easy-jetty" : name) + "-shedder");
+        if (executor != null) {
+            return new MonitoredExecutorThreadPool(executor, monitor);
+        }
+        return new MonitoredQueuedThreadPool(this, monitor);
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.athaydes.easyjetty;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Statistics of the time requests spend waiting in the server's Thread pool queue before being handled,
+ * and of the requests rejected because the queue was full.
+ * <p/>
+ * The queue wait of each request is also made available to handlers as the request attribute
+ * {@link #QUEUE_WAIT_ATTRIBUTE}.
+ *
+ * @see EasyJetty#getThreadPoolStats()
+ */
+public final class ThreadPoolStats {
+
+    /**
+     * Name of the request attribute holding the time, in nanoseconds (as a Long), the request waited
+     * in the Thread pool queue before being handled.
+     */
+    public static final String QUEUE_WAIT_ATTRIBUTE = "com.athaydes.easyjetty.queueWaitNanos";
+
+    // bucket i counts waits shorter than 2^i microseconds, the last bucket counts all longer waits
+    private static final int BUCKETS = 32;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong totalQueueWaitNanos = new AtomicLong();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    void record(long queueWaitNanos) {
+        requestCount.incrementAndGet();
+        totalQueueWaitNanos.addAndGet(queueWaitNanos);
+        histogram.incrementAndGet(bucketOf(queueWaitNanos));
+        long max;
+        do {
+            max = maxQueueWaitNanos.get();
+        } while (queueWaitNanos > max && !maxQueueWaitNanos.compareAndSet(max, queueWaitNanos));
+    }
+
+    void rejected() {
+        rejectedCount.incrementAndGet();
+    }
+
+    /**
+     * @return number of requests handled since the stats were last reset, not including rejected requests.
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return number of requests rejected with a 503 response because the Thread pool queue was full.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return the longest time a request waited in the queue.
+     */
+    public long getMaxQueueWaitNanos() {
+        return maxQueueWaitNanos.get();
+    }
+
+    /**
+     * @return the mean time requests waited in the queue.
+     */
+    public long getMeanQueueWaitNanos() {
+        long count = requestCount.get();
+        return count == 0 ? 0L : totalQueueWaitNanos.get() / count;
+    }
+
+    /**
+     * Estimates the given percentile of the time requests waited in the queue.
+     * <p/>
+     * Wait times are counted in buckets whose bounds are powers of 2 microseconds, so the returned
+     * value is the upper bound of the bucket the percentile falls in, capped at the maximum wait time.
+     *
+     * @param percentile between 0 and 100, eg. 99 for the p99 wait time
+     * @return the estimated percentile of the queue wait time.
+     */
+    public long getQueueWaitPercentileNanos(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0L;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        int bucket = 0;
+        for (; bucket < BUCKETS - 1; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                break;
+            }
+        }
+        return Math.min(TimeUnit.MICROSECONDS.toNanos(1L << bucket), getMaxQueueWaitNanos());
+    }
+
+    /**
+     * Resets all statistics.
+     */
+    public void reset() {
+        requestCount.set(0L);
+        rejectedCount.set(0L);
+        totalQueueWaitNanos.set(0L);
+        maxQueueWaitNanos.set(0L);
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram.set(i, 0L);
+        }
+    }
+
+    private static int bucketOf(long queueWaitNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(queueWaitNanos);
+        return Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+    }
+
+}
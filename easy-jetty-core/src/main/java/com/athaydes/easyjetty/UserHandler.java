@@ -1,6 +1,6 @@
 package com.athaydes.easyjetty;
 
-import com.athaydes.easyjetty.external.MIMEParse;
+import com.athaydes.easyjetty.http.ContentNegotiationCache;
 import com.athaydes.easyjetty.http.MethodArbiter;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.server.Request;
@@ -11,6 +11,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -20,10 +21,10 @@ final class UserHandler extends AbstractHandler implements EasyJettyHandler {
 
     private final MethodArbiter methodArbiter;
     private final Responder responder;
-    private final Map<Integer, String> paramsByIndex;
+    private final PathParams.Layout paramsLayout;
     private final String defaultContentType;
     private final ObjectSupport objectSupport;
-    private final List<String> acceptedContentTypes;
+    private final ContentNegotiationCache.Negotiator negotiator;
     private final boolean acceptEverything;
 
     public UserHandler(MethodArbiter methodArbiter,
@@ -31,12 +32,14 @@ final class UserHandler extends AbstractHandler implements EasyJettyHandler {
                        Responder responder,
                        Map<Integer, String> paramsByIndex,
                        String defaultContentType,
-                       ObjectSupport objectSupport) {
+                       ObjectSupport objectSupport,
+                       ContentNegotiationCache negotiationCache) {
         this.methodArbiter = methodArbiter;
         this.acceptEverything = acceptedContentType.equals(ACCEPT_EVERYTHING);
         this.responder = responder;
-        this.acceptedContentTypes = acceptEverything ? null : parseAcceptedContentTypes(acceptedContentType);
-        this.paramsByIndex = paramsByIndex;
+        this.negotiator = acceptEverything ? null :
+                negotiationCache.negotiatorFor(parseAcceptedContentTypes(acceptedContentType));
+        this.paramsLayout = new PathParams.Layout(paramsByIndex);
         this.defaultContentType = defaultContentType;
         this.objectSupport = objectSupport;
     }
@@ -72,6 +75,16 @@ final class UserHandler extends AbstractHandler implements EasyJettyHandler {
             return;
         }
 
+        respond(acceptedContentType, baseReq, req, res);
+    }
+
+    /**
+     * Respond to a request whose content type has already been negotiated.
+     *
+     * @param acceptedContentType content type accepted by the client, or ACCEPT_EVERYTHING
+     */
+    void respond(String acceptedContentType, Request baseReq, HttpServletRequest req, HttpServletResponse res)
+            throws IOException, ServletException {
         if (!ACCEPT_EVERYTHING.equals(acceptedContentType)) {
             res.setHeader(HttpHeader.CONTENT_TYPE.asString(), acceptedContentType);
         } else if (defaultContentType != null) {
@@ -80,8 +93,16 @@ final class UserHandler extends AbstractHandler implements EasyJettyHandler {
 
         res.setStatus(HttpServletResponse.SC_OK);
         baseReq.setHandled(true);
-        Map<String, String> params = PathHelper.matchParams(paramsByIndex, baseReq.getPathInfo());
-        responder.respond(new Responder.Exchange(res.getOutputStream(), req, res, baseReq, params, objectSupport, acceptedContentType));
+        Map<String, String> params = paramsLayout.paramsOf(baseReq.getPathInfo());
+        Responder.Exchange exchange = new Responder.Exchange(
+                res.getOutputStream(), req, res, baseReq, params, objectSupport, acceptedContentType);
+        try {
+            responder.respond(exchange);
+        } finally {
+            if (!exchange.isAsync()) {
+                exchange.release();
+            }
+        }
     }
 
     @Override
@@ -89,10 +110,21 @@ final class UserHandler extends AbstractHandler implements EasyJettyHandler {
         return methodArbiter;
     }
 
+    boolean acceptsEverything() {
+        return acceptEverything;
+    }
+
+    /**
+     * @return the content types this handler can provide, empty if it accepts everything.
+     */
+    List<String> getContentTypes() {
+        return acceptEverything ? Collections.<String>emptyList() : negotiator.getSupported();
+    }
+
     private String getAcceptedContentType(String acceptHeader) {
         return acceptEverything || (acceptHeader == null) ?
                 ACCEPT_EVERYTHING :
-                MIMEParse.bestMatch(acceptedContentTypes, acceptHeader);
+                negotiator.bestMatch(acceptHeader);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,171 @@
+package com.athaydes.easyjetty.http;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A bounded, concurrent cache of the results of content negotiation.
+ * <p/>
+ * Real traffic contains only a handful of distinct Accept headers, so the best match between the
+ * content types supported by a handler and an Accept header is computed only once and then re-used.
+ * <p/>
+ * Results are cached separately for each distinct group of supported content types. When the number of
+ * Accept headers cached for a group reaches the maximum number of entries, the results for that group are discarded.
+ * The number of groups is bounded in the same way: Negotiators already handed out keep working, but new callers
+ * get a new Negotiator once the groups have been discarded.
+ */
+public final class ContentNegotiationCache {
+
+    /**
+     * Default maximum number of Accept headers cached for each group of supported content types,
+     * and of groups of supported content types.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private final ConcurrentMap<List<String>, Negotiator> negotiators = new ConcurrentHashMap<>();
+    private final StripedCounter hits = new StripedCounter();
+    private final StripedCounter misses = new StripedCounter();
+    private final int maxEntries;
+
+    /**
+     * Create a cache which can hold up to {@link #DEFAULT_MAX_ENTRIES} Accept headers
+     * for each of up to {@link #DEFAULT_MAX_ENTRIES} groups of supported content types.
+     */
+    public ContentNegotiationCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries maximum number of Accept headers cached for each group of supported content types,
+     *                   and of groups of supported content types
+     */
+    public ContentNegotiationCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Negotiates content for a group of supported content types.
+     */
+    public final class Negotiator {
+
+        private final List<String> supported;
+        private final ConcurrentMap<String, Integer> bestMatchByAccept = new ConcurrentHashMap<>();
+
+        private Negotiator(List<String> supported) {
+            this.supported = supported;
+        }
+
+        /**
+         * Find the best match between the supported content types and the given Accept header.
+         *
+         * @param acceptHeader value of the Accept header
+         * @return the best match, or the empty String if none of the supported content types is acceptable
+         * @see MediaRanges#bestMatch(List, String)
+         */
+        public String bestMatch(String acceptHeader) {
+            int index = bestMatchIndex(acceptHeader);
+            return index < 0 ? "" : supported.get(index);
+        }
+
+        /**
+         * Find the index of the best match between the supported content types and the given Accept header.
+         *
+         * @param acceptHeader value of the Accept header
+         * @return the index of the best match, or -1 if none of the supported content types is acceptable
+         * @see MediaRanges#bestMatchIndex(List, String)
+         */
+        public int bestMatchIndex(String acceptHeader) {
+            Integer result = bestMatchByAccept.get(acceptHeader);
+            if (result != null) {
+                hits.increment();
+                return result;
+            }
+            misses.increment();
+            result = MediaRanges.bestMatchIndex(supported, acceptHeader);
+            if (bestMatchByAccept.size() >= maxEntries) {
+                bestMatchByAccept.clear();
+            }
+            bestMatchByAccept.put(acceptHeader, result);
+            return result;
+        }
+
+        /**
+         * @return the supported content types.
+         */
+        public List<String> getSupported() {
+            return supported;
+        }
+
+        int size() {
+            return bestMatchByAccept.size();
+        }
+    }
+
+    /**
+     * Get the Negotiator for the given group of supported content types.
+     * <p/>
+     * Callers should keep the returned Negotiator, rather than calling this method on each request.
+     *
+     * @param supported content types, in order of preference
+     * @return negotiator for the supported content types
+     */
+    public Negotiator negotiatorFor(Collection<String> supported) {
+        List<String> key = Collections.unmodifiableList(new ArrayList<>(supported));
+        Negotiator negotiator = negotiators.get(key);
+        if (negotiator == null) {
+            if (negotiators.size() >= maxEntries) {
+                negotiators.clear();
+            }
+            Negotiator newNegotiator = new Negotiator(key);
+            negotiator = negotiators.putIfAbsent(key, newNegotiator);
+            if (negotiator == null) {
+                negotiator = newNegotiator;
+            }
+        }
+        return negotiator;
+    }
+
+    /**
+     * @return number of times a cached result was found.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of times a result had to be computed.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of results currently cached.
+     */
+    public int size() {
+        int size = 0;
+        for (Negotiator negotiator : negotiators.values()) {
+            size += negotiator.size();
+        }
+        return size;
+    }
+
+    /**
+     * Discard all cached results and reset the hit/miss counters.
+     */
+    public void clear() {
+        for (Negotiator negotiator : negotiators.values()) {
+            negotiator.bestMatchByAccept.clear();
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+}
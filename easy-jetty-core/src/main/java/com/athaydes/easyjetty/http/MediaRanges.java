@@ -0,0 +1,390 @@
+package com.athaydes.easyjetty.http;
+
+import com.athaydes.easyjetty.external.MIMEParse;
+
+import java.util.List;
+
+/**
+ * Matches mime-types against the media-ranges of a HTTP Accept header.
+ * <p/>
+ * This class gives exactly the same results as {@link MIMEParse}, but it does not allocate any memory:
+ * the media-ranges are parsed in a single pass over the header characters, keeping only the offsets of
+ * the type, sub-type and parameters, and the best candidate is chosen in a single linear scan.
+ * <p/>
+ * Headers which are unusual enough to require the full {@link MIMEParse} rules (for example, malformed
+ * media-ranges, or q-values which are not simple decimal numbers) are delegated to {@link MIMEParse}.
+ */
+public final class MediaRanges {
+
+    /**
+     * Result of {@link #fitnessAndQuality(String, String)} when the inputs must be handled by {@link MIMEParse}.
+     */
+    private static final long DELEGATE = Long.MIN_VALUE;
+
+    private static final int INVALID = -1;
+    private static final int WILDCARD = -2;
+
+    private static final int MAX_Q_MANTISSA = 10_000_000;
+
+    private static final float[] POWERS_OF_TEN = {
+            1f, 10f, 100f, 1_000f, 10_000f, 100_000f, 1_000_000f, 10_000_000f
+    };
+
+    /**
+     * Takes a list of supported mime-types and finds the best match for all the
+     * media-ranges listed in header.
+     *
+     * @param supported mime-types
+     * @param header    value of a HTTP Accept header
+     * @return the best match, or the empty String if none of the supported mime-types is acceptable
+     * @see MIMEParse#bestMatch(java.util.Collection, String)
+     */
+    public static String bestMatch(List<String> supported, String header) {
+        int index = bestMatchIndex(supported, header);
+        return index < 0 ? "" : supported.get(index);
+    }
+
+    /**
+     * Same as {@link #bestMatch(List, String)}, but returns the index of the best match.
+     * <p/>
+     * If the same mime-type appears more than once in the supported list, the index of its last occurrence is returned.
+     *
+     * @param supported mime-types
+     * @param header    value of a HTTP Accept header
+     * @return the index of the best match, or -1 if none of the supported mime-types is acceptable
+     */
+    public static int bestMatchIndex(List<String> supported, String header) {
+        if (header == null || supported.isEmpty()) {
+            return delegateBestMatchIndex(supported, header);
+        }
+        int best = 0;
+        int bestFitness = Integer.MIN_VALUE;
+        float bestQuality = 0f;
+        for (int i = 0; i < supported.size(); i++) {
+            String mimeType = supported.get(i);
+            long fitnessAndQuality = mimeType == null ? DELEGATE : fitnessAndQuality(mimeType, header);
+            if (fitnessAndQuality == DELEGATE) {
+                return delegateBestMatchIndex(supported, header);
+            }
+            int fitness = fitnessOf(fitnessAndQuality);
+            float quality = qualityOf(fitnessAndQuality);
+            // ties are won by the last candidate, as in MIMEParse
+            if (fitness > bestFitness || (fitness == bestFitness && quality >= bestQuality)) {
+                best = i;
+                bestFitness = fitness;
+                bestQuality = quality;
+            }
+        }
+        return bestQuality != 0f ? best : -1;
+    }
+
+    private static int delegateBestMatchIndex(List<String> supported, String header) {
+        String result = MIMEParse.bestMatch(supported, header);
+        // MIMEParse returns the last of the best matches, so equal mime-types can only be found at its last index
+        return result.isEmpty() ? -1 : supported.lastIndexOf(result);
+    }
+
+    /**
+     * @param acceptedContentType acceptable
+     * @param candidate           being checked
+     * @return true if the candidate can be accepted.
+     * @see MIMEParse#isAccepted(String, String)
+     */
+    public static boolean isAccepted(String acceptedContentType, String candidate) {
+        if (acceptedContentType == null || candidate == null) {
+            return MIMEParse.isAccepted(acceptedContentType, candidate);
+        }
+        long fitnessAndQuality = fitnessAndQuality(acceptedContentType, candidate);
+        if (fitnessAndQuality == DELEGATE) {
+            return MIMEParse.isAccepted(acceptedContentType, candidate);
+        }
+        return qualityOf(fitnessAndQuality) != 0f;
+    }
+
+    /**
+     * Finds the fitness and quality of the best match for the given mime-type within the media-ranges of the
+     * header, packed into a long, or {@link #DELEGATE} if the inputs must be handled by {@link MIMEParse}.
+     */
+    private static long fitnessAndQuality(String mimeType, String header) {
+        // parse the mime-type
+        int targetEnd = mimeType.length();
+        int targetParams = indexOf(mimeType, ';', 0, targetEnd);
+        int targetFullTypeStart = trimStart(mimeType, 0, targetParams);
+        int targetFullTypeEnd = trimEnd(mimeType, targetFullTypeStart, targetParams);
+        int targetSlash = slash(mimeType, targetFullTypeStart, targetFullTypeEnd);
+        if (targetSlash == INVALID || !validParams(mimeType, targetParams, targetEnd)) {
+            return DELEGATE;
+        }
+        int targetTypeEnd = targetSlash == WILDCARD ? targetFullTypeEnd : trimEnd(mimeType, targetFullTypeStart, targetSlash);
+        int targetSubTypeStart = targetSlash == WILDCARD ? targetFullTypeStart : trimStart(mimeType, targetSlash + 1, targetFullTypeEnd);
+
+        int bestFitness = -1;
+        float bestQuality = 0f;
+
+        int headerEnd = header.length();
+        if (headerEnd == 0) {
+            return DELEGATE;
+        }
+
+        int start = 0;
+        while (start <= headerEnd) {
+            int end = indexOf(header, ',', start, headerEnd);
+            if (start == end) {
+                if (onlyCommas(header, start, headerEnd)) {
+                    break; // trailing empty media-ranges are ignored
+                }
+                return DELEGATE;
+            }
+
+            // parse the media-range
+            int params = indexOf(header, ';', start, end);
+            int fullTypeStart = trimStart(header, start, params);
+            int fullTypeEnd = trimEnd(header, fullTypeStart, params);
+            int slash = slash(header, fullTypeStart, fullTypeEnd);
+            if (slash == INVALID || !validParams(header, params, end)) {
+                return DELEGATE;
+            }
+            int typeEnd = slash == WILDCARD ? fullTypeEnd : trimEnd(header, fullTypeStart, slash);
+            int subTypeStart = slash == WILDCARD ? fullTypeStart : trimStart(header, slash + 1, fullTypeEnd);
+            float quality = quality(header, params, end);
+            if (Float.isNaN(quality)) {
+                return DELEGATE;
+            }
+
+            // match the media-range against the mime-type
+            boolean sameType = regionEquals(mimeType, targetFullTypeStart, targetTypeEnd,
+                    header, fullTypeStart, typeEnd);
+            boolean sameSubType = regionEquals(mimeType, targetSubTypeStart, targetFullTypeEnd,
+                    header, subTypeStart, fullTypeEnd);
+            if ((sameType || isWildcard(header, fullTypeStart, typeEnd) ||
+                    isWildcard(mimeType, targetFullTypeStart, targetTypeEnd)) &&
+                    (sameSubType || isWildcard(header, subTypeStart, fullTypeEnd) ||
+                            isWildcard(mimeType, targetSubTypeStart, targetFullTypeEnd))) {
+                int fitness = sameType ? 100 : 0;
+                fitness += sameSubType ? 10 : 0;
+                if (anyParamMatches(mimeType, targetParams, targetEnd, header, params, end)) {
+                    fitness++;
+                }
+                if (fitness > bestFitness) {
+                    bestFitness = fitness;
+                    bestQuality = quality;
+                }
+            }
+
+            start = end + 1;
+        }
+
+        return ((long) bestFitness << 32) | (Float.floatToIntBits(bestQuality) & 0xFFFFFFFFL);
+    }
+
+    private static int fitnessOf(long fitnessAndQuality) {
+        return (int) (fitnessAndQuality >> 32);
+    }
+
+    private static float qualityOf(long fitnessAndQuality) {
+        return Float.intBitsToFloat((int) fitnessAndQuality);
+    }
+
+    /**
+     * @return the index of the only '/' within the full type, {@link #WILDCARD} if the full type is '*',
+     * or {@link #INVALID} if the full type is not a simple type/sub-type pair.
+     */
+    private static int slash(String text, int start, int end) {
+        if (isWildcard(text, start, end)) {
+            return WILDCARD;
+        }
+        int slash = indexOf(text, '/', start, end);
+        if (slash == end || slash + 1 == end || indexOf(text, '/', slash + 1, end) != end) {
+            return INVALID;
+        }
+        return slash;
+    }
+
+    /**
+     * @return true if no parameter within the parameters section contains more than one '='.
+     */
+    private static boolean validParams(String text, int params, int end) {
+        int equalsCount = 0;
+        for (int i = params + 1; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == ';') {
+                equalsCount = 0;
+            } else if (c == '=' && ++equalsCount > 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the quality of the media-range, or NaN if its q parameter is not a simple decimal number.
+     */
+    private static float quality(String text, int params, int end) {
+        int valueStart = -1;
+        int valueEnd = -1;
+        for (int start = params + 1; start < end; ) {
+            int segmentEnd = indexOf(text, ';', start, end);
+            int eq = indexOf(text, '=', start, segmentEnd);
+            if (isParam(eq, segmentEnd) && isQ(text, start, eq)) {
+                valueStart = trimStart(text, eq + 1, segmentEnd);
+                valueEnd = trimEnd(text, valueStart, segmentEnd);
+            }
+            start = segmentEnd + 1;
+        }
+        if (valueStart == valueEnd) {
+            return 1f; // missing or blank
+        }
+        int mantissa = 0;
+        int scale = 0;
+        int digits = 0;
+        boolean fraction = false;
+        for (int i = valueStart; i < valueEnd; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fraction) {
+                    scale++;
+                }
+                if (mantissa >= MAX_Q_MANTISSA || scale >= POWERS_OF_TEN.length) {
+                    return Float.NaN;
+                }
+            } else {
+                return Float.NaN;
+            }
+        }
+        if (digits == 0) {
+            return Float.NaN;
+        }
+        float quality = mantissa / POWERS_OF_TEN[scale];
+        return quality > 1f ? 1f : quality;
+    }
+
+    private static boolean anyParamMatches(String target, int targetParams, int targetEnd,
+                                           String range, int rangeParams, int rangeEnd) {
+        for (int start = targetParams + 1; start < targetEnd; ) {
+            int segmentEnd = indexOf(target, ';', start, targetEnd);
+            int eq = indexOf(target, '=', start, segmentEnd);
+            if (isParam(eq, segmentEnd) && !isQ(target, start, eq)) {
+                int keyStart = trimStart(target, start, eq);
+                int keyEnd = trimEnd(target, keyStart, eq);
+                if (!hasParam(target, keyStart, keyEnd, target, segmentEnd + 1, targetEnd)) {
+                    int valueStart = trimStart(target, eq + 1, segmentEnd);
+                    int valueEnd = trimEnd(target, valueStart, segmentEnd);
+                    if (lastParamValueEquals(target, keyStart, keyEnd, valueStart, valueEnd,
+                            range, rangeParams + 1, rangeEnd)) {
+                        return true;
+                    }
+                }
+            }
+            start = segmentEnd + 1;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if a parameter with the given key exists between from and end.
+     */
+    private static boolean hasParam(String key, int keyStart, int keyEnd,
+                                    String text, int from, int end) {
+        for (int start = from; start < end; ) {
+            int segmentEnd = indexOf(text, ';', start, end);
+            int eq = indexOf(text, '=', start, segmentEnd);
+            if (isParam(eq, segmentEnd) && keyEquals(key, keyStart, keyEnd, text, start, eq)) {
+                return true;
+            }
+            start = segmentEnd + 1;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the value of the last parameter with the given key between from and end equals the given value.
+     */
+    private static boolean lastParamValueEquals(String target, int keyStart, int keyEnd, int valueStart, int valueEnd,
+                                                String text, int from, int end) {
+        boolean result = false;
+        for (int start = from; start < end; ) {
+            int segmentEnd = indexOf(text, ';', start, end);
+            int eq = indexOf(text, '=', start, segmentEnd);
+            if (isParam(eq, segmentEnd) && keyEquals(target, keyStart, keyEnd, text, start, eq)) {
+                int otherValueStart = trimStart(text, eq + 1, segmentEnd);
+                int otherValueEnd = trimEnd(text, otherValueStart, segmentEnd);
+                result = regionEquals(target, valueStart, valueEnd, text, otherValueStart, otherValueEnd);
+            }
+            start = segmentEnd + 1;
+        }
+        return result;
+    }
+
+    /**
+     * A parameter is only taken into consideration if it has a '=' followed by at least one character.
+     */
+    private static boolean isParam(int eq, int segmentEnd) {
+        return eq + 1 < segmentEnd;
+    }
+
+    private static boolean isQ(String text, int start, int eq) {
+        int keyStart = trimStart(text, start, eq);
+        return trimEnd(text, keyStart, eq) - keyStart == 1 && text.charAt(keyStart) == 'q';
+    }
+
+    private static boolean keyEquals(String key, int keyStart, int keyEnd, String text, int start, int eq) {
+        int otherKeyStart = trimStart(text, start, eq);
+        return regionEquals(key, keyStart, keyEnd, text, otherKeyStart, trimEnd(text, otherKeyStart, eq));
+    }
+
+    private static boolean isWildcard(String text, int start, int end) {
+        return end - start == 1 && text.charAt(start) == '*';
+    }
+
+    private static boolean regionEquals(String a, int aStart, int aEnd, String b, int bStart, int bEnd) {
+        int length = aEnd - aStart;
+        return length == bEnd - bStart && a.regionMatches(aStart, b, bStart, length);
+    }
+
+    private static boolean onlyCommas(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) != ',') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the index of c between start and end, or end if c cannot be found.
+     */
+    private static int indexOf(String text, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Trims characters in the same way as {@link String#trim()}.
+     */
+    private static int trimStart(String text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(String text, int start, int end) {
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    // hidden
+    private MediaRanges() {
+    }
+
+}
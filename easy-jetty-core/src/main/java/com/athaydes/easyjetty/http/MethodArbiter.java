@@ -33,6 +33,37 @@ public interface MethodArbiter {
             return arbiter.accepts(method);
         }
 
+        /**
+         * @return the bit representing this Method in a method mask.
+         * @see MethodArbiterFactory#methodMask(MethodArbiter)
+         */
+        public int mask() {
+            return 1 << ordinal();
+        }
+
+        /**
+         * Find the Method with the given name without hashing the name.
+         *
+         * @param method name of the HTTP method
+         * @return the Method, or null if the name is not one of the known Methods
+         */
+        public static Method fromString(String method) {
+            switch (method.length()) {
+                case 3:
+                    return GET.name().equals(method) ? GET : PUT.name().equals(method) ? PUT : null;
+                case 4:
+                    return POST.name().equals(method) ? POST : HEAD.name().equals(method) ? HEAD : null;
+                case 5:
+                    return TRACE.name().equals(method) ? TRACE : null;
+                case 6:
+                    return DELETE.name().equals(method) ? DELETE : null;
+                case 7:
+                    return OPTIONS.name().equals(method) ? OPTIONS : null;
+                default:
+                    return null;
+            }
+        }
+
 
     }
 
@@ -13,6 +13,11 @@ import java.util.Set;
  */
 public class MethodArbiterFactory {
 
+    /**
+     * Method mask of MethodArbiters whose accepted methods cannot be known in advance.
+     */
+    public static final int UNKNOWN_METHOD_MASK = -1;
+
     private static final Map<String, MethodArbiter> arbiterByName = new HashMap<>();
     private static AnyMethodArbiter anyMethodInstance;
 
@@ -82,6 +87,50 @@ public class MethodArbiterFactory {
         return new AnyOfMethodsArbiter(accepted, othersAccepted);
     }
 
+    /**
+     * Returns the bitmask of the {@link Method}s accepted by the given arbiter, where each Method
+     * is represented by the bit returned by {@link Method#mask()}.
+     * <p/>
+     * Only MethodArbiters created by this factory (and the Methods themselves) have a known mask.
+     * Methods which are not one of the {@link Method} values are not represented in a mask, so
+     * the arbiter must still be asked whether it accepts those.
+     *
+     * @param arbiter MethodArbiter
+     * @return the mask of accepted Methods, or {@link #UNKNOWN_METHOD_MASK} if the arbiter is a custom implementation
+     */
+    public static int methodMask(MethodArbiter arbiter) {
+        if (arbiter instanceof Method) {
+            return ((Method) arbiter).mask();
+        }
+        if (arbiter instanceof SingleMethodArbiter) {
+            return maskOf(((SingleMethodArbiter) arbiter).accepted);
+        }
+        if (arbiter instanceof AnyOfMethodsArbiter) {
+            int mask = 0;
+            for (String method : ((AnyOfMethodsArbiter) arbiter).acceptedMethods) {
+                mask |= maskOf(method);
+            }
+            return mask;
+        }
+        if (arbiter instanceof AnyMethodArbiter) {
+            return allMethodsMask();
+        }
+        return UNKNOWN_METHOD_MASK;
+    }
+
+    /**
+     * @return the method mask including all {@link Method}s.
+     */
+    public static int allMethodsMask() {
+        // not a constant because Method depends on this class being initialized
+        return (1 << Method.values().length) - 1;
+    }
+
+    private static int maskOf(String method) {
+        Method knownMethod = Method.fromString(method);
+        return knownMethod == null ? 0 : knownMethod.mask();
+    }
+
     /**
      * Creates and returns a {@link com.athaydes.easyjetty.http.MethodArbiter}
      * that accepts a single HTTP method.
@@ -0,0 +1,48 @@
+package com.athaydes.easyjetty.http;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter which is incremented by many Threads without all of them contending on the same cache line.
+ * <p/>
+ * Each Thread increments one of several cells, chosen by its id, and the cells are summed when the value is read.
+ * Reading the value while the counter is being incremented gives an approximation of the total.
+ */
+final class StripedCounter {
+
+    // cells are spaced 8 longs (64 bytes) apart, so that no two cells share a cache line
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    StripedCounter() {
+        int stripes = 1;
+        while (stripes < Runtime.getRuntime().availableProcessors() * 2) {
+            stripes <<= 1;
+        }
+        this.cells = new AtomicLongArray(stripes * PADDING);
+        this.mask = stripes - 1;
+    }
+
+    void increment() {
+        long id = Thread.currentThread().getId();
+        int stripe = (int) (id ^ (id >>> 16)) & mask;
+        cells.incrementAndGet(stripe * PADDING);
+    }
+
+    long get() {
+        long sum = 0L;
+        for (int i = 0; i < cells.length(); i += PADDING) {
+            sum += cells.get(i);
+        }
+        return sum;
+    }
+
+    void reset() {
+        for (int i = 0; i < cells.length(); i += PADDING) {
+            cells.set(i, 0L);
+        }
+    }
+
+}
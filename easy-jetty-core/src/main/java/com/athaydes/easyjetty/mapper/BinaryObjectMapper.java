@@ -0,0 +1,56 @@
+package com.athaydes.easyjetty.mapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A mapper from user-defined Objects to bytes and vice-versa.
+ * <p/>
+ * This can be used to send and receive Objects in compact binary formats (eg. CBOR, MessagePack)
+ * without encoding them as text.
+ * <p/>
+ * A BinaryObjectMapper is chosen by an {@link ObjectMapperGroup} when its content-type is accepted by
+ * the content-type of the response (or request), so it should declare a specific content-type. When any
+ * content-type is accepted, BinaryObjectMappers are only used for types which have no text ObjectMapper.
+ *
+ * @see com.athaydes.easyjetty.mapper.ObjectMapperGroup#withBinaryMappers(BinaryObjectMapper[])
+ */
+public interface BinaryObjectMapper<T> {
+
+    /**
+     * Write the given Object into the OutputStream.
+     * <p/>
+     * Implementations should not flush or close the OutputStream.
+     *
+     * @param object to be written
+     * @param out    to write to
+     * @throws IOException if a problem occurs while writing
+     */
+    void write(T object, OutputStream out) throws IOException;
+
+    /**
+     * Read an Object of type S, which is a sub-type of T, from the InputStream.
+     * <p/>
+     * Implementations should not close the InputStream.
+     *
+     * @param in   to read from
+     * @param type of the Object to read
+     * @return Object of type S
+     * @throws IOException                        if a problem occurs while reading
+     * @throws java.lang.IllegalArgumentException if the InputStream contains more data than allowed
+     */
+    <S extends T> S read(InputStream in, Class<S> type) throws IOException;
+
+    /**
+     * @return top super-type of the mapped Objects.
+     */
+    Class<? extends T> getMappedType();
+
+    /**
+     * @return the content-type(s) that this BinaryObjectMapper can handle. More than one
+     * content-type may be provided comma-separated.
+     */
+    String getContentType();
+
+}
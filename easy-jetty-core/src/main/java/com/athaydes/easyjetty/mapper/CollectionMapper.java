@@ -1,6 +1,12 @@
 package com.athaydes.easyjetty.mapper;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 
 public abstract class CollectionMapper implements ObjectMapper<Collection> {
 
@@ -32,4 +38,38 @@ public abstract class CollectionMapper implements ObjectMapper<Collection> {
     }
 
     public abstract <T> Collection<T> unmapAll(String objectAsString, Class<T> type);
+
+    /**
+     * Writes all items into the writer.
+     * <p/>
+     * This implementation collects all items into a List before mapping it, so CollectionMappers which
+     * can write one item at a time should override this method.
+     *
+     * @param items  to write
+     * @param writer to write the items into
+     * @throws IOException if a problem occurs while writing
+     */
+    public void write(Iterator<?> items, Writer writer) throws IOException {
+        List<Object> list = new ArrayList<>();
+        while (items.hasNext()) {
+            list.add(items.next());
+        }
+        writer.write(map(list));
+    }
+
+    /**
+     * Unmaps the items read from the reader.
+     * <p/>
+     * This implementation reads all of the content before unmapping it, so CollectionMappers which
+     * can read one item at a time should override this method.
+     *
+     * @param reader to read the items from
+     * @param type   of the items
+     * @param <T>    type of the items
+     * @return Iterator over the items
+     * @throws IOException if a problem occurs while reading
+     */
+    public <T> Iterator<T> unmapEach(Reader reader, Class<T> type) throws IOException {
+        return unmapAll(ObjectMapperGroup.readFrom(reader, -1, Integer.MAX_VALUE), type).iterator();
+    }
 }
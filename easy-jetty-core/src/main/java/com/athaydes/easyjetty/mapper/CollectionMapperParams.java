@@ -1,7 +1,13 @@
 package com.athaydes.easyjetty.mapper;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.regex.Pattern;
 
 /**
@@ -23,18 +29,28 @@ public class CollectionMapperParams extends CollectionMapper {
 
     @Override
     public String map(Collection collection) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(opener);
+        StringWriter writer = new StringWriter();
+        try {
+            write(collection.iterator(), writer);
+        } catch (IOException e) {
+            // StringWriter never throws
+            throw new RuntimeException(e);
+        }
+        return writer.toString();
+    }
+
+    @Override
+    public void write(Iterator<?> items, Writer writer) throws IOException {
+        writer.write(opener);
         boolean firstItem = true;
-        for (Object item : collection) {
+        while (items.hasNext()) {
             if (!firstItem) {
-                sb.append(separator);
+                writer.write(separator);
             }
             firstItem = false;
-            sb.append(mapperGroup.map(item, contentType));
+            mapperGroup.write(items.next(), contentType, writer);
         }
-        sb.append(ender);
-        return sb.toString();
+        writer.write(ender);
     }
 
     @Override
@@ -61,8 +77,139 @@ public class CollectionMapperParams extends CollectionMapper {
         return unmappedItems;
     }
 
+    /**
+     * Unmaps the items read from the reader one at a time, as they are requested from the returned Iterator.
+     * <p/>
+     * Unlike {@link #unmapAll(String, Class)}, the separator is not a regular expression, and an empty
+     * input (eg. "[]") contains no items.
+     * <p/>
+     * As {@link Iterator} methods cannot throw checked Exceptions, any IOException thrown while reading is
+     * wrapped into a RuntimeException.
+     */
+    @Override
+    public <T> Iterator<T> unmapEach(Reader reader, Class<T> type) throws IOException {
+        return new ItemIterator<>(reader, type);
+    }
+
     @Override
     public String getContentType() {
         return contentType;
     }
+
+    private final class ItemIterator<T> implements Iterator<T> {
+
+        private final Reader reader;
+        private final Class<T> type;
+        private final char[] buffer = new char[4096];
+        private final StringBuilder item = new StringBuilder();
+        private int position = 0;
+        private int limit = 0;
+        private boolean started = false;
+        private boolean separated = false;
+        private boolean done = false;
+        private String next;
+
+        ItemIterator(Reader reader, Class<T> type) {
+            this.reader = reader;
+            this.type = type;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                try {
+                    next = readItem();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String current = next;
+            next = null;
+            return mapperGroup.unmap(current, type, getContentType());
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private String readItem() throws IOException {
+            if (!started) {
+                readOpener();
+                started = true;
+            }
+            item.setLength(0);
+            int c;
+            while ((c = read()) >= 0) {
+                item.append((char) c);
+                if (endsWith(item, separator)) {
+                    item.setLength(item.length() - separator.length());
+                    separated = true;
+                    return item.toString();
+                }
+            }
+            done = true;
+            int end = item.length();
+            while (end > 0 && Character.isWhitespace(item.charAt(end - 1))) {
+                end--;
+            }
+            item.setLength(end);
+            if (!endsWith(item, ender)) {
+                throw new IllegalArgumentException("Input does not end with " + ender);
+            }
+            item.setLength(end - ender.length());
+            // an empty input has no items, but an empty item may follow a separator
+            return item.length() == 0 && !separated ? null : item.toString();
+        }
+
+        private void readOpener() throws IOException {
+            int c;
+            do {
+                c = read();
+            } while (c >= 0 && Character.isWhitespace(c));
+            for (int i = 0; i < opener.length(); i++, c = read()) {
+                if (c != opener.charAt(i)) {
+                    throw new IllegalArgumentException("Input does not start with " + opener);
+                }
+            }
+            if (c >= 0) {
+                position--;
+            }
+        }
+
+        private int read() throws IOException {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+
+    }
+
+    private static boolean endsWith(StringBuilder builder, String suffix) {
+        int offset = builder.length() - suffix.length();
+        if (offset < 0) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length(); i++) {
+            if (builder.charAt(offset + i) != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
 }
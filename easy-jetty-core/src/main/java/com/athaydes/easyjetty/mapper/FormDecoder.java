@@ -0,0 +1,177 @@
+package com.athaydes.easyjetty.mapper;
+
+import org.eclipse.jetty.util.MultiMap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static com.athaydes.easyjetty.mapper.ObjectMapperGroup.PAYLOAD_TOO_BIG;
+
+/**
+ * Single-pass decoder of application/x-www-form-urlencoded content.
+ * <p/>
+ * The content bytes are read only once, and each key and value is percent-decoded into a re-usable buffer
+ * before being turned into a UTF-8 String. Keys may have more than one value.
+ * <p/>
+ * The size of the content and the number of distinct keys are checked as the content is read, so that
+ * decoding stops as soon as a limit is exceeded.
+ */
+final class FormDecoder {
+
+    /**
+     * Default maximum number of distinct keys in a form, the same as Jetty's default.
+     */
+    static final int DEFAULT_MAX_KEYS = 1000;
+
+    static final String TOO_MANY_KEYS = "Too many form keys";
+    static final String INVALID_ENCODING = "Invalid percent-encoding in form data";
+
+    private static final ThreadLocal<byte[]> READ_BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[4096];
+        }
+    };
+
+    private final MultiMap<String> result = new MultiMap<>();
+    private final int maxKeys;
+
+    private byte[] token = new byte[64];
+    private int tokenLength = 0;
+    private String key = null;
+    private int pendingHexDigits = 0;
+    private int escaped = 0;
+
+    private FormDecoder(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Decodes all of the form content of the InputStream.
+     *
+     * @param in            to read from
+     * @param maxLength     maximum number of bytes to read
+     * @param maxKeys       maximum number of distinct keys
+     * @return the decoded form
+     * @throws IOException              if a problem occurs while reading
+     * @throws IllegalArgumentException if the content is not valid, or a limit is exceeded
+     */
+    static MultiMap<String> decode(InputStream in, int maxLength, int maxKeys) throws IOException {
+        FormDecoder decoder = new FormDecoder(maxKeys);
+        byte[] buffer = READ_BUFFER.get();
+        long total = 0L;
+        int bytesRead;
+        while ((bytesRead = in.read(buffer, 0, buffer.length)) >= 0) {
+            total += bytesRead;
+            if (total > maxLength) {
+                throw new IllegalArgumentException(PAYLOAD_TOO_BIG);
+            }
+            decoder.accept(buffer, bytesRead);
+        }
+        return decoder.end();
+    }
+
+    /**
+     * Decodes the given form content.
+     *
+     * @param content to decode
+     * @param maxKeys maximum number of distinct keys
+     * @return the decoded form
+     * @throws IllegalArgumentException if the content is not valid, or there are too many keys
+     */
+    static MultiMap<String> decode(String content, int maxKeys) {
+        FormDecoder decoder = new FormDecoder(maxKeys);
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        decoder.accept(bytes, bytes.length);
+        return decoder.end();
+    }
+
+    private void accept(byte[] bytes, int length) {
+        for (int i = 0; i < length; i++) {
+            byte b = bytes[i];
+            if (pendingHexDigits > 0) {
+                escaped = (escaped << 4) + hexValue(b);
+                if (--pendingHexDigits == 0) {
+                    append((byte) escaped);
+                }
+                continue;
+            }
+            switch (b) {
+                case '&':
+                    endPair();
+                    break;
+                case '=':
+                    if (key == null) {
+                        key = takeToken();
+                    } else {
+                        append(b);
+                    }
+                    break;
+                case '+':
+                    append((byte) ' ');
+                    break;
+                case '%':
+                    pendingHexDigits = 2;
+                    escaped = 0;
+                    break;
+                default:
+                    append(b);
+            }
+        }
+    }
+
+    private MultiMap<String> end() {
+        if (pendingHexDigits > 0) {
+            throw new IllegalArgumentException(INVALID_ENCODING);
+        }
+        endPair();
+        return result;
+    }
+
+    private void endPair() {
+        String value;
+        if (key == null) {
+            if (tokenLength == 0) {
+                return; // empty pair, eg. in "a=1&&b=2"
+            }
+            key = takeToken();
+            value = "";
+        } else {
+            value = takeToken();
+        }
+        if (result.size() >= maxKeys && !result.containsKey(key)) {
+            throw new IllegalArgumentException(TOO_MANY_KEYS);
+        }
+        result.add(key, value);
+        key = null;
+    }
+
+    private void append(byte b) {
+        if (tokenLength == token.length) {
+            token = Arrays.copyOf(token, tokenLength * 2);
+        }
+        token[tokenLength++] = b;
+    }
+
+    private String takeToken() {
+        String value = new String(token, 0, tokenLength, StandardCharsets.UTF_8);
+        tokenLength = 0;
+        return value;
+    }
+
+    private static int hexValue(byte b) {
+        if (b >= '0' && b <= '9') {
+            return b - '0';
+        }
+        if (b >= 'a' && b <= 'f') {
+            return b - 'a' + 10;
+        }
+        if (b >= 'A' && b <= 'F') {
+            return b - 'A' + 10;
+        }
+        throw new IllegalArgumentException(INVALID_ENCODING);
+    }
+
+}
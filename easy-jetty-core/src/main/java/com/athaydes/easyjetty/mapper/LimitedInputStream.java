@@ -0,0 +1,69 @@
+package com.athaydes.easyjetty.mapper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static com.athaydes.easyjetty.mapper.ObjectMapperGroup.PAYLOAD_TOO_BIG;
+
+/**
+ * InputStream which throws an IllegalArgumentException as soon as more than a maximum number of
+ * bytes is read from it.
+ */
+final class LimitedInputStream extends FilterInputStream {
+
+    private final int maxLength;
+    private long count = 0L;
+
+    LimitedInputStream(InputStream in, int maxLength) {
+        super(in);
+        this.maxLength = maxLength;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        int n = super.read(bytes, offset, length);
+        if (n > 0) {
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("reset() not supported");
+    }
+
+    private void count(long n) {
+        count += n;
+        if (count > maxLength) {
+            throw new IllegalArgumentException(PAYLOAD_TOO_BIG);
+        }
+    }
+
+}
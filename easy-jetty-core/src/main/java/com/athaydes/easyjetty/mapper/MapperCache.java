@@ -0,0 +1,38 @@
+package com.athaydes.easyjetty.mapper;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A concurrent cache of the mappers resolved for each type and content-type.
+ * <p/>
+ * Results are cached separately for each type. When the number of content-types cached for a type
+ * reaches the maximum number of entries, the results for that type are discarded.
+ * <p/>
+ * A cache can not be invalidated, so a new one must be created whenever the mappers it caches change.
+ */
+final class MapperCache<M> extends ClassValue<ConcurrentMap<String, M>> {
+
+    static final int MAX_ENTRIES_PER_TYPE = 64;
+
+    @Override
+    protected ConcurrentMap<String, M> computeValue(Class<?> type) {
+        return new ConcurrentHashMap<>(4);
+    }
+
+    /**
+     * @return the mapper cached for the type and content-type, or null if none is cached.
+     */
+    M get(Class<?> type, String contentType) {
+        return get(type).get(contentType);
+    }
+
+    void put(Class<?> type, String contentType, M mapper) {
+        ConcurrentMap<String, M> byContentType = get(type);
+        if (byContentType.size() >= MAX_ENTRIES_PER_TYPE) {
+            byContentType.clear();
+        }
+        byContentType.put(contentType, mapper);
+    }
+
+}
@@ -1,27 +1,51 @@
 package com.athaydes.easyjetty.mapper;
 
-import com.athaydes.easyjetty.external.MIMEParse;
+import com.athaydes.easyjetty.http.MediaRanges;
 import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.util.MultiMap;
 import org.eclipse.jetty.util.StringUtil;
 
 import javax.servlet.http.HttpServletRequest;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
-import java.net.URLDecoder;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.*;
-import java.util.regex.Pattern;
 
 import static com.athaydes.easyjetty.mapper.ObjectMapper.ACCEPT_EVERYTHING;
 
 /**
  * An ObjectMapper group which can use any of the ObjectMappers added to it to map/unmap an
  * Object/String.
+ * <p/>
+ * ObjectMapperGroups are thread-safe: mappers may be added, replaced or removed while other threads
+ * are mapping Objects, as each change publishes a new immutable snapshot of the mappers.
  */
 public class ObjectMapperGroup {
 
     static final String PAYLOAD_TOO_BIG = "Request payload is too big";
 
+    // the content length is sent by the client, so it is only trusted up to this number of characters
+    private static final int MAX_PRESIZED_CONTENT = 64 * 1024;
+
+    private static final ThreadLocal<char[]> READ_BUFFER = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[4096];
+        }
+    };
+
+    // large enough for the digits of any long, including the sign
+    private static final ThreadLocal<char[]> DIGITS_BUFFER = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[20];
+        }
+    };
+
     private static final ObjectMapper<Object> PRIMITIVE_MAPPER = new ObjectSerializer<Object>() {
         @Override
         public String map(Object object) {
@@ -65,15 +89,39 @@ public class ObjectMapperGroup {
         }
     };
 
+    // marks types which have no BinaryObjectMapper, as the cache can not hold null values
+    private static final BinaryObjectMapper<?> NO_BINARY_MAPPER = new BinaryObjectMapper<Object>() {
+        @Override
+        public void write(Object object, OutputStream out) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <S> S read(InputStream in, Class<S> type) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Class<?> getMappedType() {
+            return Object.class;
+        }
+
+        @Override
+        public String getContentType() {
+            return ACCEPT_EVERYTHING;
+        }
+    };
+
     private final CollectionMapper defaultCollectionMapper =
             new CollectionMapperParams(ACCEPT_EVERYTHING, ", ", "[", "]");
-    private final Map<Class<?>, List<ObjectMapper<?>>> mapperByType = new HashMap<>(4);
-    private final List<CollectionMapper> collectionMappers = new ArrayList<>(2);
     private final boolean exactTypeOnly;
     private final boolean lenient;
 
     private volatile String nullString = "<null>";
 
+    // all mappers, replaced by a new snapshot whenever they change so that readers never need to lock
+    private volatile Snapshot snapshot = Snapshot.empty(Collections.<CollectionMapper>emptyList(), null);
+
     /**
      * Creates a lenient ObjectMappperGroup.
      * <p/>
@@ -106,15 +154,39 @@ public class ObjectMapperGroup {
      * @param mappers to be added
      * @return this
      */
-    public ObjectMapperGroup withMappers(ObjectMapper... mappers) {
-        for (ObjectMapper mapper : mappers) {
-            List<ObjectMapper<?>> existingMappers = mapperByType.get(mapper.getMappedType());
-            if (existingMappers == null) {
-                existingMappers = new ArrayList<>(1);
-                mapperByType.put(mapper.getMappedType(), existingMappers);
-            }
-            existingMappers.add(mapper);
-        }
+    public synchronized ObjectMapperGroup withMappers(ObjectMapper... mappers) {
+        Snapshot current = snapshot;
+        ObjectMapper<?>[] objectMappers = mappers;
+        snapshot = current.withMappers(Snapshot.byType(current.mapperByType, objectMappers, MAPPED_TYPE));
+        return this;
+    }
+
+    /**
+     * Replace all ObjectMappers of this group with the given ObjectMappers.
+     * <p/>
+     * The replacement is atomic: Objects being mapped concurrently use either only the old mappers
+     * or only the new ones, so mappers can be swapped while a server is running.
+     *
+     * @param mappers to replace the current ObjectMappers
+     * @return this
+     */
+    public synchronized ObjectMapperGroup replaceMappers(ObjectMapper... mappers) {
+        ObjectMapper<?>[] objectMappers = mappers;
+        snapshot = snapshot.withMappers(Snapshot.byType(
+                Collections.<Class<?>, List<ObjectMapper<?>>>emptyMap(), objectMappers, MAPPED_TYPE));
+        return this;
+    }
+
+    /**
+     * Add the given BinaryObjectMappers to this group.
+     *
+     * @param mappers to be added
+     * @return this
+     */
+    public synchronized ObjectMapperGroup withBinaryMappers(BinaryObjectMapper<?>... mappers) {
+        Snapshot current = snapshot;
+        snapshot = current.withBinaryMappers(
+                Snapshot.byType(current.binaryMapperByType, mappers, BINARY_MAPPED_TYPE));
         return this;
     }
 
@@ -124,14 +196,56 @@ public class ObjectMapperGroup {
      * @param mappers to be added
      * @return this
      */
-    public ObjectMapperGroup withCollectionMappers(CollectionMapper... mappers) {
+    public synchronized ObjectMapperGroup withCollectionMappers(CollectionMapper... mappers) {
+        Snapshot current = snapshot;
+        List<CollectionMapper> collectionMappers = new ArrayList<>(current.collectionMappers);
         for (CollectionMapper mapper : mappers) {
             mapper.setMapperGroup(this);
             collectionMappers.add(mapper);
         }
+        snapshot = current.withCollectionMappers(Collections.unmodifiableList(collectionMappers));
         return this;
     }
 
+    /**
+     * Caches the bytes Objects are encoded to when they are sent, so that each cacheable Object is only
+     * mapped once for each content-type and charset. Caching is disabled by default.
+     * <p/>
+     * Only Objects implementing {@link SerializationCache.Cacheable}, or whose exact type is one of the
+     * given identityCachedTypes, are cached. Up to {@link SerializationCache#DEFAULT_MAX_ENTRIES} Objects are cached.
+     *
+     * @param maxSize             maximum total number of bytes to cache
+     * @param identityCachedTypes types of immutable Objects to cache by their identity
+     * @return this
+     * @see SerializationCache
+     */
+    public ObjectMapperGroup withSerializationCache(long maxSize, Class<?>... identityCachedTypes) {
+        return withSerializationCache(maxSize, SerializationCache.DEFAULT_MAX_ENTRIES, identityCachedTypes);
+    }
+
+    /**
+     * Caches the bytes Objects are encoded to when they are sent, keeping up to maxEntries Objects.
+     *
+     * @param maxSize             maximum total number of bytes to cache
+     * @param maxEntries          maximum number of Objects to cache
+     * @param identityCachedTypes types of immutable Objects to cache by their identity
+     * @return this
+     * @see #withSerializationCache(long, Class[])
+     */
+    public synchronized ObjectMapperGroup withSerializationCache(long maxSize, int maxEntries,
+                                                                 Class<?>... identityCachedTypes) {
+        snapshot = snapshot.withSerializationCache(new SerializationCache(maxSize, maxEntries, identityCachedTypes));
+        return this;
+    }
+
+    /**
+     * @return the cache of serialized Objects used with the current mappers, or null if caching is disabled.
+     * @see #withSerializationCache(long, Class[])
+     */
+    public SerializationCache getSerializationCache() {
+        return snapshot.serializationCache;
+    }
+
     /**
      * Sets the String mapped to the null value.
      * The default value is "&lt;null&gt;"
@@ -167,115 +281,333 @@ public class ObjectMapperGroup {
         if (object == null) {
             return nullString;
         }
+        ObjectMapper mapper = mapperFor(object, contentType);
+        if (mapper instanceof CollectionMapper && !(object instanceof Collection)) {
+            StringWriter writer = new StringWriter();
+            try {
+                ((CollectionMapper) mapper).write(((Iterable<?>) object).iterator(), writer);
+            } catch (IOException e) {
+                // StringWriter does not throw IOException
+                throw new RuntimeException(e);
+            }
+            return writer.toString();
+        }
+        return mapper.map(object);
+    }
+
+    /**
+     * Writes the given Object into the writer using the appropriate ObjectMapper.
+     * <p/>
+     * If the ObjectMapper is a {@link StreamingObjectMapper}, the Object is written directly into the writer,
+     * otherwise it is first mapped to a String.
+     * Errors are handled according to the "lenient" and "exactTypeOnly" parameters.
+     * <p/>
+     * Collections, Iterators and other Iterables which have no mapper of their own are written by a
+     * {@link CollectionMapper} one item at a time.
+     *
+     * @param object      to write
+     * @param contentType content-type expected (eg. JSON, XML)
+     * @param writer      to write the Object into
+     * @throws IOException if a problem occurs while writing
+     */
+    public void write(Object object, String contentType, Writer writer) throws IOException {
+        if (object == null) {
+            writer.write(nullString);
+            return;
+        }
+        if (object instanceof Iterator) {
+            collectionMapperFor(contentType).write((Iterator<?>) object, writer);
+            return;
+        }
+        ObjectMapper mapper = mapperFor(object, contentType);
+        if (mapper == PRIMITIVE_MAPPER) { // intentional ref check
+            writePrimitive(object, writer);
+        } else if (mapper instanceof CollectionMapper) {
+            ((CollectionMapper) mapper).write(((Iterable<?>) object).iterator(), writer);
+        } else if (mapper instanceof StreamingObjectMapper) {
+            ((StreamingObjectMapper) mapper).write(object, writer);
+        } else {
+            writer.write(mapper.map(object));
+        }
+    }
+
+    /**
+     * Writes Objects which have no mapper as their toString() value would be written, but writes integral
+     * numbers digit by digit, without creating a String first.
+     */
+    private static void writePrimitive(Object object, Writer writer) throws IOException {
+        if (object instanceof Integer || object instanceof Long ||
+                object instanceof Short || object instanceof Byte) {
+            writeDigits(((Number) object).longValue(), writer);
+        } else if (object instanceof Boolean) {
+            writer.write((Boolean) object ? "true" : "false");
+        } else {
+            writer.write(object.toString());
+        }
+    }
+
+    private static void writeDigits(long value, Writer writer) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            // can not be negated
+            writer.write("-9223372036854775808");
+            return;
+        }
+        char[] digits = DIGITS_BUFFER.get();
+        int start = digits.length;
+        long remaining = Math.abs(value);
+        do {
+            digits[--start] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        if (value < 0) {
+            digits[--start] = '-';
+        }
+        writer.write(digits, start, digits.length - start);
+    }
+
+    private CollectionMapper collectionMapperFor(String contentType) {
+        ObjectMapper<?> mapper = findMapperFor(contentType, Collection.class);
+        if (!(mapper instanceof CollectionMapper)) {
+            throw new RuntimeException("No CollectionMapper found for content-type " + contentType);
+        }
+        return (CollectionMapper) mapper;
+    }
+
+    private ObjectMapper mapperFor(Object object, String contentType) {
         ObjectMapper mapper = findMapperFor(contentType, object.getClass());
         if (mapper == null) {
             throw new RuntimeException("Cannot map Object of type '" + object.getClass() + "' to a String");
         }
-        return mapper.map(object);
+        return mapper;
+    }
+
+    /**
+     * Attempts to unmap an Object of type T from the request content, allowing forms to have up to
+     * 1000 keys, the same default as Jetty's.
+     *
+     * @see #unmap(HttpServletRequest, Class, int, int)
+     */
+    public <T> T unmap(HttpServletRequest request, Class<T> type, int maxContentLength)
+            throws IOException {
+        return unmap(request, type, maxContentLength, FormDecoder.DEFAULT_MAX_KEYS);
     }
 
     /**
      * Attempts to unmap an Object of type T from the request content.
+     * <p/>
+     * If no mapper exists for the type and the request content is a form
+     * (application/x-www-form-urlencoded), the form can be unmapped to a {@link Map}, which contains
+     * only the last value of each key, or to a {@link MultiMap}, which contains all values of each key.
      *
      * @param request          whose content should be unmarshalled
      * @param type             of the returned Object
      * @param maxContentLength maximum allowed content length in bytes
+     * @param maxFormKeys      maximum allowed number of distinct keys in a form
      * @param <T>              type of the returned Object
      * @return Object of type T
      * @throws java.lang.RuntimeException         if no mapper is found and this group is not lenient
      * @throws java.io.IOException                if a problem occurs while reading the request content
-     * @throws java.lang.IllegalArgumentException if the request content length is larger than maxContentLength
+     * @throws java.lang.IllegalArgumentException if the request content length is larger than maxContentLength,
+     *                                            or a form has more than maxFormKeys keys
      */
-    public <T> T unmap(HttpServletRequest request, Class<T> type, int maxContentLength)
+    public <T> T unmap(HttpServletRequest request, Class<T> type, int maxContentLength, int maxFormKeys)
             throws IOException {
-        if (request.getContentLength() > maxContentLength) {
+        int contentLength = request.getContentLength();
+        if (contentLength > maxContentLength) {
             throw new IllegalArgumentException(PAYLOAD_TOO_BIG);
         }
-        String content = readFrom(request.getReader(), maxContentLength);
-        return unmap(content, type, request.getHeader(HttpHeader.CONTENT_TYPE.asString()));
+        String contentType = request.getHeader(HttpHeader.CONTENT_TYPE.asString());
+        BinaryObjectMapper<?> binaryMapper = findBinaryMapper(contentType, type);
+        if (binaryMapper != null) {
+            InputStream in = new LimitedInputStream(request.getInputStream(), maxContentLength);
+            return type.cast(read(binaryMapper, in, type));
+        }
+        ObjectMapper mapper = findMapperFor(contentType, type);
+        if (isFormData(mapper, type, contentType)) {
+            return type.cast(formOf(FormDecoder.decode(request.getInputStream(), maxContentLength, maxFormKeys), type));
+        }
+        Reader reader = limitedReader(request, maxContentLength);
+        if (mapper instanceof StreamingObjectMapper) {
+            return type.cast(((StreamingObjectMapper) mapper).read(reader, type));
+        }
+        String content = readFrom(reader, contentLength, maxContentLength);
+        return unmap(content, type, contentType, mapper);
+    }
+
+    private static <M> M read(BinaryObjectMapper<M> mapper, InputStream in, Class<?> type) throws IOException {
+        // the mapper was found for the type, so the type is a sub-type of the mapped type
+        return mapper.read(in, type.asSubclass(mapper.getMappedType()));
     }
 
     public <T> T unmap(String objectAsString, Class<T> type, String contentType) {
-        ObjectMapper mapper = findMapperFor(contentType, type);
-        if (mapper == PRIMITIVE_MAPPER) { // intentional ref check
-            if (Map.class.equals(type) &&
-                    MIMEParse.isAccepted("application/x-www-form-urlencoded", contentType)) {
-                // special-case for forms
-                return type.cast(unmapFormData(objectAsString));
-            }
+        return unmap(objectAsString, type, contentType, findMapperFor(contentType, type));
+    }
+
+    private <T> T unmap(String objectAsString, Class<T> type, String contentType, ObjectMapper mapper) {
+        if (isFormData(mapper, type, contentType)) {
+            return type.cast(formOf(FormDecoder.decode(objectAsString, FormDecoder.DEFAULT_MAX_KEYS), type));
         }
         return type.cast(mapper.unmap(objectAsString, type));
     }
 
-    private Map unmapFormData(String objectAsString) {
-        Map result = new HashMap();
-        try {
-            String[] formParts = objectAsString.split(Pattern.quote("&"));
-            for (String formPart : formParts) {
-                if (StringUtil.isBlank(formPart)) {
-                    continue;
-                }
-                String[] entry = formPart.split(Pattern.quote("="));
-                String key = URLDecoder.decode(entry[0], "UTF-8");
-                String value = "";
-                if (entry.length > 1) {
-                    value = URLDecoder.decode(entry[1], "UTF-8");
-                }
-                result.put(key, value);
-            }
-            return result;
-        } catch (UnsupportedEncodingException e) {
-            throw new RuntimeException(e.toString());
+    private static boolean isFormData(ObjectMapper mapper, Class<?> type, String contentType) {
+        // special-case for forms
+        return mapper == PRIMITIVE_MAPPER && // intentional ref check
+                (Map.class.equals(type) || MultiMap.class.equals(type)) &&
+                MediaRanges.isAccepted("application/x-www-form-urlencoded", contentType);
+    }
+
+    private static Map<String, ?> formOf(MultiMap<String> form, Class<?> type) {
+        if (MultiMap.class.equals(type)) {
+            return form;
+        }
+        Map<String, String> result = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : form.entrySet()) {
+            List<String> values = entry.getValue();
+            result.put(entry.getKey(), values.get(values.size() - 1));
         }
+        return result;
     }
 
+    /**
+     * Unmaps all items of a Collection from the request content.
+     * <p/>
+     * The CollectionMapper used is chosen by the content-type of the request.
+     *
+     * @param request          whose content should be unmarshalled
+     * @param type             of the items
+     * @param maxContentLength maximum allowed content length in bytes
+     * @param <T>              type of the items
+     * @return the items
+     * @throws java.lang.RuntimeException         if no CollectionMapper is found
+     * @throws java.io.IOException                if a problem occurs while reading the request content
+     * @throws java.lang.IllegalArgumentException if the request content length is larger than maxContentLength
+     */
     public <T> Collection<T> unmapAll(HttpServletRequest request, Class<T> type, int maxContentLength)
             throws IOException {
-        CollectionMapper mapper = findMapperByContentType(request.getHeader(HttpHeader.ACCEPT.asString()), collectionMappers);
-        if (request.getContentLength() > maxContentLength) {
+        int contentLength = request.getContentLength();
+        if (contentLength > maxContentLength) {
             throw new IllegalArgumentException(PAYLOAD_TOO_BIG);
         }
-        String content = readFrom(request.getReader(), maxContentLength);
+        CollectionMapper mapper = collectionMapperFor(request.getHeader(HttpHeader.CONTENT_TYPE.asString()));
+        String content = readFrom(limitedReader(request, maxContentLength), contentLength, maxContentLength);
         return mapper.unmapAll(content, type);
     }
 
-    private String readFrom(BufferedReader reader, int maxContentLength) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        char[] charBuffer = new char[128];
-        int totalBytes = 0;
-        int bytesRead;
-        while ((bytesRead = reader.read(charBuffer)) > 0) {
-            totalBytes += bytesRead;
-            if (totalBytes > maxContentLength) {
+    /**
+     * Unmaps the items of a Collection from the request content lazily, as they are requested from the
+     * returned Iterator, so that very large Collections can be received without holding all of them in memory.
+     * <p/>
+     * The CollectionMapper used is chosen by the content-type of the request.
+     *
+     * @param request          whose content should be unmarshalled
+     * @param type             of the items
+     * @param maxContentLength maximum allowed content length in bytes
+     * @param <T>              type of the items
+     * @return Iterator over the items
+     * @throws java.lang.RuntimeException         if no CollectionMapper is found
+     * @throws java.io.IOException                if a problem occurs while reading the request content
+     * @throws java.lang.IllegalArgumentException if the request content length is larger than maxContentLength
+     */
+    public <T> Iterator<T> unmapEach(HttpServletRequest request, Class<T> type, int maxContentLength)
+            throws IOException {
+        int contentLength = request.getContentLength();
+        if (contentLength > maxContentLength) {
+            throw new IllegalArgumentException(PAYLOAD_TOO_BIG);
+        }
+        CollectionMapper mapper = collectionMapperFor(request.getHeader(HttpHeader.CONTENT_TYPE.asString()));
+        return mapper.unmapEach(limitedReader(request, maxContentLength), type);
+    }
+
+    /**
+     * @return a Reader over the request content which throws an IllegalArgumentException as soon as more than
+     * maxContentLength bytes are read.
+     */
+    private static Reader limitedReader(HttpServletRequest request, int maxContentLength) throws IOException {
+        String encoding = request.getCharacterEncoding();
+        if (encoding == null || encoding.isEmpty()) {
+            encoding = StringUtil.__ISO_8859_1;
+        }
+        return new InputStreamReader(new LimitedInputStream(request.getInputStream(), maxContentLength), encoding);
+    }
+
+    /**
+     * Reads all the content of the reader.
+     * <p/>
+     * The content is read into a pooled buffer, so that small contents are copied only once. Larger contents are
+     * accumulated in a builder which grows as the content arrives, and is pre-sized from the content length
+     * only up to a small limit, as the client may send much less content than it claims.
+     *
+     * @param reader           to read from
+     * @param contentLength    expected content length in bytes, or a negative number if unknown
+     * @param maxContentLength maximum number of characters to read
+     * @return the content
+     * @throws java.lang.IllegalArgumentException if there are more than maxContentLength characters to read
+     */
+    static String readFrom(Reader reader, int contentLength, int maxContentLength) throws IOException {
+        char[] buffer = READ_BUFFER.get();
+        StringBuilder builder = null;
+        int count = 0;
+        int charsRead;
+        while ((charsRead = reader.read(buffer, count, buffer.length - count)) > 0) {
+            count += charsRead;
+            long total = (builder == null ? 0L : builder.length()) + count;
+            if (total > maxContentLength) {
                 throw new IllegalArgumentException(PAYLOAD_TOO_BIG);
             }
-            sb.append(charBuffer, 0, bytesRead);
+            if (count == buffer.length) {
+                if (builder == null) {
+                    builder = new StringBuilder(Math.max(2 * count, Math.min(contentLength, MAX_PRESIZED_CONTENT)));
+                }
+                builder.append(buffer, 0, count);
+                count = 0;
+            }
+        }
+        if (builder == null) {
+            return new String(buffer, 0, count);
         }
-        return sb.toString();
+        return builder.append(buffer, 0, count).toString();
     }
 
     private ObjectMapper<?> findMapperFor(String acceptedContentType, Class<?> type) {
+        if (acceptedContentType == null) {
+            acceptedContentType = ACCEPT_EVERYTHING;
+        }
+        Snapshot mappers = snapshot;
+        ObjectMapper<?> result = mappers.mapperCache.get(type, acceptedContentType);
+        if (result == null) {
+            result = resolveMapper(mappers, acceptedContentType, type);
+            mappers.mapperCache.put(type, acceptedContentType, result);
+        }
+        return result;
+    }
+
+    private ObjectMapper<?> resolveMapper(Snapshot snapshot, String acceptedContentType, Class<?> type) {
         ObjectMapper<?> result = null;
 
         if (Collection.class.isAssignableFrom(type)) {
-            if (!collectionMappers.isEmpty()) {
-                result = findMapperByContentType(acceptedContentType, collectionMappers);
-            } else if (lenient) {
-                result = defaultCollectionMapper;
-            }
+            result = resolveCollectionMapper(snapshot, acceptedContentType);
         }
 
         if (result != null) {
             return result;
         }
 
-        List<ObjectMapper<?>> mappers = findMappersByType(type);
+        List<ObjectMapper<?>> mappers = findByType(snapshot.mapperByType, type);
+
+        // other Iterables are only mapped as Collections if no mapper exists for their type
+        if (mappers == null && Iterable.class.isAssignableFrom(type)) {
+            result = resolveCollectionMapper(snapshot, acceptedContentType);
+            if (result != null) {
+                return result;
+            }
+        }
 
         if (lenient && mappers == null) {
             result = PRIMITIVE_MAPPER;
         } else if (mappers == null) {
             throw new RuntimeException("No mapper found for type " + type.getName());
-        } else if (acceptedContentType == null || acceptedContentType.equals(ACCEPT_EVERYTHING)) {
+        } else if (acceptedContentType.equals(ACCEPT_EVERYTHING)) {
             result = mappers.get(0);
         } else {
             result = findMapperByContentType(acceptedContentType, mappers);
@@ -287,24 +619,83 @@ public class ObjectMapperGroup {
         return result;
     }
 
+    private CollectionMapper resolveCollectionMapper(Snapshot snapshot, String acceptedContentType) {
+        if (!snapshot.collectionMappers.isEmpty()) {
+            return findMapperByContentType(acceptedContentType, snapshot.collectionMappers);
+        } else if (lenient) {
+            return defaultCollectionMapper;
+        }
+        return null;
+    }
+
     private static <M extends ObjectMapper<?>> M findMapperByContentType(
             String acceptedContentType, List<M> mappers) {
         if (acceptedContentType == null) {
             acceptedContentType = ACCEPT_EVERYTHING;
         }
         for (M mapper : mappers) {
-            if (MIMEParse.isAccepted(acceptedContentType, mapper.getContentType())) {
+            if (MediaRanges.isAccepted(acceptedContentType, mapper.getContentType())) {
                 return mapper;
             }
         }
         return null;
     }
 
-    private List<ObjectMapper<?>> findMappersByType(Class<?> type) {
-        List<ObjectMapper<?>> mappers = mapperByType.get(type);
+    /**
+     * Finds the BinaryObjectMapper which should be used to map Objects of the given type with the given content-type.
+     * <p/>
+     * If any content-type is accepted, a BinaryObjectMapper is only returned if no text ObjectMapper exists for
+     * the type. Otherwise, the first BinaryObjectMapper whose content-type is accepted is returned.
+     *
+     * @param acceptedContentType content-type expected (eg. CBOR), or null if any content-type is accepted
+     * @param type                of the Objects to be mapped
+     * @return the BinaryObjectMapper, or null if the Objects should be mapped by a text ObjectMapper
+     */
+    public BinaryObjectMapper<?> findBinaryMapper(String acceptedContentType, Class<?> type) {
+        if (acceptedContentType == null) {
+            acceptedContentType = ACCEPT_EVERYTHING;
+        }
+        Snapshot mappers = snapshot;
+        BinaryObjectMapper<?> result = mappers.binaryMapperCache.get(type, acceptedContentType);
+        if (result == null) {
+            result = resolveBinaryMapper(mappers, acceptedContentType, type);
+            mappers.binaryMapperCache.put(type, acceptedContentType, result == null ? NO_BINARY_MAPPER : result);
+        }
+        return result == NO_BINARY_MAPPER ? null : result;
+    }
+
+    private BinaryObjectMapper<?> resolveBinaryMapper(Snapshot snapshot, String acceptedContentType, Class<?> type) {
+        List<BinaryObjectMapper<?>> mappers = findByType(snapshot.binaryMapperByType, type);
+        if (mappers == null) {
+            return null;
+        }
+        if (acceptedContentType.equals(ACCEPT_EVERYTHING)) {
+            return findByType(snapshot.mapperByType, type) == null ? mappers.get(0) : null;
+        }
+        for (BinaryObjectMapper<?> mapper : mappers) {
+            if (MediaRanges.isAccepted(acceptedContentType, mapper.getContentType())) {
+                return mapper;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the first BinaryObjectMapper registered for the given type, regardless of any text ObjectMappers.
+     *
+     * @param type of the Objects to be mapped
+     * @return the BinaryObjectMapper, or null if none exists for the type
+     */
+    public BinaryObjectMapper<?> findBinaryMapper(Class<?> type) {
+        List<BinaryObjectMapper<?>> mappers = findByType(snapshot.binaryMapperByType, type);
+        return mappers == null ? null : mappers.get(0);
+    }
+
+    private <M> List<M> findByType(Map<Class<?>, List<M>> mappersByType, Class<?> type) {
+        List<M> mappers = mappersByType.get(type);
         if (mappers == null && !exactTypeOnly) {
             // if nothing is found, try to find a mapper that can handle an instanceof the type
-            for (Map.Entry<Class<?>, List<ObjectMapper<?>>> entry : mapperByType.entrySet()) {
+            for (Map.Entry<Class<?>, List<M>> entry : mappersByType.entrySet()) {
                 if (entry.getKey().isAssignableFrom(type)) {
                     mappers = entry.getValue();
                     break;
@@ -317,7 +708,104 @@ public class ObjectMapperGroup {
     /**
      * Remove all ObjectMappers from this group.
      */
-    public void clear() {
-        mapperByType.clear();
+    public synchronized void clear() {
+        Snapshot current = snapshot;
+        snapshot = Snapshot.empty(current.collectionMappers, current.newSerializationCache());
+    }
+
+    /**
+     * Immutable snapshot of the mappers of a group, together with the mappers resolved from them.
+     */
+    private static final class Snapshot {
+
+        final Map<Class<?>, List<ObjectMapper<?>>> mapperByType;
+        final Map<Class<?>, List<BinaryObjectMapper<?>>> binaryMapperByType;
+        final List<CollectionMapper> collectionMappers;
+
+        // null if serialized Objects are not cached
+        final SerializationCache serializationCache;
+
+        // mappers resolved for each type and content-type
+        final MapperCache<ObjectMapper<?>> mapperCache = new MapperCache<>();
+        final MapperCache<BinaryObjectMapper<?>> binaryMapperCache = new MapperCache<>();
+
+        Snapshot(Map<Class<?>, List<ObjectMapper<?>>> mapperByType,
+                 Map<Class<?>, List<BinaryObjectMapper<?>>> binaryMapperByType,
+                 List<CollectionMapper> collectionMappers,
+                 SerializationCache serializationCache) {
+            this.mapperByType = mapperByType;
+            this.binaryMapperByType = binaryMapperByType;
+            this.collectionMappers = collectionMappers;
+            this.serializationCache = serializationCache;
+        }
+
+        static Snapshot empty(List<CollectionMapper> collectionMappers, SerializationCache serializationCache) {
+            return new Snapshot(
+                    Collections.<Class<?>, List<ObjectMapper<?>>>emptyMap(),
+                    Collections.<Class<?>, List<BinaryObjectMapper<?>>>emptyMap(),
+                    collectionMappers, serializationCache);
+        }
+
+        Snapshot withMappers(Map<Class<?>, List<ObjectMapper<?>>> mapperByType) {
+            return new Snapshot(mapperByType, binaryMapperByType, collectionMappers, newSerializationCache());
+        }
+
+        Snapshot withBinaryMappers(Map<Class<?>, List<BinaryObjectMapper<?>>> binaryMapperByType) {
+            return new Snapshot(mapperByType, binaryMapperByType, collectionMappers, newSerializationCache());
+        }
+
+        Snapshot withCollectionMappers(List<CollectionMapper> collectionMappers) {
+            return new Snapshot(mapperByType, binaryMapperByType, collectionMappers, newSerializationCache());
+        }
+
+        Snapshot withSerializationCache(SerializationCache serializationCache) {
+            return new Snapshot(mapperByType, binaryMapperByType, collectionMappers, serializationCache);
+        }
+
+        /**
+         * @return an empty copy of the serialization cache, as the bytes cached by this snapshot's mappers
+         * may not match the output of the mappers of a new snapshot.
+         */
+        SerializationCache newSerializationCache() {
+            return serializationCache == null ? null : serializationCache.emptyCopy();
+        }
+
+        static <M> Map<Class<?>, List<M>> byType(Map<Class<?>, List<M>> initial, M[] mappers, TypeOf<M> typeOf) {
+            Map<Class<?>, List<M>> result = new HashMap<>(initial.size() + mappers.length);
+            for (Map.Entry<Class<?>, List<M>> entry : initial.entrySet()) {
+                result.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+            for (M mapper : mappers) {
+                Class<?> type = typeOf.mappedType(mapper);
+                List<M> existingMappers = result.get(type);
+                if (existingMappers == null) {
+                    existingMappers = new ArrayList<>(1);
+                    result.put(type, existingMappers);
+                }
+                existingMappers.add(mapper);
+            }
+            for (Map.Entry<Class<?>, List<M>> entry : result.entrySet()) {
+                entry.setValue(Collections.unmodifiableList(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(result);
+        }
     }
+
+    private interface TypeOf<M> {
+        Class<?> mappedType(M mapper);
+    }
+
+    private static final TypeOf<ObjectMapper<?>> MAPPED_TYPE = new TypeOf<ObjectMapper<?>>() {
+        @Override
+        public Class<?> mappedType(ObjectMapper<?> mapper) {
+            return mapper.getMappedType();
+        }
+    };
+
+    private static final TypeOf<BinaryObjectMapper<?>> BINARY_MAPPED_TYPE = new TypeOf<BinaryObjectMapper<?>>() {
+        @Override
+        public Class<?> mappedType(BinaryObjectMapper<?> mapper) {
+            return mapper.getMappedType();
+        }
+    };
 }
@@ -0,0 +1,267 @@
+package com.athaydes.easyjetty.mapper;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A size-bounded cache of the bytes Objects were encoded to, so that immutable Objects which are sent
+ * repeatedly (eg. reference data, configuration) only need to be mapped once.
+ * <p/>
+ * Only the following Objects are cached:
+ * <ul>
+ * <li>Objects implementing {@link Cacheable} which return a non-null cache key: Objects of the same
+ * Class with equal keys share the same cached bytes, so the key must change whenever the contents of
+ * the Object change.</li>
+ * <li>Objects whose exact Class is one of the identity-cached types: each Object instance is cached
+ * separately, so these Objects must never be modified after they are first sent.</li>
+ * </ul>
+ * Cached bytes are also keyed by the content-type and charset they were encoded with. When the total size of
+ * the cached bytes exceeds the maximum size, or the number of entries exceeds the maximum number of entries,
+ * entries which have not been used recently are evicted. As each entry keeps its key (and identity-cached
+ * Objects) reachable, the number of entries is bounded even if the cached bytes are small.
+ * <p/>
+ * Finding cached bytes does not take any lock. Instead of keeping entries in strict LRU order, each hit only
+ * marks its entry as used, and entries are evicted in insertion order unless they were used since the last
+ * time eviction reached them (the "clock" approximation of LRU).
+ * <p/>
+ * A SerializationCache is enabled with {@link ObjectMapperGroup#withSerializationCache(long, Class[])}.
+ * Whenever the mappers of the group change, the group starts using a new, empty cache.
+ */
+public final class SerializationCache {
+
+    /**
+     * Objects whose serialized form may be cached by a key.
+     */
+    public interface Cacheable {
+
+        /**
+         * @return the key identifying the current contents of this Object (eg. a version number),
+         * or null if this Object should not be cached.
+         */
+        Object getCacheKey();
+
+    }
+
+    /**
+     * Default maximum number of entries of a cache.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    private final long maxSize;
+    private final int maxEntries;
+    private final Set<Class<?>> identityCachedTypes;
+
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    // guarded by this: entries in the order they are visited by eviction, which may include replaced entries
+    private final ArrayDeque<Entry> clock = new ArrayDeque<>();
+    private volatile long size;
+
+    SerializationCache(long maxSize, Class<?>... identityCachedTypes) {
+        this(maxSize, DEFAULT_MAX_ENTRIES, identityCachedTypes);
+    }
+
+    SerializationCache(long maxSize, int maxEntries, Class<?>... identityCachedTypes) {
+        this(maxSize, maxEntries, Collections.unmodifiableSet(new HashSet<>(Arrays.asList(identityCachedTypes))));
+    }
+
+    private SerializationCache(long maxSize, int maxEntries, Set<Class<?>> identityCachedTypes) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxSize = maxSize;
+        this.maxEntries = maxEntries;
+        this.identityCachedTypes = identityCachedTypes;
+    }
+
+    /**
+     * @return a new, empty cache with the same configuration as this one.
+     */
+    SerializationCache emptyCopy() {
+        return new SerializationCache(maxSize, maxEntries, identityCachedTypes);
+    }
+
+    /**
+     * @param object to check
+     * @return true if the serialized form of the Object may be cached.
+     */
+    public boolean isCacheable(Object object) {
+        return object != null && (identityCachedTypes.contains(object.getClass()) ||
+                (object instanceof Cacheable && ((Cacheable) object).getCacheKey() != null));
+    }
+
+    /**
+     * @param object      serialized
+     * @param contentType the Object was serialized for
+     * @param charset     used to encode the Object
+     * @return the cached bytes, which must not be modified, or null if none are cached.
+     */
+    public byte[] get(Object object, String contentType, String charset) {
+        Entry entry = entries.get(keyFor(object, contentType, charset));
+        if (entry == null) {
+            return null;
+        }
+        // avoid writing to the entry on every hit, so that hits on the same entry do not contend
+        if (!entry.used) {
+            entry.used = true;
+        }
+        return entry.bytes;
+    }
+
+    /**
+     * Caches the bytes an Object was encoded to.
+     * <p/>
+     * Nothing is cached if the Object is not cacheable or the bytes are larger than the maximum size
+     * of this cache.
+     *
+     * @param object      serialized
+     * @param contentType the Object was serialized for
+     * @param charset     used to encode the Object
+     * @param bytes       the Object was encoded to, which must not be modified afterwards
+     */
+    public void put(Object object, String contentType, String charset, byte[] bytes) {
+        if (bytes.length > maxSize || !isCacheable(object)) {
+            return;
+        }
+        Entry entry = new Entry(keyFor(object, contentType, charset), bytes);
+        synchronized (this) {
+            Entry previous = entries.put(entry.key, entry);
+            long newSize = size + bytes.length;
+            if (previous != null) {
+                previous.removed = true;
+                newSize -= previous.bytes.length;
+            }
+            clock.addLast(entry);
+            while (newSize > maxSize || entries.size() > maxEntries) {
+                Entry candidate = clock.removeFirst();
+                if (candidate.removed) {
+                    continue;
+                }
+                if (candidate.used) {
+                    // second chance
+                    candidate.used = false;
+                    clock.addLast(candidate);
+                } else {
+                    candidate.removed = true;
+                    entries.remove(candidate.key, candidate);
+                    newSize -= candidate.bytes.length;
+                }
+            }
+            size = newSize;
+        }
+    }
+
+    /**
+     * @return the total number of bytes currently cached.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of entries currently cached.
+     */
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * @return the maximum number of bytes this cache may hold.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the maximum number of entries this cache may hold.
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    private Key keyFor(Object object, String contentType, String charset) {
+        Object objectKey = object instanceof Cacheable ?
+                ((Cacheable) object).getCacheKey() : null;
+        if (objectKey == null) {
+            objectKey = new IdentityKey(object);
+        }
+        return new Key(object.getClass(), objectKey, contentType, charset);
+    }
+
+    private static final class Entry {
+        private final Key key;
+        private final byte[] bytes;
+
+        // set on hits, cleared when eviction gives the entry a second chance
+        private volatile boolean used;
+
+        // guarded by the cache: set once the entry has been replaced or evicted
+        private boolean removed;
+
+        Entry(Key key, byte[] bytes) {
+            this.key = key;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class IdentityKey {
+        private final Object object;
+
+        IdentityKey(Object object) {
+            this.object = object;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof IdentityKey && ((IdentityKey) other).object == object;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(object);
+        }
+    }
+
+    private static final class Key {
+        private final Class<?> type;
+        private final Object objectKey;
+        private final String contentType;
+        private final String charset;
+        private final int hash;
+
+        Key(Class<?> type, Object objectKey, String contentType, String charset) {
+            this.type = type;
+            this.objectKey = objectKey;
+            this.contentType = contentType;
+            this.charset = charset;
+            this.hash = Objects.hash(type, objectKey, contentType, charset);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return type.equals(key.type) &&
+                    objectKey.equals(key.objectKey) &&
+                    Objects.equals(contentType, key.contentType) &&
+                    Objects.equals(charset, key.charset);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.athaydes.easyjetty.mapper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * An ObjectMapper which can write Objects directly into a Writer, and read them directly from a Reader,
+ * without first turning them into a String.
+ * <p/>
+ * When an {@link ObjectMapperGroup} chooses a StreamingObjectMapper to send an Object, the Object is
+ * written directly to the response, so even very large Objects can be sent using a constant amount of memory.
+ * Similarly, request contents are read directly from the request by StreamingObjectMappers.
+ *
+ * @see com.athaydes.easyjetty.mapper.StreamingObjectSerializer
+ */
+public interface StreamingObjectMapper<T> extends ObjectMapper<T> {
+
+    /**
+     * Write the given Object into the writer.
+     * <p/>
+     * Implementations should not flush or close the writer.
+     *
+     * @param object to be written
+     * @param writer to write to
+     * @throws IOException if a problem occurs while writing
+     */
+    void write(T object, Writer writer) throws IOException;
+
+    /**
+     * Read an Object of type S, which is a sub-type of T, from the reader.
+     * <p/>
+     * Implementations should not close the reader.
+     *
+     * @param reader to read from
+     * @param type   of the Object to read
+     * @return Object of type S
+     * @throws IOException                        if a problem occurs while reading
+     * @throws java.lang.IllegalArgumentException if the reader contains more data than allowed
+     */
+    <S extends T> S read(Reader reader, Class<S> type) throws IOException;
+
+}
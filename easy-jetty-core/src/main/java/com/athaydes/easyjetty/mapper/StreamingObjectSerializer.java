@@ -0,0 +1,35 @@
+package com.athaydes.easyjetty.mapper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+
+/**
+ * Simple StreamingObjectMapper which can serialize Objects by writing them into a Writer.
+ * <p/>
+ * The default implementation of <code>map(..)</code> writes the Object into a String.
+ * The default implementation of <code>read(..)</code> reads all the content of the Reader and
+ * calls <code>unmap(..)</code>, which will throw an <code>UnsupportedOperationException</code>
+ * unless it is overridden.
+ */
+public abstract class StreamingObjectSerializer<T> extends ObjectSerializer<T>
+        implements StreamingObjectMapper<T> {
+
+    @Override
+    public String map(T object) {
+        StringWriter writer = new StringWriter();
+        try {
+            write(object, writer);
+        } catch (IOException e) {
+            // StringWriter does not throw IOException
+            throw new RuntimeException(e);
+        }
+        return writer.toString();
+    }
+
+    @Override
+    public <S extends T> S read(Reader reader, Class<S> type) throws IOException {
+        return unmap(ObjectMapperGroup.readFrom(reader, -1, Integer.MAX_VALUE), type);
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.athaydes.easyjetty
+
+import spock.lang.Specification
+
+class EncodingWriterTest extends Specification {
+
+    def "Characters are encoded exactly as String.getBytes() would encode them"() {
+        given: 'An OutputStream to write into'
+        def out = new ByteArrayOutputStream()
+
+        when: 'a text is written with an EncodingWriter in pieces of different sizes'
+        def writer = EncodingWriter.open(out, charset)
+        writer.write(text.substring(0, 1))
+        writer.write(text.toCharArray(), 1, 2)
+        writer.write((int) text.charAt(3))
+        writer.write(text, 4, text.size() - 4)
+        writer.close()
+
+        then: 'the bytes written are the same as the encoded text'
+        out.toByteArray() == text.getBytes(charset)
+
+        where:
+        charset      | text
+        'UTF-8'      | 'hello world'
+        'UTF-8'      | 'a\u00e7a\u00ed \u4e16\ud83d\ude00 end'
+        'ISO-8859-1' | 'a\u00e7a\u00ed \u4e16 end'
+        'US-ASCII'   | 'a\u00e7a\u00ed end'
+        'UTF-16'     | 'a\u00e7a\u00ed \u4e16\ud83d\ude00 end'
+        'UTF-8'      | ('x\u00e9\ud83d\ude00' * EncodingWriter.BUFFER_SIZE)
+    }
+
+    def "Surrogate pairs can be split between writes"() {
+        given: 'An OutputStream to write into'
+        def out = new ByteArrayOutputStream()
+
+        when: 'a surrogate pair is written one char at a time'
+        def writer = EncodingWriter.open(out, 'UTF-8')
+        writer.write('a\ud83d')
+        writer.write('\ude00b')
+        writer.close()
+
+        then: 'the pair is encoded as a single code point'
+        out.toByteArray() == 'a\ud83d\ude00b'.getBytes('UTF-8')
+    }
+
+    def "Each Thread re-uses its EncodingWriter unless it is still in use"() {
+        when: 'an EncodingWriter is opened and closed twice'
+        def first = EncodingWriter.open(new ByteArrayOutputStream(), 'UTF-8')
+        first.close()
+        def second = EncodingWriter.open(new ByteArrayOutputStream(), 'ISO-8859-1')
+
+        then: 'the same instance is returned'
+        first.is(second)
+
+        when: 'another EncodingWriter is opened while the current one is in use'
+        def nested = EncodingWriter.open(new ByteArrayOutputStream(), 'UTF-8')
+
+        then: 'a new instance is returned'
+        !nested.is(second)
+
+        cleanup:
+        second?.release()
+        nested?.release()
+    }
+
+    def "Released EncodingWriters discard any content that has not been written yet"() {
+        given: 'An OutputStream to write into'
+        def out = new ByteArrayOutputStream()
+
+        when: 'some text is written, then the writer is released'
+        def writer = EncodingWriter.open(out, 'UTF-8')
+        writer.write('discarded')
+        writer.release()
+
+        and: 'the writer is re-used'
+        writer = EncodingWriter.open(out, 'UTF-8')
+        writer.write('kept')
+        writer.close()
+
+        then: 'only the text written after the writer was re-used is written'
+        out.toString('UTF-8') == 'kept'
+    }
+
+}
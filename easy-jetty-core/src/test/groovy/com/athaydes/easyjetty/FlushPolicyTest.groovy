@@ -0,0 +1,31 @@
+package com.athaydes.easyjetty
+
+import spock.lang.Specification
+
+class FlushPolicyTest extends Specification {
+
+    def "FlushPolicies decide when to flush by the number of unflushed bytes and time since the last flush"() {
+        expect:
+        policy.shouldFlush(unflushedBytes, millisSinceFlush) == expected
+
+        where:
+        policy                    | unflushedBytes | millisSinceFlush | expected
+        FlushPolicy.eachChunk()   | 1              | 0                | true
+        FlushPolicy.bySize(1024)  | 1023           | 10_000           | false
+        FlushPolicy.bySize(1024)  | 1024           | 0                | true
+        FlushPolicy.byTime(100)   | 1_000_000      | 99               | false
+        FlushPolicy.byTime(100)   | 1              | 100              | true
+    }
+
+    def "FlushPolicies cannot be created with non-positive limits"() {
+        when:
+        create()
+
+        then:
+        thrown IllegalArgumentException
+
+        where:
+        create << [{ FlushPolicy.bySize(0) }, { FlushPolicy.byTime(0) }]
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.athaydes.easyjetty
+
+import com.athaydes.easyjetty.http.ContentNegotiationCache
+import com.athaydes.easyjetty.http.MethodArbiter
+import spock.lang.Specification
+
+import static com.athaydes.easyjetty.http.MethodArbiter.Method.*
+import static com.athaydes.easyjetty.http.MethodArbiterFactory.*
+
+class HandlerChainTest extends Specification {
+
+    def "Handlers with known MethodArbiters are selected by method in advance"() {
+        given:
+        def filter = handlerWith(anyOf(DELETE, GET, HEAD, OPTIONS, POST, PUT, TRACE))
+        def get = handlerWith(GET)
+        def post = handlerWith(singleMethod('POST'))
+        def putOrDelete = handlerWith(anyOf(PUT, DELETE))
+        def any = handlerWith(anyMethod())
+        def chain = HandlerChain.compiler(new ContentNegotiationCache()).compile([filter, get, post, putOrDelete, any])
+
+        expect:
+        chain.select('GET').handlers() as List == [filter, get, any]
+        chain.select('POST').handlers() as List == [filter, post, any]
+        chain.select('PUT').handlers() as List == [filter, putOrDelete, any]
+        chain.select('DELETE').handlers() as List == [filter, putOrDelete, any]
+        chain.select('HEAD').handlers() as List == [filter, any]
+
+        and: 'non-standard methods must be arbitrated by each handler'
+        chain.select('PATCH').handlers() as List == [any]
+        chain.all() as List == [filter, get, post, putOrDelete, any]
+
+        and: 'the dispatch for non-standard methods is only created once'
+        chain.select('PATCH').is(chain.select('PATCH'))
+    }
+
+    def "Handlers with custom MethodArbiters must always be arbitrated"() {
+        given:
+        def custom = handlerWith({ String method -> method.startsWith('G') } as MethodArbiter)
+        def chain = HandlerChain.compiler(new ContentNegotiationCache()).compile([handlerWith(GET), custom])
+
+        expect:
+        chain.select('GET').handlers() as List == chain.all() as List
+        chain.select('POST').handlers() as List == []
+        chain.all().size() == 2
+        chain.select('GOT').handlers() as List == [custom]
+        chain.select('GET').is(chain.select('GET'))
+    }
+
+    def "The method mask of each MethodArbiter is known if it is created by the MethodArbiterFactory"() {
+        expect:
+        methodMask(arbiter) == expectedMask
+
+        where:
+        arbiter                                   | expectedMask
+        GET                                       | GET.mask()
+        singleMethod('PUT')                       | PUT.mask()
+        singleMethod('HELLO')                     | 0
+        anyOf(GET, POST)                          | GET.mask() + POST.mask()
+        anyMethod()                               | allMethodsMask()
+        ({ true } as MethodArbiter)               | UNKNOWN_METHOD_MASK
+    }
+
+    def "Methods can be found by name"() {
+        expect:
+        values().every { fromString(it.name()) == it }
+        fromString('get') == null
+        fromString('PATCH') == null
+        fromString('') == null
+    }
+
+    private EasyJettyHandler handlerWith(MethodArbiter arbiter) {
+        Stub(EasyJettyHandler) {
+            getMethodArbiter() >> arbiter
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.athaydes.easyjetty
+
+import spock.lang.Specification
+
+class PathParamsTest extends Specification {
+
+    def "Parameters are found in the request path"() {
+        when:
+        def result = new PathParams.Layout(paramsByIndex).paramsOf(requestPath)
+
+        then:
+        result == expectedResult
+        result == PathHelper.matchParams(paramsByIndex, requestPath)
+
+        where:
+        paramsByIndex                  | requestPath     | expectedResult
+        [:]                            | 'someone/hello' | [:]
+        [0: ':hi']                     | 'hello'         | ['hi': 'hello']
+        [1: ':hi']                     | 'someone/hello' | ['hi': 'hello']
+        [0: ':hi', 1: ':oi']           | 'someone/hello' | ['hi': 'someone', 'oi': 'hello']
+        [1: ':oi', 0: ':hi']           | 'someone/hello' | ['hi': 'someone', 'oi': 'hello']
+        [0: ':hi', 3: ':ho', 4: ':hu'] | 'A/b/c/D/e'     | ['hi': 'A', 'ho': 'D', 'hu': 'e']
+        [2: ':id', 3: ':item']         | '/users/1//x'   | ['id': '1', 'item': '']
+    }
+
+    def "Parameters which are not in the request path are missing"() {
+        when:
+        def result = new PathParams.Layout([1: ':a', 3: ':b']).paramsOf('/x/y')
+
+        then:
+        result == ['a': 'x']
+        result.size() == 1
+        !result.containsKey('b')
+        result.get('b') == null
+    }
+
+    def "Parameters can be parsed as long values"() {
+        when:
+        def params = new PathParams.Layout([1: ':id']).paramsOf(path) as PathParams
+
+        then:
+        params.getLong('id') == expected
+
+        where:
+        path                        | expected
+        '/0'                        | 0L
+        '/42'                       | 42L
+        '/+42'                      | 42L
+        '/-42/other'                | -42L
+        "/${Long.MAX_VALUE}"        | Long.MAX_VALUE
+        "/${Long.MIN_VALUE}"        | Long.MIN_VALUE
+    }
+
+    def "Parameters which are not valid long values cannot be parsed as long"() {
+        when:
+        def params = new PathParams.Layout([1: ':id']).paramsOf(path) as PathParams
+        params.getLong('id')
+
+        then:
+        thrown NumberFormatException
+
+        where:
+        path << ['/', '//x', '/-', '/+', '/1a', '/a1', '/1.0', '/ 1', '/9223372036854775808', '/-9223372036854775809']
+    }
+
+    def "Missing parameters cannot be parsed as long"() {
+        when:
+        def params = new PathParams.Layout([1: ':id']).paramsOf('/1') as PathParams
+        params.getLong('other')
+
+        then:
+        def error = thrown IllegalArgumentException
+        !(error instanceof NumberFormatException)
+    }
+
+}
@@ -129,6 +129,52 @@ class PathTreeTest extends Specification {
         ['no_name_params', 'a', 'b']      | []
     }
 
+    def "get() specification - raw request paths"() {
+        given:
+        def tree = new PathTree()
+        tree.putAll([
+                (PathHelper.handlerPath('/'))             : 'root',
+                (PathHelper.handlerPath('/a'))            : 'just a',
+                (PathHelper.handlerPath('/a/b'))          : 'a and b',
+                (PathHelper.handlerPath('/a/:p'))         : 'a and p',
+                (PathHelper.handlerPath('/:p/c'))         : 'p and c',
+                (PathHelper.handlerPath('/x//y'))         : 'x empty y',
+                (PathHelper.handlerPath('/ab/abc/abcd'))  : 'ab abc abcd',
+                (PathHelper.handlerPath('/abc'))          : 'just abc',
+        ])
+
+        expect:
+        tree.get(PathHelper.handlerPath(path)) == expected
+        tree.compile().get(path) == expected
+
+        where:
+        path            | expected
+        ''              | ['root']
+        '/'             | ['root']
+        '//'            | ['root']
+        ' / '           | ['root']
+        '/a'            | ['just a']
+        'a'             | ['just a']
+        '/a/'           | ['just a']
+        '/a//'          | ['just a']
+        ' /a '          | ['just a']
+        '/a/b'          | ['a and b']
+        'a/b/'          | ['a and b']
+        '/a/z'          | ['a and p']
+        '/a/bb'         | ['a and p']
+        '/z/c'          | ['p and c']
+        '/a/c'          | ['a and p']
+        '/x//y'         | ['x empty y']
+        '/x/y'          | []
+        '/ab/abc/abcd'  | ['ab abc abcd']
+        '/ab/abc/abc'   | []
+        '/abc'          | ['just abc']
+        '/ab'           | []
+        '/abcd'         | []
+        '/a/b/c'        | []
+        '//a'           | []
+    }
+
     def "size() specification"() {
         given:
         def handlers = handlerItems.collect { it as HandlerPath }
@@ -0,0 +1,138 @@
+package com.athaydes.easyjetty
+
+import spock.lang.Specification
+
+import static com.athaydes.easyjetty.PathHelper.handlerPath
+
+class RouteTableTest extends Specification {
+
+    def "A compiled RouteTable finds the same values as the PathTree it was compiled from"() {
+        given:
+        def tree = new PathTree()
+        tree.putAll([
+                (handlerPath('/'))                  : 'empty',
+                (handlerPath('/a'))                 : 'just a',
+                (handlerPath('/:param1'))           : 'just param1',
+                (handlerPath('/b'))                 : 'just b',
+                (handlerPath('/a/b'))               : 'a and b',
+                (handlerPath('/a/:param2'))         : 'a and param2',
+                (handlerPath('/:p1/:p2/:p3/:p4'))   : '4 parameters',
+                (handlerPath('/c/d/e'))             : 'c and d and e',
+                (handlerPath('/c/:param3/e'))       : 'c and param3 and e',
+                (handlerPath('/c/:param3/e/:param4')): 'c p3 e p4',
+                (handlerPath('/:p1/b/:p2/e'))       : 'p1 b p2 e',
+                (handlerPath('/a/duplicate'))       : 'dup1',
+        ])
+        tree.put(handlerPath('/a/duplicate'), 'dup2')
+
+        when:
+        def table = tree.compile()
+
+        then:
+        table.get(path) == expected
+        table.get(path) == tree.get(handlerPath(path))
+
+        where:
+        path            | expected
+        '/'             | ['empty']
+        ''              | ['empty']
+        '/a'            | ['just a']
+        '/c'            | ['just param1']
+        'b/'            | ['just b']
+        '/a/b'          | ['a and b']
+        '/a/c'          | ['a and param2']
+        '/a/xyz'        | ['a and param2']
+        '/c/d/e'        | ['c and d and e']
+        '/c/x/e'        | ['c and param3 and e']
+        '/c/a/e'        | ['c and param3 and e']
+        '/x/y/z/w'      | ['4 parameters']
+        '/c/d/e/f'      | ['c p3 e p4']
+        '/c/x/e/z'      | ['c p3 e p4']
+        '/c/d/e/z'      | ['c p3 e p4']
+        '/a/b/d/e'      | ['p1 b p2 e']
+        '/x/b/x/e'      | ['p1 b p2 e']
+        '/a/duplicate'  | ['dup1', 'dup2']
+        '/x/y/z/w/m'    | []
+        '/a/x/c'        | []
+        '/b/x'          | []
+        '/c/x'          | []
+        '/c/x/y'        | []
+        '/c/d/f'        | []
+        '/a/d/f'        | []
+        '/c/x/f/z/e'    | []
+    }
+
+    def "A compiled RouteTable is not affected by later changes to the PathTree"() {
+        given:
+        def tree = new PathTree()
+        tree.put(handlerPath('/a'), 'a')
+        def table = tree.compile()
+
+        when:
+        tree.put(handlerPath('/a'), 'another a')
+        tree.put(handlerPath('/b'), 'b')
+
+        then:
+        table.get('/a') == ['a']
+        table.get('/b') == []
+        tree.compile().get('/a') == ['a', 'another a']
+    }
+
+    def "An empty RouteTable never matches anything"() {
+        expect:
+        new PathTree().compile().get(path) == []
+
+        where:
+        path << ['', '/', '/a', 'a/b/c']
+    }
+
+    def "Paths that would make a PathTree backtrack are matched by a linear number of states"() {
+        given: 'routes where every component may be either a literal or a parameter'
+        def tree = new PathTree()
+        def depth = 12
+        for (i in 0..<depth) {
+            def literals = (0..i).collect { 'x' }
+            tree.put(handlerPath('/' + literals.join('/') + '/:last/end'), i)
+            tree.put(handlerPath('/' + (0..i).collect { ":p$it" }.join('/') + '/miss'), -i)
+        }
+
+        when:
+        def table = tree.compile()
+
+        then:
+        table.get('/' + (0..<depth).collect { 'x' }.join('/') + '/y/end') == [depth - 1]
+        table.get('/' + (0..<depth).collect { 'x' }.join('/') + '/y/none') == []
+        table.stateCount() < 10 * depth
+    }
+
+    def "Routes that would make a deterministic RouteTable grow combinatorially are matched by backtracking"() {
+        given: 'routes with a literal at a different depth each, and parameters everywhere else'
+        def tree = new PathTree()
+        def depth = 12
+        for (d in 0..<depth) {
+            for (literal in ['a', 'b']) {
+                tree.put(handlerPath('/' + (0..<depth).collect { it == d ? "$literal$d" : ":p$it" }.join('/')),
+                        "$literal$d")
+            }
+        }
+
+        when:
+        def table = tree.compile()
+
+        then: 'the table has no more states than the tree has nodes'
+        !table.deterministic
+        table.stateCount() < (2 * depth + 1) * depth
+
+        and: 'it still finds the same values as the tree'
+        for (path in ['/' + (0..<depth).collect { 'x' }.join('/'),
+                      '/' + (0..<depth).collect { "a$it" }.join('/'),
+                      '/' + (0..<depth).collect { it == 5 ? 'b5' : 'x' }.join('/'),
+                      '/' + (0..<depth).collect { it < 3 ? "b$it" : 'x' }.join('/'),
+                      '/' + (0..<depth - 1).collect { "a$it" }.join('/'),
+                      '/a0']) {
+            assert table.get(path) == tree.get(handlerPath(path))
+        }
+        table.get('/' + (0..<depth).collect { it == 5 ? 'b5' : 'x' }.join('/')) == ['b5']
+    }
+
+}
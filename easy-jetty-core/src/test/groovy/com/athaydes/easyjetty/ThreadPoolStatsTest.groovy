@@ -0,0 +1,54 @@
+package com.athaydes.easyjetty
+
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class ThreadPoolStatsTest extends Specification {
+
+    def "ThreadPoolStats keep track of the queue wait times of requests"() {
+        given:
+        def stats = new ThreadPoolStats()
+
+        when:
+        waitsMicros.each { stats.record(TimeUnit.MICROSECONDS.toNanos(it)) }
+        stats.rejected()
+
+        then:
+        stats.requestCount == waitsMicros.size()
+        stats.rejectedCount == 1
+        stats.maxQueueWaitNanos == TimeUnit.MICROSECONDS.toNanos(5000)
+        stats.meanQueueWaitNanos == TimeUnit.MICROSECONDS.toNanos(waitsMicros.sum() as long) / waitsMicros.size()
+
+        and: 'percentiles are estimated by the upper bound of their power-of-2 bucket, capped at the max wait'
+        stats.getQueueWaitPercentileNanos(50) == TimeUnit.MICROSECONDS.toNanos(16)
+        stats.getQueueWaitPercentileNanos(90) == TimeUnit.MICROSECONDS.toNanos(16)
+        stats.getQueueWaitPercentileNanos(99) == TimeUnit.MICROSECONDS.toNanos(5000)
+        stats.getQueueWaitPercentileNanos(100) == TimeUnit.MICROSECONDS.toNanos(5000)
+
+        when:
+        stats.reset()
+
+        then:
+        stats.requestCount == 0
+        stats.rejectedCount == 0
+        stats.maxQueueWaitNanos == 0
+        stats.meanQueueWaitNanos == 0
+        stats.getQueueWaitPercentileNanos(99) == 0
+
+        where:
+        waitsMicros = [10] * 95 + [5000] * 5
+    }
+
+    def "Only percentiles between 0 and 100 can be estimated"() {
+        when:
+        new ThreadPoolStats().getQueueWaitPercentileNanos(percentile)
+
+        then:
+        thrown IllegalArgumentException
+
+        where:
+        percentile << [-1, 100.1]
+    }
+
+}
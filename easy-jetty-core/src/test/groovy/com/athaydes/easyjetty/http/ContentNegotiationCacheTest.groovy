@@ -0,0 +1,94 @@
+package com.athaydes.easyjetty.http
+
+import com.athaydes.easyjetty.external.MIMEParse
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class ContentNegotiationCacheTest extends Specification {
+
+    @Unroll
+    def "Negotiator gives the same results as MIMEParse"() {
+        given: 'A Negotiator for some supported content types'
+        def negotiator = new ContentNegotiationCache().negotiatorFor(supported)
+
+        expect: 'The best match is the same as found by MIMEParse, with or without caching'
+        negotiator.bestMatch(accept) == MIMEParse.bestMatch(supported, accept)
+        negotiator.bestMatch(accept) == MIMEParse.bestMatch(supported, accept)
+
+        where:
+        supported                             | accept
+        ['text/plain']                        | 'text/plain'
+        ['text/plain']                        | 'text/html'
+        ['application/json', 'text/xml']      | 'text/*;q=0.5, */*;q=0.1'
+        ['application/json', 'text/xml']      | 'application/json;q=0.2, text/xml'
+        ['application/xbel+xml', 'text/xml']  | 'text/*;q=0.5,*/*; q=0.1'
+        ['text/html', 'text/plain']           | '*/*'
+    }
+
+    def "Results are cached and hits/misses are counted"() {
+        given: 'A ContentNegotiationCache'
+        def cache = new ContentNegotiationCache()
+
+        when: 'The same Accept header is negotiated several times'
+        def negotiator = cache.negotiatorFor(['text/plain', 'application/json'])
+        4.times { negotiator.bestMatch('application/json') }
+        negotiator.bestMatch('text/*')
+
+        then: 'Only the first negotiation of each header is a miss'
+        cache.missCount == 2
+        cache.hitCount == 3
+        cache.size() == 2
+
+        when: 'The cache is cleared'
+        cache.clear()
+
+        then: 'Cached results and counters are discarded'
+        cache.size() == 0
+        cache.missCount == 0
+        cache.hitCount == 0
+    }
+
+    def "Negotiators are shared between equal groups of supported content types"() {
+        given: 'A ContentNegotiationCache'
+        def cache = new ContentNegotiationCache()
+
+        expect:
+        cache.negotiatorFor(['text/plain', 'text/html']).is(cache.negotiatorFor(['text/plain', 'text/html']))
+        !cache.negotiatorFor(['text/plain', 'text/html']).is(cache.negotiatorFor(['text/html', 'text/plain']))
+    }
+
+    def "The number of cached results is bounded"() {
+        given: 'A ContentNegotiationCache with a small maximum number of entries'
+        def cache = new ContentNegotiationCache(3)
+        def negotiator = cache.negotiatorFor(['text/plain'])
+
+        when: 'More distinct Accept headers than the maximum are negotiated'
+        10.times { negotiator.bestMatch("text/plain;q=0.$it") }
+
+        then: 'The cache never holds more than the maximum number of entries'
+        cache.size() <= 3
+        cache.missCount == 10
+    }
+
+    def "The number of cached groups of supported content types is bounded"() {
+        given: 'A ContentNegotiationCache with a small maximum number of entries'
+        def cache = new ContentNegotiationCache(3)
+        def first = cache.negotiatorFor(['text/plain'])
+
+        when: 'More distinct groups than the maximum are requested'
+        10.times { cache.negotiatorFor(["text/x-$it" as String]) }
+
+        then: 'Old groups are discarded, but their Negotiators still work'
+        !cache.negotiatorFor(['text/plain']).is(first)
+        first.bestMatch('text/*') == 'text/plain'
+    }
+
+    def "The maximum number of entries must be positive"() {
+        when:
+        new ContentNegotiationCache(0)
+
+        then:
+        thrown IllegalArgumentException
+    }
+
+}
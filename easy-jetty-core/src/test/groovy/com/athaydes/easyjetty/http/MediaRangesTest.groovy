@@ -0,0 +1,110 @@
+package com.athaydes.easyjetty.http
+
+import com.athaydes.easyjetty.external.MIMEParse
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class MediaRangesTest extends Specification {
+
+    @Unroll
+    def "The best match for #supported and Accept header '#header' is '#expected', as in MIMEParse"() {
+        expect:
+        MediaRanges.bestMatch(supported, header) == expected
+        MIMEParse.bestMatch(supported, header) == expected
+
+        where:
+        supported                                  | header                                            | expected
+        ['application/xbel+xml', 'text/xml']       | 'text/*;q=0.5,*/*; q=0.1'                         | 'text/xml'
+        ['application/xbel+xml', 'text/xml']       | 'text/*;q=0.5,*; q=0.1'                           | 'text/xml'
+        ['application/xbel+xml']                   | 'application/xbel+xml'                            | 'application/xbel+xml'
+        ['application/xbel+xml']                   | 'application/xbel+xml; q=1'                       | 'application/xbel+xml'
+        ['application/xbel+xml']                   | 'application/xml'                                 | ''
+        ['application/xbel+xml']                   | 'application/*; q=1'                              | 'application/xbel+xml'
+        ['application/xbel+xml', 'application/xml']| 'application/*; q=1'                              | 'application/xml'
+        ['application/json', 'text/html']          | 'application/json;q=0.2, text/html'               | 'text/html'
+        ['application/json', 'text/html']          | 'application/json, text/html;q=0.9'               | 'application/json'
+        ['application/json', 'text/html']          | 'text/*;q=0'                                      | ''
+        ['application/json', 'text/html']          | 'text/*;q=0.0000001'                              | 'text/html'
+        ['text/html', 'text/plain']                | '*/*'                                             | 'text/plain'
+        ['text/html', 'text/plain']                | 'text/plain;q=2, text/html'                       | 'text/plain'
+        ['text/html;level=1', 'text/html;level=2'] | 'text/html;level=1;q=0.5, text/html;q=0.7'        | 'text/html;level=1'
+        ['text/html;level=1', 'text/html;level=2'] | 'text/html;level=2;level=1'                       | 'text/html;level=1'
+        ['text/html']                              | 'text/html;q=abc'                                 | ''
+        ['text/html']                              | 'text/html;q=1e-1'                                | 'text/html'
+        ['text/html']                              | 'text/html;q='                                    | 'text/html'
+        ['text/html']                              | 'text/html;q=0.5=0.2'                             | 'text/html'
+        ['text/html']                              | 'text/html,'                                      | 'text/html'
+        ['text/html']                              | ',,,'                                             | ''
+        ['*/*']                                    | 'image/png'                                       | '*/*'
+        ['*']                                      | 'image/png;q=0.3'                                 | '*'
+    }
+
+    @Unroll
+    def "Malformed Accept header '#header' causes the same error as in MIMEParse"() {
+        when:
+        MediaRanges.bestMatch(['text/html'], header)
+
+        then:
+        thrown ArrayIndexOutOfBoundsException
+
+        when:
+        MIMEParse.bestMatch(['text/html'], header)
+
+        then:
+        thrown ArrayIndexOutOfBoundsException
+
+        where:
+        header << ['', ' ', 'text', 'text/', ';q=0.5', 'text/html,,text/plain', 'text/html, ']
+    }
+
+    @Unroll
+    def "'#candidate' is accepted by '#accepted': #expected"() {
+        expect:
+        MediaRanges.isAccepted(accepted, candidate) == expected
+        MIMEParse.isAccepted(accepted, candidate) == expected
+
+        where:
+        accepted                            | candidate                  | expected
+        'application/x-www-form-urlencoded' | 'application/x-www-form-urlencoded; charset=UTF-8' | true
+        'application/x-www-form-urlencoded' | 'multipart/form-data'      | false
+        '*/*'                               | 'application/json'         | true
+        'application/json'                  | 'application/*'            | true
+        'text/plain'                        | 'text/plain;q=0'           | false
+    }
+
+    def "Results are the same as MIMEParse's for random Accept headers"() {
+        given: 'Fragments which are combined into random supported types and Accept headers'
+        def random = new Random(42L)
+        def types = ['text', 'application', '*', ' text', 'image ', '']
+        def subTypes = ['html', 'json', '*', 'plain ', ' xml', '']
+        def params = [';q=0.5', ';q=1', '; q = 0', ';q=0.25', ';q=2', ';level=1', ';level=2', ' ;charset=utf-8',
+                      ';', ';=x', ';a=', ';q=', ';q=.5', ';q=1.', ';q=x']
+        def separators = [',', ', ', ' ,', ',,']
+
+        def mediaRange = {
+            def type = types[random.nextInt(types.size())] + '/' + subTypes[random.nextInt(subTypes.size())]
+            random.nextInt(20) == 0 ? '*' : type + (1..random.nextInt(3)).collect {
+                params[random.nextInt(params.size())]
+            }.join('').with { random.nextBoolean() ? it : '' }
+        }
+
+        def run = { Closure action ->
+            try {
+                action()
+            } catch (e) {
+                e.class
+            }
+        }
+
+        expect: 'MediaRanges and MIMEParse to always agree'
+        10_000.times {
+            def supported = (0..random.nextInt(3)).collect { mediaRange() }
+            def header = (0..random.nextInt(4)).collect { mediaRange() }.join(separators[random.nextInt(separators.size())])
+            def expected = run { MIMEParse.bestMatch(supported, header) }
+            def actual = run { MediaRanges.bestMatch(supported, header) }
+            assert actual == expected, "supported=$supported, header='$header'"
+            assert run { MediaRanges.isAccepted(supported[0], header) } == run { MIMEParse.isAccepted(supported[0], header) }
+        }
+    }
+
+}
@@ -4,9 +4,15 @@ import groovy.transform.EqualsAndHashCode
 import groovy.transform.ToString
 import groovy.transform.TupleConstructor
 import org.eclipse.jetty.http.HttpHeader
+import org.eclipse.jetty.util.MultiMap
 import spock.lang.Specification
 
+import javax.servlet.ReadListener
+import javax.servlet.ServletInputStream
 import javax.servlet.http.HttpServletRequest
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicBoolean
 
 import static com.athaydes.easyjetty.mapper.ObjectMapper.ACCEPT_EVERYTHING
 
@@ -26,13 +32,29 @@ class ObjectMapperGroupSpec extends Specification {
         value << ['Hello', 1, 2, 100, 0.1f, true, [40, 20]]
     }
 
+    def "Objects without mappers are written into a Writer exactly as their toString() value"() {
+        given: 'A Simple ObjectMapperGroup with no mappers added'
+        def mapperGroup = new ObjectMapperGroup()
+
+        when: 'example values are written into a Writer'
+        def writer = new StringWriter()
+        mapperGroup.write(value, ACCEPT_EVERYTHING, writer)
+
+        then: 'the Writer contains exactly the same as calling value.toString()'
+        writer.toString() == value.toString()
+
+        where:
+        value << [0, 7, -1, 1234567890, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE,
+                  (byte) -128, (short) 300, true, false, 0.1f, -2.5d, 'Hello', new BigInteger('123456789012345678901')]
+    }
+
     def "Simple ObjectMapperGroup with no mappers should be able to unmap Strings"() {
         given: 'A Simple ObjectMapperGroup with no mappers added'
         def mapperGroup = new ObjectMapperGroup()
 
         and: 'A Stubbed request whose content is given by an example'
         def request = Stub(HttpServletRequest)
-        request.getReader() >> new BufferedReader(new StringReader(value as String))
+        request.getInputStream() >> new ByteArrayServletInputStream((value as String).getBytes('ISO-8859-1'))
 
         when: 'the request is unmapped'
         def result = mapperGroup.unmap(request, String, 999999)
@@ -44,6 +66,40 @@ class ObjectMapperGroupSpec extends Specification {
         value << ['', 'Hello', 1, 2, 100, 0.1f, true, [40, 20]]
     }
 
+    def "ObjectMapperGroup writes Objects directly into a Writer using StreamingObjectMappers"() {
+        given: 'An ObjectMapperGroup with a streaming and a non-streaming mapper'
+        def mapperGroup = new ObjectMapperGroup()
+                .withMappers(new StreamingPersonMapper(), new StringObjectMapper())
+
+        when: 'example values are written into a Writer'
+        def writer = new StringWriter()
+        mapperGroup.write(value, ACCEPT_EVERYTHING, writer)
+
+        then: 'the Writer contains the same text the values are mapped to'
+        writer.toString() == expected
+        mapperGroup.map(value) == expected
+
+        where:
+        value                   | expected
+        new Person(name: 'Joe', age: 30)| 'Person(Joe, 30)'
+        'hi'                    | 'String:hi'
+        10                      | '10'
+        null                    | '<null>'
+    }
+
+    def "A StreamingObjectMapper is never asked to map an Object to a String by an ObjectMapperGroup"() {
+        given: 'A StreamingObjectMapper which cannot map Objects to Strings'
+        def mapper = Spy(StreamingPersonMapper)
+        def mapperGroup = new ObjectMapperGroup().withMappers(mapper)
+
+        when: 'an Object is written into a Writer'
+        mapperGroup.write(new Person(name: 'Mary', age: 25), ACCEPT_EVERYTHING, new StringWriter())
+
+        then: 'the Object is only written into the Writer'
+        1 * mapper.write(_, _)
+        0 * mapper.map(_)
+    }
+
     def "Non-lenient ObjectMapperGroup should throw an Exception for values whose type does not have an exact ObjectMapper"() {
         given: 'A non-lenient ObjectMapperGroup with a PersonObjectMapper'
         def mapperGroup = new ObjectMapperGroup(true, false)
@@ -65,7 +121,7 @@ class ObjectMapperGroupSpec extends Specification {
 
         and: 'A Stubbed request whose content is given by an example'
         def request = Stub(HttpServletRequest)
-        request.getReader() >> new BufferedReader(new StringReader(value as String))
+        request.getInputStream() >> new ByteArrayServletInputStream((value as String).getBytes('ISO-8859-1'))
 
         when: 'the request is unmapped'
         mapperGroup.unmap(request, String, 999999)
@@ -103,12 +159,12 @@ class ObjectMapperGroupSpec extends Specification {
         and: 'A Stubbed request whose content is a Person'
         def personReq = Stub(HttpServletRequest)
         personReq.getHeader(HttpHeader.CONTENT_TYPE.asString()) >> ACCEPT_EVERYTHING
-        personReq.getReader() >> new BufferedReader(new StringReader(value as String))
+        personReq.getInputStream() >> new ByteArrayServletInputStream((value as String).getBytes('ISO-8859-1'))
 
         and: 'A Stubbed request whose content is a Person'
         def animalReq = Stub(HttpServletRequest)
         animalReq.getHeader(HttpHeader.CONTENT_TYPE.asString()) >> ACCEPT_EVERYTHING
-        animalReq.getReader() >> new BufferedReader(new StringReader(value as String))
+        animalReq.getInputStream() >> new ByteArrayServletInputStream((value as String).getBytes('ISO-8859-1'))
 
         when: 'example values unmapped to a Person and to an Animal'
         def person = mapperGroup.unmap(personReq, Person, 9999999)
@@ -179,6 +235,60 @@ class ObjectMapperGroupSpec extends Specification {
                 ['Name': 'Jonathan Doe', 'Age': '23', 'Formula': 'a + b == 13%!']
     }
 
+    def "Form contents can be unmapped to a MultiMap containing all values of each key"() {
+        when: 'unmapping example values that are Strings in html form format'
+        MultiMap result = new ObjectMapperGroup().unmap(value, MultiMap, 'application/x-www-form-urlencoded')
+
+        then: 'the result is a MultiMap with all of the form entries'
+        result == expected
+
+        where:
+        value                           | expected
+        ''                              | [:]
+        'a=1&a=2&b=3'                   | ['a': ['1', '2'], 'b': ['3']]
+        'a&&b=&=c'                      | ['a': [''], 'b': [''], '': ['c']]
+        'eq=a=b'                        | ['eq': ['a=b']]
+        'k%C3%A9y=%E2%82%AC+%3d%26'     | ['k\u00e9y': ['\u20ac =&']]
+    }
+
+    def "Form contents are read directly from the request InputStream"() {
+        given: 'A Stubbed request with a large form'
+        def form = (1..500).collect { "k${it % 100}=v$it" }.join('&')
+        def request = Stub(HttpServletRequest)
+        request.getInputStream() >> new ByteArrayServletInputStream(form.getBytes('UTF-8'))
+        request.getContentLength() >> -1
+        request.getHeader(HttpHeader.CONTENT_TYPE.asString()) >> 'application/x-www-form-urlencoded'
+
+        when: 'the request is unmapped'
+        MultiMap result = new ObjectMapperGroup().unmap(request, MultiMap, 100_000)
+
+        then: 'all values of every key are read'
+        result.size() == 100
+        result.getValues('k1') == (0..4).collect { "v${it * 100 + 1}".toString() }
+    }
+
+    def "Form limits are enforced while form contents are read"() {
+        given: 'A Stubbed request with a form'
+        def request = Stub(HttpServletRequest)
+        request.getInputStream() >> new ByteArrayServletInputStream(form.getBytes('UTF-8'))
+        request.getContentLength() >> -1
+        request.getHeader(HttpHeader.CONTENT_TYPE.asString()) >> 'application/x-www-form-urlencoded'
+
+        when: 'the request is unmapped'
+        new ObjectMapperGroup().unmap(request, Map, 1000, 10)
+
+        then: 'an Exception is thrown'
+        def e = thrown IllegalArgumentException
+        e.message == message
+
+        where:
+        form                                         | message
+        (1..11).collect { "k$it=v" }.join('&')       | FormDecoder.TOO_MANY_KEYS
+        'a=' + 'b' * 1000                            | ObjectMapperGroup.PAYLOAD_TOO_BIG
+        'a=%zz'                                      | FormDecoder.INVALID_ENCODING
+        'a=%2'                                       | FormDecoder.INVALID_ENCODING
+    }
+
     def "A ObjectMapperGroup should be able to map all Collections of a type for which a Mapper exists"() {
         given: 'A ObjectMapperGroup with a PersonObjectMapper and a StringObjectMapper'
         def mapperGroup = new ObjectMapperGroup(false, false)
@@ -207,13 +317,13 @@ class ObjectMapperGroupSpec extends Specification {
 
         and: 'A Stubbed request whose content is a Collection of Person'
         def personReq = Stub(HttpServletRequest)
-        personReq.getHeader(HttpHeader.ACCEPT.asString()) >> ACCEPT_EVERYTHING
-        personReq.getReader() >> new BufferedReader(new StringReader(value as String))
+        personReq.getHeader(HttpHeader.CONTENT_TYPE.asString()) >> ACCEPT_EVERYTHING
+        personReq.getInputStream() >> new ByteArrayServletInputStream((value as String).getBytes('ISO-8859-1'))
 
         and: 'A Stubbed request whose content is a Person'
         def animalReq = Stub(HttpServletRequest)
-        animalReq.getHeader(HttpHeader.ACCEPT.asString()) >> ACCEPT_EVERYTHING
-        animalReq.getReader() >> new BufferedReader(new StringReader(value as String))
+        animalReq.getHeader(HttpHeader.CONTENT_TYPE.asString()) >> ACCEPT_EVERYTHING
+        animalReq.getInputStream() >> new ByteArrayServletInputStream((value as String).getBytes('ISO-8859-1'))
 
         when: 'example values unmapped to a Person and to an Animal'
         def persons = mapperGroup.unmapAll(personReq, Person, 9999999)
@@ -245,7 +355,7 @@ class ObjectMapperGroupSpec extends Specification {
     def "Requests for specific content-types can be unmapped if a Mapper exists for that"() {
         given: 'A Stubbed request with JSON'
         def request = Stub(HttpServletRequest)
-        request.getReader() >> new BufferedReader(new StringReader('example'))
+        request.getInputStream() >> new ByteArrayServletInputStream('example'.getBytes('ISO-8859-1'))
         request.getHeader(HttpHeader.CONTENT_TYPE.asString()) >> 'text/json'
 
         and: 'A non-lenient MapperGroup which has a mapper for JSON'
@@ -265,7 +375,7 @@ class ObjectMapperGroupSpec extends Specification {
     def "Requests for specific content-types cannot be unmapped if a Mapper does not exist for that"() {
         given: 'A Stubbed request with JSON'
         def request = Stub(HttpServletRequest)
-        request.getReader() >> new BufferedReader(new StringReader('json content'))
+        request.getInputStream() >> new ByteArrayServletInputStream('json content'.getBytes('ISO-8859-1'))
         request.getHeader(HttpHeader.ACCEPT.asString()) >> 'text/json'
 
         and: 'A non-lenient MapperGroup which has a mapper only for XML'
@@ -282,6 +392,419 @@ class ObjectMapperGroupSpec extends Specification {
         thrown RuntimeException
     }
 
+
+    def "StreamingObjectMappers read request contents directly from the request Reader"() {
+        given: 'A Stubbed request with some content'
+        def request = Stub(HttpServletRequest)
+        request.getInputStream() >> new ByteArrayServletInputStream('Mary:25'.getBytes('ISO-8859-1'))
+        request.getContentLength() >> 7
+        request.getHeader(_) >> null
+
+        and: 'A MapperGroup which has a StreamingObjectMapper'
+        def mapperGroup = new ObjectMapperGroup().withMappers(new StreamingPersonMapper())
+
+        when: 'the request is unmapped'
+        def person = mapperGroup.unmap(request, Person, 100)
+
+        then: 'the StreamingObjectMapper reads the content'
+        person.name == 'Mary'
+        person.age == 25
+    }
+
+    def "The maximum content length is enforced while StreamingObjectMappers read the request content"() {
+        given: 'A Stubbed request whose content length is unknown'
+        def request = Stub(HttpServletRequest)
+        request.getInputStream() >> new ByteArrayServletInputStream(('Mary:' + ('1' * 1000)).getBytes('ISO-8859-1'))
+        request.getContentLength() >> -1
+        request.getHeader(_) >> null
+
+        and: 'A MapperGroup which has a StreamingObjectMapper'
+        def mapperGroup = new ObjectMapperGroup().withMappers(new StreamingPersonMapper())
+
+        when: 'the request is unmapped with a maximum content length smaller than the content'
+        mapperGroup.unmap(request, Person, 100)
+
+        then: 'an Exception is thrown'
+        def e = thrown IllegalArgumentException
+        e.message == ObjectMapperGroup.PAYLOAD_TOO_BIG
+    }
+
+    def "Request contents are fully read whether or not the content length is known"() {
+        when:
+        def result = ObjectMapperGroup.readFrom(new StringReader(content), contentLength, 100_000)
+
+        then:
+        result == content
+
+        where:
+        content         | contentLength
+        ''              | -1
+        ''              | 0
+        'hello'         | -1
+        'hello'         | 5
+        'hello'         | 3 // wrong content length
+        'a' * 10_000    | -1
+        'a' * 10_000    | 10_000
+        'a' * 10_000    | 4096
+        'ç' * 5_000     | 10_000
+    }
+
+    def "Request contents longer than the maximum content length are rejected"() {
+        when:
+        ObjectMapperGroup.readFrom(new StringReader('a' * 10_000), contentLength, 9_999)
+
+        then:
+        def e = thrown IllegalArgumentException
+        e.message == ObjectMapperGroup.PAYLOAD_TOO_BIG
+
+        where:
+        contentLength << [-1, 100, 9_999]
+    }
+
+    def "Buffers are not sized from the content length claimed by the client"() {
+        given: 'A Stubbed request claiming a huge content length, but with only a few bytes of content'
+        def request = Stub(HttpServletRequest)
+        request.getInputStream() >> new ByteArrayServletInputStream('abc'.getBytes('ISO-8859-1'))
+        request.getContentLength() >> contentLength
+        request.getHeader(_) >> null
+
+        when: 'the request is unmapped without a maximum content length'
+        def result = new ObjectMapperGroup().unmap(request, String, Integer.MAX_VALUE)
+
+        then: 'the content is read'
+        result == 'abc'
+
+        where:
+        contentLength << [Integer.MAX_VALUE, 1_500_000_000]
+    }
+
+    def "The maximum content length is counted in bytes"() {
+        given: 'A Stubbed request whose content has more bytes than characters'
+        def request = Stub(HttpServletRequest)
+        request.getInputStream() >> new ByteArrayServletInputStream(('\u00e7' * 60).getBytes('UTF-8'))
+        request.getCharacterEncoding() >> 'UTF-8'
+        request.getContentLength() >> -1
+        request.getHeader(_) >> null
+
+        when: 'the request is unmapped with a maximum content length between the number of characters and bytes'
+        new ObjectMapperGroup().unmap(request, String, 100)
+
+        then: 'an Exception is thrown'
+        def e = thrown IllegalArgumentException
+        e.message == ObjectMapperGroup.PAYLOAD_TOO_BIG
+    }
+
+    def "Collections and Iterators are written one item at a time"() {
+        given: 'A MapperGroup with a CollectionMapper'
+        def mapperGroup = new ObjectMapperGroup()
+                .withMappers(new PersonObjectMapper())
+                .withCollectionMappers(new CollectionMapperParams(ACCEPT_EVERYTHING, ' ; ', '<<', '>>'))
+        def people = [new Person(name: 'Mary', age: 25), new Person(name: 'John', age: 30)]
+
+        and: 'A Writer that records how many items were consumed before each write'
+        def consumed = 0
+        def items = [hasNext: { consumed < people.size() }, next: { people[consumed++] }] as Iterator
+        def writes = []
+        def writer = new StringWriter() {
+            @Override
+            void write(String str) {
+                writes << consumed
+                super.write(str)
+            }
+        }
+
+        when: 'an Iterator is written'
+        mapperGroup.write(items, ACCEPT_EVERYTHING, writer)
+
+        then: 'the items are mapped as a Collection would be'
+        writer.toString() == '<<Mary->25 ; John->30>>'
+        writer.toString() == mapperGroup.map(people)
+
+        and: 'each item is written before the next one is consumed'
+        writes == [0, 1, 1, 2, 2]
+    }
+
+    def "Iterables which are not Collections are written as Collections unless they have a mapper"() {
+        given: 'A MapperGroup with a CollectionMapper'
+        def mapperGroup = new ObjectMapperGroup()
+                .withMappers(new PersonObjectMapper())
+                .withCollectionMappers(new CollectionMapperParams(ACCEPT_EVERYTHING, ' ; ', '<<', '>>'))
+        def people = new People(people: [new Person(name: 'Mary', age: 25), new Person(name: 'John', age: 30)])
+
+        when: 'an Iterable which is not a Collection is written'
+        def writer = new StringWriter()
+        mapperGroup.write(people, ACCEPT_EVERYTHING, writer)
+
+        then: 'the items are mapped as a Collection would be'
+        writer.toString() == '<<Mary->25 ; John->30>>'
+        mapperGroup.map(people) == '<<Mary->25 ; John->30>>'
+
+        when: 'a mapper for the Iterable type is added'
+        mapperGroup.withMappers(new PeopleObjectMapper())
+        writer = new StringWriter()
+        mapperGroup.write(people, ACCEPT_EVERYTHING, writer)
+
+        then: 'the mapper is used instead'
+        writer.toString() == '2 people'
+        mapperGroup.map(people) == '2 people'
+    }
+
+    def "Collection items are unmapped lazily from the request content"() {
+        given: 'A Stubbed request with some content'
+        def request = Stub(HttpServletRequest)
+        request.getInputStream() >> new ByteArrayServletInputStream(content.getBytes('ISO-8859-1'))
+        request.getContentLength() >> -1
+        request.getHeader(_) >> null
+
+        and: 'A MapperGroup with a CollectionMapper'
+        def mapperGroup = new ObjectMapperGroup()
+                .withCollectionMappers(new CollectionMapperParams(ACCEPT_EVERYTHING, ', ', '[', ']'))
+
+        when: 'the request is unmapped one item at a time'
+        def result = mapperGroup.unmapEach(request, String, 100_000).collect()
+
+        then: 'all items are unmapped'
+        result == expected
+
+        where:
+        content                            | expected
+        '[a, b, c]'                        | ['a', 'b', 'c']
+        '  [a]\r\n'                        | ['a']
+        '[]'                               | []
+        '[a, ]'                            | ['a', '']
+        '[a|b, c]'                         | ['a|b', 'c']
+        '[' + (1..10_000).join(', ') + ']' | (1..10_000)*.toString()
+    }
+
+    def "The CollectionMapper used to unmap the request content is chosen by its content-type, not by what it accepts"() {
+        given: 'A MapperGroup with CollectionMappers for different content-types'
+        def mapperGroup = new ObjectMapperGroup()
+                .withCollectionMappers(new CollectionMapperParams('text/x-list', ', ', '[', ']'),
+                new CollectionMapperParams('text/x-angled', ' ; ', '<', '>'))
+
+        and: 'A Stubbed request whose content-type differs from what it accepts'
+        def request = Stub(HttpServletRequest)
+        request.getInputStream() >> new ByteArrayServletInputStream('<a ; b>'.getBytes('ISO-8859-1'))
+        request.getContentLength() >> -1
+        request.getHeader(HttpHeader.CONTENT_TYPE.asString()) >> 'text/x-angled'
+        request.getHeader(HttpHeader.ACCEPT.asString()) >> 'text/x-list'
+
+        when: 'the request is unmapped'
+        def result = all ?
+                mapperGroup.unmapAll(request, String, 100_000) :
+                mapperGroup.unmapEach(request, String, 100_000).collect()
+
+        then: 'the content is parsed the same way by both methods'
+        result as List == ['a', 'b']
+
+        where:
+        all << [true, false]
+    }
+
+    def "Invalid request content is rejected while Collection items are unmapped lazily"() {
+        given: 'A Stubbed request with some invalid content'
+        def request = Stub(HttpServletRequest)
+        request.getInputStream() >> new ByteArrayServletInputStream(content.getBytes('ISO-8859-1'))
+        request.getContentLength() >> -1
+        request.getHeader(_) >> null
+
+        when: 'the request is unmapped one item at a time'
+        def items = new ObjectMapperGroup().unmapEach(request, Integer, maxContentLength)
+        while (items.hasNext()) {
+            items.next()
+        }
+
+        then: 'an Exception is thrown'
+        def e = thrown IllegalArgumentException
+        e.message == message
+
+        where:
+        content             | maxContentLength | message
+        '1, 2]'             | 100              | 'Input does not start with ['
+        '[1, 2'             | 100              | 'Input does not end with ]'
+        '[' + '1, ' * 1000  | 100              | ObjectMapperGroup.PAYLOAD_TOO_BIG
+    }
+
+    def "Resolved mappers are re-used until the mappers of the group change"() {
+        given: 'A lenient MapperGroup without mappers'
+        def mapperGroup = new ObjectMapperGroup(false, true)
+        def person = new Person(name: 'Mary', age: 25)
+        def cats = [new DomesticCat('Tom')]
+
+        when: 'Objects are mapped before any mappers are added'
+        def results = [mapperGroup.map(person), mapperGroup.map(person, 'text/plain'), mapperGroup.map(cats)]
+
+        then: 'the default mappers are used'
+        results == [person.toString(), person.toString(), "[${cats[0]}]".toString()]
+
+        when: 'mappers are added and the same Objects are mapped again'
+        mapperGroup.withMappers(new PersonObjectMapper())
+                .withCollectionMappers(new CollectionMapperParams(ACCEPT_EVERYTHING, ' ; ', '<<', '>>'))
+        results = [mapperGroup.map(person), mapperGroup.map(person, 'text/plain'), mapperGroup.map(cats)]
+
+        then: 'the new mappers are used'
+        results == ['Mary->25', 'Mary->25', "<<${cats[0]}>>".toString()]
+
+        when: 'the mappers are cleared'
+        mapperGroup.clear()
+
+        then: 'the default mapper is used again for the Person'
+        mapperGroup.map(person) == person.toString()
+    }
+
+    def "ObjectMappers can be replaced atomically"() {
+        given: 'A MapperGroup with mappers for Person and String'
+        def mapperGroup = new ObjectMapperGroup()
+                .withMappers(new PersonObjectMapper(), new StringObjectMapper())
+        def person = new Person(name: 'Mary', age: 25)
+
+        when: 'the mappers are replaced by a single mapper for Person'
+        mapperGroup.replaceMappers(new StreamingPersonMapper())
+
+        then: 'only the new mapper is used'
+        mapperGroup.map(person) == 'Person(Mary, 25)'
+        mapperGroup.map('hi') == 'hi'
+    }
+
+    def "ObjectMappers can be changed while other threads are mapping Objects"() {
+        given: 'A MapperGroup with a mapper for Person'
+        def mapperGroup = new ObjectMapperGroup(false, false).withMappers(new PersonObjectMapper())
+        def person = new Person(name: 'Mary', age: 25)
+        def errors = new ConcurrentLinkedQueue()
+        def results = new ConcurrentHashMap()
+        def running = new AtomicBoolean(true)
+
+        when: 'several threads map Objects while the mappers are replaced many times'
+        def threads = (1..4).collect {
+            Thread.start {
+                while (running.get()) {
+                    try {
+                        results[mapperGroup.map(person)] = true
+                    } catch (e) {
+                        errors << e
+                    }
+                }
+            }
+        }
+        1000.times { i ->
+            mapperGroup.replaceMappers(i % 2 ? new PersonObjectMapper() : new StreamingPersonMapper())
+            mapperGroup.withCollectionMappers(new CollectionMapperParams(ACCEPT_EVERYTHING, ',', '[', ']'))
+        }
+        running.set(false)
+        threads*.join()
+
+        then: 'no errors occur and one of the mappers is always used'
+        errors.empty
+        results.keySet() - ['Mary->25', 'Person(Mary, 25)'] == [] as Set
+    }
+
+    def "Resolved BinaryObjectMappers are re-used until the mappers of the group change"() {
+        given: 'A MapperGroup without binary mappers'
+        def mapperGroup = new ObjectMapperGroup()
+
+        expect: 'no binary mapper is found'
+        mapperGroup.findBinaryMapper('application/x-person', Person) == null
+
+        when: 'a binary mapper is added'
+        mapperGroup.withBinaryMappers(new BinaryPersonMapper())
+
+        then: 'the binary mapper is found'
+        mapperGroup.findBinaryMapper('application/x-person', Person) instanceof BinaryPersonMapper
+
+        and: 'is not found after a text mapper is added if any content-type is accepted'
+        mapperGroup.withMappers(new PersonObjectMapper()).findBinaryMapper(ACCEPT_EVERYTHING, Person) == null
+    }
+
+    def "A new, empty SerializationCache is used whenever the mappers of the group change"() {
+        given: 'A MapperGroup which caches serialized Person instances'
+        def person = new Person(name: 'Mary', age: 25)
+        def mapperGroup = new ObjectMapperGroup().withSerializationCache(1000, Person)
+
+        when: 'a Person is cached'
+        def cache = mapperGroup.serializationCache
+        cache.put(person, null, 'UTF-8', [1] as byte[])
+
+        then: 'the cache is used until the mappers change'
+        mapperGroup.serializationCache.is(cache)
+        mapperGroup.serializationCache.get(person, null, 'UTF-8') == [1] as byte[]
+
+        when: 'a mapper is added'
+        mapperGroup.withMappers(new PersonObjectMapper())
+
+        then: 'a new, empty cache with the same configuration is used'
+        !mapperGroup.serializationCache.is(cache)
+        mapperGroup.serializationCache.get(person, null, 'UTF-8') == null
+        mapperGroup.serializationCache.isCacheable(person)
+        mapperGroup.serializationCache.maxSize == 1000
+
+        and: 'no cache is used by default'
+        new ObjectMapperGroup().serializationCache == null
+    }
+
+    def "BinaryObjectMappers are selected by content-type, and only for types without text mappers if anything is accepted"() {
+        given: 'A MapperGroup which has text and binary mappers, and can map sub-types'
+        def mapperGroup = new ObjectMapperGroup(false, true)
+                .withMappers(new PersonObjectMapper())
+                .withBinaryMappers(new BinaryPersonMapper(), new BinaryAnimalMapper())
+
+        expect:
+        mapperGroup.findBinaryMapper(contentType, type)?.getClass() == expected
+
+        where:
+        contentType                    | type        | expected
+        'application/x-person'         | Person      | BinaryPersonMapper
+        'application/*'                | Person      | BinaryPersonMapper
+        'application/x-person'         | DomesticCat | null
+        'application/x-animal'         | DomesticCat | BinaryAnimalMapper
+        'application/x-animal'         | Person      | null
+        'application/json'             | Person      | null
+        ACCEPT_EVERYTHING              | Person      | null
+        null                           | Person      | null
+        ACCEPT_EVERYTHING              | DomesticCat | BinaryAnimalMapper
+        null                           | DomesticCat | BinaryAnimalMapper
+        'application/x-person'         | String      | null
+    }
+
+    def "BinaryObjectMappers read request contents directly from the request InputStream"() {
+        given: 'A Stubbed request with some binary content'
+        def bytes = BinaryPersonMapper.toBytes(new Person(name: 'Mary', age: 25))
+        def request = Stub(HttpServletRequest)
+        request.getInputStream() >> new ByteArrayServletInputStream(bytes)
+        request.getContentLength() >> bytes.length
+        request.getHeader(HttpHeader.CONTENT_TYPE.asString()) >> 'application/x-person'
+
+        and: 'A MapperGroup which has text and binary mappers'
+        def mapperGroup = new ObjectMapperGroup()
+                .withMappers(new PersonObjectMapper())
+                .withBinaryMappers(new BinaryPersonMapper())
+
+        when: 'the request is unmapped'
+        def person = mapperGroup.unmap(request, Person, 100)
+
+        then: 'the BinaryObjectMapper reads the content'
+        person.name == 'Mary'
+        person.age == 25
+    }
+
+    def "The maximum content length is enforced while BinaryObjectMappers read the request content"() {
+        given: 'A Stubbed request with binary content whose length is unknown'
+        def bytes = BinaryPersonMapper.toBytes(new Person(name: 'M' * 1000, age: 25))
+        def request = Stub(HttpServletRequest)
+        request.getInputStream() >> new ByteArrayServletInputStream(bytes)
+        request.getContentLength() >> -1
+        request.getHeader(HttpHeader.CONTENT_TYPE.asString()) >> 'application/x-person'
+
+        and: 'A MapperGroup which has a BinaryObjectMapper'
+        def mapperGroup = new ObjectMapperGroup().withBinaryMappers(new BinaryPersonMapper())
+
+        when: 'the request is unmapped with a maximum content length smaller than the content'
+        mapperGroup.unmap(request, Person, 100)
+
+        then: 'an Exception is thrown'
+        def e = thrown IllegalArgumentException
+        e.message == ObjectMapperGroup.PAYLOAD_TOO_BIG
+    }
+
 }
 
 @EqualsAndHashCode
@@ -354,6 +877,126 @@ class PersonObjectMapper extends ObjectSerializer<Person> {
     }
 }
 
+class People implements Iterable<Person> {
+    List<Person> people
+
+    @Override
+    Iterator<Person> iterator() { people.iterator() }
+}
+
+class PeopleObjectMapper extends ObjectSerializer<People> {
+
+    final Class mappedType = People
+
+    @Override
+    String map(People object) {
+        object.people.size() + ' people'
+    }
+
+    @Override
+    People unmap(String objectAsString) {
+        throw new UnsupportedOperationException()
+    }
+
+    @Override
+    def <S> S unmap(String objectAsString, Class<S> type) {
+        throw new UnsupportedOperationException()
+    }
+}
+
+class StreamingPersonMapper extends StreamingObjectSerializer<Person> {
+
+    final Class mappedType = Person
+
+    @Override
+    def <S> S read(Reader reader, Class<S> type) throws IOException {
+        def name = new StringBuilder()
+        int c
+        while ((c = reader.read()) != (':' as char)) {
+            name.append(c as char)
+        }
+        def age = new StringBuilder()
+        while ((c = reader.read()) >= 0) {
+            age.append(c as char)
+        }
+        type.cast(new Person(name: name.toString(), age: age.toString() as int))
+    }
+
+    @Override
+    void write(Person object, Writer writer) throws IOException {
+        writer.write('Person(')
+        writer.write(object.name)
+        writer.write(', ')
+        writer.write(object.age as String)
+        writer.write(')')
+    }
+}
+
+class BinaryPersonMapper implements BinaryObjectMapper<Person> {
+
+    final Class mappedType = Person
+    final String contentType = 'application/x-person'
+
+    static byte[] toBytes(Person person) {
+        def bytes = new ByteArrayOutputStream()
+        new BinaryPersonMapper().write(person, bytes)
+        bytes.toByteArray()
+    }
+
+    @Override
+    void write(Person object, OutputStream out) throws IOException {
+        def data = new DataOutputStream(out)
+        data.writeUTF(object.name)
+        data.writeInt(object.age)
+        data.flush()
+    }
+
+    @Override
+    def <S> S read(InputStream input, Class<S> type) throws IOException {
+        def data = new DataInputStream(input)
+        type.cast(new Person(name: data.readUTF(), age: data.readInt()))
+    }
+}
+
+class BinaryAnimalMapper implements BinaryObjectMapper<Animal> {
+
+    final Class mappedType = Animal
+    final String contentType = 'application/x-animal'
+
+    @Override
+    void write(Animal object, OutputStream out) throws IOException {
+        out.write(object.race.getBytes('UTF-8'))
+    }
+
+    @Override
+    def <S> S read(InputStream input, Class<S> type) throws IOException {
+        type.cast(new DomesticCat(new String(input.bytes, 'UTF-8')))
+    }
+}
+
+class ByteArrayServletInputStream extends ServletInputStream {
+
+    private final ByteArrayInputStream input
+
+    ByteArrayServletInputStream(byte[] bytes) {
+        input = new ByteArrayInputStream(bytes)
+    }
+
+    @Override
+    boolean isFinished() { input.available() == 0 }
+
+    @Override
+    boolean isReady() { true }
+
+    @Override
+    void setReadListener(ReadListener readListener) {
+        throw new UnsupportedOperationException()
+    }
+
+    @Override
+    int read() throws IOException { input.read() }
+}
+
 class AnimalObjectMapper extends ObjectSerializer<Animal> {
 
     final Class mappedType = Animal
@@ -0,0 +1,124 @@
+package com.athaydes.easyjetty.mapper
+
+import spock.lang.Specification
+
+class SerializationCacheSpec extends Specification {
+
+    def "Objects of identity-cached types are cached by identity, content-type and charset"() {
+        given: 'A cache of Person instances'
+        def cache = new SerializationCache(100, Person)
+        def person = new Person(name: 'Mary', age: 25)
+        def bytes = [1, 2, 3] as byte[]
+
+        when: 'the bytes of a Person are cached'
+        cache.put(person, 'text/plain', 'UTF-8', bytes)
+
+        then: 'they are found for the same instance, content-type and charset only'
+        cache.isCacheable(person)
+        cache.get(person, 'text/plain', 'UTF-8').is(bytes)
+        cache.get(new Person(name: 'Mary', age: 25), 'text/plain', 'UTF-8') == null
+        cache.get(person, 'application/json', 'UTF-8') == null
+        cache.get(person, 'text/plain', 'UTF-16') == null
+        cache.size == 3
+        cache.entryCount == 1
+    }
+
+    def "Cacheable Objects are cached by their cache key"() {
+        given: 'A cache without identity-cached types'
+        def cache = new SerializationCache(100)
+
+        when: 'the bytes of a versioned Object are cached'
+        cache.put(new Versioned(version: 1), 'text/plain', null, [1] as byte[])
+
+        then: 'they are found for any Object with the same key'
+        cache.get(new Versioned(version: 1), 'text/plain', null) == [1] as byte[]
+        cache.get(new Versioned(version: 2), 'text/plain', null) == null
+
+        and: 'Objects without a key, or of types which are not cacheable, are not cached'
+        !cache.isCacheable(new Versioned(version: null))
+        !cache.isCacheable(new Person(name: 'Mary', age: 25))
+        !cache.isCacheable(null)
+    }
+
+    def "The least recently used entries are evicted when the cache exceeds its maximum size"() {
+        given: 'A small cache'
+        def cache = new SerializationCache(10)
+
+        when: 'entries are cached until the cache is full'
+        cache.put(new Versioned(version: 1), null, null, new byte[4])
+        cache.put(new Versioned(version: 2), null, null, new byte[4])
+
+        and: 'the first entry is used'
+        cache.get(new Versioned(version: 1), null, null)
+
+        and: 'another entry is cached'
+        cache.put(new Versioned(version: 3), null, null, new byte[4])
+
+        then: 'the least recently used entry is evicted'
+        cache.get(new Versioned(version: 1), null, null) != null
+        cache.get(new Versioned(version: 2), null, null) == null
+        cache.get(new Versioned(version: 3), null, null) != null
+        cache.size == 8
+
+        when: 'an entry larger than the cache is put'
+        cache.put(new Versioned(version: 4), null, null, new byte[11])
+
+        then: 'it is not cached'
+        cache.get(new Versioned(version: 4), null, null) == null
+        cache.entryCount == 2
+    }
+
+    def "The number of entries is bounded even if the cached bytes are small"() {
+        given: 'A cache which may hold many bytes, but only a few entries'
+        def cache = new SerializationCache(1000, 3)
+
+        when: 'more entries than the maximum are cached'
+        (1..10).each { cache.put(new Versioned(version: it), null, null, new byte[1]) }
+
+        then: 'only the most recent entries are kept'
+        cache.entryCount == 3
+        cache.size == 3
+        (8..10).every { cache.get(new Versioned(version: it), null, null) != null }
+    }
+
+    def "Cached bytes can be found concurrently with puts and evictions"() {
+        given: 'A small cache'
+        def cache = new SerializationCache(100, 10)
+        def errors = Collections.synchronizedList([])
+
+        when: 'many Threads get and put entries concurrently'
+        def threads = (1..8).collect { t ->
+            Thread.start {
+                try {
+                    5_000.times { i ->
+                        def object = new Versioned(version: (i * t) % 50)
+                        def bytes = cache.get(object, null, null)
+                        if (bytes == null) {
+                            cache.put(object, null, null, new byte[object.version % 20])
+                        } else if (bytes.length != object.version % 20) {
+                            errors << "Wrong bytes for $object.version"
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors << e
+                }
+            }
+        }
+        threads*.join()
+
+        then: 'the right bytes are always found, and the cache stays within its bounds'
+        errors.isEmpty()
+        cache.entryCount <= 10
+        cache.size <= 100
+    }
+
+}
+
+class Versioned implements SerializationCache.Cacheable {
+    Integer version
+
+    @Override
+    Object getCacheKey() {
+        version
+    }
+}
@@ -3,9 +3,11 @@ package com.athaydes.easyjetty;
 
 import groovy.servlet.AbstractHttpServlet;
 import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.client.util.FutureResponseListener;
 import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.server.NCSARequestLog;
 import org.eclipse.jetty.server.RequestLog;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.junit.Test;
 
 import javax.servlet.ServletException;
@@ -13,16 +15,29 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.athaydes.easyjetty.http.MethodArbiter.Method.GET;
 import static com.athaydes.easyjetty.http.MethodArbiter.Method.POST;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.startsWith;
 import static org.junit.Assert.*;
 
 public class EasyJettyBasicTest extends EasyJettyTest {
@@ -207,4 +222,225 @@ public class EasyJettyBasicTest extends EasyJettyTest {
         assertThat(lines.get(2), containsString("/build.gradle"));
     }
 
+    @Test
+    public void threadPoolCanBeConfigured() throws Exception {
+        // GIVEN a server using a configured Thread pool
+        easy.threadPool(new ThreadPoolConfig().name("custom-pool").minThreads(4).maxThreads(20))
+                .on(GET, "/thread", new Responder() {
+                    @Override
+                    public void respond(Exchange exchange) throws IOException {
+                        exchange.send(Thread.currentThread().getName() + " " +
+                                exchange.request.getAttribute(ThreadPoolStats.QUEUE_WAIT_ATTRIBUTE));
+                    }
+                }).start();
+
+        QueuedThreadPool threadPool = (QueuedThreadPool) easy.getServer().getThreadPool();
+        assertEquals(4, threadPool.getMinThreads());
+        assertEquals(20, threadPool.getMaxThreads());
+
+        // WHEN a request is made
+        ContentResponse response = sendReqAndWait("GET", "http://localhost:8080/thread");
+
+        // THEN it is handled by a Thread of the pool, and how long it waited in the queue is known
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        String[] threadAndQueueWait = response.getContentAsString().trim().split(" ");
+        assertThat(threadAndQueueWait[0], startsWith("custom-pool"));
+        assertTrue(Long.parseLong(threadAndQueueWait[1]) >= 0L);
+        assertEquals(1L, easy.getThreadPoolStats().getRequestCount());
+        assertEquals(0L, easy.getThreadPoolStats().getRejectedCount());
+    }
+
+    @Test
+    public void requestsAreRejectedWhenThreadPoolQueueIsFull() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final int requestCount = 20;
+
+        // GIVEN a server with a small Thread pool and no queue, whose handler blocks until released
+        easy.threadPool(new ThreadPoolConfig().maxThreads(10).queueCapacity(0))
+                .on(GET, "/block", new Responder() {
+                    @Override
+                    public void respond(Exchange exchange) throws IOException {
+                        try {
+                            release.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            throw new RuntimeException(e);
+                        }
+                        exchange.send("done");
+                    }
+                }).start();
+
+        // WHEN more requests are made than the pool can handle
+        List<FutureResponseListener> listeners = new ArrayList<>(requestCount);
+        for (int i = 0; i < requestCount; i++) {
+            FutureResponseListener listener = new FutureResponseListener(
+                    client.newRequest("http://localhost:8080/block"));
+            listener.getRequest().send(listener);
+            listeners.add(listener);
+        }
+
+        // THEN the requests which cannot be handled are rejected with a 503 without waiting for a Thread
+        waitUntil(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return easy.getThreadPoolStats().getRejectedCount() > 0;
+            }
+        }, 2_000L);
+
+        release.countDown();
+
+        int okCount = 0;
+        int rejectedCount = 0;
+        for (FutureResponseListener listener : listeners) {
+            int status = listener.get(5, TimeUnit.SECONDS).getStatus();
+            if (status == HttpStatus.OK_200) {
+                okCount++;
+            } else if (status == HttpStatus.SERVICE_UNAVAILABLE_503) {
+                rejectedCount++;
+            }
+        }
+        assertTrue(okCount > 0);
+        assertTrue(rejectedCount > 0);
+        assertEquals(requestCount, okCount + rejectedCount);
+        assertEquals(rejectedCount, easy.getThreadPoolStats().getRejectedCount());
+    }
+
+    @Test
+    public void responsesCanBeStreamedWhileThreadPoolIsSaturated() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final int requestCount = 20;
+        final int chunkCount = 512;
+        final byte[] chunk = new byte[64 * 1024];
+        Arrays.fill(chunk, (byte) 'x');
+        final List<String> producerThreads = Collections.synchronizedList(new ArrayList<String>());
+
+        // GIVEN a server with a small Thread pool and no queue, which streams a large response body
+        easy.threadPool(new ThreadPoolConfig().name("small-pool").maxThreads(10).queueCapacity(0))
+                .on(GET, "/stream", new Responder() {
+                    @Override
+                    public void respond(Exchange exchange) {
+                        exchange.stream(new ChunkProducer() {
+                            int index = 0;
+
+                            @Override
+                            public void onDemand(ResponseStream stream) throws IOException {
+                                producerThreads.add(Thread.currentThread().getName());
+                                if (index++ < chunkCount) {
+                                    stream.write(chunk);
+                                } else {
+                                    stream.end();
+                                }
+                            }
+                        });
+                    }
+                })
+                .on(GET, "/block", new Responder() {
+                    @Override
+                    public void respond(Exchange exchange) throws IOException {
+                        try {
+                            release.await(5, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            throw new RuntimeException(e);
+                        }
+                        exchange.send("done");
+                    }
+                }).start();
+
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+
+        // WHEN the streamed body is requested by a client which does not read it yet, so the stream has to wait
+        try (Socket socket = new Socket("localhost", 8080)) {
+            socket.getOutputStream().write(("GET /stream HTTP/1.1\r\n" +
+                    "Host: localhost\r\n" +
+                    "Connection: close\r\n" +
+                    "\r\n").getBytes(StandardCharsets.US_ASCII));
+            waitUntil(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return !producerThreads.isEmpty();
+                }
+            }, 2_000L);
+
+            // AND the pool is saturated, so that new requests are rejected
+            List<FutureResponseListener> listeners = new ArrayList<>(requestCount);
+            for (int i = 0; i < requestCount; i++) {
+                FutureResponseListener listener = new FutureResponseListener(
+                        client.newRequest("http://localhost:8080/block"));
+                listener.getRequest().send(listener);
+                listeners.add(listener);
+            }
+            waitUntil(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return easy.getThreadPoolStats().getRejectedCount() > 0;
+                }
+            }, 2_000L);
+
+            // AND the client starts reading the body while the pool is still saturated
+            final InputStream in = socket.getInputStream();
+            Future<Long> bytesRead = reader.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    byte[] buffer = new byte[64 * 1024];
+                    long total = 0L;
+                    int count;
+                    while ((count = in.read(buffer)) >= 0) {
+                        total += count;
+                    }
+                    return total;
+                }
+            });
+            Thread.sleep(200L);
+            release.countDown();
+
+            // THEN the whole body is streamed, without the producer ever being called by the shedder Thread
+            assertTrue(bytesRead.get(10, TimeUnit.SECONDS) > (long) chunkCount * chunk.length);
+            assertFalse(producerThreads.contains("small-pool-shedder"));
+
+            // AND the requests which were not rejected complete as well
+            for (FutureResponseListener listener : listeners) {
+                int status = listener.get(5, TimeUnit.SECONDS).getStatus();
+                assertTrue(status == HttpStatus.OK_200 || status == HttpStatus.SERVICE_UNAVAILABLE_503);
+            }
+        } finally {
+            reader.shutdownNow();
+        }
+    }
+
+    @Test
+    public void customExecutorCanRunTheServer() throws Exception {
+        // GIVEN a server whose jobs are run by a custom Executor
+        ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "custom-executor-" + count.incrementAndGet());
+            }
+        });
+
+        try {
+            easy.threadPool(new ThreadPoolConfig().executor(executor))
+                    .on(GET, "/thread", new Responder() {
+                        @Override
+                        public void respond(Exchange exchange) throws IOException {
+                            exchange.send(Thread.currentThread().getName());
+                        }
+                    }).start();
+
+            // WHEN a request is made
+            ContentResponse response = sendReqAndWait("GET", "http://localhost:8080/thread");
+
+            // THEN it is handled by a Thread of the Executor
+            assertEquals(HttpStatus.OK_200, response.getStatus());
+            assertThat(response.getContentAsString(), startsWith("custom-executor-"));
+            assertEquals(1L, easy.getThreadPoolStats().getRequestCount());
+
+            // AND the Executor is not shut down with the server
+            easy.stop();
+            assertFalse(executor.isShutdown());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
 }
@@ -5,13 +5,18 @@ import org.eclipse.jetty.http.HttpStatus;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static com.athaydes.easyjetty.http.MediaRanges.bestMatch;
 import static com.athaydes.easyjetty.http.MethodArbiter.Method.GET;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
 public class EasyJettyHandlersPerformanceTest extends EasyJettyTest {
 
@@ -98,5 +103,75 @@ public class EasyJettyHandlersPerformanceTest extends EasyJettyTest {
         assertNull(error.get());
     }
 
+    @Test
+    public void routeLookupDoesNotAllocate() throws Exception {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationCounter = (com.sun.management.ThreadMXBean) threadMXBean;
+        assumeTrue(allocationCounter.isThreadAllocatedMemorySupported());
+
+        // GIVEN a route table with deep paths, including parameters
+        PathTree<String> tree = new PathTree<>();
+        for (int i = 0; i < 100; i++) {
+            tree.put(PathHelper.handlerPath("/api/v1/users/:id/orders/" + i), "orders" + i);
+            tree.put(PathHelper.handlerPath("/api/v1/users/:id/items/" + i + "/details"), "items" + i);
+        }
+        RouteTable<List<String>> routes = tree.compile();
+        String[] paths = {"/api/v1/users/42/orders/99", "/api/v1/users/abc/items/7/details", "/api/v1/none"};
+
+        // warm up
+        for (int i = 0; i < 20_000; i++) {
+            routes.get(paths[i % paths.length]);
+        }
+
+        // WHEN many lookups are made
+        long threadId = Thread.currentThread().getId();
+        long before = allocationCounter.getThreadAllocatedBytes(threadId);
+        int hits = 0;
+        for (int i = 0; i < 100_000; i++) {
+            hits += routes.get(paths[i % paths.length]).size();
+        }
+        long allocated = allocationCounter.getThreadAllocatedBytes(threadId) - before;
+
+        // THEN the lookups find the expected values without allocating per lookup
+        assertEquals(66_667, hits);
+        assertTrue("Allocated " + allocated + " bytes in route lookups", allocated < 100_000);
+    }
+
+    @Test
+    public void contentNegotiationDoesNotAllocate() throws Exception {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationCounter = (com.sun.management.ThreadMXBean) threadMXBean;
+        assumeTrue(allocationCounter.isThreadAllocatedMemorySupported());
+
+        // GIVEN a few supported content types and typical browser Accept headers
+        List<String> supported = Arrays.asList("application/json", "text/html;level=1", "text/plain");
+        String[] headers = {
+                "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8",
+                "application/json, text/javascript, */*; q=0.01",
+                "text/plain;q=0.5, text/html;level=1;q=0.7, image/png"
+        };
+
+        // warm up
+        for (int i = 0; i < 20_000; i++) {
+            bestMatch(supported, headers[i % headers.length]);
+        }
+
+        // WHEN many negotiations are made
+        long threadId = Thread.currentThread().getId();
+        long before = allocationCounter.getThreadAllocatedBytes(threadId);
+        int jsonMatches = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (bestMatch(supported, headers[i % headers.length]) == supported.get(0)) {
+                jsonMatches++;
+            }
+        }
+        long allocated = allocationCounter.getThreadAllocatedBytes(threadId) - before;
+
+        // THEN the expected content types are chosen without allocating per negotiation
+        assertEquals(33_333, jsonMatches);
+        assertTrue("Allocated " + allocated + " bytes in content negotiation", allocated < 100_000);
+    }
 
 }
@@ -1,19 +1,52 @@
 package com.athaydes.easyjetty;
 
 import com.athaydes.easyjetty.http.MethodArbiter.Method;
+import com.athaydes.easyjetty.mapper.BinaryObjectMapper;
 import com.athaydes.easyjetty.mapper.ObjectMapperGroup;
 import com.athaydes.easyjetty.mapper.ObjectSerializer;
+import com.athaydes.easyjetty.mapper.StreamingObjectSerializer;
 import org.boon.Maps;
 import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.client.util.BytesContentProvider;
+import org.eclipse.jetty.client.util.DeferredContentProvider;
+import org.eclipse.jetty.client.util.FutureResponseListener;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.util.MultiMap;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.junit.Test;
 
+import javax.servlet.MultipartConfigElement;
+import javax.servlet.http.Part;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.athaydes.easyjetty.http.MethodArbiter.Method.*;
 import static com.athaydes.easyjetty.http.MethodArbiterFactory.*;
@@ -222,6 +255,56 @@ public class EasyJettyHandlersTest extends EasyJettyTest {
         assertEquals("AUDIO", getAudio.getContentAsString().trim());
     }
 
+    @Test
+    public void contentIsNegotiatedAcrossAllHandlersOfARoute() throws Exception {
+        easy.on(GET, "/path", "application/json", new Responder() {
+            @Override
+            public void respond(Exchange exchange) throws IOException {
+                exchange.out.println("JSON");
+            }
+        }).on(GET, "/path", "application/xml,text/xml", new Responder() {
+            @Override
+            public void respond(Exchange exchange) throws IOException {
+                exchange.out.println("XML " + exchange.acceptedContentType);
+            }
+        }).on(GET, "/path", new Responder() {
+            @Override
+            public void respond(Exchange exchange) throws IOException {
+                exchange.out.println("ANY");
+            }
+        }).on(GET, "/path", "text/plain", new Responder() {
+            @Override
+            public void respond(Exchange exchange) throws IOException {
+                exchange.out.println("UNREACHABLE");
+            }
+        }).start();
+
+        // WHEN requests are sent out with Accept headers preferring different handlers
+        ContentResponse preferXml = sendReqAndWait("GET", "http://localhost:8080/path",
+                map("Accept", "application/json;q=0.5, text/xml"));
+        ContentResponse preferJson = sendReqAndWait("GET", "http://localhost:8080/path",
+                map("Accept", "application/xml;q=0.1, application/json;q=0.9"));
+        ContentResponse anything = sendReqAndWait("GET", "http://localhost:8080/path", map("Accept", "*/*"));
+        ContentResponse plainText = sendReqAndWait("GET", "http://localhost:8080/path", map("Accept", "text/plain"));
+        ContentResponse noAccept = sendReqAndWait("GET", "http://localhost:8080/path");
+
+        // THEN the handler providing the content type most preferred by the client responds
+        assertEquals("XML text/xml", preferXml.getContentAsString().trim());
+        assertEquals("JSON", preferJson.getContentAsString().trim());
+
+        // AND the handler registered first wins when more than one is equally acceptable
+        assertEquals("JSON", anything.getContentAsString().trim());
+        assertEquals("JSON", noAccept.getContentAsString().trim());
+
+        // AND a handler which accepts everything wins when no handler before it is acceptable
+        assertEquals("ANY", plainText.getContentAsString().trim());
+
+        // AND each Accept header was negotiated only once against all handlers
+        assertEquals(4, easy.getContentNegotiationCache().getMissCount());
+        sendReqAndWait("GET", "http://localhost:8080/path", map("Accept", "*/*"));
+        assertEquals(4, easy.getContentNegotiationCache().getMissCount());
+    }
+
     @Test
     public void shouldProvideBestMatchAcceptHeader() throws Exception {
         // GIVEN a long Accept Header that uses quality of service parameters
@@ -331,6 +414,26 @@ public class EasyJettyHandlersTest extends EasyJettyTest {
         assertEquals("Name john", exchange2.getContentAsString().trim());
     }
 
+    @Test
+    public void numericParametersTest() throws Exception {
+        easy.on(GET, "/users/:id/orders/:order", new Responder() {
+            @Override
+            public void respond(Exchange exchange) throws IOException {
+                exchange.send(exchange.paramAsLong("id") + exchange.paramAsInt("order"));
+            }
+        }).start();
+
+        // WHEN GET requests are sent out with numeric and non-numeric parameters
+        ContentResponse exchange1 = sendReqAndWait("GET", "http://localhost:8080/users/40/orders/2");
+        ContentResponse exchange2 = sendReqAndWait("GET", "http://localhost:8080/users/abc/orders/2");
+
+        // THEN the numeric parameters are parsed
+        assertEquals("42", exchange1.getContentAsString().trim());
+
+        // AND the non-numeric parameters cause an error
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR_500, exchange2.getStatus());
+    }
+
     @Test
     public void objectMappingTest() throws Exception {
         class BoolMapper extends ObjectSerializer<Boolean> {
@@ -387,6 +490,754 @@ public class EasyJettyHandlersTest extends EasyJettyTest {
         assertEquals("Bool: true", exchange2.getContentAsString().trim());
     }
 
+    @Test
+    public void streamingObjectMappingTest() throws Exception {
+        class Repeat {
+            final String text;
+            final int times;
+
+            Repeat(String text, int times) {
+                this.text = text;
+                this.times = times;
+            }
+        }
+
+        class RepeatMapper extends StreamingObjectSerializer<Repeat> {
+            @Override
+            public void write(Repeat object, Writer writer) throws IOException {
+                for (int i = 0; i < object.times; i++) {
+                    writer.write(object.text);
+                }
+            }
+
+            @Override
+            public Class<Repeat> getMappedType() {
+                return Repeat.class;
+            }
+        }
+
+        easy.withMapperGroup(new ObjectMapperGroup().withMappers(new RepeatMapper()))
+                .on(GET, "/repeat", new Responder() {
+                    @Override
+                    public void respond(Exchange exchange) throws IOException {
+                        exchange.response.setContentType("text/plain; charset=UTF-8");
+                        exchange.send(new Repeat("a\u00e7a\u00ed ", 200_000));
+                    }
+                }).start();
+
+        // WHEN a GET request is sent out to the endpoint
+        ContentResponse response = sendReqAndWait("GET", "http://localhost:8080/repeat");
+
+        // THEN the whole object is received, encoded with the response's charset
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        String content = new String(response.getContent(), "UTF-8");
+        assertEquals(200_000 * "a\u00e7a\u00ed ".length() + 2, content.length());
+        assertTrue(content.startsWith("a\u00e7a\u00ed a\u00e7a\u00ed "));
+        assertTrue(content.endsWith("a\u00e7a\u00ed \r\n"));
+    }
+
+    @Test
+    public void collectionsCanBeStreamedInAndOut() throws Exception {
+        easy.on(POST, "/running-total", new Responder() {
+            @Override
+            public void respond(final Exchange exchange) throws IOException {
+                final Iterator<Integer> numbers = exchange.receiveEach(Integer.class);
+                exchange.send(new Iterator<Long>() {
+                    long total = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return numbers.hasNext();
+                    }
+
+                    @Override
+                    public Long next() {
+                        total += numbers.next();
+                        return total;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                });
+            }
+        }).start();
+
+        // WHEN many numbers are posted to the endpoint
+        List<Integer> numbers = new ArrayList<>();
+        List<Long> runningTotals = new ArrayList<>();
+        long total = 0;
+        for (int i = 1; i <= 20_000; i++) {
+            numbers.add(i);
+            runningTotals.add(total += i);
+        }
+        ContentResponse response = sendReqAndWait("POST", "http://localhost:8080/running-total",
+                Collections.<String, String>emptyMap(), numbers.toString());
+
+        // THEN the running totals are streamed back as they are computed
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        assertEquals(runningTotals.toString(), response.getContentAsString().trim());
+    }
+
+    @Test
+    public void smallResponsesHaveExactContentLengthAndUseTheNegotiatedCharset() throws Exception {
+        easy.on(GET, "/text", "text/plain;charset=UTF-16BE", new Responder() {
+            @Override
+            public void respond(Exchange exchange) throws IOException {
+                exchange.send("a\u00e7a\u00ed");
+            }
+        }).on(GET, "/number", new Responder() {
+            @Override
+            public void respond(Exchange exchange) throws IOException {
+                exchange.send(-1234567890123L);
+            }
+        }).start();
+
+        // WHEN a request accepting plain text is sent to the endpoint with a charset
+        ContentResponse response = sendReqAndWait("GET", "http://localhost:8080/text",
+                Collections.singletonMap("Accept", "text/plain"));
+
+        // THEN the object is encoded with the negotiated charset, with an exact Content-Length
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        byte[] expected = "a\u00e7a\u00ed\r\n".getBytes("UTF-16BE");
+        assertArrayEquals(expected, response.getContent());
+        assertEquals(String.valueOf(expected.length), response.getHeaders().get(HttpHeader.CONTENT_LENGTH));
+
+        // WHEN a number is requested
+        response = sendReqAndWait("GET", "http://localhost:8080/number");
+
+        // THEN its digits are sent, with an exact Content-Length
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        assertEquals("-1234567890123\r\n", response.getContentAsString());
+        assertEquals("16", response.getHeaders().get(HttpHeader.CONTENT_LENGTH));
+    }
+
+    @Test
+    public void cachedObjectsAreOnlyMappedOncePerCharset() throws Exception {
+        class Config {
+            final String name = "config";
+        }
+
+        final List<String> mapped = Collections.synchronizedList(new ArrayList<String>());
+
+        class ConfigMapper extends ObjectSerializer<Config> {
+            @Override
+            public String map(Config object) {
+                mapped.add(object.name);
+                return "name=\u00e9" + object.name;
+            }
+
+            @Override
+            public Class<? extends Config> getMappedType() {
+                return Config.class;
+            }
+        }
+
+        final Config config = new Config();
+
+        easy.withMapperGroup(new ObjectMapperGroup()
+                .withMappers(new ConfigMapper())
+                .withSerializationCache(1024, Config.class))
+                .on(GET, "/config", new Responder() {
+                    @Override
+                    public void respond(Exchange exchange) throws IOException {
+                        exchange.send(config);
+                    }
+                }).on(GET, "/config-utf16", "text/plain;charset=UTF-16BE", new Responder() {
+                    @Override
+                    public void respond(Exchange exchange) throws IOException {
+                        exchange.send(config);
+                    }
+                }).start();
+
+        // WHEN the same object is requested several times
+        List<ContentResponse> responses = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            responses.add(sendReqAndWait("GET", "http://localhost:8080/config"));
+        }
+
+        // THEN it is only mapped once, and all responses have the same content
+        assertEquals(Collections.singletonList("config"), mapped);
+        for (ContentResponse response : responses) {
+            assertEquals(HttpStatus.OK_200, response.getStatus());
+            assertArrayEquals(responses.get(0).getContent(), response.getContent());
+        }
+
+        // WHEN the object is requested with another charset
+        ContentResponse response = sendReqAndWait("GET", "http://localhost:8080/config-utf16",
+                Collections.singletonMap("Accept", "text/plain"));
+
+        // THEN it is mapped again and encoded with that charset
+        assertEquals(Arrays.asList("config", "config"), mapped);
+        assertArrayEquals("name=\u00e9config\r\n".getBytes("UTF-16BE"), response.getContent());
+    }
+
+    @Test
+    public void asyncRespondersDoNotHoldServerThreadsWhileWaiting() throws Exception {
+        final int requestCount = 50;
+        final BlockingQueue<AsyncResponder.AsyncExchange> waiting = new LinkedBlockingQueue<>();
+
+        easy.onAsync(GET, "/async/:id", new AsyncResponder() {
+            @Override
+            public void respond(AsyncExchange exchange) {
+                waiting.add(exchange);
+            }
+        }).start();
+
+        // WHEN many requests are sent to the async endpoint
+        List<FutureResponseListener> listeners = new ArrayList<>();
+        for (int i = 0; i < requestCount; i++) {
+            FutureResponseListener listener = new FutureResponseListener(client.newRequest(
+                    "http://localhost:8080/async/" + i));
+            listener.getRequest().send(listener);
+            listeners.add(listener);
+        }
+
+        // THEN all requests are in-flight at the same time without holding a server Thread each
+        waitUntil(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return waiting.size() == requestCount;
+            }
+        }, 5000L);
+        QueuedThreadPool threadPool = (QueuedThreadPool) easy.getServer().getThreadPool();
+        assertTrue("Busy threads: " + threadPool.getBusyThreads(), threadPool.getBusyThreads() < requestCount);
+
+        // WHEN the exchanges are completed from another Thread
+        for (AsyncResponder.AsyncExchange exchange : waiting) {
+            exchange.send("Done " + exchange.paramAsInt("id"));
+            exchange.complete();
+            assertTrue(exchange.isDone());
+        }
+
+        // THEN all responses are received
+        for (int i = 0; i < requestCount; i++) {
+            ContentResponse response = listeners.get(i).get(5, TimeUnit.SECONDS);
+            assertEquals(HttpStatus.OK_200, response.getStatus());
+            assertEquals("Done " + i + "\r\n", response.getContentAsString());
+        }
+    }
+
+    @Test
+    public void asyncExchangesCanFailOrTimeOut() throws Exception {
+        final AtomicReference<AsyncResponder.AsyncExchange> timingOut = new AtomicReference<>();
+
+        easy.asyncTimeout(200L).onAsync(GET, "/fail", new AsyncResponder() {
+            @Override
+            public void respond(final AsyncExchange exchange) {
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        exchange.fail(new RuntimeException("downstream failure"));
+                    }
+                }).start();
+            }
+        }).onAsync(GET, "/throw", new AsyncResponder() {
+            @Override
+            public void respond(AsyncExchange exchange) {
+                throw new IllegalStateException("cannot respond");
+            }
+        }).onAsync(GET, "/timeout", new AsyncResponder() {
+            @Override
+            public void respond(AsyncExchange exchange) {
+                timingOut.set(exchange);
+            }
+        }).start();
+
+        // WHEN an exchange fails, or the responder throws an Exception
+        ContentResponse failResponse = sendReqAndWait("GET", "http://localhost:8080/fail");
+        ContentResponse throwResponse = sendReqAndWait("GET", "http://localhost:8080/throw");
+
+        // THEN an internal server error is sent
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR_500, failResponse.getStatus());
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR_500, throwResponse.getStatus());
+
+        // WHEN an exchange is never completed
+        ContentResponse timeoutResponse = sendReqAndWait("GET", "http://localhost:8080/timeout");
+
+        // THEN it times out with a service unavailable error
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE_503, timeoutResponse.getStatus());
+        assertTrue(timingOut.get().isDone());
+
+        // AND completing it afterwards has no effect
+        timingOut.get().complete();
+    }
+
+    @Test
+    public void responseBodiesCanBeStreamedChunkByChunk() throws Exception {
+        final int chunkCount = 1000;
+        final List<Long> chunkThreadIds = Collections.synchronizedList(new ArrayList<Long>());
+
+        easy.on(GET, "/stream", new Responder() {
+            @Override
+            public void respond(Exchange exchange) {
+                exchange.stream(new ChunkProducer() {
+                    int index = 0;
+
+                    @Override
+                    public void onDemand(ResponseStream stream) throws IOException {
+                        chunkThreadIds.add(Thread.currentThread().getId());
+                        if (index < chunkCount) {
+                            stream.write("chunk " + index++ + "\n");
+                        } else {
+                            stream.end();
+                        }
+                    }
+                }, FlushPolicy.bySize(1024));
+            }
+        }).start();
+
+        // WHEN the streamed body is requested
+        ContentResponse response = sendReqAndWait("GET", "http://localhost:8080/stream");
+
+        // THEN all chunks are received in order
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        String[] lines = response.getContentAsString().split("\n");
+        assertEquals(chunkCount, lines.length);
+        for (int i = 0; i < chunkCount; i++) {
+            assertEquals("chunk " + i, lines[i]);
+        }
+        assertEquals(chunkCount + 1, chunkThreadIds.size());
+    }
+
+    @Test
+    public void streamingProducersCanWaitForChunksWithoutHoldingThreads() throws Exception {
+        final BlockingQueue<String> chunks = new LinkedBlockingQueue<>();
+        final AtomicReference<ResponseStream> streamRef = new AtomicReference<>();
+
+        easy.onAsync(GET, "/feed", new AsyncResponder() {
+            @Override
+            public void respond(AsyncExchange exchange) {
+                exchange.stream(new ChunkProducer() {
+                    @Override
+                    public void onDemand(ResponseStream stream) throws IOException {
+                        streamRef.set(stream);
+                        String chunk = chunks.poll();
+                        if ("END".equals(chunk)) {
+                            stream.end();
+                        } else if (chunk != null) {
+                            stream.write(chunk);
+                        }
+                    }
+                }, FlushPolicy.byTime(50L));
+            }
+        }).start();
+
+        // WHEN the feed is requested
+        FutureResponseListener listener = new FutureResponseListener(client.newRequest("http://localhost:8080/feed"));
+        listener.getRequest().send(listener);
+
+        // AND chunks become available over time, after the producer has run out of chunks
+        waitUntil(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return streamRef.get() != null;
+            }
+        }, 2000L);
+        for (String chunk : Arrays.asList("a", "b", "c", "END")) {
+            Thread.sleep(20L);
+            chunks.add(chunk);
+            streamRef.get().resume();
+        }
+
+        // THEN all chunks are received
+        ContentResponse response = listener.get(5, TimeUnit.SECONDS);
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        assertEquals("abc", response.getContentAsString());
+        assertTrue(streamRef.get().isDone());
+    }
+
+    @Test
+    public void requestContentCanBeReceivedWithoutBlocking() throws Exception {
+        final AtomicBoolean responderReturned = new AtomicBoolean(false);
+        final AtomicBoolean receivedAfterResponderReturned = new AtomicBoolean(false);
+        final AtomicReference<String> received = new AtomicReference<>();
+
+        easy.on(POST, "/upload", new Responder() {
+            @Override
+            public void respond(final Exchange exchange) {
+                exchange.receiveAsync(String.class, new ReceiveCallback<String>() {
+                    @Override
+                    public void onReceived(String content) throws IOException {
+                        receivedAfterResponderReturned.set(responderReturned.get());
+                        received.set(content);
+                        exchange.send("Received " + content.length());
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                    }
+                });
+                responderReturned.set(true);
+            }
+        }).onAsync(POST, "/async-upload", new AsyncResponder() {
+            @Override
+            public void respond(final AsyncExchange exchange) {
+                exchange.receiveAsync(String.class, new ReceiveCallback<String>() {
+                    @Override
+                    public void onReceived(String content) throws IOException {
+                        exchange.send(content.length());
+                        exchange.complete();
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        exchange.fail(error);
+                    }
+                });
+            }
+        }).start();
+
+        // WHEN the content of a request is uploaded slowly
+        DeferredContentProvider content = new DeferredContentProvider();
+        FutureResponseListener listener = new FutureResponseListener(client.newRequest("http://localhost:8080/upload")
+                .method("POST").header(HttpHeader.CONTENT_TYPE, "text/plain; charset=UTF-8").content(content));
+        listener.getRequest().send(listener);
+        for (String chunk : Arrays.asList("a", "b\u00e7", "c")) {
+            Thread.sleep(50L);
+            content.offer(ByteBuffer.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+        }
+        content.close();
+
+        // THEN the whole content is received by the callback, after the responder has returned
+        ContentResponse response = listener.get(5, TimeUnit.SECONDS);
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        assertEquals("Received 4", response.getContentAsString().trim());
+        assertEquals("ab\u00e7c", received.get());
+        assertTrue(receivedAfterResponderReturned.get());
+
+        // WHEN content is sent to an async responder
+        response = sendReqAndWait("POST", "http://localhost:8080/async-upload",
+                Collections.<String, String>emptyMap(), "hello=world");
+
+        // THEN it receives the content and completes the exchange
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        assertEquals("11", response.getContentAsString().trim());
+    }
+
+    @Test
+    public void requestContentReceivedWithoutBlockingCannotBeTooLarge() throws Exception {
+        final AtomicReference<Throwable> receiveError = new AtomicReference<>();
+
+        easy.maxFormSize(100).on(POST, "/upload", new Responder() {
+            @Override
+            public void respond(final Exchange exchange) {
+                exchange.receiveAsync(String.class, new ReceiveCallback<String>() {
+                    @Override
+                    public void onReceived(String content) {
+                        fail("Should not receive content that is too large");
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        receiveError.set(error);
+                    }
+                });
+            }
+        }).start();
+
+        // WHEN content larger than the maximum size, and of unknown length, is sent
+        DeferredContentProvider content = new DeferredContentProvider(
+                ByteBuffer.wrap(new byte[60]), ByteBuffer.wrap(new byte[60]));
+        content.close();
+        ContentResponse response = client.newRequest("http://localhost:8080/upload")
+                .method("POST").content(content).send();
+
+        // THEN the content is rejected
+        assertEquals(HttpStatus.REQUEST_ENTITY_TOO_LARGE_413, response.getStatus());
+        assertTrue(receiveError.get() instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void requestContentReceivedWithoutBlockingIsLimitedByDefault() throws Exception {
+        final AtomicReference<Throwable> receiveError = new AtomicReference<>();
+
+        easy.on(POST, "/upload", new Responder() {
+            @Override
+            public void respond(final Exchange exchange) {
+                exchange.receiveAsync(String.class, new ReceiveCallback<String>() {
+                    @Override
+                    public void onReceived(String content) {
+                        exchange.response.setStatus(HttpStatus.OK_200);
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        receiveError.set(error);
+                    }
+                });
+            }
+        }).start();
+
+        // WHEN content of up to 10MB is sent, without configuring the maximum size
+        ContentResponse response = client.newRequest("http://localhost:8080/upload").method("POST")
+                .content(new BytesContentProvider(new byte[10 * 1024 * 1024])).send();
+
+        // THEN it is received
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        assertNull(receiveError.get());
+
+        // WHEN larger content is sent
+        response = client.newRequest("http://localhost:8080/upload").method("POST")
+                .content(new BytesContentProvider(new byte[10 * 1024 * 1024 + 1])).send();
+
+        // THEN the content is rejected
+        assertEquals(HttpStatus.REQUEST_ENTITY_TOO_LARGE_413, response.getStatus());
+        assertTrue(receiveError.get() instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void requestContentReceivedWithoutBlockingIsCompletedIfTheCallbackThrowsAnError() throws Exception {
+        easy.on(POST, "/upload", new Responder() {
+            @Override
+            public void respond(final Exchange exchange) {
+                exchange.receiveAsync(String.class, new ReceiveCallback<String>() {
+                    @Override
+                    public void onReceived(String content) {
+                        throw new AssertionError("Not what I expected: " + content);
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                    }
+                });
+            }
+        }).start();
+
+        // WHEN the callback throws an Error
+        ContentResponse response = client.newRequest("http://localhost:8080/upload").method("POST")
+                .content(new BytesContentProvider("hello".getBytes(StandardCharsets.UTF_8)))
+                .timeout(5, TimeUnit.SECONDS).send();
+
+        // THEN the exchange is still completed
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR_500, response.getStatus());
+    }
+
+    @Test
+    public void requestContentReceivedWithoutBlockingIsNotBufferedByItsClaimedLength() throws Exception {
+        final BlockingQueue<Object> outcomes = new LinkedBlockingQueue<>();
+
+        // even with the largest possible limit, the claimed length is not trusted
+        easy.maxFormSize(Integer.MAX_VALUE).on(POST, "/upload", new Responder() {
+            @Override
+            public void respond(final Exchange exchange) {
+                exchange.receiveAsync(String.class, new ReceiveCallback<String>() {
+                    @Override
+                    public void onReceived(String content) {
+                        outcomes.add(content);
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        outcomes.add(error);
+                    }
+                });
+            }
+        }).start();
+
+        // WHEN a request claims a huge Content-Length, but only sends a few bytes before closing the connection
+        try (Socket socket = new Socket("localhost", 8080)) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /upload HTTP/1.1\r\n" +
+                    "Host: localhost\r\n" +
+                    "Content-Type: text/plain\r\n" +
+                    "Content-Length: " + Integer.MAX_VALUE + "\r\n" +
+                    "\r\n" +
+                    "abc").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            Thread.sleep(200L);
+        }
+
+        // THEN only the bytes actually sent are buffered, so the receiver gets them (or an IOException
+        // for the incomplete content), instead of failing to allocate the claimed length
+        Object outcome = outcomes.poll(5, TimeUnit.SECONDS);
+        assertNotNull(outcome);
+        assertTrue("Unexpected outcome: " + outcome, "abc".equals(outcome) || outcome instanceof IOException);
+    }
+
+    @Test
+    public void handlersCanRunInACustomExecutor() throws Exception {
+        final AtomicReference<String> filterThread = new AtomicReference<>();
+        ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "handler-executor-" + count.incrementAndGet());
+            }
+        });
+
+        try {
+            // GIVEN handlers and filters run by a custom Executor
+            easy.handlerExecutor(executor).filterOn("/thread", new Filter() {
+                @Override
+                public boolean allowFurther(FilterExchange filterExchange) {
+                    filterThread.set(Thread.currentThread().getName());
+                    return true;
+                }
+            }).on(GET, "/thread", new Responder() {
+                @Override
+                public void respond(Exchange exchange) throws IOException {
+                    exchange.send(Thread.currentThread().getName());
+                }
+            }).onAsync(GET, "/async", new AsyncResponder() {
+                @Override
+                public void respond(final AsyncExchange exchange) {
+                    final String handlerThread = Thread.currentThread().getName();
+                    new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                exchange.send(handlerThread);
+                                exchange.complete();
+                            } catch (IOException e) {
+                                exchange.fail(e);
+                            }
+                        }
+                    }).start();
+                }
+            }).on(GET, "/stream", new Responder() {
+                @Override
+                public void respond(Exchange exchange) {
+                    exchange.stream(new ChunkProducer() {
+                        int count = 0;
+
+                        @Override
+                        public void onDemand(ResponseStream stream) throws IOException {
+                            if (count < 3) {
+                                stream.write("chunk" + count++ + ",");
+                            } else {
+                                stream.end();
+                            }
+                        }
+                    });
+                }
+            }).on(POST, "/upload", new Responder() {
+                @Override
+                public void respond(final Exchange exchange) {
+                    exchange.receiveAsync(String.class, new ReceiveCallback<String>() {
+                        @Override
+                        public void onReceived(String content) throws IOException {
+                            exchange.send(content + " " + Thread.currentThread().getName());
+                        }
+
+                        @Override
+                        public void onError(Throwable error) {
+                        }
+                    });
+                }
+            }).on(GET, "/error", new Responder() {
+                @Override
+                public void respond(Exchange exchange) {
+                    throw new RuntimeException("handler error");
+                }
+            }).start();
+
+            // WHEN requests are made to the handlers
+            ContentResponse threadResponse = sendReqAndWait("GET", "http://localhost:8080/thread");
+            ContentResponse asyncResponse = sendReqAndWait("GET", "http://localhost:8080/async");
+            ContentResponse streamResponse = sendReqAndWait("GET", "http://localhost:8080/stream");
+            ContentResponse uploadResponse = sendReqAndWait("POST", "http://localhost:8080/upload",
+                    Collections.<String, String>emptyMap(), "hi=there");
+            ContentResponse errorResponse = sendReqAndWait("GET", "http://localhost:8080/error");
+            ContentResponse notFoundResponse = sendReqAndWait("GET", "http://localhost:8080/nothing");
+
+            // THEN the handlers and filters run in the Executor's Threads
+            assertEquals(HttpStatus.OK_200, threadResponse.getStatus());
+            assertTrue(threadResponse.getContentAsString().startsWith("handler-executor-"));
+            assertTrue(filterThread.get().startsWith("handler-executor-"));
+            assertEquals(HttpStatus.OK_200, asyncResponse.getStatus());
+            assertTrue(asyncResponse.getContentAsString().startsWith("handler-executor-"));
+            assertTrue(uploadResponse.getContentAsString().startsWith("hi=there handler-executor-"));
+
+            // AND exchanges which go asynchronous still complete normally
+            assertEquals(HttpStatus.OK_200, streamResponse.getStatus());
+            assertEquals("chunk0,chunk1,chunk2,", streamResponse.getContentAsString());
+
+            // AND errors are handled as usual
+            assertEquals(HttpStatus.INTERNAL_SERVER_ERROR_500, errorResponse.getStatus());
+            assertEquals(HttpStatus.NOT_FOUND_404, notFoundResponse.getStatus());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void binaryObjectMappingTest() throws Exception {
+        class Point {
+            final int x, y;
+
+            Point(int x, int y) {
+                this.x = x;
+                this.y = y;
+            }
+        }
+
+        class PointMapper implements BinaryObjectMapper<Point> {
+            @Override
+            public void write(Point object, OutputStream out) throws IOException {
+                DataOutputStream data = new DataOutputStream(out);
+                data.writeInt(object.x);
+                data.writeInt(object.y);
+                data.flush();
+            }
+
+            @Override
+            public <S extends Point> S read(InputStream in, Class<S> type) throws IOException {
+                DataInputStream data = new DataInputStream(in);
+                return type.cast(new Point(data.readInt(), data.readInt()));
+            }
+
+            @Override
+            public Class<Point> getMappedType() {
+                return Point.class;
+            }
+
+            @Override
+            public String getContentType() {
+                return "application/x-point";
+            }
+        }
+
+        easy.withMapperGroup(new ObjectMapperGroup().withBinaryMappers(new PointMapper()))
+                .on(POST, "/swap", "application/x-point", new Responder() {
+                    @Override
+                    public void respond(Exchange exchange) throws IOException {
+                        Point point = exchange.receiveAs(Point.class);
+                        exchange.send(new Point(point.y, point.x));
+                    }
+                })
+                .on(GET, "/origin", new Responder() {
+                    @Override
+                    public void respond(Exchange exchange) throws IOException {
+                        exchange.send(new Point(0, 0));
+                    }
+                }).start();
+
+        // WHEN a binary Point is posted to an endpoint which produces the Point content-type
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new PointMapper().write(new Point(3, -7), bytes);
+        ContentResponse response = client.newRequest("http://localhost:8080/swap")
+                .method("POST")
+                .header(HttpHeader.ACCEPT, "application/x-point")
+                .content(new BytesContentProvider("application/x-point", bytes.toByteArray()))
+                .send();
+
+        // THEN the Point is read and sent back as raw bytes
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        assertEquals("application/x-point", response.getMediaType());
+        assertArrayEquals(new byte[]{-1, -1, -1, -7, 0, 0, 0, 3}, response.getContent());
+
+        // WHEN a Point is requested from an endpoint which accepts everything
+        response = sendReqAndWait("GET", "http://localhost:8080/origin");
+
+        // THEN the binary mapper is used, as no text mapper exists for Point
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        assertEquals("application/x-point", response.getMediaType());
+        assertArrayEquals(new byte[8], response.getContent());
+    }
+
     @Test
     public void canReceiveFormAsMap() throws Exception {
         easy.on(POST, "/my-form", "application/x-www-form-urlencoded", new Responder() {
@@ -407,6 +1258,147 @@ public class EasyJettyHandlersTest extends EasyJettyTest {
                 exchange1.getContentAsString().trim());
     }
 
+    @Test
+    public void canReceiveFormWithRepeatedKeysAsMultiMap() throws Exception {
+        easy.maxFormKeys(2).on(POST, "/my-form", "application/x-www-form-urlencoded", new Responder() {
+            @Override
+            public void respond(Exchange exchange) throws IOException {
+                MultiMap body = exchange.receiveAs(MultiMap.class);
+                exchange.send(body.getValues("color"));
+            }
+        }).start();
+
+        // WHEN a form with a repeated key is POSTed to the server
+        ContentResponse exchange1 = sendReqAndWait("POST", "http://localhost:8080/my-form",
+                Maps.map(HttpHeader.CONTENT_TYPE.asString(), "application/x-www-form-urlencoded"),
+                "color=red&size=L&color=light+blue");
+
+        // THEN all values of the key are received
+        assertEquals(HttpStatus.OK_200, exchange1.getStatus());
+        assertEquals("[red, light blue]", exchange1.getContentAsString().trim());
+
+        // WHEN a form with more keys than allowed is POSTed to the server
+        ContentResponse exchange2 = sendReqAndWait("POST", "http://localhost:8080/my-form",
+                Maps.map(HttpHeader.CONTENT_TYPE.asString(), "application/x-www-form-urlencoded"),
+                "color=red&size=L&shape=round");
+
+        // THEN the form is rejected
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR_500, exchange2.getStatus());
+    }
+
+    @Test
+    public void multipartRequestsAreLimitedInSizeByDefault() throws Exception {
+        // with the default config, parts are written to the system's temporary directory
+        final File tempDir = new File(System.getProperty("java.io.tmpdir"));
+        final List<String> tempFilesBefore = multipartTempFiles(tempDir);
+        final AtomicBoolean received = new AtomicBoolean(false);
+
+        easy.on(POST, "/upload", new Responder() {
+            @Override
+            public void respond(Exchange exchange) throws IOException {
+                for (Part part : exchange.receiveParts()) {
+                    part.getSize();
+                }
+                received.set(true);
+                exchange.send("received");
+            }
+        }).start();
+
+        // WHEN a part larger than 10MB is POSTed
+        ContentResponse response = sendMultipart("http://localhost:8080/upload", "Mary",
+                new byte[10 * 1024 * 1024 + 1]);
+
+        // THEN the request is rejected
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR_500, response.getStatus());
+        assertFalse(received.get());
+
+        // AND the part written to a temporary file so far has been deleted
+        assertEquals(tempFilesBefore, multipartTempFiles(tempDir));
+    }
+
+    private static List<String> multipartTempFiles(File dir) {
+        List<String> result = new ArrayList<>();
+        String[] names = dir.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.startsWith("MultiPart")) {
+                    result.add(name);
+                }
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    @Test
+    public void canReceiveMultipartUploadsSpillingLargePartsToDisk() throws Exception {
+        final File tempDir = Files.createTempDirectory("easy-jetty-multipart").toFile();
+        final AtomicReference<String> tempFilesWhileHandling = new AtomicReference<>();
+
+        easy.multipartConfig(new MultipartConfigElement(tempDir.getAbsolutePath(), 100_000, 200_000, 1024))
+                .on(POST, "/upload", new Responder() {
+                    @Override
+                    public void respond(Exchange exchange) throws IOException {
+                        List<String> summaries = new ArrayList<>();
+                        for (Part part : exchange.receiveParts()) {
+                            long sum = 0;
+                            try (InputStream in = part.getInputStream()) {
+                                int b;
+                                while ((b = in.read()) >= 0) {
+                                    sum += b;
+                                }
+                            }
+                            summaries.add(part.getName() + ":" + part.getSize() + ":" + sum);
+                        }
+                        tempFilesWhileHandling.set(Arrays.toString(tempDir.list()));
+                        Collections.sort(summaries);
+                        exchange.send(summaries);
+                    }
+                }).start();
+
+        // WHEN a multipart request with a small and a large part is POSTed
+        byte[] data = new byte[50_000];
+        long dataSum = 0;
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 100);
+            dataSum += i % 100;
+        }
+        ContentResponse response = sendMultipart("http://localhost:8080/upload", "Mary", data);
+
+        // THEN all parts are received as streams
+        assertEquals(HttpStatus.OK_200, response.getStatus());
+        assertEquals("[data:50000:" + dataSum + ", name:4:" + (77 + 97 + 114 + 121) + "]",
+                response.getContentAsString().trim());
+
+        // AND only the large part was written to a temporary file, which has been deleted since
+        assertEquals(1, tempFilesWhileHandling.get().split(",").length);
+        assertEquals(0, tempDir.list().length);
+
+        // WHEN a part larger than the maximum part size is POSTed
+        response = sendMultipart("http://localhost:8080/upload", "Mary", new byte[100_001]);
+
+        // THEN the request is rejected
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR_500, response.getStatus());
+        assertEquals(0, tempDir.list().length);
+        assertTrue(tempDir.delete());
+    }
+
+    private ContentResponse sendMultipart(String url, String name, byte[] data) throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("--BOUNDARY\r\n" +
+                "Content-Disposition: form-data; name=\"name\"\r\n\r\n" +
+                name + "\r\n" +
+                "--BOUNDARY\r\n" +
+                "Content-Disposition: form-data; name=\"data\"; filename=\"data.bin\"\r\n" +
+                "Content-Type: application/octet-stream\r\n\r\n").getBytes("US-ASCII"));
+        body.write(data);
+        body.write("\r\n--BOUNDARY--\r\n".getBytes("US-ASCII"));
+        return client.newRequest(url)
+                .method("POST")
+                .content(new BytesContentProvider("multipart/form-data; boundary=BOUNDARY", body.toByteArray()))
+                .send();
+    }
+
     @Test
     public void primitiveMapperTest() throws Exception {
         easy.on(POST, "/integer", new Responder() {
@@ -548,4 +1540,100 @@ public class EasyJettyHandlersTest extends EasyJettyTest {
         assertEquals(HttpStatus.OK_200, getEx.getStatus());
     }
 
+    @Test
+    public void batchRouteChanges() throws Exception {
+        // GIVEN a GET handler for the resource "old"
+        easy.on(GET, "/old", new Responder() {
+            @Override
+            public void respond(Exchange exchange) throws IOException {
+                exchange.out.println("old");
+            }
+        }).start();
+
+        // WHEN many route changes are applied in a batch
+        easy.batch(new Runnable() {
+            @Override
+            public void run() {
+                easy.remove(GET, "/old");
+                for (int i = 0; i < 1000; i++) {
+                    final int index = i;
+                    easy.on(GET, "/new/" + i, new Responder() {
+                        @Override
+                        public void respond(Exchange exchange) throws IOException {
+                            exchange.out.println("new " + index);
+                        }
+                    });
+                }
+            }
+        });
+
+        // THEN all changes are visible after the batch completes
+        assertEquals(HttpStatus.NOT_FOUND_404, sendReqAndWait("GET", "http://localhost:8080/old").getStatus());
+        for (int i : new int[]{0, 1, 500, 999}) {
+            ContentResponse response = sendReqAndWait("GET", "http://localhost:8080/new/" + i);
+            assertEquals(HttpStatus.OK_200, response.getStatus());
+            assertEquals("new " + i, response.getContentAsString().trim());
+        }
+    }
+
+    @Test
+    public void routesCanBeAddedConcurrentlyWhileServingRequests() throws Exception {
+        easy.on(GET, "/busy", new Responder() {
+            @Override
+            public void respond(Exchange exchange) throws IOException {
+                exchange.out.println("busy");
+            }
+        }).start();
+
+        // WHEN several Threads add routes at the same time
+        final int threadCount = 4;
+        final int routesPerThread = 100;
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            final int threadIndex = t;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        for (int i = 0; i < routesPerThread; i++) {
+                            final String name = threadIndex + "-" + i;
+                            easy.on(GET, "/concurrent/" + threadIndex + "/" + i, new Responder() {
+                                @Override
+                                public void respond(Exchange exchange) throws IOException {
+                                    exchange.out.println(name);
+                                }
+                            });
+                        }
+                    } catch (Throwable e) {
+                        error.set(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        startLatch.countDown();
+
+        // AND requests keep being served in the meantime
+        while (threads.get(0).isAlive()) {
+            assertEquals(HttpStatus.OK_200, sendReqAndWait("GET", "http://localhost:8080/busy").getStatus());
+        }
+        for (Thread thread : threads) {
+            thread.join(5_000L);
+        }
+
+        // THEN no route is lost
+        assertNull(error.get());
+        for (int t = 0; t < threadCount; t++) {
+            for (int i = 0; i < routesPerThread; i += 33) {
+                ContentResponse response = sendReqAndWait("GET", "http://localhost:8080/concurrent/" + t + "/" + i);
+                assertEquals(HttpStatus.OK_200, response.getStatus());
+                assertEquals(t + "-" + i, response.getContentAsString().trim());
+            }
+        }
+    }
+
 }
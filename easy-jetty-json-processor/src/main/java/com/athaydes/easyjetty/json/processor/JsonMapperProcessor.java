@@ -0,0 +1,253 @@
+package com.athaydes.easyjetty.json.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Annotation processor which generates a JsonMapper for each class annotated with
+ * {@link com.athaydes.easyjetty.json.JsonMapped}, and an <code>EasyJettyMappers</code> registry
+ * for each package containing annotated classes.
+ * <p/>
+ * The registries are generated in the round following the one in which the last annotated classes are found.
+ */
+@SupportedAnnotationTypes(JsonMapperProcessor.JSON_MAPPED)
+public class JsonMapperProcessor extends AbstractProcessor {
+
+    static final String JSON_MAPPED = "com.athaydes.easyjetty.json.JsonMapped";
+    static final String REGISTRY_NAME = "EasyJettyMappers";
+
+    // names of the generated mappers by package, until the registries are written
+    private final Map<String, List<String>> mappersByPackage = new TreeMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(JSON_MAPPED);
+        boolean foundAnnotatedClasses = false;
+        if (annotation != null) {
+            for (TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+                foundAnnotatedClasses = true;
+                generateMapper(type);
+            }
+        }
+        if (!foundAnnotatedClasses && !mappersByPackage.isEmpty()) {
+            for (Map.Entry<String, List<String>> entry : mappersByPackage.entrySet()) {
+                write(qualifiedName(entry.getKey(), REGISTRY_NAME),
+                        JsonMapperSource.registry(entry.getKey(), entry.getValue()), null);
+            }
+            mappersByPackage.clear();
+        }
+        return true;
+    }
+
+    private void generateMapper(TypeElement type) {
+        if (!isValid(type)) {
+            return;
+        }
+        List<JsonMapperSource.Property> properties = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        DeclaredType declaredType = (DeclaredType) type.asType();
+        for (TypeElement current = type; current != null; current = superClassOf(current)) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT) ||
+                        !names.add(field.getSimpleName().toString())) {
+                    continue;
+                }
+                if (modifiers.contains(Modifier.FINAL)) {
+                    error("Field " + field.getSimpleName() + " of " + current.getQualifiedName() +
+                            " cannot be mapped as it is final", field);
+                    return;
+                }
+                if (!isAccessible(field, current, type)) {
+                    error("Field " + field.getSimpleName() + " of " + current.getQualifiedName() +
+                            " cannot be mapped as it is not accessible from " + type.getQualifiedName(), field);
+                    return;
+                }
+                TypeMirror fieldType = processingEnv.getTypeUtils().asMemberOf(declaredType, field);
+                properties.add(new JsonMapperSource.Property(field.getSimpleName().toString(),
+                        fieldType, kindOf(fieldType), mapperOf(fieldType)));
+            }
+        }
+
+        String packageName = packageOf(type);
+        String mapperName = mapperName(type);
+        write(qualifiedName(packageName, mapperName),
+                JsonMapperSource.mapper(packageName, mapperName, type.getQualifiedName().toString(), properties),
+                type);
+
+        List<String> mappers = mappersByPackage.get(packageName);
+        if (mappers == null) {
+            mappers = new ArrayList<>();
+            mappersByPackage.put(packageName, mappers);
+        }
+        mappers.add(mapperName);
+    }
+
+    private boolean isValid(TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS) {
+            error("@JsonMapped can only be used on classes", type);
+            return false;
+        }
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            error("@JsonMapped class must not be abstract", type);
+            return false;
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            error("@JsonMapped class must not be generic", type);
+            return false;
+        }
+        for (Element current = type; current instanceof TypeElement; current = current.getEnclosingElement()) {
+            TypeElement currentType = (TypeElement) current;
+            if (currentType.getModifiers().contains(Modifier.PRIVATE)) {
+                error("@JsonMapped class must not be private", type);
+                return false;
+            }
+            if (currentType.getNestingKind() == NestingKind.MEMBER &&
+                    !currentType.getModifiers().contains(Modifier.STATIC)) {
+                error("@JsonMapped class must not be an inner class", type);
+                return false;
+            }
+            if (currentType.getNestingKind() == NestingKind.LOCAL || currentType.getNestingKind() == NestingKind.ANONYMOUS) {
+                error("@JsonMapped class must not be a local class", type);
+                return false;
+            }
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        error("@JsonMapped class must have a non-private no-args constructor", type);
+        return false;
+    }
+
+    private boolean isAccessible(VariableElement field, TypeElement declaringType, TypeElement mappedType) {
+        Set<Modifier> modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        return modifiers.contains(Modifier.PUBLIC) || packageOf(declaringType).equals(packageOf(mappedType));
+    }
+
+    private JsonMapperSource.Kind kindOf(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return JsonMapperSource.Kind.BOOLEAN;
+            case INT:
+                return JsonMapperSource.Kind.INT;
+            case LONG:
+                return JsonMapperSource.Kind.LONG;
+            case DOUBLE:
+                return JsonMapperSource.Kind.DOUBLE;
+            case FLOAT:
+                return JsonMapperSource.Kind.FLOAT;
+            case SHORT:
+            case BYTE:
+            case CHAR:
+                return JsonMapperSource.Kind.OTHER_PRIMITIVE;
+            case DECLARED:
+                if (type.toString().equals(String.class.getName())) {
+                    return JsonMapperSource.Kind.STRING;
+                }
+                return mapperOf(type) != null ?
+                        JsonMapperSource.Kind.MAPPED :
+                        JsonMapperSource.Kind.OTHER;
+            default:
+                return JsonMapperSource.Kind.OTHER;
+        }
+    }
+
+    /**
+     * @return the qualified name of the mapper generated for the type, or null if none is generated for it.
+     */
+    private String mapperOf(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(JSON_MAPPED)) {
+                return qualifiedName(packageOf(element), mapperName(element));
+            }
+        }
+        return null;
+    }
+
+    private TypeElement superClassOf(TypeElement type) {
+        TypeMirror superClass = type.getSuperclass();
+        if (superClass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) superClass).asElement();
+        return element.getQualifiedName().contentEquals(Object.class.getName()) ? null : element;
+    }
+
+    private String packageOf(TypeElement type) {
+        return processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+    }
+
+    /**
+     * @return the simple name of the mapper generated for the type, which includes the names of any
+     * enclosing classes separated by '_'.
+     */
+    private static String mapperName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element current = type.getEnclosingElement(); current instanceof TypeElement;
+             current = current.getEnclosingElement()) {
+            name.insert(0, '_').insert(0, current.getSimpleName());
+        }
+        return name.append("JsonMapper").toString();
+    }
+
+    private static String qualifiedName(String packageName, String simpleName) {
+        return packageName.isEmpty() ? simpleName : packageName + '.' + simpleName;
+    }
+
+    private void write(String qualifiedName, String source, Element originatingElement) {
+        try {
+            JavaFileObject file = originatingElement == null ?
+                    processingEnv.getFiler().createSourceFile(qualifiedName) :
+                    processingEnv.getFiler().createSourceFile(qualifiedName, originatingElement);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source);
+            }
+        } catch (IOException e) {
+            error("Unable to write " + qualifiedName + ": " + e, originatingElement);
+        }
+    }
+
+    private void error(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+}
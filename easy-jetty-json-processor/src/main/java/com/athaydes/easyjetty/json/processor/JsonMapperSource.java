@@ -0,0 +1,280 @@
+package com.athaydes.easyjetty.json.processor;
+
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import java.util.List;
+
+/**
+ * Source code of the classes generated by the {@link JsonMapperProcessor}.
+ * <p/>
+ * The generated mappers read and write each field of the mapped class directly, choosing the
+ * JsonWriter/JsonReader methods to use at compile time. Only fields whose types are not known by the
+ * generator (eg. Collections, Maps, enums) are mapped by the general-purpose JsonWriter/JsonReader methods.
+ */
+final class JsonMapperSource {
+
+    enum Kind {
+        BOOLEAN, INT, LONG, DOUBLE, FLOAT, OTHER_PRIMITIVE, STRING, MAPPED, OTHER
+    }
+
+    static final class Property {
+        final String name;
+        final TypeMirror type;
+        final Kind kind;
+
+        // qualified name of the generated mapper for the type of the property, if any
+        final String mapper;
+
+        Property(String name, TypeMirror type, Kind kind, String mapper) {
+            this.name = name;
+            this.type = type;
+            this.kind = kind;
+            this.mapper = mapper;
+        }
+    }
+
+    private JsonMapperSource() {
+    }
+
+    static String mapper(String packageName, String mapperName, String typeName, List<Property> properties) {
+        StringBuilder source = new StringBuilder();
+        header(source, packageName);
+        source.append("import com.athaydes.easyjetty.json.JsonMapper;\n")
+                .append("import com.athaydes.easyjetty.json.JsonReader;\n")
+                .append("import com.athaydes.easyjetty.json.JsonWriter;\n\n")
+                .append("import java.io.IOException;\n")
+                .append("import java.lang.reflect.Type;\n\n")
+                .append("/**\n")
+                .append(" * JsonMapper for {@link ").append(typeName).append("}.\n")
+                .append(" * <p/>\n")
+                .append(" * Generated by ").append(JsonMapperProcessor.class.getName()).append(".\n")
+                .append(" */\n")
+                .append("@SuppressWarnings(\"unchecked\")\n")
+                .append("public final class ").append(mapperName)
+                .append(" extends JsonMapper<").append(typeName).append("> {\n\n");
+
+        boolean hasTypeConstants = false;
+        for (Property property : properties) {
+            if (property.kind == Kind.OTHER && !isReifiable(property.type)) {
+                source.append("    private static final Type ").append(typeConstant(property))
+                        .append(" = fieldType(").append(typeName).append(".class, ")
+                        .append(javaString(property.name)).append(");\n");
+                hasTypeConstants = true;
+            }
+        }
+        if (hasTypeConstants) {
+            source.append('\n');
+        }
+
+        source.append("    public ").append(mapperName).append("() {\n")
+                .append("        super(").append(typeName).append(".class);\n")
+                .append("    }\n\n");
+
+        writeObject(source, typeName, properties);
+        readObject(source, typeName, properties);
+
+        source.append("    @Override\n")
+                .append("    protected void write(").append(typeName)
+                .append(" object, JsonWriter writer) throws IOException {\n")
+                .append("        writeObject(object, writer);\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    protected <S extends ").append(typeName)
+                .append("> S read(JsonReader reader, Class<S> type) throws IOException {\n")
+                .append("        return type.cast(readObject(reader));\n")
+                .append("    }\n\n")
+                .append("}\n");
+        return source.toString();
+    }
+
+    static String registry(String packageName, List<String> mapperNames) {
+        StringBuilder source = new StringBuilder();
+        header(source, packageName);
+        source.append("import com.athaydes.easyjetty.json.JsonMapper;\n")
+                .append("import com.athaydes.easyjetty.mapper.ObjectMapperGroup;\n\n")
+                .append("/**\n")
+                .append(" * The JsonMappers generated for the classes of this package annotated with\n")
+                .append(" * {@link com.athaydes.easyjetty.json.JsonMapped}.\n")
+                .append(" * <p/>\n")
+                .append(" * Generated by ").append(JsonMapperProcessor.class.getName()).append(".\n")
+                .append(" */\n")
+                .append("public final class ").append(JsonMapperProcessor.REGISTRY_NAME).append(" {\n\n")
+                .append("    private ").append(JsonMapperProcessor.REGISTRY_NAME).append("() {\n")
+                .append("    }\n\n")
+                .append("    /**\n")
+                .append("     * @return new instances of all generated JsonMappers\n")
+                .append("     */\n")
+                .append("    public static JsonMapper<?>[] all() {\n")
+                .append("        return new JsonMapper<?>[]{\n");
+        for (int i = 0; i < mapperNames.size(); i++) {
+            source.append("                new ").append(mapperNames.get(i)).append("()")
+                    .append(i + 1 < mapperNames.size() ? ",\n" : "\n");
+        }
+        source.append("        };\n")
+                .append("    }\n\n")
+                .append("    /**\n")
+                .append("     * Registers all generated JsonMappers with the mapperGroup.\n")
+                .append("     *\n")
+                .append("     * @param mapperGroup to register the mappers with\n")
+                .append("     * @return the mapperGroup\n")
+                .append("     * @see JsonMapper#register(ObjectMapperGroup, JsonMapper[])\n")
+                .append("     */\n")
+                .append("    public static ObjectMapperGroup registerWith(ObjectMapperGroup mapperGroup) {\n")
+                .append("        return JsonMapper.register(mapperGroup, all());\n")
+                .append("    }\n\n")
+                .append("}\n");
+        return source.toString();
+    }
+
+    private static void header(StringBuilder source, String packageName) {
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+    }
+
+    private static void writeObject(StringBuilder source, String typeName, List<Property> properties) {
+        source.append("    public static void writeObject(").append(typeName)
+                .append(" object, JsonWriter writer) throws IOException {\n")
+                .append("        if (object == null) {\n")
+                .append("            writer.writeRaw(\"null\");\n")
+                .append("            return;\n")
+                .append("        }\n")
+                .append("        writer.beginObject();\n");
+        String separator = "";
+        for (Property property : properties) {
+            // property names are Java identifiers, so they never need to be escaped in JSON
+            source.append("        writer.writeRaw(")
+                    .append(javaString(separator + '"' + property.name + "\":")).append(");\n")
+                    .append("        ");
+            String value = "object." + property.name;
+            switch (property.kind) {
+                case BOOLEAN:
+                    source.append("writer.writeBoolean(").append(value).append(");\n");
+                    break;
+                case INT:
+                case LONG:
+                case DOUBLE:
+                case FLOAT:
+                    source.append("writer.writeNumber(").append(value).append(");\n");
+                    break;
+                case STRING:
+                    source.append("writer.writeString(").append(value).append(");\n");
+                    break;
+                case MAPPED:
+                    source.append(property.mapper).append(".writeObject(").append(value).append(", writer);\n");
+                    break;
+                default:
+                    source.append("writer.writeValue(").append(value).append(");\n");
+            }
+            separator = ",";
+        }
+        source.append("        writer.endObject();\n")
+                .append("    }\n\n");
+    }
+
+    private static void readObject(StringBuilder source, String typeName, List<Property> properties) {
+        source.append("    public static ").append(typeName)
+                .append(" readObject(JsonReader reader) throws IOException {\n")
+                .append("        if (reader.readNull()) {\n")
+                .append("            return null;\n")
+                .append("        }\n")
+                .append("        ").append(typeName).append(" object = new ").append(typeName).append("();\n")
+                .append("        reader.beginObject();\n")
+                .append("        for (boolean first = true; reader.hasNextEntry(first); first = false) {\n")
+                .append("            switch (reader.readKey()) {\n");
+        for (Property property : properties) {
+            source.append("                case ").append(javaString(property.name)).append(":\n");
+            String target = "object." + property.name + " = ";
+            boolean primitive = property.type.getKind().isPrimitive();
+            String indent = "                    ";
+            if (primitive) {
+                // null values are ignored for primitive fields
+                source.append(indent).append("if (!reader.readNull()) {\n");
+                indent += "    ";
+            }
+            source.append(indent).append(target);
+            switch (property.kind) {
+                case BOOLEAN:
+                    source.append("reader.readBoolean();\n");
+                    break;
+                case INT:
+                    source.append("reader.readInt();\n");
+                    break;
+                case LONG:
+                    source.append("reader.readLong();\n");
+                    break;
+                case DOUBLE:
+                    source.append("reader.readDouble();\n");
+                    break;
+                case FLOAT:
+                    source.append("(float) reader.readDouble();\n");
+                    break;
+                case OTHER_PRIMITIVE:
+                    source.append('(').append(property.type).append(") reader.readValue(")
+                            .append(property.type).append(".class);\n");
+                    break;
+                case STRING:
+                    source.append("reader.readString();\n");
+                    break;
+                case MAPPED:
+                    source.append(property.mapper).append(".readObject(reader);\n");
+                    break;
+                default:
+                    source.append('(').append(property.type).append(") reader.readValue(")
+                            .append(isReifiable(property.type) ?
+                                    property.type + ".class" :
+                                    typeConstant(property))
+                            .append(");\n");
+            }
+            if (primitive) {
+                source.append("                    }\n");
+            }
+            source.append("                    break;\n");
+        }
+        source.append("                default:\n")
+                .append("                    reader.skipValue();\n")
+                .append("            }\n")
+                .append("        }\n")
+                .append("        return object;\n")
+                .append("    }\n\n");
+    }
+
+    /**
+     * @return true if a class literal can fully describe the type.
+     */
+    private static boolean isReifiable(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return true;
+        } else if (type.getKind() == TypeKind.ARRAY) {
+            return isReifiable(((ArrayType) type).getComponentType());
+        } else if (type.getKind() == TypeKind.DECLARED) {
+            DeclaredType declaredType = (DeclaredType) type;
+            return declaredType.getTypeArguments().isEmpty() &&
+                    (declaredType.getEnclosingType().getKind() == TypeKind.NONE ||
+                            isReifiable(declaredType.getEnclosingType()));
+        }
+        return false;
+    }
+
+    private static String typeConstant(Property property) {
+        return "TYPE_" + property.name;
+    }
+
+    private static String javaString(String value) {
+        StringBuilder result = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7E) {
+                result.append(String.format("\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.append('"').toString();
+    }
+
+}
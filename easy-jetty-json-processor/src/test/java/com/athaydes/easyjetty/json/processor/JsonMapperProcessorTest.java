@@ -0,0 +1,210 @@
+package com.athaydes.easyjetty.json.processor;
+
+import com.athaydes.easyjetty.json.JsonMapped;
+import com.athaydes.easyjetty.json.JsonMapper;
+import com.athaydes.easyjetty.mapper.BinaryObjectMapper;
+import com.athaydes.easyjetty.mapper.ObjectMapperGroup;
+import org.junit.Test;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class JsonMapperProcessorTest {
+
+    enum Color {RED, GREEN}
+
+    @JsonMapped
+    static class Address {
+        String street;
+        public int number;
+    }
+
+    static class Base {
+        long id;
+    }
+
+    @JsonMapped
+    static class Person extends Base {
+        String name;
+        int age;
+        boolean active;
+        double score;
+        float ratio;
+        short level;
+        char initial;
+        Integer count;
+        Color color;
+        Address address;
+        List<Address> previousAddresses;
+        Map<String, List<Integer>> scores;
+        String[] tags;
+        transient String ignored;
+        static String alsoIgnored;
+    }
+
+    @JsonMapped
+    static class Empty {
+    }
+
+    private static Person person() {
+        Person person = new Person();
+        person.id = 7L;
+        person.name = "Joe \"Jr\" \u00e9";
+        person.age = 30;
+        person.active = true;
+        person.score = 2.5;
+        person.ratio = 0.1f;
+        person.level = 3;
+        person.initial = 'J';
+        person.count = null;
+        person.color = Color.GREEN;
+        person.address = address("Main St", 1);
+        person.previousAddresses = Arrays.asList(address("Old St", 2), address("Older St", 3));
+        person.scores = new LinkedHashMap<>();
+        person.scores.put("math", Arrays.asList(9, 10));
+        person.tags = new String[]{"a", "b"};
+        person.ignored = "ignored";
+        return person;
+    }
+
+    private static Address address(String street, int number) {
+        Address address = new Address();
+        address.street = street;
+        address.number = number;
+        return address;
+    }
+
+    @Test
+    public void generatedMapperWritesTheSameJsonAsTheReflectiveMapper() {
+        String expected = new JsonMapper<>(Person.class).map(person());
+
+        assertEquals(expected, new JsonMapperProcessorTest_PersonJsonMapper().map(person()));
+        assertEquals("{}", new JsonMapperProcessorTest_EmptyJsonMapper().map(new Empty()));
+    }
+
+    @Test
+    public void generatedMapperCanReadJson() {
+        String json = new JsonMapper<>(Person.class).map(person());
+
+        Person person = new JsonMapperProcessorTest_PersonJsonMapper().unmap(
+                json.replaceFirst("\\{", "{\"unknown\":{\"a\":[1]}, "));
+
+        assertEquals(7L, person.id);
+        assertEquals("Joe \"Jr\" \u00e9", person.name);
+        assertEquals(30, person.age);
+        assertTrue(person.active);
+        assertEquals(2.5, person.score, 0.0);
+        assertEquals(0.1f, person.ratio, 0.0f);
+        assertEquals(3, person.level);
+        assertEquals('J', person.initial);
+        assertNull(person.count);
+        assertEquals(Color.GREEN, person.color);
+        assertEquals("Main St", person.address.street);
+        assertEquals(1, person.address.number);
+        assertEquals(2, person.previousAddresses.size());
+        assertEquals("Older St", person.previousAddresses.get(1).street);
+        assertEquals(Collections.singletonMap("math", Arrays.asList(9, 10)), person.scores);
+        assertArrayEquals(new String[]{"a", "b"}, person.tags);
+        assertNull(person.ignored);
+    }
+
+    @Test
+    public void nullValuesAreIgnoredForPrimitiveFields() {
+        Person person = new JsonMapperProcessorTest_PersonJsonMapper().unmap(
+                "{\"age\":null,\"name\":null,\"address\":null}");
+        assertEquals(0, person.age);
+        assertNull(person.name);
+        assertNull(person.address);
+    }
+
+    @Test
+    public void generatedMapperWritesUtf8Bytes() throws IOException {
+        JsonMapperProcessorTest_PersonJsonMapper mapper = new JsonMapperProcessorTest_PersonJsonMapper();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        mapper.write(person(), out);
+
+        assertArrayEquals(mapper.map(person()).getBytes(StandardCharsets.UTF_8), out.toByteArray());
+        assertEquals("Joe \"Jr\" \u00e9",
+                mapper.read(new ByteArrayInputStream(out.toByteArray()), Person.class).name);
+    }
+
+    @Test
+    public void registryRegistersAllGeneratedMappers() {
+        Set<Class<?>> mapperTypes = new HashSet<>();
+        for (JsonMapper<?> mapper : EasyJettyMappers.all()) {
+            mapperTypes.add(mapper.getClass());
+        }
+        assertEquals(new HashSet<>(Arrays.<Class<?>>asList(JsonMapperProcessorTest_AddressJsonMapper.class,
+                JsonMapperProcessorTest_PersonJsonMapper.class,
+                JsonMapperProcessorTest_EmptyJsonMapper.class)), mapperTypes);
+
+        ObjectMapperGroup mapperGroup = EasyJettyMappers.registerWith(new ObjectMapperGroup());
+        BinaryObjectMapper<?> binaryMapper = mapperGroup.findBinaryMapper("application/json", Person.class);
+        assertTrue(binaryMapper instanceof JsonMapperProcessorTest_PersonJsonMapper);
+        assertEquals("{\"street\":\"A\",\"number\":1}", mapperGroup.map(address("A", 1), "application/json"));
+    }
+
+    @Test
+    public void invalidClassesAreReportedAsErrors() throws IOException {
+        assertCompilationError("@JsonMapped class must have a non-private no-args constructor",
+                "@com.athaydes.easyjetty.json.JsonMapped class A { A(int x) {} }");
+        assertCompilationError("cannot be mapped as it is not accessible",
+                "@com.athaydes.easyjetty.json.JsonMapped class A { private int x; }");
+        assertCompilationError("cannot be mapped as it is final",
+                "@com.athaydes.easyjetty.json.JsonMapped class A { final int x = 1; }");
+        assertCompilationError("@JsonMapped class must not be abstract",
+                "@com.athaydes.easyjetty.json.JsonMapped abstract class A { }");
+        assertCompilationError("@JsonMapped class must not be an inner class",
+                "class A { @com.athaydes.easyjetty.json.JsonMapped class B { } }");
+    }
+
+    private static void assertCompilationError(String expectedError, final String source) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        File outputDir = Files.createTempDirectory("json-mapper-processor").toFile();
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///A.java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics,
+                Arrays.asList("-d", outputDir.getAbsolutePath(), "-proc:only",
+                        "-classpath", System.getProperty("java.class.path")),
+                null, Collections.singletonList(file));
+        task.setProcessors(Collections.singletonList(new JsonMapperProcessor()));
+
+        assertFalse(task.call());
+        List<String> errors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                errors.add(diagnostic.getMessage(null));
+            }
+        }
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0), errors.get(0).contains(expectedError));
+    }
+
+}
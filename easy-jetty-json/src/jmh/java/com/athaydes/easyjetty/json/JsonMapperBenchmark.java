@@ -0,0 +1,105 @@
+package com.athaydes.easyjetty.json;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways a JsonMapper can write an Object into the bytes of a response:
+ * <ul>
+ * <li>mapping it to a String, which is then encoded (what non-streaming ObjectMappers do)</li>
+ * <li>writing it into a Writer which encodes the characters (the StreamingObjectMapper path)</li>
+ * <li>encoding it directly into bytes (the BinaryObjectMapper path)</li>
+ * </ul>
+ * Run with <code>gradle jmh</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonMapperBenchmark {
+
+    static class Item {
+        String name;
+        int quantity;
+        double price;
+        boolean available;
+    }
+
+    static class Order {
+        long id;
+        String customer;
+        String notes;
+        List<Item> items;
+        Map<String, String> attributes;
+    }
+
+    private final JsonMapper<Order> mapper = new JsonMapper<>(Order.class);
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+    private Writer writer;
+    private Order order;
+
+    @Setup
+    public void setup() {
+        writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        order = new Order();
+        order.id = 1234567890L;
+        order.customer = "Mary \"Jane\" Smith";
+        order.notes = "Deliver after 6pm, ring the bell twice \u2013 gracias \u00e1 todos";
+        order.items = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Item item = new Item();
+            item.name = "Item number " + i;
+            item.quantity = i + 1;
+            item.price = 9.99 * (i + 1);
+            item.available = i % 3 != 0;
+            order.items.add(item);
+        }
+        order.attributes = new LinkedHashMap<>();
+        order.attributes.put("channel", "web");
+        order.attributes.put("coupon", "SPRING-2015");
+    }
+
+    @Benchmark
+    public int stringPath() throws IOException {
+        out.reset();
+        out.write(mapper.map(order).getBytes(StandardCharsets.UTF_8));
+        return out.size();
+    }
+
+    @Benchmark
+    public int writerPath() throws IOException {
+        out.reset();
+        mapper.write(order, writer);
+        writer.flush();
+        return out.size();
+    }
+
+    @Benchmark
+    public int bytePath() throws IOException {
+        out.reset();
+        mapper.write(order, out);
+        return out.size();
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.athaydes.easyjetty.json;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The properties of a class which are written to, and read from, JSON objects.
+ * <p/>
+ * All non-static, non-transient fields of a class and its super-classes are properties.
+ * The fields are looked up, and made accessible, only once per class.
+ */
+final class BeanInfo {
+
+    private static final ClassValue<BeanInfo> CACHE = new ClassValue<BeanInfo>() {
+        @Override
+        protected BeanInfo computeValue(Class<?> type) {
+            return new BeanInfo(type);
+        }
+    };
+
+    static final class Property {
+        final String name;
+        final Field field;
+        final Type type;
+
+        // the property name as a JSON String, followed by ':'
+        final String jsonName;
+
+        Property(Field field) {
+            this.name = field.getName();
+            this.field = field;
+            this.type = field.getGenericType();
+            this.jsonName = JsonWriter.quote(name) + ':';
+        }
+
+        Object get(Object bean) {
+            try {
+                return field.get(bean);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void set(Object bean, Object value) {
+            try {
+                field.set(bean, value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    final Class<?> type;
+    final Property[] properties;
+
+    private final Map<String, Property> propertyByName;
+    private final Constructor<?> constructor;
+
+    private BeanInfo(Class<?> type) {
+        this.type = type;
+        List<Property> properties = new ArrayList<>();
+        Map<String, Property> propertyByName = new HashMap<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                    continue;
+                }
+                if (!propertyByName.containsKey(field.getName())) {
+                    field.setAccessible(true);
+                    Property property = new Property(field);
+                    properties.add(property);
+                    propertyByName.put(property.name, property);
+                }
+            }
+        }
+        this.properties = properties.toArray(new Property[properties.size()]);
+        this.propertyByName = Collections.unmodifiableMap(propertyByName);
+        this.constructor = noArgConstructor(type);
+    }
+
+    static BeanInfo of(Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    /**
+     * @return the property with the given name, or null if there is none.
+     */
+    Property property(String name) {
+        return propertyByName.get(name);
+    }
+
+    Object newInstance() {
+        if (constructor == null) {
+            throw new IllegalArgumentException("Cannot create instance of " + type.getName() +
+                    ": no no-args constructor available");
+        }
+        try {
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot create instance of " + type.getName(), e);
+        }
+    }
+
+    private static Constructor<?> noArgConstructor(Class<?> type) {
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+}
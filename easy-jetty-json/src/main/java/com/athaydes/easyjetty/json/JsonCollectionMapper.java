@@ -0,0 +1,134 @@
+package com.athaydes.easyjetty.json;
+
+import com.athaydes.easyjetty.mapper.CollectionMapper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * CollectionMapper which maps Collections to and from JSON arrays.
+ * <p/>
+ * Items are written one at a time as they are obtained from a Collection (or Iterator), and
+ * {@link #unmapEach(java.io.Reader, Class)} reads each item only when it is requested, so arbitrarily
+ * large arrays can be sent and received using a constant amount of memory.
+ * <p/>
+ * Items are mapped in the same way as by a {@link JsonMapper}.
+ * <p/>
+ * Unlike single Objects, which are written by a JsonMapper directly as UTF-8 bytes, Collections are always
+ * written as text, so they are encoded with the character encoding of the response.
+ */
+public class JsonCollectionMapper extends CollectionMapper {
+
+    @Override
+    public String map(Collection collection) {
+        StringWriter writer = new StringWriter();
+        try {
+            write(collection.iterator(), writer);
+        } catch (IOException e) {
+            // StringWriter does not throw IOException
+            throw new RuntimeException(e);
+        }
+        return writer.toString();
+    }
+
+    @Override
+    public void write(Iterator<?> items, Writer writer) throws IOException {
+        JsonWriter jsonWriter = new JsonWriter(new JsonOutput.CharOutput(writer));
+        jsonWriter.beginArray();
+        boolean first = true;
+        while (items.hasNext()) {
+            jsonWriter.writeArrayItem(items.next(), first);
+            first = false;
+        }
+        jsonWriter.endArray();
+    }
+
+    @Override
+    public Collection unmap(String objectAsString) {
+        return unmapAll(objectAsString, Object.class);
+    }
+
+    @Override
+    public <T> Collection<T> unmapAll(String objectAsString, Class<T> type) {
+        List<T> items = new ArrayList<>();
+        try {
+            Iterator<T> iterator = unmapEach(new StringReader(objectAsString), type);
+            while (iterator.hasNext()) {
+                items.add(iterator.next());
+            }
+        } catch (IOException e) {
+            // StringReader does not throw IOException
+            throw new RuntimeException(e);
+        }
+        return items;
+    }
+
+    @Override
+    public <T> Iterator<T> unmapEach(Reader reader, Class<T> type) throws IOException {
+        // not this Thread's JsonReader, as the items may be read after this method returns, even by another Thread
+        JsonReader jsonReader = new JsonReader(reader);
+        jsonReader.beginArray();
+        return new ItemIterator<>(jsonReader, type);
+    }
+
+    @Override
+    public String getContentType() {
+        return JsonMapper.JSON_CONTENT_TYPE;
+    }
+
+    private static final class ItemIterator<T> implements Iterator<T> {
+
+        private final JsonReader reader;
+        private final Class<T> type;
+        private boolean first = true;
+        private Boolean hasNext;
+
+        ItemIterator(JsonReader reader, Class<T> type) {
+            this.reader = reader;
+            this.type = type;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (hasNext == null) {
+                try {
+                    hasNext = reader.hasNextItem(first);
+                    first = false;
+                    if (!hasNext) {
+                        reader.endDocument();
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return hasNext;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            hasNext = null;
+            try {
+                return type.cast(reader.readValue(type));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+    }
+
+}
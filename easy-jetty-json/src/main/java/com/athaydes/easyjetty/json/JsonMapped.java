@@ -0,0 +1,28 @@
+package com.athaydes.easyjetty.json;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class for which a {@link JsonMapper} should be generated at compile time.
+ * <p/>
+ * When the easy-jetty-json-processor annotation processor is on the compiler's processor path, a class named
+ * <code>&lt;ClassName&gt;JsonMapper</code> is generated in the same package as each annotated class
+ * (for nested classes, the names of the enclosing classes are prepended to the name, separated by '_').
+ * The generated mappers read and write fields directly, without using reflection.
+ * <p/>
+ * A class named <code>EasyJettyMappers</code> is also generated in each package containing annotated classes,
+ * which can be used to register all of the package's generated mappers with an ObjectMapperGroup in one call.
+ * <p/>
+ * Annotated classes must not be private or abstract, and must have a non-private no-args constructor.
+ * All of their non-static, non-transient fields, including inherited ones, are mapped,
+ * so these fields must be accessible from the package of the annotated class.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface JsonMapped {
+}
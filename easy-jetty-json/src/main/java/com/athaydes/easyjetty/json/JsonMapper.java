@@ -0,0 +1,175 @@
+package com.athaydes.easyjetty.json;
+
+import com.athaydes.easyjetty.mapper.BinaryObjectMapper;
+import com.athaydes.easyjetty.mapper.ObjectMapperGroup;
+import com.athaydes.easyjetty.mapper.StreamingObjectSerializer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ObjectMapper which maps Objects of a given type to and from JSON.
+ * <p/>
+ * The properties of an Object are its non-static, non-transient fields, including the fields of its super-classes.
+ * The fields of each class are looked up only once, so mapping an Object does not need to use reflection
+ * to find them again. Objects are read using a no-args constructor (which may be private), and their
+ * properties are set directly from the JSON input as it is parsed.
+ * <p/>
+ * A JsonMapper is both a {@link com.athaydes.easyjetty.mapper.StreamingObjectMapper} and a
+ * {@link BinaryObjectMapper}: when used as the latter, Objects are encoded as UTF-8 directly into
+ * the bytes of the response, skipping the response Writer and its character encoder.
+ * The buffers used to read and write JSON are reused by all reads and writes made by the same Thread.
+ * Binary input is always decoded as UTF-8, as required by the JSON specification.
+ * <p/>
+ * To avoid reflection altogether, annotate classes with {@link JsonMapped} and use the JsonMappers
+ * generated for them by the easy-jetty-json-processor annotation processor.
+ *
+ * @see #register(ObjectMapperGroup, Class[])
+ */
+public class JsonMapper<T> extends StreamingObjectSerializer<T> implements BinaryObjectMapper<T> {
+
+    public static final String JSON_CONTENT_TYPE = "application/json";
+
+    private final Class<T> type;
+
+    public JsonMapper(Class<T> type) {
+        this.type = type;
+    }
+
+    /**
+     * Registers JsonMappers for all of the given types with the mapperGroup, both as text and binary mappers,
+     * as well as a {@link JsonCollectionMapper}.
+     *
+     * @param mapperGroup to register the mappers with
+     * @param types       to be mapped to JSON
+     * @return the mapperGroup
+     */
+    public static ObjectMapperGroup register(ObjectMapperGroup mapperGroup, Class<?>... types) {
+        JsonMapper<?>[] mappers = new JsonMapper<?>[types.length];
+        for (int i = 0; i < types.length; i++) {
+            mappers[i] = new JsonMapper<>(types[i]);
+        }
+        return register(mapperGroup, mappers);
+    }
+
+    /**
+     * Registers the given JsonMappers with the mapperGroup, both as text and binary mappers,
+     * as well as a {@link JsonCollectionMapper}.
+     *
+     * @param mapperGroup to register the mappers with
+     * @param mappers     to register
+     * @return the mapperGroup
+     */
+    public static ObjectMapperGroup register(ObjectMapperGroup mapperGroup, JsonMapper<?>[] mappers) {
+        return mapperGroup.withMappers(mappers)
+                .withBinaryMappers(mappers)
+                .withCollectionMappers(new JsonCollectionMapper());
+    }
+
+    /**
+     * @param type      declaring the field
+     * @param fieldName name of the field
+     * @return the generic type of the field
+     * @throws IllegalArgumentException if the field does not exist
+     */
+    protected static Type fieldType(Class<?> type, String fieldName) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            try {
+                return current.getDeclaredField(fieldName).getGenericType();
+            } catch (NoSuchFieldException e) {
+                // try the super-class
+            }
+        }
+        throw new IllegalArgumentException("Field " + fieldName + " not found in " + type.getName());
+    }
+
+    @Override
+    public void write(T object, Writer writer) throws IOException {
+        write(object, new JsonWriter(new JsonOutput.CharOutput(writer)));
+    }
+
+    @Override
+    public void write(T object, OutputStream out) throws IOException {
+        JsonOutput.Utf8Output output = JsonOutput.Utf8Output.open(out);
+        try {
+            write(object, new JsonWriter(output));
+            output.drain();
+        } finally {
+            output.release();
+        }
+    }
+
+    @Override
+    public <S extends T> S read(Reader reader, Class<S> type) throws IOException {
+        JsonReader jsonReader = JsonReader.open(reader);
+        try {
+            S result = read(jsonReader, type);
+            jsonReader.endDocument();
+            return result;
+        } finally {
+            jsonReader.release();
+        }
+    }
+
+    @Override
+    public <S extends T> S read(InputStream in, Class<S> type) throws IOException {
+        return read(new InputStreamReader(in, StandardCharsets.UTF_8), type);
+    }
+
+    @Override
+    public <S extends T> S unmap(String objectAsString, Class<S> type) {
+        try {
+            return read(new StringReader(objectAsString), type);
+        } catch (IOException e) {
+            // StringReader does not throw IOException
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes the given Object as JSON.
+     * <p/>
+     * This implementation writes the Object's properties using reflection. The JsonMappers generated
+     * for classes annotated with {@link JsonMapped} override it to read each property directly.
+     *
+     * @param object to write
+     * @param writer to write the Object with
+     * @throws IOException if a problem occurs while writing
+     */
+    protected void write(T object, JsonWriter writer) throws IOException {
+        writer.writeValue(object);
+    }
+
+    /**
+     * Reads an Object of type S from JSON.
+     * <p/>
+     * This implementation sets the Object's properties using reflection. The JsonMappers generated
+     * for classes annotated with {@link JsonMapped} override it to set each property directly.
+     *
+     * @param reader to read the Object with
+     * @param type   of the Object to read
+     * @return the Object
+     * @throws IOException if a problem occurs while reading
+     */
+    protected <S extends T> S read(JsonReader reader, Class<S> type) throws IOException {
+        return JsonReader.cast(reader.readValue(type), type);
+    }
+
+    @Override
+    public Class<? extends T> getMappedType() {
+        return type;
+    }
+
+    @Override
+    public String getContentType() {
+        return JSON_CONTENT_TYPE;
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.athaydes.easyjetty.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Destination of the characters written by a {@link JsonWriter}.
+ */
+abstract class JsonOutput {
+
+    abstract void write(char c) throws IOException;
+
+    abstract void write(String s, int start, int end) throws IOException;
+
+    void write(String s) throws IOException {
+        write(s, 0, s.length());
+    }
+
+    /**
+     * Writes any buffered content into the underlying destination, without flushing it.
+     */
+    abstract void drain() throws IOException;
+
+    /**
+     * JsonOutput writing characters into a Writer.
+     */
+    static final class CharOutput extends JsonOutput {
+
+        private final Writer writer;
+
+        CharOutput(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        void write(char c) throws IOException {
+            writer.write(c);
+        }
+
+        @Override
+        void write(String s, int start, int end) throws IOException {
+            writer.write(s, start, end - start);
+        }
+
+        @Override
+        void drain() {
+            // nothing is buffered
+        }
+    }
+
+    /**
+     * JsonOutput encoding characters as UTF-8 directly into a buffer of bytes, which is written into
+     * an OutputStream whenever it gets full.
+     * <p/>
+     * Unpaired surrogates are written as '?', as done by the UTF-8 Charset encoder.
+     * <p/>
+     * Each Thread has a single instance, obtained with {@link #open(OutputStream)}, which must be released
+     * after use by calling {@link #release()}. If the instance is still in use when <code>open</code> is called
+     * (ie. by a nested write), a new instance is returned.
+     */
+    static final class Utf8Output extends JsonOutput {
+
+        static final int BUFFER_SIZE = 8192;
+
+        private static final ThreadLocal<Utf8Output> OUTPUT = new ThreadLocal<Utf8Output>() {
+            @Override
+            protected Utf8Output initialValue() {
+                return new Utf8Output();
+            }
+        };
+
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private OutputStream out;
+        private int count;
+
+        private Utf8Output() {
+        }
+
+        /**
+         * @param out to write the encoded characters into
+         * @return this Thread's Utf8Output, ready to write into out
+         */
+        static Utf8Output open(OutputStream out) {
+            Utf8Output output = OUTPUT.get();
+            if (output.out != null) {
+                output = new Utf8Output();
+            }
+            output.out = out;
+            return output;
+        }
+
+        /**
+         * Discards any content which has not been drained and makes this instance available for reuse.
+         */
+        void release() {
+            out = null;
+            count = 0;
+        }
+
+        @Override
+        void write(char c) throws IOException {
+            if (c < 0x80) {
+                if (count == BUFFER_SIZE) {
+                    drain();
+                }
+                buffer[count++] = (byte) c;
+            } else {
+                encode(c, (char) 0);
+            }
+        }
+
+        @Override
+        void write(String s, int start, int end) throws IOException {
+            for (int i = start; i < end; i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    if (count == BUFFER_SIZE) {
+                        drain();
+                    }
+                    buffer[count++] = (byte) c;
+                } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    encode(c, s.charAt(++i));
+                } else {
+                    encode(c, (char) 0);
+                }
+            }
+        }
+
+        private void encode(char c, char low) throws IOException {
+            if (count > BUFFER_SIZE - 4) {
+                drain();
+            }
+            if (c < 0x800) {
+                buffer[count++] = (byte) (0xC0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (low != 0) {
+                int codePoint = Character.toCodePoint(c, low);
+                buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer[count++] = (byte) '?';
+            } else {
+                buffer[count++] = (byte) (0xE0 | (c >> 12));
+                buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        @Override
+        void drain() throws IOException {
+            if (count > 0) {
+                out.write(buffer, 0, count);
+                count = 0;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,602 @@
+package com.athaydes.easyjetty.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads JSON from a Reader, binding values directly to the requested types as they are parsed.
+ * <p/>
+ * JSON objects are read into Maps if a Map (or Object) is requested, or into the properties of an
+ * instance of the requested type otherwise, as described by {@link BeanInfo}.
+ * JSON arrays are read into Lists, Sets or arrays. Unknown properties are skipped.
+ * <p/>
+ * When no specific type is requested, JSON numbers are read as Longs if they are integral and fit in a long,
+ * or as Doubles otherwise.
+ * <p/>
+ * JSON objects and arrays may be nested up to {@link #MAX_NESTING_DEPTH} levels deep, so that small but deeply
+ * nested inputs can not exhaust the stack of the reading Thread.
+ * <p/>
+ * The public methods of this class are used by the JsonMappers generated at compile time for classes
+ * annotated with {@link JsonMapped}. All of them throw an IllegalArgumentException if the JSON input is invalid
+ * or can not be read as the requested type.
+ */
+public final class JsonReader {
+
+    /**
+     * Maximum number of JSON objects and arrays which may be nested inside each other.
+     */
+    public static final int MAX_NESTING_DEPTH = 512;
+
+    private static final int BUFFER_SIZE = 4096;
+
+    // tokens larger than this are not kept for reuse
+    private static final int MAX_RETAINED_TOKEN = 16 * BUFFER_SIZE;
+
+    private static final ThreadLocal<JsonReader> READER = new ThreadLocal<JsonReader>() {
+        @Override
+        protected JsonReader initialValue() {
+            return new JsonReader(null);
+        }
+    };
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private StringBuilder token = new StringBuilder();
+    private Reader reader;
+    private int position;
+    private int limit;
+    private long consumed;
+    private int depth;
+
+    JsonReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @param reader to read JSON from
+     * @return this Thread's JsonReader, ready to read from reader, or a new JsonReader if this Thread's one
+     * is still in use. It must be released after use by calling {@link #release()}.
+     */
+    static JsonReader open(Reader reader) {
+        JsonReader jsonReader = READER.get();
+        if (jsonReader.reader != null) {
+            return new JsonReader(reader);
+        }
+        jsonReader.reader = reader;
+        return jsonReader;
+    }
+
+    /**
+     * Discards the state of this JsonReader, making it available for reuse.
+     */
+    void release() {
+        reader = null;
+        position = 0;
+        limit = 0;
+        consumed = 0L;
+        depth = 0;
+        if (token.capacity() > MAX_RETAINED_TOKEN) {
+            token = new StringBuilder();
+        } else {
+            token.setLength(0);
+        }
+    }
+
+    void beginArray() throws IOException {
+        expect('[');
+        enterNested();
+    }
+
+    /**
+     * @param first whether no items have been read from the current array yet
+     * @return true if the current array has another item, false if the end of the array was reached.
+     */
+    boolean hasNextItem(boolean first) throws IOException {
+        int c = peekNonWhitespace();
+        if (c == ']') {
+            position++;
+            depth--;
+            return false;
+        }
+        if (!first) {
+            expect(',');
+        }
+        return true;
+    }
+
+    void endDocument() throws IOException {
+        if (peekNonWhitespace() != -1) {
+            throw error("Unexpected content after JSON value");
+        }
+    }
+
+    /**
+     * Reads the next value as the given type.
+     *
+     * @param type of the value
+     * @return the value, or null if the next value is null
+     * @throws IOException if a problem occurs while reading
+     */
+    public Object readValue(Type type) throws IOException {
+        int c = peekNonWhitespace();
+        switch (c) {
+            case '{':
+                return readObject(type);
+            case '[':
+                return readArray(type);
+            case '"':
+                return fromString(readQuoted(), type);
+            case 't':
+                expectWord("true");
+                return fromBoolean(true, type);
+            case 'f':
+                expectWord("false");
+                return fromBoolean(false, type);
+            case 'n':
+                expectWord("null");
+                return null;
+            case -1:
+                throw error("Unexpected end of JSON input");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return fromNumber(readNumber(), type);
+                }
+                throw error("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    /**
+     * Skips the next value.
+     *
+     * @throws IOException if a problem occurs while reading
+     */
+    public void skipValue() throws IOException {
+        readValue(Object.class);
+    }
+
+    /**
+     * Consumes the next value if it is null.
+     *
+     * @return true if the next value was null, false otherwise
+     * @throws IOException if a problem occurs while reading
+     */
+    public boolean readNull() throws IOException {
+        if (peekNonWhitespace() == 'n') {
+            expectWord("null");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the next value, which must be a String or null
+     * @throws IOException if a problem occurs while reading
+     */
+    public String readString() throws IOException {
+        if (readNull()) {
+            return null;
+        }
+        if (peekNonWhitespace() != '"') {
+            throw error("Expected JSON String");
+        }
+        return readQuoted();
+    }
+
+    public int readInt() throws IOException {
+        try {
+            return Integer.parseInt(readNumberToken());
+        } catch (NumberFormatException e) {
+            throw error("Invalid number for int");
+        }
+    }
+
+    public long readLong() throws IOException {
+        try {
+            return Long.parseLong(readNumberToken());
+        } catch (NumberFormatException e) {
+            throw error("Invalid number for long");
+        }
+    }
+
+    public double readDouble() throws IOException {
+        try {
+            return Double.parseDouble(readNumberToken());
+        } catch (NumberFormatException e) {
+            throw error("Invalid number for double");
+        }
+    }
+
+    public boolean readBoolean() throws IOException {
+        int c = peekNonWhitespace();
+        if (c == 't') {
+            expectWord("true");
+            return true;
+        } else if (c == 'f') {
+            expectWord("false");
+            return false;
+        }
+        throw error("Expected JSON boolean");
+    }
+
+    /**
+     * Consumes the start of a JSON object.
+     *
+     * @throws IOException if a problem occurs while reading
+     */
+    public void beginObject() throws IOException {
+        expect('{');
+        enterNested();
+    }
+
+    /**
+     * Consumes the separator before the next entry of the current JSON object, or the end of the object.
+     *
+     * @param first whether no entries have been read from the current object yet
+     * @return true if the current object has another entry, false if the end of the object was reached.
+     * @throws IOException if a problem occurs while reading
+     */
+    public boolean hasNextEntry(boolean first) throws IOException {
+        int c = peekNonWhitespace();
+        if (c == '}') {
+            position++;
+            depth--;
+            return false;
+        }
+        if (!first) {
+            expect(',');
+            peekNonWhitespace();
+        }
+        return true;
+    }
+
+    /**
+     * Reads the key of the next entry of the current JSON object, including the ':' following it.
+     *
+     * @return the key
+     * @throws IOException if a problem occurs while reading
+     */
+    public String readKey() throws IOException {
+        if (peekNonWhitespace() != '"') {
+            throw error("Expected property name");
+        }
+        String key = readQuoted();
+        expect(':');
+        return key;
+    }
+
+    private Object readObject(Type type) throws IOException {
+        Class<?> rawType = rawType(type);
+        if (rawType == Object.class || Map.class.isAssignableFrom(rawType)) {
+            return readMap(typeArgument(type, 1));
+        }
+        BeanInfo beanInfo = BeanInfo.of(rawType);
+        Object bean = beanInfo.newInstance();
+        beginObject();
+        boolean first = true;
+        while (hasNextEntry(first)) {
+            first = false;
+            BeanInfo.Property property = beanInfo.property(readKey());
+            if (property == null) {
+                skipValue();
+            } else {
+                Object value = readValue(property.type);
+                if (value != null || !rawType(property.type).isPrimitive()) {
+                    property.set(bean, value);
+                }
+            }
+        }
+        return bean;
+    }
+
+    private Map<String, Object> readMap(Type valueType) throws IOException {
+        Map<String, Object> map = new LinkedHashMap<>();
+        beginObject();
+        boolean first = true;
+        while (hasNextEntry(first)) {
+            first = false;
+            String key = readKey();
+            map.put(key, readValue(valueType));
+        }
+        return map;
+    }
+
+    private Object readArray(Type type) throws IOException {
+        Class<?> rawType = rawType(type);
+        Type itemType;
+        if (rawType.isArray()) {
+            itemType = type instanceof GenericArrayType ?
+                    ((GenericArrayType) type).getGenericComponentType() :
+                    rawType.getComponentType();
+        } else if (rawType == Object.class || Collection.class.isAssignableFrom(rawType)) {
+            itemType = typeArgument(type, 0);
+        } else {
+            throw error("Cannot read JSON array as " + rawType.getName());
+        }
+
+        Collection<Object> items = Set.class.isAssignableFrom(rawType) ?
+                new LinkedHashSet<Object>() : new ArrayList<Object>();
+        beginArray();
+        boolean first = true;
+        while (hasNextItem(first)) {
+            first = false;
+            items.add(readValue(itemType));
+        }
+
+        if (rawType.isArray()) {
+            Class<?> componentType = rawType.getComponentType();
+            Object array = Array.newInstance(componentType, items.size());
+            int index = 0;
+            for (Object item : items) {
+                if (item != null || !componentType.isPrimitive()) {
+                    Array.set(array, index, item);
+                }
+                index++;
+            }
+            return array;
+        }
+        return items;
+    }
+
+    private String readQuoted() throws IOException {
+        position++; // opening quote
+        token.setLength(0);
+        while (true) {
+            int start = position;
+            while (position < limit) {
+                char c = buffer[position];
+                if (c == '"' || c == '\\' || c < 0x20) {
+                    break;
+                }
+                position++;
+            }
+            token.append(buffer, start, position - start);
+            int c = peek();
+            if (c == '"') {
+                position++;
+                return token.toString();
+            } else if (c == '\\') {
+                position++;
+                token.append(readEscaped());
+            } else if (c == -1) {
+                throw error("Unterminated JSON String");
+            } else if (c < 0x20) {
+                throw error("Unescaped control character in JSON String");
+            }
+        }
+    }
+
+    private char readEscaped() throws IOException {
+        int c = next();
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(next(), 16);
+                    if (digit < 0) {
+                        throw error("Invalid unicode escape in JSON String");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            default:
+                throw error("Invalid escape in JSON String");
+        }
+    }
+
+    private String readNumberToken() throws IOException {
+        int c = peekNonWhitespace();
+        if (c != '-' && (c < '0' || c > '9')) {
+            throw error("Expected JSON number");
+        }
+        return readNumber();
+    }
+
+    private String readNumber() throws IOException {
+        token.setLength(0);
+        while (true) {
+            int c = peek();
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                token.append((char) c);
+                position++;
+            } else {
+                return token.toString();
+            }
+        }
+    }
+
+    private Object fromString(String value, Type type) throws IOException {
+        Class<?> rawType = rawType(type);
+        if (rawType == String.class || rawType == Object.class || rawType == CharSequence.class) {
+            return value;
+        }
+        if (rawType == char.class || rawType == Character.class) {
+            if (value.length() != 1) {
+                throw error("Cannot read JSON String of length " + value.length() + " as a character");
+            }
+            return value.charAt(0);
+        }
+        if (rawType.isEnum()) {
+            return enumValue(rawType, value);
+        }
+        throw error("Cannot read JSON String as " + rawType.getName());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object enumValue(Class<?> enumType, String name) throws IOException {
+        try {
+            return Enum.valueOf((Class<? extends Enum>) enumType, name);
+        } catch (IllegalArgumentException e) {
+            throw error("Unknown constant of " + enumType.getName() + ": " + name);
+        }
+    }
+
+    private Object fromBoolean(boolean value, Type type) throws IOException {
+        Class<?> rawType = rawType(type);
+        if (rawType == boolean.class || rawType == Boolean.class || rawType == Object.class) {
+            return value;
+        }
+        throw error("Cannot read JSON boolean as " + rawType.getName());
+    }
+
+    private Object fromNumber(String value, Type type) throws IOException {
+        Class<?> rawType = rawType(type);
+        try {
+            if (rawType == int.class || rawType == Integer.class) {
+                return Integer.valueOf(value);
+            } else if (rawType == long.class || rawType == Long.class) {
+                return Long.valueOf(value);
+            } else if (rawType == double.class || rawType == Double.class) {
+                return Double.valueOf(value);
+            } else if (rawType == float.class || rawType == Float.class) {
+                return Float.valueOf(value);
+            } else if (rawType == short.class || rawType == Short.class) {
+                return Short.valueOf(value);
+            } else if (rawType == byte.class || rawType == Byte.class) {
+                return Byte.valueOf(value);
+            } else if (rawType == BigDecimal.class) {
+                return new BigDecimal(value);
+            } else if (rawType == BigInteger.class) {
+                return new BigInteger(value);
+            } else if (rawType == Object.class || rawType == Number.class) {
+                if (value.indexOf('.') < 0 && value.indexOf('e') < 0 && value.indexOf('E') < 0) {
+                    try {
+                        return Long.valueOf(value);
+                    } catch (NumberFormatException e) {
+                        // too big for a long
+                    }
+                }
+                return Double.valueOf(value);
+            }
+        } catch (NumberFormatException e) {
+            throw error("Invalid number for " + rawType.getName() + ": " + value);
+        }
+        throw error("Cannot read JSON number as " + rawType.getName());
+    }
+
+    private void enterNested() {
+        if (++depth > MAX_NESTING_DEPTH) {
+            throw error("JSON nested more than " + MAX_NESTING_DEPTH + " levels deep");
+        }
+    }
+
+    private void expectWord(String word) throws IOException {
+        for (int i = 0; i < word.length(); i++) {
+            if (next() != word.charAt(i)) {
+                throw error("Invalid JSON literal, expected '" + word + "'");
+            }
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        if (peekNonWhitespace() != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+        position++;
+    }
+
+    private int peekNonWhitespace() throws IOException {
+        while (true) {
+            int c = peek();
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                position++;
+            } else {
+                return c;
+            }
+        }
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private int next() throws IOException {
+        int c = peek();
+        if (c != -1) {
+            position++;
+        }
+        return c;
+    }
+
+    private boolean fill() throws IOException {
+        consumed += limit;
+        position = 0;
+        limit = 0;
+        int count = reader.read(buffer, 0, BUFFER_SIZE);
+        if (count <= 0) {
+            return false;
+        }
+        limit = count;
+        return true;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " (at position " + (consumed + position) + ")");
+    }
+
+    private static Class<?> rawType(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        } else if (type instanceof ParameterizedType) {
+            return rawType(((ParameterizedType) type).getRawType());
+        } else if (type instanceof GenericArrayType) {
+            Class<?> componentType = rawType(((GenericArrayType) type).getGenericComponentType());
+            return Array.newInstance(componentType, 0).getClass();
+        } else if (type instanceof WildcardType) {
+            return rawType(((WildcardType) type).getUpperBounds()[0]);
+        } else {
+            // type variables
+            return Object.class;
+        }
+    }
+
+    private static Type typeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType) {
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (index < arguments.length) {
+                return arguments[index];
+            }
+        }
+        return Object.class;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T cast(Object value, Class<T> type) {
+        if (type.isPrimitive()) {
+            if (value == null) {
+                throw new IllegalArgumentException("Cannot read null as " + type.getName());
+            }
+            return (T) value;
+        }
+        return type.cast(value);
+    }
+
+}
@@ -0,0 +1,281 @@
+package com.athaydes.easyjetty.json;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Writes Objects as JSON into a {@link JsonOutput}.
+ * <p/>
+ * Strings, characters and enums are written as JSON Strings, numbers and booleans as themselves,
+ * Maps as JSON objects, and Iterables, Iterators and arrays as JSON arrays.
+ * Any other Object is written as a JSON object containing its properties, as described by {@link BeanInfo}.
+ * <p/>
+ * Objects and arrays may be nested up to {@link JsonReader#MAX_NESTING_DEPTH} levels deep, so writing an Object
+ * which refers to itself fails with an IllegalArgumentException rather than exhausting the stack.
+ * <p/>
+ * The public methods of this class are used by the JsonMappers generated at compile time for classes
+ * annotated with {@link JsonMapped}.
+ */
+public final class JsonWriter {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final JsonOutput out;
+    private int depth;
+
+    JsonWriter(JsonOutput out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes any value as JSON.
+     *
+     * @param value to write
+     * @throws IOException if a problem occurs while writing
+     */
+    public void writeValue(Object value) throws IOException {
+        if (value == null) {
+            out.write("null");
+        } else if (value instanceof String) {
+            writeQuoted((String) value);
+        } else if (value instanceof Number) {
+            writeNumeric((Number) value);
+        } else if (value instanceof Boolean) {
+            out.write(((Boolean) value) ? "true" : "false");
+        } else if (value instanceof Character || value instanceof CharSequence) {
+            writeQuoted(value.toString());
+        } else if (value instanceof Enum) {
+            writeQuoted(((Enum<?>) value).name());
+        } else if (value instanceof Map) {
+            writeMap((Map<?, ?>) value);
+        } else if (value instanceof Iterable) {
+            writeArray(((Iterable<?>) value).iterator());
+        } else if (value instanceof Iterator) {
+            writeArray((Iterator<?>) value);
+        } else if (value.getClass().isArray()) {
+            writeArray(value);
+        } else {
+            writeBean(value);
+        }
+    }
+
+    /**
+     * Starts writing a JSON object.
+     *
+     * @throws IOException if a problem occurs while writing
+     */
+    public void beginObject() throws IOException {
+        enterNested();
+        out.write('{');
+    }
+
+    /**
+     * Finishes writing the current JSON object.
+     *
+     * @throws IOException if a problem occurs while writing
+     */
+    public void endObject() throws IOException {
+        depth--;
+        out.write('}');
+    }
+
+    void beginArray() throws IOException {
+        enterNested();
+        out.write('[');
+    }
+
+    void writeArrayItem(Object item, boolean first) throws IOException {
+        if (!first) {
+            out.write(',');
+        }
+        writeValue(item);
+    }
+
+    void endArray() throws IOException {
+        depth--;
+        out.write(']');
+    }
+
+    private void enterNested() {
+        if (++depth > JsonReader.MAX_NESTING_DEPTH) {
+            throw new IllegalArgumentException("Cannot write JSON nested more than " +
+                    JsonReader.MAX_NESTING_DEPTH + " levels deep (the Object may refer to itself)");
+        }
+    }
+
+    /**
+     * Writes the given characters without escaping them.
+     * The caller is responsible for making sure the result is valid JSON.
+     *
+     * @param json to write
+     * @throws IOException if a problem occurs while writing
+     */
+    public void writeRaw(String json) throws IOException {
+        out.write(json);
+    }
+
+    /**
+     * Writes a JSON String, or null.
+     *
+     * @param value to write
+     * @throws IOException if a problem occurs while writing
+     */
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            out.write("null");
+        } else {
+            writeQuoted(value);
+        }
+    }
+
+    public void writeNumber(long value) throws IOException {
+        out.write(Long.toString(value));
+    }
+
+    public void writeNumber(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Cannot write non-finite number as JSON: " + value);
+        }
+        out.write(Double.toString(value));
+    }
+
+    public void writeNumber(float value) throws IOException {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            throw new IllegalArgumentException("Cannot write non-finite number as JSON: " + value);
+        }
+        out.write(Float.toString(value));
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+        out.write(value ? "true" : "false");
+    }
+
+    private void writeNumeric(Number number) throws IOException {
+        if (number instanceof Double || number instanceof Float) {
+            double d = number.doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                throw new IllegalArgumentException("Cannot write non-finite number as JSON: " + d);
+            }
+        }
+        if (number instanceof BigDecimal) {
+            out.write(((BigDecimal) number).toPlainString());
+        } else if (number instanceof BigInteger || number instanceof Double || number instanceof Float) {
+            out.write(number.toString());
+        } else {
+            out.write(Long.toString(number.longValue()));
+        }
+    }
+
+    private void writeMap(Map<?, ?> map) throws IOException {
+        beginObject();
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            writeQuoted(String.valueOf(entry.getKey()));
+            out.write(':');
+            writeValue(entry.getValue());
+        }
+        endObject();
+    }
+
+    private void writeArray(Iterator<?> items) throws IOException {
+        beginArray();
+        boolean first = true;
+        while (items.hasNext()) {
+            writeArrayItem(items.next(), first);
+            first = false;
+        }
+        endArray();
+    }
+
+    private void writeArray(Object array) throws IOException {
+        beginArray();
+        int length = Array.getLength(array);
+        for (int i = 0; i < length; i++) {
+            writeArrayItem(Array.get(array, i), i == 0);
+        }
+        endArray();
+    }
+
+    private void writeBean(Object bean) throws IOException {
+        beginObject();
+        boolean first = true;
+        for (BeanInfo.Property property : BeanInfo.of(bean.getClass()).properties) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            out.write(property.jsonName);
+            writeValue(property.get(bean));
+        }
+        endObject();
+    }
+
+    private void writeQuoted(String s) throws IOException {
+        out.write('"');
+        int start = 0;
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x20 || c == '"' || c == '\\') {
+                out.write(s, start, i);
+                writeEscaped(c);
+                start = i + 1;
+            }
+        }
+        out.write(s, start, length);
+        out.write('"');
+    }
+
+    private void writeEscaped(char c) throws IOException {
+        out.write('\\');
+        switch (c) {
+            case '"':
+            case '\\':
+                out.write(c);
+                break;
+            case '\n':
+                out.write('n');
+                break;
+            case '\r':
+                out.write('r');
+                break;
+            case '\t':
+                out.write('t');
+                break;
+            case '\b':
+                out.write('b');
+                break;
+            case '\f':
+                out.write('f');
+                break;
+            default:
+                out.write("u00");
+                out.write(HEX[c >> 4]);
+                out.write(HEX[c & 0xF]);
+        }
+    }
+
+    /**
+     * @return the given String as a JSON String.
+     */
+    static String quote(String s) {
+        StringWriter writer = new StringWriter(s.length() + 2);
+        try {
+            new JsonWriter(new JsonOutput.CharOutput(writer)).writeQuoted(s);
+        } catch (IOException e) {
+            // StringWriter does not throw IOException
+            throw new RuntimeException(e);
+        }
+        return writer.toString();
+    }
+
+}
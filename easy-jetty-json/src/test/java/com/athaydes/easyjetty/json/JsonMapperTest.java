@@ -0,0 +1,351 @@
+package com.athaydes.easyjetty.json;
+
+import com.athaydes.easyjetty.EasyJetty;
+import com.athaydes.easyjetty.Responder;
+import com.athaydes.easyjetty.mapper.ObjectMapperGroup;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.client.util.StringContentProvider;
+import org.eclipse.jetty.http.HttpHeader;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.athaydes.easyjetty.Responder.Exchange;
+import static com.athaydes.easyjetty.http.MethodArbiter.Method.POST;
+import static org.junit.Assert.*;
+
+public class JsonMapperTest {
+
+    enum Role {ADMIN, USER}
+
+    static class Address {
+        String street;
+        int number;
+
+        Address() {
+        }
+
+        Address(String street, int number) {
+            this.street = street;
+            this.number = number;
+        }
+    }
+
+    static class Person {
+        String name;
+        int age;
+        boolean active;
+        Double score;
+        Role role;
+        List<Address> addresses;
+        Map<String, Integer> counts;
+        long[] ids;
+        transient String ignored = "ignored";
+    }
+
+    static class Employee extends Person {
+        String company;
+    }
+
+    static class Node {
+        Node next;
+    }
+
+    private final EasyJetty easy = new EasyJetty();
+
+    @After
+    public void cleanup() throws Exception {
+        easy.stop();
+    }
+
+    private static Person person() {
+        Person person = new Person();
+        person.name = "Mary \"Jane\"\n\u00e9\u4e16\ud83d\ude00";
+        person.age = 42;
+        person.active = true;
+        person.score = 1.5;
+        person.role = Role.ADMIN;
+        person.addresses = Arrays.asList(new Address("Main St", 10), new Address("Other\\Way", -2));
+        person.counts = new LinkedHashMap<>();
+        person.counts.put("a", 1);
+        person.counts.put("b", null);
+        person.ids = new long[]{1L, Long.MAX_VALUE};
+        return person;
+    }
+
+    private static final String PERSON_JSON = "{\"name\":\"Mary \\\"Jane\\\"\\n\u00e9\u4e16\ud83d\ude00\"," +
+            "\"age\":42,\"active\":true,\"score\":1.5,\"role\":\"ADMIN\"," +
+            "\"addresses\":[{\"street\":\"Main St\",\"number\":10},{\"street\":\"Other\\\\Way\",\"number\":-2}]," +
+            "\"counts\":{\"a\":1,\"b\":null},\"ids\":[1,9223372036854775807]}";
+
+    private static void assertPerson(Person person) {
+        assertEquals("Mary \"Jane\"\n\u00e9\u4e16\ud83d\ude00", person.name);
+        assertEquals(42, person.age);
+        assertTrue(person.active);
+        assertEquals(Double.valueOf(1.5), person.score);
+        assertEquals(Role.ADMIN, person.role);
+        assertEquals(2, person.addresses.size());
+        assertEquals("Main St", person.addresses.get(0).street);
+        assertEquals(10, person.addresses.get(0).number);
+        assertEquals("Other\\Way", person.addresses.get(1).street);
+        assertEquals(-2, person.addresses.get(1).number);
+        assertEquals(Integer.valueOf(1), person.counts.get("a"));
+        assertTrue(person.counts.containsKey("b"));
+        assertNull(person.counts.get("b"));
+        assertArrayEquals(new long[]{1L, Long.MAX_VALUE}, person.ids);
+        assertEquals("ignored", person.ignored);
+    }
+
+    @Test
+    public void canMapObjectsToJson() {
+        assertEquals(PERSON_JSON, new JsonMapper<>(Person.class).map(person()));
+    }
+
+    @Test
+    public void canUnmapObjectsFromJson() {
+        assertPerson(new JsonMapper<>(Person.class).unmap(PERSON_JSON));
+    }
+
+    @Test
+    public void canUnmapObjectsFromJsonWithWhitespaceAndUnknownProperties() {
+        String json = " {\n  \"unknown\" : [ {\"x\": [1, 2.5e3, \"y\"]}, null, false ],\n" +
+                "  \"name\" : \"\\u0041\\/B\", \"age\" : 7, \"ids\" : [ ] }\n";
+        Person person = new JsonMapper<>(Person.class).unmap(json);
+        assertEquals("A/B", person.name);
+        assertEquals(7, person.age);
+        assertEquals(0, person.ids.length);
+        assertNull(person.addresses);
+    }
+
+    @Test
+    public void canMapPropertiesOfSuperClasses() {
+        JsonMapper<Employee> mapper = new JsonMapper<>(Employee.class);
+        Employee employee = new Employee();
+        employee.name = "Joe";
+        employee.company = "ACME";
+
+        String json = mapper.map(employee);
+
+        assertEquals("{\"company\":\"ACME\",\"name\":\"Joe\",\"age\":0,\"active\":false,\"score\":null," +
+                "\"role\":null,\"addresses\":null,\"counts\":null,\"ids\":null}", json);
+        Employee result = mapper.unmap(json);
+        assertEquals("Joe", result.name);
+        assertEquals("ACME", result.company);
+    }
+
+    @Test
+    public void canReadUntypedJson() {
+        Object value = new JsonMapper<>(Object.class).unmap("{\"a\":[1,-2.5,12345678901234567890,\"s\",true,null]}");
+        assertEquals(Collections.singletonMap("a",
+                Arrays.asList(1L, -2.5, 1.2345678901234567E19, "s", true, null)), value);
+    }
+
+    @Test
+    public void invalidJsonIsRejected() {
+        JsonMapper<Person> mapper = new JsonMapper<>(Person.class);
+        for (String json : Arrays.asList("", "{", "{\"name\":}", "{\"name\":\"a\"} x",
+                "{\"age\":\"old\"}", "{\"name\":tru}", "{\"role\":\"NONE\"}", "{\"name\":\"a\nb\"}")) {
+            try {
+                mapper.unmap(json);
+                fail("Should have rejected " + json);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void deeplyNestedJsonIsRejected() {
+        JsonMapper<Object> mapper = new JsonMapper<>(Object.class);
+
+        // WHEN JSON nested as deeply as allowed is read THEN it is accepted
+        assertNotNull(mapper.unmap(nested(JsonReader.MAX_NESTING_DEPTH)));
+
+        // WHEN JSON nested more deeply is read THEN it is rejected before the stack overflows
+        for (int depth : new int[]{JsonReader.MAX_NESTING_DEPTH + 1, 100_000}) {
+            try {
+                mapper.unmap(nested(depth));
+                fail("Should have rejected JSON nested " + depth + " levels deep");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+
+        // AND the same holds for JSON objects read into beans
+        try {
+            new JsonMapper<>(Node.class).unmap(nestedNodes(JsonReader.MAX_NESTING_DEPTH + 1));
+            fail("Should have rejected deeply nested JSON objects");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertNotNull(new JsonMapper<>(Node.class).unmap(nestedNodes(JsonReader.MAX_NESTING_DEPTH)));
+    }
+
+    @Test
+    public void objectsReferringToThemselvesAreRejected() throws IOException {
+        JsonMapper<Node> mapper = new JsonMapper<>(Node.class);
+        Node node = new Node();
+        node.next = node;
+
+        try {
+            mapper.map(node);
+            fail("Should have rejected an Object referring to itself");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            mapper.write(node, new ByteArrayOutputStream());
+            fail("Should have rejected an Object referring to itself");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        // the buffers of the failed write are not leaked into the next one
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new JsonMapper<>(Person.class).write(person(), out);
+        assertEquals(PERSON_JSON, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private static String nested(int depth) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            builder.append('[');
+        }
+        for (int i = 0; i < depth; i++) {
+            builder.append(']');
+        }
+        return builder.toString();
+    }
+
+    private static String nestedNodes(int depth) {
+        StringBuilder builder = new StringBuilder("{}");
+        for (int i = 1; i < depth; i++) {
+            builder.insert(0, "{\"next\":").append('}');
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void binaryOutputIsTheUtf8EncodingOfTheTextOutput() throws IOException {
+        JsonMapper<Person> mapper = new JsonMapper<>(Person.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        mapper.write(person(), out);
+
+        assertEquals(PERSON_JSON, new String(out.toByteArray(), StandardCharsets.UTF_8));
+        assertArrayEquals(PERSON_JSON.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+        assertPerson(mapper.read(new ByteArrayInputStream(out.toByteArray()), Person.class));
+    }
+
+    @Test
+    public void binaryOutputLargerThanTheBufferIsWrittenCorrectly() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < JsonOutput.Utf8Output.BUFFER_SIZE; i++) {
+            builder.append(i % 3 == 0 ? '\u4e16' : i % 3 == 1 ? 'x' : '\u00e9');
+        }
+        Address address = new Address(builder.toString(), 1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new JsonMapper<>(Address.class).write(address, out);
+
+        assertArrayEquals(new JsonMapper<>(Address.class).map(address).getBytes(StandardCharsets.UTF_8),
+                out.toByteArray());
+    }
+
+    @Test
+    public void collectionsAreStreamedAsJsonArrays() throws IOException {
+        JsonCollectionMapper mapper = new JsonCollectionMapper();
+        assertEquals("[{\"street\":\"A\",\"number\":1},{\"street\":\"B\",\"number\":2}]",
+                mapper.map(Arrays.asList(new Address("A", 1), new Address("B", 2))));
+
+        // items are only read when requested
+        final String json = "[ {\"street\":\"A\",\"number\":1} , {\"street\":\"B\",\"number\":2} ]";
+        final AtomicInteger charsRead = new AtomicInteger();
+        Reader reader = new StringReader(json) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                int count = super.read(buffer, offset, Math.min(length, 1));
+                charsRead.addAndGet(Math.max(count, 0));
+                return count;
+            }
+        };
+        Iterator<Address> addresses = mapper.unmapEach(reader, Address.class);
+        assertTrue(addresses.hasNext());
+        assertEquals("A", addresses.next().street);
+        assertEquals(json.indexOf('}') + 1, charsRead.get());
+        assertEquals("B", addresses.next().street);
+        assertFalse(addresses.hasNext());
+
+        assertEquals(Arrays.asList(1L, 2L), new ArrayList<>(mapper.unmapAll("[1,2]", Long.class)));
+        assertTrue(mapper.unmapAll(" [ ] ", Long.class).isEmpty());
+    }
+
+    @Test
+    public void jsonMappersCanBeRegisteredWithAMapperGroup() throws Exception {
+        ObjectMapperGroup mapperGroup = JsonMapper.register(new ObjectMapperGroup(), Person.class, Address.class);
+
+        assertTrue(mapperGroup.findBinaryMapper(JsonMapper.JSON_CONTENT_TYPE, Person.class) instanceof JsonMapper);
+        assertNull(mapperGroup.findBinaryMapper("*/*", Person.class));
+        assertEquals(PERSON_JSON, mapperGroup.map(person(), JsonMapper.JSON_CONTENT_TYPE));
+
+        easy.withMapperGroup(mapperGroup).on(POST, "/move", JsonMapper.JSON_CONTENT_TYPE, new Responder() {
+            @Override
+            public void respond(Exchange exchange) throws IOException {
+                Person person = exchange.receiveAs(Person.class);
+                for (Address address : person.addresses) {
+                    address.number++;
+                }
+                exchange.send(person);
+            }
+        }).on(POST, "/streets", JsonMapper.JSON_CONTENT_TYPE, new Responder() {
+            @Override
+            public void respond(Exchange exchange) throws IOException {
+                Iterator<Address> addresses = exchange.receiveEach(Address.class);
+                List<String> streets = new ArrayList<>();
+                while (addresses.hasNext()) {
+                    streets.add(addresses.next().street);
+                }
+                exchange.send(streets);
+            }
+        }).start();
+
+        HttpClient client = new HttpClient();
+        client.start();
+        try {
+            ContentResponse response = client.POST("http://localhost:8080/move")
+                    .header(HttpHeader.ACCEPT, JsonMapper.JSON_CONTENT_TYPE)
+                    .content(new StringContentProvider(JsonMapper.JSON_CONTENT_TYPE, PERSON_JSON, StandardCharsets.UTF_8))
+                    .send();
+            assertEquals(200, response.getStatus());
+            assertEquals(PERSON_JSON.replace("\"number\":10", "\"number\":11").replace("\"number\":-2", "\"number\":-1"),
+                    new String(response.getContent(), StandardCharsets.UTF_8));
+
+            response = client.POST("http://localhost:8080/streets")
+                    .header(HttpHeader.ACCEPT, JsonMapper.JSON_CONTENT_TYPE)
+                    .content(new StringContentProvider(JsonMapper.JSON_CONTENT_TYPE,
+                            "[{\"street\":\"A\"},{\"street\":\"B\"}]", StandardCharsets.UTF_8))
+                    .send();
+            assertEquals(200, response.getStatus());
+            assertEquals("[\"A\",\"B\"]", response.getContentAsString().trim());
+        } finally {
+            client.stop();
+        }
+    }
+
+}
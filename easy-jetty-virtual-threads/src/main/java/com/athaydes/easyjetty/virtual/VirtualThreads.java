@@ -0,0 +1,121 @@
+package com.athaydes.easyjetty.virtual;
+
+import com.athaydes.easyjetty.EasyJetty;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs EasyJetty handlers in virtual Threads, so that handlers may block (eg. on JDBC or file I/O) without
+ * holding any server Thread, and the number of requests being handled concurrently is not capped by the size
+ * of the server's Thread pool.
+ * <p/>
+ * Virtual Threads are only available from Java 21. They are looked up reflectively, so this module can be
+ * on the classpath of applications running on older versions of Java, which can check whether virtual Threads
+ * are available with {@link #isAvailable()}.
+ * <p/>
+ * Example:
+ * <p/>
+ * <code>
+ * new EasyJetty()<br>
+ * .on(GET, "/users", ex -> ex.send(queryUsers()))<br>
+ * .handlerExecutor(VirtualThreads.executor())<br>
+ * .start();
+ * </code>
+ * <p/>
+ * The server's acceptors and selectors, as well as servlets and static resources, still run in the server's
+ * Thread pool.
+ * <p/>
+ * As each request is handled by a new virtual Thread, the buffers EasyJetty keeps for each Thread are allocated
+ * for every request instead of being reused (see {@link EasyJetty#handlerExecutor(Executor)}). The
+ * <code>sample.VirtualThreadsBenchmark</code> in this module's tests reports how much is allocated per request.
+ *
+ * @see EasyJetty#handlerExecutor(Executor)
+ */
+public final class VirtualThreads {
+
+    private static final String DEFAULT_NAME_PREFIX = "easy-jetty-virtual-";
+
+    private VirtualThreads() {
+        // static helpers only
+    }
+
+    /**
+     * @return true if the running JVM supports virtual Threads.
+     */
+    public static boolean isAvailable() {
+        try {
+            threadFactory(DEFAULT_NAME_PREFIX);
+            return true;
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return an Executor which runs each job in a new virtual Thread.
+     * @throws UnsupportedOperationException if the running JVM does not support virtual Threads
+     */
+    public static Executor executor() {
+        return executor(DEFAULT_NAME_PREFIX);
+    }
+
+    /**
+     * @param namePrefix prefix of the names of the virtual Threads, which are followed by a counter
+     * @return an Executor which runs each job in a new virtual Thread.
+     * @throws UnsupportedOperationException if the running JVM does not support virtual Threads
+     */
+    public static Executor executor(String namePrefix) {
+        return new VirtualThreadExecutor(threadFactory(namePrefix));
+    }
+
+    /**
+     * Configure the given EasyJetty instance to run its handlers in virtual Threads.
+     *
+     * @param easyJetty to configure
+     * @return the given EasyJetty instance
+     * @throws UnsupportedOperationException if the running JVM does not support virtual Threads
+     */
+    public static EasyJetty enable(EasyJetty easyJetty) {
+        return easyJetty.handlerExecutor(executor());
+    }
+
+    /**
+     * Equivalent to <code>Thread.ofVirtual().name(namePrefix, 0).factory()</code>.
+     */
+    private static ThreadFactory threadFactory(String namePrefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+            throw new UnsupportedOperationException("Virtual Threads are not supported by this JVM", e);
+        } catch (InvocationTargetException e) {
+            // eg. Java 19 and 20 without preview features enabled
+            throw new UnsupportedOperationException("Virtual Threads are not available", e.getCause());
+        }
+    }
+
+    private static final class VirtualThreadExecutor implements Executor {
+
+        private final ThreadFactory threadFactory;
+
+        VirtualThreadExecutor(ThreadFactory threadFactory) {
+            this.threadFactory = threadFactory;
+        }
+
+        @Override
+        public void execute(Runnable job) {
+            threadFactory.newThread(job).start();
+        }
+
+        @Override
+        public String toString() {
+            return "VirtualThreadExecutor";
+        }
+    }
+
+}
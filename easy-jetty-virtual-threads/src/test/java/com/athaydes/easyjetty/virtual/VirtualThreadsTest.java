@@ -0,0 +1,41 @@
+package com.athaydes.easyjetty.virtual;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class VirtualThreadsTest {
+
+    @Test
+    public void executorRunsJobsInVirtualThreadsIfAvailable() throws Exception {
+        if (!VirtualThreads.isAvailable()) {
+            try {
+                VirtualThreads.executor();
+                fail("Should not be able to create an executor without virtual Threads");
+            } catch (UnsupportedOperationException e) {
+                // expected
+            }
+            return;
+        }
+
+        final AtomicReference<Thread> jobThread = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        VirtualThreads.executor("test-virtual-").execute(new Runnable() {
+            @Override
+            public void run() {
+                jobThread.set(Thread.currentThread());
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(true, Thread.class.getMethod("isVirtual").invoke(jobThread.get()));
+        assertTrue(jobThread.get().getName().startsWith("test-virtual-"));
+    }
+
+}
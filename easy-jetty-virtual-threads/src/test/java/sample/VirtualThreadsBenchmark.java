@@ -0,0 +1,124 @@
+package sample;
+
+import com.athaydes.easyjetty.EasyJetty;
+import com.athaydes.easyjetty.Responder;
+import com.athaydes.easyjetty.ThreadPoolConfig;
+import com.athaydes.easyjetty.virtual.VirtualThreads;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.util.FutureResponseListener;
+import org.eclipse.jetty.http.HttpStatus;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.athaydes.easyjetty.http.MethodArbiter.Method.GET;
+
+/**
+ * This benchmark compares how long it takes to handle many concurrent requests with blocking handlers
+ * in the server's Thread pool and in virtual Threads, and how much memory is allocated per request in each case
+ * (by the client as well as the server, as both run in this JVM).
+ * <p/>
+ * Usage: VirtualThreadsBenchmark [concurrent requests] [blocking millis]
+ */
+public class VirtualThreadsBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (!VirtualThreads.isAvailable()) {
+            System.out.println("Virtual Threads are not available in this JVM");
+            return;
+        }
+
+        int concurrentRequests = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        final long blockingMillis = args.length > 1 ? Long.parseLong(args[1]) : 100L;
+
+        EasyJetty easy = new EasyJetty();
+        HttpClient client = new HttpClient();
+        client.setMaxConnectionsPerDestination(concurrentRequests);
+        client.setMaxRequestsQueuedPerDestination(concurrentRequests);
+        client.start();
+
+        easy.on(GET, "/blocking", new Responder() {
+            @Override
+            public void respond(Exchange exchange) throws IOException {
+                try {
+                    // simulates a blocking call, eg. a JDBC query
+                    Thread.sleep(blockingMillis);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                exchange.send("done");
+            }
+        });
+
+        try {
+            // warm up both modes before measuring them
+            runConcurrentRequests(easy, client, false, concurrentRequests / 10);
+            runConcurrentRequests(easy, client, true, concurrentRequests / 10);
+
+            long platformAllocated = allocatedBytes();
+            long platformTime = runConcurrentRequests(easy, client, false, concurrentRequests);
+            platformAllocated = allocatedBytes() - platformAllocated;
+
+            long virtualAllocated = allocatedBytes();
+            long virtualTime = runConcurrentRequests(easy, client, true, concurrentRequests);
+            virtualAllocated = allocatedBytes() - virtualAllocated;
+
+            System.out.println("Time to handle " + concurrentRequests + " concurrent blocking requests: " +
+                    "platform pool = " + TimeUnit.NANOSECONDS.toMillis(platformTime) + "ms, " +
+                    "virtual Threads = " + TimeUnit.NANOSECONDS.toMillis(virtualTime) + "ms");
+            System.out.println("Memory allocated per request: " +
+                    "platform pool = " + platformAllocated / concurrentRequests / 1024 + "KB, " +
+                    "virtual Threads = " + virtualAllocated / concurrentRequests / 1024 + "KB");
+        } finally {
+            client.stop();
+        }
+    }
+
+    /**
+     * @return approximate number of bytes allocated by all Threads so far, including terminated Threads
+     * (and the carriers of virtual Threads).
+     */
+    private static long allocatedBytes() throws Exception {
+        // com.sun.management.ThreadMXBean#getTotalThreadAllocatedBytes is available from Java 21, like virtual Threads
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return (Long) Class.forName("com.sun.management.ThreadMXBean")
+                .getMethod("getTotalThreadAllocatedBytes").invoke(threads);
+    }
+
+    /**
+     * @return the time it took to handle all requests, in nanoseconds
+     */
+    private static long runConcurrentRequests(EasyJetty easy, HttpClient client,
+                                              boolean virtual, int requestCount) throws Exception {
+        easy.threadPool(new ThreadPoolConfig().maxThreads(200))
+                .handlerExecutor(virtual ? VirtualThreads.executor() : null)
+                .start();
+        try {
+            long startTime = System.nanoTime();
+            List<FutureResponseListener> listeners = new ArrayList<>(requestCount);
+            for (int i = 0; i < requestCount; i++) {
+                FutureResponseListener listener = new FutureResponseListener(
+                        client.newRequest("http://localhost:8080/blocking"));
+                listener.getRequest().send(listener);
+                listeners.add(listener);
+            }
+            int failures = 0;
+            for (FutureResponseListener listener : listeners) {
+                if (listener.get(30, TimeUnit.SECONDS).getStatus() != HttpStatus.OK_200) {
+                    failures++;
+                }
+            }
+            if (failures > 0) {
+                System.out.println(failures + " of " + requestCount + " requests failed");
+            }
+            return System.nanoTime() - startTime;
+        } finally {
+            easy.stop();
+        }
+    }
+
+}
@@ -1,8 +1,10 @@
 package com.athaydes.easyjetty.websocket.handler;
 
 import com.athaydes.easyjetty.EasyJetty;
+import com.athaydes.easyjetty.mapper.BinaryObjectMapper;
 import org.eclipse.jetty.websocket.api.Session;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 
 /**
@@ -36,6 +38,26 @@ public interface BinaryMessageHandler {
             this.offset = offset;
             this.len = len;
         }
+
+        /**
+         * Reads the payload of this message as an Object of the given type, using the first
+         * {@link com.athaydes.easyjetty.mapper.BinaryObjectMapper} registered for the type.
+         *
+         * @param type of the Object
+         * @param <T>  type of the Object
+         * @return the Object read from the payload
+         * @throws IOException      if a problem occurs while reading the payload
+         * @throws RuntimeException if no BinaryObjectMapper exists for the type
+         */
+        public <T> T receiveAs(Class<T> type) throws IOException {
+            return type.cast(read(binaryMapperFor(type), new ByteArrayInputStream(payload, offset, len), type));
+        }
+
+        private static <M> M read(BinaryObjectMapper<M> mapper, ByteArrayInputStream in, Class<?> type)
+                throws IOException {
+            // the mapper was found for the type, so the type is a sub-type of the mapped type
+            return mapper.read(in, type.asSubclass(mapper.getMappedType()));
+        }
     }
 
     static class NoOp implements BinaryMessageHandler {
@@ -1,11 +1,14 @@
 package com.athaydes.easyjetty.websocket.handler;
 
 import com.athaydes.easyjetty.EasyJetty;
+import com.athaydes.easyjetty.mapper.BinaryObjectMapper;
 import com.athaydes.easyjetty.mapper.ObjectMapperGroup;
 import org.eclipse.jetty.websocket.api.Session;
 
 import java.io.IOException;
 
+import static com.athaydes.easyjetty.mapper.ObjectMapper.ACCEPT_EVERYTHING;
+
 /**
  * User provided connection starter.
  * Can be implemented with a Java 8 lambda.
@@ -23,9 +26,73 @@ public interface ConnectionStartedHandler {
             this.session = session;
         }
 
+        /**
+         * Sends the given object as a text message.
+         * <p/>
+         * If the ObjectMapper chosen for the object is a
+         * {@link com.athaydes.easyjetty.mapper.StreamingObjectMapper}, large messages are sent
+         * as partial messages without ever holding the whole message in memory. If the mapper fails after
+         * part of the message has been sent, the session is closed, as the message can never be completed.
+         *
+         * @param object to send
+         * @throws IOException if a problem occurs while sending the message
+         */
         public void send(Object object) throws IOException {
             ObjectMapperGroup omGroup = easyJetty.getObjectMapperGroup();
-            session.getRemote().sendString(omGroup.map(object));
+            PartialTextWriter writer = new PartialTextWriter(session);
+            boolean written = false;
+            try {
+                omGroup.write(object, ACCEPT_EVERYTHING, writer);
+                written = true;
+            } finally {
+                if (written) {
+                    writer.close();
+                } else {
+                    writer.abort();
+                }
+            }
+        }
+
+        /**
+         * Sends the given object as a binary message, using the first
+         * {@link com.athaydes.easyjetty.mapper.BinaryObjectMapper} registered for its type.
+         * <p/>
+         * Large messages are sent as partial messages without ever holding the whole message in memory.
+         * If the mapper fails after part of the message has been sent, the session is closed, as the message
+         * can never be completed.
+         *
+         * @param object to send
+         * @throws IOException      if a problem occurs while sending the message
+         * @throws RuntimeException if no BinaryObjectMapper exists for the type of the object
+         */
+        public void sendBinary(Object object) throws IOException {
+            BinaryObjectMapper<?> mapper = binaryMapperFor(object.getClass());
+            PartialBinaryOutputStream out = new PartialBinaryOutputStream(session);
+            boolean written = false;
+            try {
+                write(mapper, object, out);
+                written = true;
+            } finally {
+                if (written) {
+                    out.close();
+                } else {
+                    out.abort();
+                }
+            }
+        }
+
+        private static <T> void write(BinaryObjectMapper<T> mapper, Object object, PartialBinaryOutputStream out)
+                throws IOException {
+            // the mapper was found for the Object's type, so the Object is an instance of the mapped type
+            mapper.write(mapper.getMappedType().cast(object), out);
+        }
+
+        BinaryObjectMapper<?> binaryMapperFor(Class<?> type) {
+            BinaryObjectMapper<?> mapper = easyJetty.getObjectMapperGroup().findBinaryMapper(type);
+            if (mapper == null) {
+                throw new RuntimeException("No BinaryObjectMapper found for type " + type.getName());
+            }
+            return mapper;
         }
     }
 
@@ -0,0 +1,111 @@
+package com.athaydes.easyjetty.websocket.handler;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * OutputStream which sends a single WebSocket binary message.
+ * <p/>
+ * Messages which fit in the buffer are sent in a single frame when the stream is closed.
+ * Larger messages are sent as partial messages, one buffer at a time.
+ * <p/>
+ * If the message cannot be completed, the stream must be aborted instead of closed.
+ */
+class PartialBinaryOutputStream extends OutputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Session session;
+    private final RemoteEndpoint remote;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int count = 0;
+    private boolean sentPartial = false;
+    private boolean closed = false;
+
+    PartialBinaryOutputStream(Session session) {
+        this.session = session;
+        this.remote = session.getRemote();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (count == buffer.length) {
+            sendPartial();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            if (count == buffer.length) {
+                sendPartial();
+            }
+            int n = Math.min(length, buffer.length - count);
+            System.arraycopy(bytes, offset, buffer, count, n);
+            count += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    private void sendPartial() throws IOException {
+        // sending is blocking, so the buffer can be re-used as soon as this returns
+        remote.sendPartialBytes(ByteBuffer.wrap(buffer, 0, count), false);
+        sentPartial = true;
+        count = 0;
+    }
+
+    /**
+     * Does nothing, as the message is only complete when this stream is closed.
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Sends whatever is left of the message.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        ByteBuffer rest = ByteBuffer.wrap(buffer, 0, count);
+        if (sentPartial) {
+            remote.sendPartialBytes(rest, true);
+        } else {
+            remote.sendBytes(rest);
+        }
+    }
+
+    /**
+     * Discards whatever is left of the message.
+     * <p/>
+     * If part of the message has already been sent, the message can never be completed, so the session is closed.
+     */
+    void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (sentPartial) {
+            session.close(StatusCode.SERVER_ERROR, "Failed to write message");
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.athaydes.easyjetty.websocket.handler;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writer which sends a single WebSocket text message.
+ * <p/>
+ * Messages which fit in the buffer are sent in a single frame when the writer is closed.
+ * Larger messages are sent as partial messages, one buffer at a time.
+ * <p/>
+ * If the message cannot be completed, the writer must be aborted instead of closed.
+ */
+class PartialTextWriter extends Writer {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Session session;
+    private final RemoteEndpoint remote;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int count = 0;
+    private boolean sentPartial = false;
+    private boolean closed = false;
+
+    PartialTextWriter(Session session) {
+        this.session = session;
+        this.remote = session.getRemote();
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        if (closed) {
+            throw new IOException("Writer closed");
+        }
+        while (length > 0) {
+            if (count == buffer.length) {
+                sendPartial();
+            }
+            int n = Math.min(length, buffer.length - count);
+            System.arraycopy(chars, offset, buffer, count, n);
+            count += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    private void sendPartial() throws IOException {
+        // never split a surrogate pair between two fragments
+        int fragmentLength = Character.isHighSurrogate(buffer[count - 1]) ? count - 1 : count;
+        remote.sendPartialString(new String(buffer, 0, fragmentLength), false);
+        sentPartial = true;
+        count -= fragmentLength;
+        if (count > 0) {
+            buffer[0] = buffer[fragmentLength];
+        }
+    }
+
+    /**
+     * Does nothing, as the message is only complete when this writer is closed.
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Sends whatever is left of the message.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        String rest = new String(buffer, 0, count);
+        if (sentPartial) {
+            remote.sendPartialString(rest, true);
+        } else {
+            remote.sendString(rest);
+        }
+    }
+
+    /**
+     * Discards whatever is left of the message.
+     * <p/>
+     * If part of the message has already been sent, the message can never be completed, so the session is closed.
+     */
+    void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (sentPartial) {
+            session.close(StatusCode.SERVER_ERROR, "Failed to write message");
+        }
+    }
+
+}
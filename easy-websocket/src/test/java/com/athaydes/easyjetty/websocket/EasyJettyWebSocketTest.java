@@ -2,25 +2,37 @@ package com.athaydes.easyjetty.websocket;
 
 import com.athaydes.easyjetty.EasyJetty;
 import com.athaydes.easyjetty.SSLConfig;
+import com.athaydes.easyjetty.mapper.BinaryObjectMapper;
 import com.athaydes.easyjetty.mapper.ObjectMapperGroup;
 import com.athaydes.easyjetty.mapper.ObjectSerializer;
+import com.athaydes.easyjetty.mapper.StreamingObjectSerializer;
+import com.athaydes.easyjetty.websocket.handler.BinaryMessageHandler;
 import com.athaydes.easyjetty.websocket.handler.ConnectionClosedHandler;
 import com.athaydes.easyjetty.websocket.handler.ConnectionStartedHandler;
 import com.athaydes.easyjetty.websocket.handler.TextMessageHandler;
 import com.athaydes.easyjetty.websocket.handler.WebSocketErrorHandler;
 import com.google.code.tempusfugit.temporal.Condition;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
 import org.eclipse.jetty.websocket.api.WebSocketAdapter;
 import org.eclipse.jetty.websocket.client.WebSocketClient;
 import org.junit.After;
 import org.junit.Test;
 
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.code.tempusfugit.temporal.Duration.seconds;
 import static com.google.code.tempusfugit.temporal.Timeout.timeout;
@@ -177,6 +189,300 @@ public class EasyJettyWebSocketTest {
         assertThat(clientMessages, is(asList("Integer:100")));
     }
 
+    @Test
+    public void sendLargeMessagesUsingStreamingObjectMappers() throws Exception {
+        final AtomicBoolean done = new AtomicBoolean(false);
+        // a surrogate pair (U+1F600) makes sure messages are not split in the middle of a character
+        final String text = "ab\uD83D\uDE00";
+
+        jetty.withMapperGroup(new ObjectMapperGroup(false, true).withMappers(new StreamingObjectSerializer<Integer>() {
+            @Override
+            public void write(Integer times, Writer writer) throws IOException {
+                for (int i = 0; i < times; i++) {
+                    writer.write(text);
+                }
+            }
+
+            @Override
+            public Class<Integer> getMappedType() {
+                return Integer.class;
+            }
+        })).withExtension(new EasyJettyWebSocket()
+                .onText("chat", new TextMessageHandler() {
+                    @Override
+                    public void respond(MessageExchange exchange) throws IOException {
+                        exchange.send(Integer.parseInt(exchange.message));
+                    }
+                })).start();
+
+        final List<String> clientMessages = new ArrayList<>();
+
+        final WebSocketClient client = getWebSocketClient("ws://localhost:8080/chat",
+                new WebSocketAdapter() {
+                    @Override
+                    public void onWebSocketConnect(Session sess) {
+                        try {
+                            super.onWebSocketConnect(sess);
+                            sess.getRemote().sendString("3");
+                            sess.getRemote().sendString("10000");
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+
+                    @Override
+                    public void onWebSocketText(String message) {
+                        clientMessages.add(message);
+                        done.set(clientMessages.size() == 2);
+                    }
+                });
+
+        waitOrTimeout(new Condition() {
+            @Override
+            public boolean isSatisfied() {
+                return done.get();
+            }
+        }, timeout(seconds(2)));
+
+        client.stop();
+
+        StringBuilder largeMessage = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            largeMessage.append(text);
+        }
+
+        assertThat(clientMessages, is(asList(text + text + text, largeMessage.toString())));
+    }
+
+    @Test
+    public void sessionIsClosedIfStreamingObjectMapperFailsAfterSendingPartialMessage() throws Exception {
+        final AtomicInteger closeStatus = new AtomicInteger();
+        final List<Throwable> errors = new CopyOnWriteArrayList<>();
+
+        // writes as many characters as requested, but fails after writing them if the number is negative
+        jetty.withMapperGroup(new ObjectMapperGroup(false, true).withMappers(new StreamingObjectSerializer<Integer>() {
+            @Override
+            public void write(Integer size, Writer writer) throws IOException {
+                for (int i = 0; i < Math.abs(size); i++) {
+                    writer.write('x');
+                }
+                if (size < 0) {
+                    throw new IOException("Cannot write " + size);
+                }
+            }
+
+            @Override
+            public Class<Integer> getMappedType() {
+                return Integer.class;
+            }
+        })).withExtension(new EasyJettyWebSocket()
+                .onText("chat", ConnectionStartedHandler.NO_OP, new TextMessageHandler() {
+                    @Override
+                    public void respond(MessageExchange exchange) throws IOException {
+                        exchange.send(Integer.parseInt(exchange.message));
+                    }
+                }, new WebSocketErrorHandler() {
+                    @Override
+                    public void onError(ErrorExchange error) {
+                        errors.add(error.error);
+                    }
+                })).start();
+
+        final List<String> clientMessages = new CopyOnWriteArrayList<>();
+
+        final WebSocketClient client = getWebSocketClient("ws://localhost:8080/chat",
+                new WebSocketAdapter() {
+                    @Override
+                    public void onWebSocketConnect(Session sess) {
+                        try {
+                            super.onWebSocketConnect(sess);
+                            sess.getRemote().sendString("-3");
+                            sess.getRemote().sendString("3");
+                            sess.getRemote().sendString("-20000");
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+
+                    @Override
+                    public void onWebSocketText(String message) {
+                        clientMessages.add(message);
+                    }
+
+                    @Override
+                    public void onWebSocketClose(int statusCode, String reason) {
+                        closeStatus.set(statusCode);
+                    }
+                });
+
+        waitOrTimeout(new Condition() {
+            @Override
+            public boolean isSatisfied() {
+                return closeStatus.get() != 0;
+            }
+        }, timeout(seconds(2)));
+
+        client.stop();
+
+        // a message which failed before anything was sent does not affect the session,
+        // but one which failed after being partially sent can never be completed
+        assertThat(clientMessages, is(asList("xxx")));
+        assertThat(closeStatus.get(), is(StatusCode.SERVER_ERROR));
+        assertThat(errors.size(), is(2));
+    }
+
+    @Test
+    public void sendAndReceiveBinaryMessagesUsingBinaryObjectMappers() throws Exception {
+        final AtomicBoolean done = new AtomicBoolean(false);
+
+        // reads a message size, and writes a message of that size
+        jetty.withMapperGroup(new ObjectMapperGroup().withBinaryMappers(new BinaryObjectMapper<Integer>() {
+            @Override
+            public void write(Integer size, OutputStream out) throws IOException {
+                for (int i = 0; i < size; i++) {
+                    out.write(i);
+                }
+            }
+
+            @Override
+            public <S extends Integer> S read(InputStream in, Class<S> type) throws IOException {
+                return type.cast(new DataInputStream(in).readInt());
+            }
+
+            @Override
+            public Class<Integer> getMappedType() {
+                return Integer.class;
+            }
+
+            @Override
+            public String getContentType() {
+                return "application/octet-stream";
+            }
+        })).withExtension(new EasyJettyWebSocket()
+                .onBinary("chat", new BinaryMessageHandler() {
+                    @Override
+                    public void handleBinaryMessage(BinaryMessageExchange exchange) throws IOException {
+                        exchange.sendBinary(exchange.receiveAs(Integer.class));
+                    }
+                })).start();
+
+        final List<byte[]> clientMessages = new ArrayList<>();
+
+        final WebSocketClient client = getWebSocketClient("ws://localhost:8080/chat",
+                new WebSocketAdapter() {
+                    @Override
+                    public void onWebSocketConnect(Session sess) {
+                        try {
+                            super.onWebSocketConnect(sess);
+                            sess.getRemote().sendBytes(ByteBuffer.allocate(4).putInt(0, 3));
+                            sess.getRemote().sendBytes(ByteBuffer.allocate(4).putInt(0, 20000));
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+
+                    @Override
+                    public void onWebSocketBinary(byte[] payload, int offset, int len) {
+                        clientMessages.add(Arrays.copyOfRange(payload, offset, offset + len));
+                        done.set(clientMessages.size() == 2);
+                    }
+                });
+
+        waitOrTimeout(new Condition() {
+            @Override
+            public boolean isSatisfied() {
+                return done.get();
+            }
+        }, timeout(seconds(2)));
+
+        client.stop();
+
+        assertThat(clientMessages.get(0), is(new byte[]{0, 1, 2}));
+        assertThat(clientMessages.get(1).length, is(20000));
+        assertThat(clientMessages.get(1)[19999], is((byte) 19999));
+    }
+
+    @Test
+    public void sessionIsClosedIfBinaryObjectMapperFailsAfterSendingPartialMessage() throws Exception {
+        final AtomicInteger closeStatus = new AtomicInteger();
+
+        // writes as many bytes as requested, but fails after writing them if the number is negative
+        jetty.withMapperGroup(new ObjectMapperGroup().withBinaryMappers(new BinaryObjectMapper<Integer>() {
+            @Override
+            public void write(Integer size, OutputStream out) throws IOException {
+                for (int i = 0; i < Math.abs(size); i++) {
+                    out.write(i);
+                }
+                if (size < 0) {
+                    throw new IOException("Cannot write " + size);
+                }
+            }
+
+            @Override
+            public <S extends Integer> S read(InputStream in, Class<S> type) throws IOException {
+                return type.cast(new DataInputStream(in).readInt());
+            }
+
+            @Override
+            public Class<Integer> getMappedType() {
+                return Integer.class;
+            }
+
+            @Override
+            public String getContentType() {
+                return "application/octet-stream";
+            }
+        })).withExtension(new EasyJettyWebSocket()
+                .onBinary("chat", new BinaryMessageHandler() {
+                    @Override
+                    public void handleBinaryMessage(BinaryMessageExchange exchange) throws IOException {
+                        exchange.sendBinary(exchange.receiveAs(Integer.class));
+                    }
+                })).start();
+
+        final List<byte[]> clientMessages = new CopyOnWriteArrayList<>();
+
+        final WebSocketClient client = getWebSocketClient("ws://localhost:8080/chat",
+                new WebSocketAdapter() {
+                    @Override
+                    public void onWebSocketConnect(Session sess) {
+                        try {
+                            super.onWebSocketConnect(sess);
+                            sess.getRemote().sendBytes(ByteBuffer.allocate(4).putInt(0, -3));
+                            sess.getRemote().sendBytes(ByteBuffer.allocate(4).putInt(0, 3));
+                            sess.getRemote().sendBytes(ByteBuffer.allocate(4).putInt(0, -20000));
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    }
+
+                    @Override
+                    public void onWebSocketBinary(byte[] payload, int offset, int len) {
+                        clientMessages.add(Arrays.copyOfRange(payload, offset, offset + len));
+                    }
+
+                    @Override
+                    public void onWebSocketClose(int statusCode, String reason) {
+                        closeStatus.set(statusCode);
+                    }
+                });
+
+        waitOrTimeout(new Condition() {
+            @Override
+            public boolean isSatisfied() {
+                return closeStatus.get() != 0;
+            }
+        }, timeout(seconds(2)));
+
+        client.stop();
+
+        // a message which failed before anything was sent does not affect the session,
+        // but one which failed after being partially sent can never be completed
+        assertThat(clientMessages.size(), is(1));
+        assertThat(clientMessages.get(0), is(new byte[]{0, 1, 2}));
+        assertThat(closeStatus.get(), is(StatusCode.SERVER_ERROR));
+    }
+
     @Test
     public void secureWebSocketWorks() throws Exception {
         final List<String> errors = new ArrayList<>();